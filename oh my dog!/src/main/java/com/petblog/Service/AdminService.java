@@ -3,6 +3,7 @@ package com.petblog.Service;
 import com.petblog.dao.*;
 import com.petblog.dao.impl.*;
 import com.petblog.model.*;
+import com.petblog.util.CountCache;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -14,13 +15,20 @@ import static com.petblog.util.JdbcUtil.getConnection;
  */
 public class AdminService extends BaseService {
     
+    /**
+     * 管理员列表总数在 CountCache 中的键
+     */
+    private static final String USERS_TOTAL_KEY = "admin.users";
+    private static final String BLOGS_TOTAL_KEY = "admin.blogs";
+    private static final String REPLIES_TOTAL_KEY = "admin.replies";
+    
     private UserDAO userDAO = new UserDAOImpl();
     private BlogDAO blogDAO = new BlogDAOImpl();
     private ReplyDAO replyDAO = new ReplyDAOImpl();
     private ConsultationDAO consultationDAO = new ConsultationDAOImpl();
+    private ChallengeResultDAO challengeResultDAO = new ChallengeResultDAOImpl();
+    private BlogChallengeService blogChallengeService = new BlogChallengeService();
     private LikeDAO likeDAO;
-    private FavoriteDAO favoriteDAO = new FavoriteDAOImpl();
-    private LikeService likeService = new LikeService();
     
     public AdminService() {
         try {
@@ -127,7 +135,7 @@ public class AdminService extends BaseService {
     public Map<String, Object> getAllUsersWithLevel(int pageNum, int pageSize) {
         try {
             List<User> users = userDAO.selectAll(pageNum, pageSize);
-            int total = userDAO.countTotalUsers();
+            int total = CountCache.get(USERS_TOTAL_KEY, userDAO::countTotalUsers);
             
             // 为每个用户添加等级信息
             UserXpService xpService = new UserXpService();
@@ -167,7 +175,7 @@ public class AdminService extends BaseService {
     public Map<String, Object> searchUsersWithLevel(String keyword, int pageNum, int pageSize) {
         try {
             List<User> users = userDAO.searchUsers(keyword, pageNum, pageSize);
-            int total = userDAO.countTotalUsers(); // 简化处理，实际应该统计搜索结果
+            int total = CountCache.get(USERS_TOTAL_KEY + ":" + keyword, () -> userDAO.countSearchUsers(keyword));
             
             // 为每个用户添加等级信息
             UserXpService xpService = new UserXpService();
@@ -205,70 +213,13 @@ public class AdminService extends BaseService {
     
     /**
      * 获取所有博客列表（分页，包含统计信息，包括已封禁的博客）
+     * 在数据库中分页，正文只取摘要；本页博客的点赞、收藏、评论数由一次聚合查询得到，总数短期缓存
      */
     public Map<String, Object> getAllBlogs(int pageNum, int pageSize) {
         try {
-            // 查询所有博客（包括已封禁的），用于管理员后台
-            String sql = "SELECT b.blog_id, b.user_id, b.blog_title, b.blog_content, b.blog_update_time, b.blog_create_time, b.is_shielded, " +
-                        "u.user_name, u.user_avatar_path " +
-                        "FROM blogs b " +
-                        "LEFT JOIN users u ON b.user_id = u.user_id " +
-                        "ORDER BY b.blog_create_time DESC";
-            
-            // 直接使用JdbcUtil执行查询
-            List<Blog> allBlogs = new ArrayList<>();
-            java.sql.Connection conn = null;
-            java.sql.PreparedStatement pstmt = null;
-            java.sql.ResultSet rs = null;
-            
-            try {
-                conn = com.petblog.util.JdbcUtil.getConnection();
-                pstmt = conn.prepareStatement(sql);
-                rs = pstmt.executeQuery();
-                
-                while (rs.next()) {
-                    Blog blog = new Blog();
-                    blog.setBlogId(rs.getInt("blog_id"));
-                    blog.setUserId(rs.getInt("user_id"));
-                    blog.setBlogTitle(rs.getString("blog_title"));
-                    blog.setBlogContent(rs.getString("blog_content"));
-                    blog.setBlogUpdateTime(rs.getDate("blog_update_time"));
-                    blog.setBlogCreateTime(rs.getDate("blog_create_time"));
-                    blog.setIsShielded(rs.getInt("is_shielded"));
-                    blog.setUserName(rs.getString("user_name"));
-                    blog.setUserAvatarPath(rs.getString("user_avatar_path"));
-                    allBlogs.add(blog);
-                }
-            } catch (SQLException e) {
-                handleException(e, "查询所有博客（管理员）");
-            } finally {
-                com.petblog.util.JdbcUtil.close(conn, pstmt, rs);
-            }
-            
-            // 分页处理
-            int total = allBlogs.size();
-            int start = (pageNum - 1) * pageSize;
-            int end = Math.min(start + pageSize, total);
-            List<Blog> pagedBlogs = start < total ? allBlogs.subList(start, end) : new ArrayList<>();
-            
-            // 为每个博客添加统计信息
-            for (Blog blog : pagedBlogs) {
-                try {
-                    // 获取点赞数
-                    int likeCount = likeService.countBlogLikes(blog.getBlogId());
-                    blog.setLikeCount(likeCount);
-                    
-                    // 获取收藏数
-                    int favoriteCount = favoriteDAO.countByBlogId(blog.getBlogId());
-                    blog.setFavoriteCount(favoriteCount);
-                    
-                    // 获取评论数
-                    List<Reply> replies = replyDAO.findByBlogId(blog.getBlogId());
-                    blog.setCommentCount(replies != null ? replies.size() : 0);
-                } catch (Exception e) {
-                    // 忽略统计错误
-                }
-            }
+            List<Blog> pagedBlogs = blogDAO.findPageForAdmin(offset(pageNum, pageSize), pageSize);
+            fillEngagement(pagedBlogs);
+            int total = CountCache.get(BLOGS_TOTAL_KEY, blogDAO::countAll);
             
             Map<String, Object> result = new HashMap<>();
             result.put("blogs", pagedBlogs);
@@ -276,8 +227,8 @@ public class AdminService extends BaseService {
             result.put("pageNum", pageNum);
             result.put("pageSize", pageSize);
             return result;
-        } catch (Exception e) {
-            return handleException(new SQLException(e), "获取博客列表", new HashMap<>());
+        } catch (SQLException e) {
+            return handleException(e, "获取博客列表", new HashMap<>());
         }
     }
     
@@ -314,19 +265,11 @@ public class AdminService extends BaseService {
                 blog.setUserName(rs.getString("user_name"));
                 blog.setUserAvatarPath(rs.getString("user_avatar_path"));
                 
+            }
+            
+            if (blog != null) {
                 // 添加统计信息
-                try {
-                    int likeCount = likeService.countBlogLikes(blog.getBlogId());
-                    blog.setLikeCount(likeCount);
-                    
-                    int favoriteCount = favoriteDAO.countByBlogId(blog.getBlogId());
-                    blog.setFavoriteCount(favoriteCount);
-                    
-                    List<Reply> replies = replyDAO.findByBlogId(blog.getBlogId());
-                    blog.setCommentCount(replies != null ? replies.size() : 0);
-                } catch (Exception e) {
-                    // 忽略统计错误
-                }
+                fillEngagement(Collections.singletonList(blog));
             }
             
             return blog;
@@ -340,35 +283,18 @@ public class AdminService extends BaseService {
     }
     
     /**
-     * 获取博客统计信息
+     * 获取博客统计信息（一次聚合查询）
      */
     public Map<String, Object> getBlogStats() {
         try {
-            List<Blog> allBlogs = blogDAO.findAll();
+            Map<String, Integer> totals = blogDAO.findEngagementTotals();
             
             Map<String, Object> stats = new HashMap<>();
-            stats.put("totalBlogs", allBlogs.size());
-            
-            // 统计总阅读量、点赞数、评论数等
-            int totalLikes = 0;
-            int totalFavorites = 0;
-            int totalComments = 0;
-            
-            for (Blog blog : allBlogs) {
-                try {
-                    totalLikes += likeService.countBlogLikes(blog.getBlogId());
-                    totalFavorites += favoriteDAO.countByBlogId(blog.getBlogId());
-                    List<Reply> replies = replyDAO.findByBlogId(blog.getBlogId());
-                    totalComments += replies != null ? replies.size() : 0;
-                } catch (Exception e) {
-                    // 忽略单个博客的统计错误
-                }
-            }
-            
-            stats.put("totalLikes", totalLikes);
-            stats.put("totalFavorites", totalFavorites);
-            stats.put("totalComments", totalComments);
-            
+            stats.put("totalBlogs", totals.get("blogs"));
+            // 与原先按博客调用 countBlogLikes 一致，叠加尚未落库的点赞变化
+            stats.put("totalLikes", Math.max(0, totals.get("likes") + WriteBehindToggleBuffer.LIKES.getPendingDeltaTotal()));
+            stats.put("totalFavorites", totals.get("favorites"));
+            stats.put("totalComments", totals.get("comments"));
             return stats;
         } catch (SQLException e) {
             return handleException(e, "获取博客统计", new HashMap<>());
@@ -399,39 +325,12 @@ public class AdminService extends BaseService {
     
     /**
      * 获取所有评论（分页，包括已删除的）
+     * 在数据库中分页，总数短期缓存
      */
     public Map<String, Object> getAllReplies(int pageNum, int pageSize) {
-        java.sql.Connection conn = null;
-        java.sql.PreparedStatement pstmt = null;
-        java.sql.ResultSet rs = null;
         try {
-            // 直接查询所有评论（包括已删除的），用于管理员后台
-            String sql = "SELECT r.user_id, r.blog_id, r.reply_id, r.parentReply, r.reply_createdtime, r.reply_content, r.is_visible " +
-                        "FROM replies r " +
-                        "ORDER BY r.reply_createdtime DESC";
-            
-            conn = com.petblog.util.JdbcUtil.getConnection();
-            pstmt = conn.prepareStatement(sql);
-            rs = pstmt.executeQuery();
-            
-            List<Reply> allReplies = new ArrayList<>();
-            while (rs.next()) {
-                Reply reply = new Reply();
-                reply.setUserId(rs.getInt("user_id"));
-                reply.setBlogId(rs.getInt("blog_id"));
-                reply.setReplyId(rs.getInt("reply_id"));
-                reply.setParentReply(rs.getObject("parentReply") != null ? rs.getInt("parentReply") : null);
-                reply.setReplyCreatedtime(rs.getDate("reply_createdtime"));
-                reply.setReplyContent(rs.getString("reply_content"));
-                reply.setIsVisible(rs.getInt("is_visible"));
-                allReplies.add(reply);
-            }
-            
-            // 分页处理
-            int total = allReplies.size();
-            int start = (pageNum - 1) * pageSize;
-            int end = Math.min(start + pageSize, total);
-            List<Reply> pagedReplies = start < total ? allReplies.subList(start, end) : new ArrayList<>();
+            List<Reply> pagedReplies = replyDAO.findPageForAdmin(offset(pageNum, pageSize), pageSize);
+            int total = CountCache.get(REPLIES_TOTAL_KEY, replyDAO::countAll);
             
             Map<String, Object> result = new HashMap<>();
             result.put("replies", pagedReplies);
@@ -441,9 +340,6 @@ public class AdminService extends BaseService {
             return result;
         } catch (SQLException e) {
             return handleException(e, "获取评论列表", new HashMap<>());
-        } finally {
-            // 确保连接总是被关闭
-            com.petblog.util.JdbcUtil.close(conn, pstmt, rs);
         }
     }
     
@@ -595,24 +491,48 @@ public class AdminService extends BaseService {
     }
     
     /**
-     * 获取获胜狗狗（投票数最多的博客）
+     * 获取获胜狗狗
+     * 已结束的挑战直接读取结束时保存的排名，不再重新统计；进行中的挑战按当前票数排列；
+     * 未指定挑战时取最近结束的挑战，还没有挑战结束时按全部投票统计
+     * @param challengeId 挑战ID，为null时取最近结束的挑战
      */
-    public List<Map<String, Object>> getWinningDogs(int limit) {
+    public List<Map<String, Object>> getWinningDogs(Integer challengeId, int limit) {
         try {
-            Map<String, Object> voteStats = getVoteStats();
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> blogVotes = (List<Map<String, Object>>) voteStats.get("blogVotes");
-            
-            if (blogVotes != null && !blogVotes.isEmpty()) {
-                return blogVotes.stream()
-                    .limit(limit)
-                    .collect(Collectors.toList());
+            if (challengeId == null) {
+                challengeId = challengeResultDAO.findLatestFinalizedChallengeId();
             }
-            
-            return new ArrayList<>();
-        } catch (Exception e) {
-            handleException(new SQLException(e), "获取获胜狗狗");
-            return new ArrayList<>();
+            if (challengeId == null) {
+                Map<String, Object> voteStats = getVoteStats();
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> blogVotes = (List<Map<String, Object>>) voteStats.get("blogVotes");
+                if (blogVotes != null && !blogVotes.isEmpty()) {
+                    return blogVotes.stream()
+                        .limit(limit)
+                        .collect(Collectors.toList());
+                }
+                return new ArrayList<>();
+            }
+
+            // 已结束的挑战由 getBlogHeats 读取保存的结果（已按名次排列）
+            List<ChallengeBlogHeat> blogs = new ArrayList<>(blogChallengeService.getBlogHeats(challengeId));
+            blogs.sort(Comparator.comparingInt(ChallengeBlogHeat::getVoteCount).reversed()
+                    .thenComparing(ChallengeBlogHeat::getBlogId));
+            List<Map<String, Object>> winners = new ArrayList<>();
+            for (ChallengeBlogHeat blog : blogs) {
+                if (winners.size() >= limit) {
+                    break;
+                }
+                Map<String, Object> winner = new HashMap<>();
+                winner.put("challengeId", challengeId);
+                winner.put("blogId", blog.getBlogId());
+                winner.put("blogTitle", blog.getBlogTitle());
+                winner.put("voteCount", blog.getVoteCount());
+                winner.put("userName", blog.getUserName());
+                winners.add(winner);
+            }
+            return winners;
+        } catch (SQLException e) {
+            return handleException(e, "获取获胜狗狗", new ArrayList<>());
         }
     }
     
@@ -650,12 +570,13 @@ public class AdminService extends BaseService {
                     break;
                 case "weight":
                 default:
-                    // 综合权重：点赞*2 + 评论*3 + 收藏*2 + 转发*1
+                    // 综合权重：与博客热度使用同一组权重（HeatScoreEngine），投票数取分片计数之和
                     sql = baseSelect + ", " +
-                          "(COALESCE((SELECT COUNT(*) FROM likes WHERE likes.blog_id = b.blog_id), 0) * 2 + " +
-                          "COALESCE((SELECT COUNT(*) FROM replies WHERE replies.blog_id = b.blog_id AND replies.parentReply IS NULL), 0) * 3 + " +
-                          "COALESCE((SELECT COUNT(*) FROM favorites WHERE favorites.blog_id = b.blog_id), 0) * 2 + " +
-                          "COALESCE((SELECT COUNT(*) FROM reposts WHERE reposts.blog_Id = b.blog_id), 0) * 1) as weight " +
+                          "(COALESCE((SELECT SUM(vote_count) FROM vote_counter_shards s WHERE s.blog_id = b.blog_id), 0) * " + HeatScoreEngine.VOTE_WEIGHT + " + " +
+                          "COALESCE((SELECT COUNT(*) FROM likes WHERE likes.blog_id = b.blog_id), 0) * " + HeatScoreEngine.LIKE_WEIGHT + " + " +
+                          "COALESCE((SELECT COUNT(*) FROM replies WHERE replies.blog_id = b.blog_id AND replies.parentReply IS NULL), 0) * " + HeatScoreEngine.COMMENT_WEIGHT + " + " +
+                          "COALESCE((SELECT COUNT(*) FROM favorites WHERE favorites.blog_id = b.blog_id), 0) * " + HeatScoreEngine.FAVORITE_WEIGHT + " + " +
+                          "COALESCE((SELECT COUNT(*) FROM reposts WHERE reposts.blog_Id = b.blog_id), 0) * " + HeatScoreEngine.REPOST_WEIGHT + ") as weight " +
                           baseFrom + 
                           "ORDER BY weight DESC LIMIT ?";
                     break;
@@ -994,5 +915,37 @@ public class AdminService extends BaseService {
             return handleException(e, "获取平台统计", new HashMap<>());
         }
     }
+    
+    // ==================== 私有辅助方法 ====================
+    
+    /**
+     * 页码换算为跳过的条数（页码小于1时按第1页）
+     */
+    private static int offset(int pageNum, int pageSize) {
+        return (Math.max(pageNum, 1) - 1) * Math.max(pageSize, 0);
+    }
+    
+    /**
+     * 由一次聚合查询为博客填充点赞、收藏、可见一级评论数（点赞数叠加写后缓冲中尚未落库的变化）
+     */
+    private void fillEngagement(List<Blog> blogs) throws SQLException {
+        if (blogs.isEmpty()) {
+            return;
+        }
+        List<Integer> blogIds = new ArrayList<>(blogs.size());
+        for (Blog blog : blogs) {
+            blogIds.add(blog.getBlogId());
+        }
+        Map<Integer, BlogEngagement> engagements = new HashMap<>();
+        for (BlogEngagement engagement : blogDAO.findEngagementByIdsForAdmin(blogIds)) {
+            engagements.put(engagement.getBlogId(), engagement);
+        }
+        for (Blog blog : blogs) {
+            BlogEngagement engagement = engagements.get(blog.getBlogId());
+            int likes = engagement != null ? engagement.getLikeCount() : 0;
+            blog.setLikeCount(Math.max(0, likes + WriteBehindToggleBuffer.LIKES.getPendingDelta(blog.getBlogId())));
+            blog.setFavoriteCount(engagement != null ? engagement.getFavoriteCount() : 0);
+            blog.setCommentCount(engagement != null ? engagement.getCommentCount() : 0);
+        }
+    }
 }
-
@@ -1,15 +1,30 @@
 package com.petblog.Service;
 
 import com.petblog.dao.BlogChallengeDAO;
+import com.petblog.dao.ChallengeResultDAO;
+import com.petblog.dao.WriteBehindToggleBuffer;
 import com.petblog.dao.impl.BlogChallengeDAOImpl;
+import com.petblog.dao.impl.ChallengeResultDAOImpl;
 import com.petblog.model.BlogChallenge;
+import com.petblog.model.ChallengeBlogHeat;
+import com.petblog.model.PetRanking;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class BlogChallengeService extends BaseService {
 
+    /**
+     * 每篇参赛博客对挑战热度的基础贡献
+     */
+    private static final int ENTRY_HEAT = 50;
+
     private BlogChallengeDAO blogChallengeDAO = new BlogChallengeDAOImpl();
+    private ChallengeResultDAO challengeResultDAO = new ChallengeResultDAOImpl();
 
     /**
      * 创建博客挑战关联
@@ -17,6 +32,7 @@ public class BlogChallengeService extends BaseService {
     public boolean createBlogChallenge(BlogChallenge blogChallenge) {
         try {
             blogChallengeDAO.insert(blogChallenge);
+            ChallengeLeaderboard.invalidate(blogChallenge.getChallengeId());
             return true;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "创建博客挑战关联");
@@ -30,6 +46,7 @@ public class BlogChallengeService extends BaseService {
     public boolean updateBlogChallenge(BlogChallenge blogChallenge) {
         try {
             blogChallengeDAO.update(blogChallenge);
+            ChallengeLeaderboard.invalidate(blogChallenge.getChallengeId());
             return true;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "更新博客挑战关联");
@@ -43,6 +60,7 @@ public class BlogChallengeService extends BaseService {
     public boolean deleteBlogChallenge(int id) {
         try {
             blogChallengeDAO.delete(id);
+            ChallengeLeaderboard.invalidate(id);
             return true;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "删除博客挑战关联");
@@ -97,4 +115,119 @@ public class BlogChallengeService extends BaseService {
             return null;
         }
     }
+
+    /**
+     * 查询挑战全部参赛博客的热度构成
+     * 已结束的挑战读取结束时保存的结果，其余挑战由一次聚合查询实时计算
+     * @return 参赛博客列表（含热度），查询失败返回空列表
+     */
+    public List<ChallengeBlogHeat> getBlogHeats(int challengeId) {
+        try {
+            if (!challengeResultDAO.findHeats(List.of(challengeId)).isEmpty()) {
+                return challengeResultDAO.findBlogResults(challengeId);
+            }
+            return queryBlogHeats(List.of(challengeId));
+        } catch (SQLException e) {
+            return handleException(e, "聚合查询挑战博客热度", new ArrayList<>());
+        }
+    }
+
+    /**
+     * 挑战是否已结束并保存了最终结果（此后热度和排名不再随投票变化）
+     */
+    public boolean hasFinalResults(int challengeId) {
+        try {
+            return !challengeResultDAO.findHeats(List.of(challengeId)).isEmpty();
+        } catch (SQLException e) {
+            return handleException(e, "查询挑战最终结果", false);
+        }
+    }
+
+    /**
+     * 批量计算挑战热度（已结束的挑战读取保存的结果，其余挑战由一次聚合查询覆盖）
+     * 挑战热度 = Σ(每篇参赛博客50 + 博客热度)
+     * @return 挑战ID到热度的映射，没有参赛博客的挑战为0
+     */
+    public Map<Integer, Integer> getChallengeHeats(List<Integer> challengeIds) {
+        Map<Integer, Integer> heats = new HashMap<>();
+        if (challengeIds == null || challengeIds.isEmpty()) {
+            return heats;
+        }
+        try {
+            Map<Integer, Integer> finalHeats = challengeResultDAO.findHeats(challengeIds);
+            List<Integer> live = new ArrayList<>();
+            for (Integer challengeId : challengeIds) {
+                Integer heat = finalHeats.get(challengeId);
+                heats.put(challengeId, heat != null ? heat : 0);
+                if (heat == null) {
+                    live.add(challengeId);
+                }
+            }
+            if (!live.isEmpty()) {
+                for (ChallengeBlogHeat row : queryBlogHeats(live)) {
+                    heats.merge(row.getChallengeId(), ENTRY_HEAT + row.getHeat(), Integer::sum);
+                }
+            }
+        } catch (SQLException e) {
+            handleException(e, "批量计算挑战热度");
+        }
+        return heats;
+    }
+
+    /**
+     * 计算单个挑战的热度
+     */
+    public int getChallengeHeat(int challengeId) {
+        return getChallengeHeats(List.of(challengeId)).getOrDefault(challengeId, 0);
+    }
+
+    /**
+     * 查询挑战中的宠物排名
+     * 已结束的挑战读取结束时保存的排名，其余挑战由一条分组查询完成汇总和排序
+     * @return 排名列表，查询失败返回空列表
+     */
+    public List<PetRanking> getPetRankings(int challengeId) {
+        try {
+            if (!challengeResultDAO.findHeats(List.of(challengeId)).isEmpty()) {
+                return challengeResultDAO.findPetResults(challengeId);
+            }
+            return blogChallengeDAO.findPetRankings(challengeId);
+        } catch (SQLException e) {
+            return handleException(e, "统计挑战宠物排名", new ArrayList<>());
+        }
+    }
+
+    /**
+     * 计算挑战的最终博客热度、宠物排名和挑战热度，保存到结果表并把挑战设为已结束
+     * 任一查询失败时不保存，等下次调度重试
+     * @return 是否保存（已由其他实例保存或查询失败时返回false）
+     */
+    public boolean finalizeResults(int challengeId) {
+        try {
+            List<ChallengeBlogHeat> blogs = queryBlogHeats(List.of(challengeId));
+            // 博客名次与实时排行榜一致：投票数降序、博客ID升序
+            blogs.sort(Comparator.comparingInt(ChallengeBlogHeat::getVoteCount).reversed()
+                    .thenComparingInt(ChallengeBlogHeat::getBlogId));
+            int heat = 0;
+            for (ChallengeBlogHeat blog : blogs) {
+                heat += ENTRY_HEAT + blog.getHeat();
+            }
+            List<PetRanking> pets = blogChallengeDAO.findPetRankings(challengeId);
+            return challengeResultDAO.saveResults(challengeId, heat, blogs, pets);
+        } catch (SQLException e) {
+            return handleException(e, "保存挑战最终结果", false);
+        }
+    }
+
+    private List<ChallengeBlogHeat> queryBlogHeats(List<Integer> challengeIds) throws SQLException {
+        List<ChallengeBlogHeat> rows = blogChallengeDAO.findBlogHeatByChallengeIds(challengeIds);
+        for (ChallengeBlogHeat row : rows) {
+            // 叠加写后缓冲中尚未落库的投票、点赞
+            row.setVoteCount(row.getVoteCount() + WriteBehindToggleBuffer.VOTES.getPendingDelta(row.getBlogId()));
+            row.setLikeCount(row.getLikeCount() + WriteBehindToggleBuffer.LIKES.getPendingDelta(row.getBlogId()));
+            row.setHeat(HeatScoreEngine.heat(row.getVoteCount(), row.getLikeCount(), row.getFavoriteCount(),
+                    row.getCommentCount(), row.getRepostCount()));
+        }
+        return rows;
+    }
 }
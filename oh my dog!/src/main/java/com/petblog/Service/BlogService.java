@@ -1,15 +1,21 @@
 package com.petblog.Service;
 
 import com.petblog.dao.BlogDAO;
+import com.petblog.dao.WriteBehindToggleBuffer;
 import com.petblog.dao.impl.BlogDAOImpl;
 import com.petblog.model.Blog;
+import com.petblog.model.BlogEngagement;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class BlogService extends BaseService {
 
     private BlogDAO blogDAO = new BlogDAOImpl();
+    private TimelineService timelineService = new TimelineService();
 
     /**
      * 创建新博客
@@ -17,6 +23,11 @@ public class BlogService extends BaseService {
     public void createBlog(Blog blog) {
         try {
             blogDAO.insert(blog);
+            // 推送到作者和粉丝的关注时间线
+            timelineService.onBlogCreated(blog);
+            if (blog.getBlogId() != null) {
+                HeatScoreEngine.onBlogCreated(blog.getBlogId(), blog.getBlogCreateTime());
+            }
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "创建博客");
         }
@@ -39,6 +50,7 @@ public class BlogService extends BaseService {
     public boolean deleteBlog(int blogId) {
         try {
             blogDAO.delete(blogId);
+            timelineService.onBlogDeleted(blogId);
             return true;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "删除博客");
@@ -105,4 +117,53 @@ public class BlogService extends BaseService {
             return null;
         }
     }
+
+    /**
+     * 获取热门博客（按时间衰减后的热度排序，读取热度引擎的前K名快照）
+     * @return 按热门名次排列的博客（含统计字段），失败返回空列表
+     */
+    public List<Blog> getTrendingBlogs(int limit) {
+        List<Integer> ids = new ArrayList<>();
+        for (Map<String, Object> item : HeatScoreEngine.trending(limit)) {
+            ids.add((Integer) item.get("blog_id"));
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            Map<Integer, Blog> byId = new HashMap<>();
+            for (Blog blog : blogDAO.findByIds(ids)) {
+                byId.put(blog.getBlogId(), blog);
+            }
+            List<Blog> blogs = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                Blog blog = byId.get(id);
+                if (blog != null) {
+                    blogs.add(blog);
+                }
+            }
+            return blogs;
+        } catch (SQLException e) {
+            return handleException(e, "查询热门博客", new ArrayList<>());
+        }
+    }
+
+    /**
+     * 查询博客的互动计数（一次聚合查询，叠加写后缓冲中尚未落库的投票、点赞）
+     * @return 互动计数，博客不存在或查询失败返回null
+     */
+    public BlogEngagement getBlogEngagement(int blogId) {
+        try {
+            List<BlogEngagement> rows = blogDAO.findEngagementByIds(List.of(blogId));
+            if (rows.isEmpty()) {
+                return null;
+            }
+            BlogEngagement engagement = rows.get(0);
+            engagement.setVoteCount(engagement.getVoteCount() + WriteBehindToggleBuffer.VOTES.getPendingDelta(blogId));
+            engagement.setLikeCount(engagement.getLikeCount() + WriteBehindToggleBuffer.LIKES.getPendingDelta(blogId));
+            return engagement;
+        } catch (SQLException e) {
+            return handleException(e, "查询博客互动计数", null);
+        }
+    }
 }
@@ -0,0 +1,328 @@
+package com.petblog.Service;
+
+import com.petblog.dao.ShardedVoteCounter;
+import com.petblog.dao.WriteBehindToggleBuffer;
+import com.petblog.model.Challenge;
+import com.petblog.model.ChallengeBlogHeat;
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.LoadVersions;
+import com.petblog.util.MetricsRegistry;
+import com.petblog.util.PushHub;
+import com.petblog.util.RankedSkipList;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 挑战投票实时排行榜
+ * 每个挑战在内存中保留一个按 (投票数降序, 博客ID升序) 排列的带排名跳表，
+ * 投票变化后重新读取博客的最新票数并更新，前N名和某篇博客的名次都在 O(log n) 内得到，不再每次刷新都重新统计。
+ * 票数在排行榜锁外读取，锁内确认读取之后该博客没有新的投票变化才写入，否则重新读取；
+ * 并发的投票无论以什么顺序到达，最后写入的都是最新票数。
+ * 名次或票数变化时向主题 challenge:{挑战ID} 的推送连接广播 leaderboard 事件。
+ * 排行榜在首次访问时由一次聚合查询加载，应用启动时在后台预加载进行中的挑战；参赛博客增减时整榜重新加载。
+ * 已结束挑战的排行榜由保存的最终结果加载，之后不再随投票变化。
+ *
+ * 可选系统属性：leaderboard.maxChallenges（内存中保留的挑战数，默认200）
+ */
+public class ChallengeLeaderboard {
+    private static final Logger logger = Logger.getLogger(ChallengeLeaderboard.class.getName());
+
+    private static final int MAX_CHALLENGES = Integer.getInteger("leaderboard.maxChallenges", 200);
+
+    /**
+     * 启动时预加载的进行中挑战数上限
+     */
+    private static final int PRELOAD_LIMIT = 100;
+
+    /**
+     * 单次查询前N名的上限
+     */
+    public static final int MAX_TOP = 100;
+
+    private static final Object lock = new Object();
+
+    /**
+     * 由最终结果加载的排行榜（挑战ID），投票变化时跳过；与 boards 一起在 lock 内维护
+     */
+    private static final Set<Integer> frozenBoards = new HashSet<>();
+
+    private static final LinkedHashMap<Integer, RankedSkipList> boards =
+            new LinkedHashMap<Integer, RankedSkipList>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, RankedSkipList> eldest) {
+                    if (size() > MAX_CHALLENGES) {
+                        frozenBoards.remove(eldest.getKey());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    /**
+     * 投票变化后更新排行榜的最多读取次数，仍有并发变化时丢弃该排行榜
+     */
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+
+    /**
+     * 按博客记录的投票变化版本：加载期间参赛博客有投票变化的排行榜不缓存（下次访问重新加载），
+     * 其他博客的投票不影响加载
+     */
+    private static final LoadVersions voteVersions = new LoadVersions(4096);
+
+    /**
+     * 按挑战记录的失效版本：加载期间被失效（参赛博客增减、挑战结束）的排行榜不缓存
+     */
+    private static final LoadVersions challengeVersions = new LoadVersions(1024);
+
+    private static final BlogChallengeService blogChallengeService = new BlogChallengeService();
+
+    private static final MetricsRegistry.Counter hits = MetricsRegistry.counter("leaderboard.lookups", "result", "hit");
+    private static final MetricsRegistry.Counter loads = MetricsRegistry.counter("leaderboard.lookups", "result", "load");
+    private static final MetricsRegistry.Counter rankChanges = MetricsRegistry.counter("leaderboard.rank_changes");
+
+    /**
+     * 在后台预加载进行中挑战的排行榜
+     */
+    public static void start() {
+        BackgroundScheduler.schedule("挑战排行榜预加载", () -> {
+            List<Challenge> active = new ChallengeService().getActiveChallenges(1, PRELOAD_LIMIT);
+            if (active == null) {
+                return;
+            }
+            for (Challenge challenge : active) {
+                board(challenge.getChallengeId());
+            }
+            logger.info("已预加载挑战排行榜" + active.size() + "个");
+        }, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 查询前N名
+     * @return 名次、博客ID、票数，按名次排列
+     */
+    public static List<Map<String, Object>> top(int challengeId, int limit) {
+        RankedSkipList board = board(challengeId);
+        int n = Math.max(0, Math.min(limit, MAX_TOP));
+        int[] ids = new int[n];
+        long[] scores = new long[n];
+        int count;
+        synchronized (board) {
+            count = board.top(n, ids, scores);
+        }
+        List<Map<String, Object>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(entry(i + 1, ids[i], scores[i]));
+        }
+        return result;
+    }
+
+    /**
+     * 查询博客在挑战中的名次
+     * @return 名次、博客ID、票数，博客未参加该挑战时返回null
+     */
+    public static Map<String, Object> rankOf(int challengeId, int blogId) {
+        RankedSkipList board = board(challengeId);
+        synchronized (board) {
+            int rank = board.rank(blogId);
+            return rank == 0 ? null : entry(rank, blogId, board.score(blogId));
+        }
+    }
+
+    /**
+     * 挑战的参赛博客数
+     */
+    public static int size(int challengeId) {
+        RankedSkipList board = board(challengeId);
+        synchronized (board) {
+            return board.size();
+        }
+    }
+
+    /**
+     * 投票变化（切换、新增、删除）提交后调用：更新所有包含该博客的已加载排行榜，名次或票数变化时广播；
+     * 已结束挑战的排行榜保持最终结果不变
+     */
+    public static void onVoteChanged(int blogId) {
+        voteVersions.bump(blogId);
+        List<Map.Entry<Integer, RankedSkipList>> loaded = new ArrayList<>();
+        synchronized (lock) {
+            for (Map.Entry<Integer, RankedSkipList> e : boards.entrySet()) {
+                if (!frozenBoards.contains(e.getKey())) {
+                    loaded.add(e);
+                }
+            }
+        }
+        List<Map.Entry<Integer, RankedSkipList>> affected = new ArrayList<>();
+        for (Map.Entry<Integer, RankedSkipList> e : loaded) {
+            synchronized (e.getValue()) {
+                if (e.getValue().contains(blogId)) {
+                    affected.add(e);
+                }
+            }
+        }
+        if (affected.isEmpty()) {
+            return;
+        }
+        // 票数（可能访问数据库）在所有排行榜锁外读取
+        long version = voteVersions.current(blogId);
+        int voteCount = readVoteCount(blogId);
+        for (Map.Entry<Integer, RankedSkipList> e : affected) {
+            RankedSkipList board = e.getValue();
+            boolean updated = false;
+            boolean changed = false;
+            int before = 0;
+            int after = 0;
+            for (int attempt = 0; voteCount >= 0 && attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+                synchronized (board) {
+                    if (voteVersions.unchanged(blogId, version)) {
+                        before = board.rank(blogId);
+                        changed = board.put(blogId, voteCount);
+                        after = board.rank(blogId);
+                        updated = true;
+                    }
+                }
+                if (updated) {
+                    break;
+                }
+                // 读取票数之后又有投票变化，重新读取
+                version = voteVersions.current(blogId);
+                voteCount = readVoteCount(blogId);
+            }
+            if (!updated) {
+                // 在排行榜锁外获取 lock，与 getStatus 的加锁顺序一致
+                invalidate(e.getKey());
+                continue;
+            }
+            if (!changed) {
+                continue;
+            }
+            if (before != after) {
+                rankChanges.increment();
+            }
+            String topic = topic(e.getKey());
+            if (PushHub.hasTopicSubscribers(topic)) {
+                Map<String, Object> event = entry(after, blogId, voteCount);
+                event.put("challenge_id", e.getKey());
+                event.put("previous_ranking", before);
+                PushHub.publishTopic(topic, "leaderboard", event);
+            }
+        }
+    }
+
+    /**
+     * 参赛博客增减、挑战结束后调用：丢弃该挑战的排行榜，下次访问时重新加载
+     */
+    public static void invalidate(int challengeId) {
+        challengeVersions.bump(challengeId);
+        synchronized (lock) {
+            boards.remove(challengeId);
+            frozenBoards.remove(challengeId);
+        }
+    }
+
+    /**
+     * 挑战排行榜的推送主题名
+     */
+    public static String topic(int challengeId) {
+        return "challenge:" + challengeId;
+    }
+
+    /**
+     * 排行榜状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        int entries = 0;
+        synchronized (lock) {
+            status.put("challenges", boards.size());
+            for (RankedSkipList board : boards.values()) {
+                synchronized (board) {
+                    entries += board.size();
+                }
+            }
+        }
+        status.put("entries", entries);
+        status.put("maxChallenges", MAX_CHALLENGES);
+        return status;
+    }
+
+    /**
+     * 获取挑战的排行榜，未加载时由一次聚合查询加载
+     * 多个线程同时加载同一挑战时只保留先放入的那个；加载期间参赛博客有投票变化时不缓存
+     */
+    private static RankedSkipList board(int challengeId) {
+        synchronized (lock) {
+            RankedSkipList board = boards.get(challengeId);
+            if (board != null) {
+                hits.increment();
+                return board;
+            }
+        }
+        loads.increment();
+        long challengeVersion = challengeVersions.current(challengeId);
+        long stamp = voteVersions.stamp();
+        boolean frozen = blogChallengeService.hasFinalResults(challengeId);
+        RankedSkipList loaded = new RankedSkipList();
+        List<Integer> blogIds = new ArrayList<>();
+        try {
+            for (ChallengeBlogHeat row : blogChallengeService.getBlogHeats(challengeId)) {
+                loaded.put(row.getBlogId(), row.getVoteCount());
+                blogIds.add(row.getBlogId());
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "加载挑战排行榜失败: " + challengeId, e);
+            return loaded;
+        }
+        if (loaded.size() == 0) {
+            // 没有参赛博客（或查询失败）时不缓存，新投稿后无需失效即可看到
+            return loaded;
+        }
+        synchronized (lock) {
+            if (!challengeVersions.unchanged(challengeId, challengeVersion)) {
+                return loaded;
+            }
+            for (Integer blogId : blogIds) {
+                if (!frozen && !voteVersions.unchangedSince(blogId, stamp)) {
+                    return loaded;
+                }
+            }
+            RankedSkipList existing = boards.putIfAbsent(challengeId, loaded);
+            if (existing != null) {
+                return existing;
+            }
+            if (frozen) {
+                frozenBoards.add(challengeId);
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * 读取博客的最新票数（含写后缓冲中尚未落库的变化），失败返回-1
+     */
+    private static int readVoteCount(int blogId) {
+        try {
+            return ShardedVoteCounter.get(blogId) + WriteBehindToggleBuffer.VOTES.getPendingDelta(blogId);
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "读取博客票数失败，丢弃包含该博客的挑战排行榜: " + blogId, e);
+            return -1;
+        }
+    }
+
+    private static Map<String, Object> entry(int rank, int blogId, long voteCount) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("ranking", rank);
+        map.put("blog_id", blogId);
+        map.put("vote_count", voteCount);
+        return map;
+    }
+}
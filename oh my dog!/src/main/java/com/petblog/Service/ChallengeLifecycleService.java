@@ -0,0 +1,97 @@
+package com.petblog.Service;
+
+import com.petblog.dao.ChallengeDAO;
+import com.petblog.dao.ChallengeResultDAO;
+import com.petblog.dao.WriteBehindToggleBuffer;
+import com.petblog.dao.impl.ChallengeDAOImpl;
+import com.petblog.dao.impl.ChallengeResultDAOImpl;
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.MetricsRegistry;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 挑战生命周期调度
+ * 后台定时把到达开始时间的规划中挑战切换为进行中；到达结束时间的挑战一次性计算最终的博客热度、
+ * 宠物排名和挑战热度并保存到结果表，同时设为已结束。此后已结束挑战的热度、排名、获胜者接口
+ * 都只读结果表，不再重新统计。应用停机期间到期的挑战在下次启动后补做。
+ *
+ * 可选系统属性：challenge.lifecycle.intervalSeconds（检查间隔，默认60）
+ */
+public class ChallengeLifecycleService {
+    private static final Logger logger = Logger.getLogger(ChallengeLifecycleService.class.getName());
+
+    private static final long INTERVAL_SECONDS = Long.getLong("challenge.lifecycle.intervalSeconds", 60L);
+
+    /**
+     * 每次检查最多结束的挑战数，其余留到下次
+     */
+    private static final int FINALIZE_BATCH = 20;
+
+    private static final ChallengeDAO challengeDAO = new ChallengeDAOImpl();
+    private static final ChallengeResultDAO challengeResultDAO = new ChallengeResultDAOImpl();
+    private static final BlogChallengeService blogChallengeService = new BlogChallengeService();
+
+    private static final MetricsRegistry.Counter started = MetricsRegistry.counter("challenge.lifecycle.transitions", "to", "started");
+    private static final MetricsRegistry.Counter finalized = MetricsRegistry.counter("challenge.lifecycle.transitions", "to", "finalized");
+    private static final MetricsRegistry.Counter failures = MetricsRegistry.counter("challenge.lifecycle.errors");
+
+    private static volatile long lastRunTime;
+
+    /**
+     * 注册周期检查任务（启动后立即补做停机期间到期的挑战）
+     */
+    public static void start() {
+        BackgroundScheduler.scheduleAtFixedRate("挑战状态切换", ChallengeLifecycleService::runOnce,
+                0, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 执行一次状态切换：开始到期的挑战，结束到期的挑战并保存最终结果
+     */
+    public static synchronized void runOnce() {
+        Date now = new Date();
+        try {
+            started.add(challengeDAO.startDueChallenges(now));
+            List<Integer> due = challengeResultDAO.findChallengesToFinalize(now, FINALIZE_BATCH);
+            if (!due.isEmpty()) {
+                // 先把写后缓冲中的投票、点赞落库，宠物排名的分组查询只读数据库
+                WriteBehindToggleBuffer.VOTES.flush();
+                WriteBehindToggleBuffer.LIKES.flush();
+            }
+            for (Integer challengeId : due) {
+                if (blogChallengeService.finalizeResults(challengeId)) {
+                    finalized.increment();
+                    // 排行榜改由结果表重新加载
+                    ChallengeLeaderboard.invalidate(challengeId);
+                    logger.info("挑战已结束并保存最终结果: " + challengeId);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            failures.increment();
+            logger.log(Level.WARNING, "挑战状态切换失败", e);
+        } finally {
+            lastRunTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 调度状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("intervalSeconds", INTERVAL_SECONDS);
+        status.put("lastRunTime", lastRunTime > 0 ? new Date(lastRunTime) : null);
+        status.put("started", started.get());
+        status.put("finalized", finalized.get());
+        status.put("errors", failures.get());
+        return status;
+    }
+}
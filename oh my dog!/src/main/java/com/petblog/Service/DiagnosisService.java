@@ -5,6 +5,9 @@ import com.petblog.dao.SymptomDAO;
 import com.petblog.dao.impl.DiseaseDAOImpl;
 import com.petblog.dao.impl.SymptomDAOImpl;
 import com.petblog.model.*;
+import com.petblog.util.DiagnosisTracer;
+import com.petblog.util.KnowledgeBaseSnapshot;
+import com.petblog.util.MetricsRegistry;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -27,21 +30,34 @@ public class DiagnosisService {
      */
     public Map<String, Object> nextStep(DiagnosisSession session) {
         Map<String, Object> result = new HashMap<>();
+        long stepStart = System.nanoTime();
+        String complaint = complaintLabel(session.getMainComplaintId());
         
         try {
             // 1. 获取所有疾病并计算概率（使用加分制算法 - 匹配度百分比）
+            long scoringStart = System.nanoTime();
             List<DiseaseResult> diseaseProbabilities = calculateProbabilities(session);
+            MetricsRegistry.histogram("diagnosis.scoring.latency_ms", MetricsRegistry.LATENCY_BUCKETS_MS,
+                    "mainComplaint", complaint).observeSince(scoringStart);
+            MetricsRegistry.histogram("diagnosis.candidate_diseases", MetricsRegistry.COUNT_BUCKETS,
+                    "mainComplaint", complaint).observe(diseaseProbabilities.size());
             
             // 2. 检查是否有明确的诊断结果 (结束条件)
-            if (shouldStopDiagnosis(session, diseaseProbabilities)) {
+            String stopReason = getStopReason(session, diseaseProbabilities);
+            if (stopReason != null) {
+                recordCompletion(session, complaint, stopReason);
                 result.put("finished", true);
                 result.put("diseases", formatDiseaseResults(diseaseProbabilities));
                 return result;
             }
             
             // 3. 选择下一个最佳问题 (智能选择逻辑)
+            long selectionStart = System.nanoTime();
             SymptomWithWeight nextQuestion = selectNextQuestion(session, diseaseProbabilities);
+            MetricsRegistry.histogram("diagnosis.selection.latency_ms", MetricsRegistry.LATENCY_BUCKETS_MS,
+                    "mainComplaint", complaint).observeSince(selectionStart);
             if (nextQuestion == null) {
+                recordCompletion(session, complaint, "no_question");
                 // 如果找不到有价值的问题，说明所有相关症状都已问过
                 // 这种情况下应该强制结束诊断，而不是返回错误
                 System.out.println("DiagnosisService.nextStep: 找不到下一个问题（所有相关症状都已问过），强制结束诊断");
@@ -59,23 +75,78 @@ public class DiagnosisService {
                 result.put("name", nextQuestion.getSymptom().getName());
                 result.put("description", ""); // 可以后续扩展
             }
+            if (session.getTraceId() != null) {
+                result.put("traceId", session.getTraceId());
+            }
         } catch (Exception e) {
             e.printStackTrace();
+            recordCompletion(session, complaint, "error");
             result.put("error", "诊断计算失败: " + e.getMessage());
             result.put("finished", true);
             result.put("diseases", new ArrayList<>());
+        } finally {
+            MetricsRegistry.histogram("diagnosis.step.latency_ms", MetricsRegistry.LATENCY_BUCKETS_MS,
+                    "mainComplaint", complaint).observeSince(stepStart);
         }
         
         return result;
     }
+
+    /**
+     * 指标的主诉标签：主诉ID来自客户端，只有知识库中存在的症状ID原样使用，其余归为 other，
+     * 避免任意ID让指标的标签组合无限增长
+     */
+    private static String complaintLabel(Integer mainComplaintId) {
+        if (mainComplaintId == null) {
+            return "none";
+        }
+        KnowledgeBaseSnapshot snapshot = KnowledgeBaseService.getSnapshot();
+        if (snapshot != null && snapshot.findSymptomById(mainComplaintId) != null) {
+            return String.valueOf(mainComplaintId);
+        }
+        return "other";
+    }
+
+    /**
+     * 记录一次问诊结束：结束原因计数和结束时的问题数
+     */
+    private void recordCompletion(DiagnosisSession session, String complaint, String reason) {
+        MetricsRegistry.counter("diagnosis.completed", "mainComplaint", complaint, "reason", reason).increment();
+        MetricsRegistry.histogram("diagnosis.questions_to_result", MetricsRegistry.COUNT_BUCKETS,
+                "mainComplaint", complaint).observe(session.getQuestionCount());
+    }
     
     /**
      * 核心改进：智能问题选择
-     * 策略：只关注概率最高的前3名疾病，从这些疾病的关联症状中选择
+     * 会话要求追踪或命中采样率时，候选症状评分写入 DiagnosisTracer
      */
     private SymptomWithWeight selectNextQuestion(DiagnosisSession session, List<DiseaseResult> rankedDiseases) {
+        long traceStart = System.nanoTime();
+        boolean ownsTrace = DiagnosisTracer.begin(session.isTraceEnabled(), "DiagnosisService.selectNextQuestion",
+                session.getMainComplaintId(), session.getQuestionCount());
+        try {
+            SymptomWithWeight chosen = selectBestCandidate(session, rankedDiseases);
+            if (ownsTrace) {
+                session.setTraceId(DiagnosisTracer.current().getId());
+            }
+            return chosen;
+        } finally {
+            if (ownsTrace) {
+                DiagnosisTracer.end(traceStart);
+            }
+        }
+    }
+
+    /**
+     * 选题逻辑
+     * 策略：只关注概率最高的前3名疾病，从这些疾病的关联症状中选择
+     */
+    private SymptomWithWeight selectBestCandidate(DiagnosisSession session, List<DiseaseResult> rankedDiseases) {
+        DiagnosisTracer.Trace trace = DiagnosisTracer.current();
         if (rankedDiseases.isEmpty()) {
-            System.out.println("selectNextQuestion: 疾病列表为空");
+            if (trace != null) {
+                trace.note("疾病列表为空");
+            }
             return null;
         }
         
@@ -85,17 +156,17 @@ public class DiagnosisService {
                 .map(dr -> dr.getDisease().getId())
                 .collect(Collectors.toList());
         
-        System.out.println("selectNextQuestion: Top3疾病ID=" + topDiseaseIds + "，已问症状数=" + session.getAskedSymptoms().size());
-        System.out.println("selectNextQuestion: 已问症状列表=" + session.getAskedSymptoms());
+        if (trace != null) {
+            trace.note("Top3疾病ID=" + topDiseaseIds + "，已问症状=" + session.getAskedSymptoms());
+        }
         
         // 获取主诉类别（用于回退机制）
         String mainComplaintCategory = null;
         if (session.getMainComplaintId() != null) {
             try {
-                Symptom mainComplaint = symptomDAO.findById(session.getMainComplaintId());
+                Symptom mainComplaint = findSymptomById(session.getMainComplaintId());
                 if (mainComplaint != null && mainComplaint.getCategory() != null) {
                     mainComplaintCategory = mainComplaint.getCategory();
-                    System.out.println("selectNextQuestion: 主诉类别=" + mainComplaintCategory);
                 }
             } catch (SQLException e) {
                 System.out.println("selectNextQuestion: 获取主诉类别失败: " + e.getMessage());
@@ -104,40 +175,39 @@ public class DiagnosisService {
         
         try {
             // 从数据库获取这前3名疾病的所有未问症状
-            List<SymptomWithWeight> candidates = symptomDAO.findCandidateSymptoms(
+            List<SymptomWithWeight> candidates = findCandidateSymptoms(
                     topDiseaseIds, 
                     session.getAskedSymptoms()
             );
             
-            System.out.println("selectNextQuestion: 找到候选症状数=" + candidates.size());
-            if (candidates.size() > 0) {
-                System.out.println("selectNextQuestion: 候选症状ID列表=" + candidates.stream()
-                    .map(sw -> sw.getSymptom().getId())
-                    .collect(Collectors.toList()));
+            if (trace != null) {
+                trace.note("Top3疾病候选症状数=" + candidates.size());
             }
             
             if (candidates.isEmpty()) {
                 // 如果Top3疾病没有候选症状，尝试扩大范围到Top5
                 if (rankedDiseases.size() > 3) {
-                    System.out.println("selectNextQuestion: Top3疾病无候选症状，尝试Top5");
                     List<Integer> top5DiseaseIds = rankedDiseases.stream()
                             .limit(5)
                             .map(dr -> dr.getDisease().getId())
                             .collect(Collectors.toList());
-                    candidates = symptomDAO.findCandidateSymptoms(
+                    candidates = findCandidateSymptoms(
                             top5DiseaseIds, 
                             session.getAskedSymptoms()
                     );
-                    System.out.println("selectNextQuestion: Top5疾病候选症状数=" + candidates.size());
+                    if (trace != null) {
+                        trace.note("Top5疾病候选症状数=" + candidates.size());
+                    }
                 }
                 
                 // 如果仍然为空，尝试从主诉类别中补充同类别症状（回退机制）
                 if (candidates.isEmpty() && mainComplaintCategory != null) {
-                    System.out.println("selectNextQuestion: 所有Top疾病都没有候选症状，尝试从主诉类别(" + mainComplaintCategory + ")补充症状");
                     try {
-                        List<Symptom> categorySymptoms = symptomDAO.findByCategory(mainComplaintCategory, session.getAskedSymptoms(), 10);
+                        List<Symptom> categorySymptoms = findSymptomsByCategory(mainComplaintCategory, session.getAskedSymptoms(), 10);
                         if (!categorySymptoms.isEmpty()) {
-                            System.out.println("selectNextQuestion: 从主诉类别找到" + categorySymptoms.size() + "个候选症状");
+                            if (trace != null) {
+                                trace.note("从主诉类别(" + mainComplaintCategory + ")补充候选症状数=" + categorySymptoms.size());
+                            }
                             // 转换为SymptomWithWeight（使用默认权重）
                             for (Symptom symptom : categorySymptoms) {
                                 SymptomWithWeight sw = new SymptomWithWeight();
@@ -155,12 +225,13 @@ public class DiagnosisService {
                 }
                 
                 if (candidates.isEmpty()) {
-                    System.out.println("selectNextQuestion: 所有候选症状都为空，无法继续问诊");
+                    if (trace != null) {
+                        trace.note("所有候选症状都为空，无法继续问诊");
+                    }
                     return null;
                 }
             } else if (candidates.size() < 3 && mainComplaintCategory != null) {
                 // 如果候选症状太少（少于3个），也从主诉类别补充
-                System.out.println("selectNextQuestion: 候选症状较少(" + candidates.size() + ")，从主诉类别补充");
                 try {
                     List<Integer> alreadyCandidateIds = candidates.stream()
                         .map(sw -> sw.getSymptom().getId())
@@ -169,7 +240,7 @@ public class DiagnosisService {
                     List<Integer> allAskedIds = new ArrayList<>(session.getAskedSymptoms());
                     allAskedIds.addAll(alreadyCandidateIds);
                     
-                    List<Symptom> categorySymptoms = symptomDAO.findByCategory(mainComplaintCategory, allAskedIds, 5);
+                    List<Symptom> categorySymptoms = findSymptomsByCategory(mainComplaintCategory, allAskedIds, 5);
                     for (Symptom symptom : categorySymptoms) {
                         SymptomWithWeight sw = new SymptomWithWeight();
                         sw.setSymptom(symptom);
@@ -179,7 +250,9 @@ public class DiagnosisService {
                         sw.setIsExclusive(false);
                         candidates.add(sw);
                     }
-                    System.out.println("selectNextQuestion: 补充后候选症状数=" + candidates.size());
+                    if (trace != null) {
+                        trace.note("候选症状较少，从主诉类别补充后候选症状数=" + candidates.size());
+                    }
                 } catch (SQLException e) {
                     System.out.println("selectNextQuestion: 从主诉类别补充症状失败: " + e.getMessage());
                 }
@@ -217,6 +290,9 @@ public class DiagnosisService {
                 }
             }
             
+            MetricsRegistry.histogram("diagnosis.candidate_symptoms", MetricsRegistry.COUNT_BUCKETS,
+                    "mainComplaint", String.valueOf(session.getMainComplaintId())).observe(symptomMap.size());
+            
             // 计算每个候选症状的得分
             List<SymptomScore> scoredSymptoms = new ArrayList<>();
             for (Map.Entry<Integer, List<SymptomWithWeight>> entry : symptomMap.entrySet()) {
@@ -245,10 +321,12 @@ public class DiagnosisService {
                 if (mainComplaintCategory != null && bestSW.getSymptom().getCategory() != null 
                     && mainComplaintCategory.equals(bestSW.getSymptom().getCategory())) {
                     score *= 1.5; // 同类别的症状得分增加50%
-                    System.out.println("selectNextQuestion: 症状" + bestSW.getSymptom().getName() + "与主诉类别相同，得分加权");
                 }
                 
                 scoredSymptoms.add(new SymptomScore(bestSW, score));
+                if (trace != null) {
+                    trace.candidate(bestSW.getSymptom().getId(), bestSW.getSymptom().getName(), score, null);
+                }
             }
             
             // 按得分排序
@@ -272,7 +350,6 @@ public class DiagnosisService {
                 // 如果所有候选症状都最近问过，选择得分最高的（避免无法继续问诊）
                 if (bestSymptom == null) {
                     bestSymptom = scoredSymptoms.get(0).symptom;
-                    System.out.println("selectNextQuestion: 所有候选症状都最近问过，选择得分最高的");
                 }
                 
                 // 记录最近问过的症状
@@ -281,21 +358,21 @@ public class DiagnosisService {
                 }
             }
             
-            System.out.println("selectNextQuestion: 最佳症状=" + (bestSymptom != null ? bestSymptom.getSymptom().getName() : "null") + "，得分=" + maxScore);
+            if (trace != null && bestSymptom != null) {
+                trace.chosen(bestSymptom.getSymptom().getId(), maxScore);
+            }
             
             // 截断机制 (Pruning)：如果最强的问题得分都很低，说明问了也没用
             // 但不要过早结束，只有在得分非常低（<0.01）且问题数已经很多时才结束
-            // 否则继续问问题，让 shouldStopDiagnosis 来决定是否结束
+            // 否则继续问问题，让 getStopReason 来决定是否结束
             if (maxScore < 0.01 && session.getQuestionCount() >= 15) {
-                System.out.println("selectNextQuestion: 最佳问题得分=" + maxScore + "，且已问" + session.getQuestionCount() + "个问题，触发截断机制");
+                if (trace != null) {
+                    trace.note("最佳问题得分=" + maxScore + "，已问" + session.getQuestionCount() + "个问题，触发截断机制");
+                }
                 return null; // 触发强制结束
             }
             
             // 如果得分很低但问题数不多，仍然返回最佳症状（让系统继续问）
-            if (maxScore < 0.01) {
-                System.out.println("selectNextQuestion: 最佳问题得分较低(" + maxScore + ")，但问题数=" + session.getQuestionCount() + "，继续问诊");
-            }
-            
             return bestSymptom;
         } catch (SQLException e) {
             System.out.println("selectNextQuestion: 数据库查询异常: " + e.getMessage());
@@ -317,7 +394,7 @@ public class DiagnosisService {
     private List<DiseaseResult> calculateProbabilities(DiagnosisSession session) {
         try {
             // 获取所有疾病
-            List<Disease> diseases = diseaseDAO.findAll();
+            List<Disease> diseases = findAllDiseases();
             if (diseases == null || diseases.isEmpty()) {
                 return new ArrayList<>();
             }
@@ -475,9 +552,13 @@ public class DiagnosisService {
     }
     
     /**
-     * 构建疾病-症状关系映射
+     * 构建疾病-症状关系映射（快照已加载时直接使用快照中的映射）
      */
     private Map<Integer, List<DiseaseSymptom>> buildDiseaseSymptomMap() {
+        KnowledgeBaseSnapshot snapshot = KnowledgeBaseService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.getDiseaseSymptomMap();
+        }
         Map<Integer, List<DiseaseSymptom>> map = new HashMap<>();
         List<DiseaseSymptom> allRelations = diseaseSymptomService.getAllRelations();
         
@@ -491,25 +572,54 @@ public class DiagnosisService {
         return map;
     }
     
+    // ==================== 知识库读取（优先使用快照，未加载时回退到数据库） ====================
+
+    private List<Disease> findAllDiseases() throws SQLException {
+        KnowledgeBaseSnapshot snapshot = KnowledgeBaseService.getSnapshot();
+        return snapshot != null ? snapshot.getDiseases() : diseaseDAO.findAll();
+    }
+
+    private Symptom findSymptomById(Integer symptomId) throws SQLException {
+        KnowledgeBaseSnapshot snapshot = KnowledgeBaseService.getSnapshot();
+        return snapshot != null ? snapshot.findSymptomById(symptomId) : symptomDAO.findById(symptomId);
+    }
+
+    private List<SymptomWithWeight> findCandidateSymptoms(List<Integer> topDiseaseIds, List<Integer> askedSymptomIds) throws SQLException {
+        KnowledgeBaseSnapshot snapshot = KnowledgeBaseService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findCandidateSymptoms(topDiseaseIds, new HashSet<>(askedSymptomIds));
+        }
+        return symptomDAO.findCandidateSymptoms(topDiseaseIds, askedSymptomIds);
+    }
+
+    private List<Symptom> findSymptomsByCategory(String category, List<Integer> askedSymptomIds, int limit) throws SQLException {
+        KnowledgeBaseSnapshot snapshot = KnowledgeBaseService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.findSymptomsByCategory(category, new HashSet<>(askedSymptomIds), limit);
+        }
+        return symptomDAO.findByCategory(category, askedSymptomIds, limit);
+    }
+    
     /**
      * 动态结束阈值 - 停止止损机制
      * 要求至少问一定数量的问题才可能结束诊断
+     * @return 结束原因（no_candidates/threshold/relative_lead/max_questions），继续问诊时返回null
      */
-    private boolean shouldStopDiagnosis(DiagnosisSession session, List<DiseaseResult> probs) {
+    private String getStopReason(DiagnosisSession session, List<DiseaseResult> probs) {
         if (probs.isEmpty()) {
-            return true;
+            return "no_candidates";
         }
         
         double topProb = probs.get(0).getProbability();
         int qCount = session.getQuestionCount();
         
-        System.out.println("DiagnosisService.shouldStopDiagnosis: 当前最大概率=" + (topProb * 100) + "%，已问问题数=" + qCount);
+        System.out.println("DiagnosisService.getStopReason: 当前最大概率=" + (topProb * 100) + "%，已问问题数=" + qCount);
         
         // 最少问题数要求：至少问8个问题才可能结束诊断（不包括主诉）
         int minQuestions = 8;
         if (qCount < minQuestions) {
-            System.out.println("DiagnosisService.shouldStopDiagnosis: 问题数不足" + minQuestions + "个，继续问诊");
-            return false;
+            System.out.println("DiagnosisService.getStopReason: 问题数不足" + minQuestions + "个，继续问诊");
+            return null;
         }
         
         // 动态阈值：问得越多，门槛越低
@@ -527,34 +637,34 @@ public class DiagnosisService {
             threshold = 0.55; // 21个问题以上需要55%以上概率
         }
         
-        System.out.println("DiagnosisService.shouldStopDiagnosis: 当前阈值=" + (threshold * 100) + "%");
+        System.out.println("DiagnosisService.getStopReason: 当前阈值=" + (threshold * 100) + "%");
         
         // 条件1: 达到绝对阈值
         if (topProb >= threshold) {
-            System.out.println("DiagnosisService.shouldStopDiagnosis: 满足绝对阈值条件，结束诊断");
-            return true;
+            System.out.println("DiagnosisService.getStopReason: 满足绝对阈值条件，结束诊断");
+            return "threshold";
         }
         
         // 条件2: 相对优势 (第一名比第二名高出很多，且问题数足够多)
         if (probs.size() > 1 && qCount >= 12) { // 至少12个问题才考虑相对优势
             double secondProb = probs.get(1).getProbability();
             double probDiff = topProb - secondProb;
-            System.out.println("DiagnosisService.shouldStopDiagnosis: 第二概率=" + (secondProb * 100) + "%，相对差异=" + (probDiff * 100) + "%");
+            System.out.println("DiagnosisService.getStopReason: 第二概率=" + (secondProb * 100) + "%，相对差异=" + (probDiff * 100) + "%");
             // 提高相对优势要求：差异更大，且第一名概率更高
             if (probDiff > 0.40 && topProb > 0.60) {
-                System.out.println("DiagnosisService.shouldStopDiagnosis: 满足相对优势条件，结束诊断");
-                return true;
+                System.out.println("DiagnosisService.getStopReason: 满足相对优势条件，结束诊断");
+                return "relative_lead";
             }
         }
         
         // 条件3: 问题问太多了（强制结束）
         if (qCount >= 30) {
-            System.out.println("DiagnosisService.shouldStopDiagnosis: 已问30个问题，强制结束");
-            return true;
+            System.out.println("DiagnosisService.getStopReason: 已问30个问题，强制结束");
+            return "max_questions";
         }
         
-        System.out.println("DiagnosisService.shouldStopDiagnosis: 未满足结束条件，继续问诊");
-        return false;
+        System.out.println("DiagnosisService.getStopReason: 未满足结束条件，继续问诊");
+        return null;
     }
     
     /**
@@ -575,7 +685,7 @@ public class DiagnosisService {
                 for (DiseaseSymptom ds : dr.getEvidenceSymptoms()) {
                     Map<String, Object> evidence = new HashMap<>();
                     try {
-                        Symptom symptom = symptomDAO.findById(ds.getSymptomId());
+                        Symptom symptom = findSymptomById(ds.getSymptomId());
                         if (symptom != null) {
                             evidence.put("symptomName", symptom.getName());
                             // 不显示权重和isRequired
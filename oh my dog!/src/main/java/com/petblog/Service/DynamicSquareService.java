@@ -0,0 +1,278 @@
+package com.petblog.Service;
+
+import com.petblog.dao.BlogChallengeDAO;
+import com.petblog.dao.BlogDAO;
+import com.petblog.dao.RepostDAO;
+import com.petblog.dao.TopicDAO;
+import com.petblog.dao.impl.BlogChallengeDAOImpl;
+import com.petblog.dao.impl.BlogDAOImpl;
+import com.petblog.dao.impl.RepostDAOImpl;
+import com.petblog.dao.impl.TopicDAOImpl;
+import com.petblog.model.ActivityItem;
+import com.petblog.model.ActivityPage;
+import com.petblog.util.KeysetCursor;
+import com.petblog.util.MetricsRegistry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 动态广场服务类
+ * 新博客、转发、挑战投稿、新话题四个事件源各自按 (时间, ID) 倒序键集分页，
+ * 每个事件源只取一页，再用小顶堆做K路归并，单次请求最多读取 事件源数 × 页大小 行，与表大小无关。
+ * 排序规则为 时间倒序、事件源顺序、ID倒序；游标编码为 "类型_毫秒时间戳_ID"。
+ *
+ * 广场是访问量最大的匿名页面，最新的一段归并结果（窗口）在内存中缓存几秒，
+ * 落在窗口内的翻页直接切片返回；窗口过期后由一个请求重新加载，其余请求继续使用旧窗口。
+ *
+ * 可选系统属性：dynamic.square.cacheMillis（窗口缓存时间，默认5000）、dynamic.square.windowSize（窗口条数，默认200）
+ */
+public class DynamicSquareService extends BaseService {
+
+    private static final long CACHE_MILLIS = Long.getLong("dynamic.square.cacheMillis", 5000L);
+    private static final int WINDOW_SIZE = Integer.getInteger("dynamic.square.windowSize", 200);
+
+    /**
+     * 事件源类型，下标即同一时间内的排序顺序
+     */
+    private static final String[] TYPES = {"blog", "repost", "challenge", "topic"};
+
+    private static final Comparator<ActivityItem> ORDER = (a, b) -> {
+        int byTime = b.getTime().compareTo(a.getTime());
+        if (byTime != 0) {
+            return byTime;
+        }
+        int byType = Integer.compare(rank(a.getType()), rank(b.getType()));
+        return byType != 0 ? byType : Integer.compare(b.getId(), a.getId());
+    };
+
+    /**
+     * 事件源：按游标键集分页查询一页动态
+     */
+    private interface Source {
+        List<ActivityItem> fetch(Date beforeTime, Integer beforeId, int limit) throws SQLException;
+    }
+
+    /**
+     * 缓存的归并窗口
+     */
+    private static class Window {
+        final List<ActivityItem> items;
+        /**
+         * 各事件源都已读完（窗口之后没有更多动态）
+         */
+        final boolean complete;
+        final long loadedAt;
+
+        Window(List<ActivityItem> items, boolean complete, long loadedAt) {
+            this.items = items;
+            this.complete = complete;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static volatile Window window;
+    private static final ReentrantLock refreshLock = new ReentrantLock();
+
+    private static final MetricsRegistry.Counter windowHits = MetricsRegistry.counter("dynamic_square.window", "result", "hit");
+    private static final MetricsRegistry.Counter windowMisses = MetricsRegistry.counter("dynamic_square.window", "result", "miss");
+    private static final MetricsRegistry.Histogram mergeLatency = MetricsRegistry.histogram(
+            "dynamic_square.merge_latency_ms", MetricsRegistry.LATENCY_BUCKETS_MS);
+
+    private final BlogDAO blogDAO = new BlogDAOImpl();
+    private final RepostDAO repostDAO = new RepostDAOImpl();
+    private final BlogChallengeDAO blogChallengeDAO = new BlogChallengeDAOImpl();
+    private final TopicDAO topicDAO = new TopicDAOImpl();
+
+    private final Source[] sources = {
+            blogDAO::findActivities,
+            repostDAO::findActivities,
+            blogChallengeDAO::findActivities,
+            topicDAO::findActivities
+    };
+
+    /**
+     * 读取一页动态（按时间倒序）
+     * @param cursor 上一页返回的游标，为null时从最新开始
+     * @param limit 每页条数（不超过窗口大小时才使用缓存）
+     * @throws IllegalArgumentException 游标格式错误时抛出
+     */
+    public ActivityPage getActivities(String cursor, int limit) {
+        ActivityItem position = decodeCursor(cursor);
+
+        Window current = currentWindow();
+        if (current != null && limit <= WINDOW_SIZE) {
+            int from = position == null ? 0 : firstAfter(current.items, position);
+            int to = Math.min(from + limit, current.items.size());
+            if (to - from == limit || current.complete) {
+                windowHits.increment();
+                List<ActivityItem> items = new ArrayList<>(current.items.subList(from, to));
+                boolean more = to < current.items.size() || !current.complete;
+                return new ActivityPage(items, more && items.size() == limit ? encodeCursor(items.get(limit - 1)) : null);
+            }
+        }
+
+        windowMisses.increment();
+        List<ActivityItem> items = merge(position, limit);
+        return new ActivityPage(items, items.size() == limit ? encodeCursor(items.get(limit - 1)) : null);
+    }
+
+    /**
+     * 窗口状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        Window current = window;
+        status.put("windowItems", current != null ? current.items.size() : 0);
+        status.put("windowComplete", current != null && current.complete);
+        status.put("windowAgeMillis", current != null ? System.currentTimeMillis() - current.loadedAt : -1);
+        status.put("windowSize", WINDOW_SIZE);
+        status.put("cacheMillis", CACHE_MILLIS);
+        return status;
+    }
+
+    /**
+     * 取当前窗口，过期时由一个请求重新加载（加载期间其余请求使用旧窗口，首次加载时等待）
+     */
+    private Window currentWindow() {
+        Window current = window;
+        if (current != null && System.currentTimeMillis() - current.loadedAt < CACHE_MILLIS) {
+            return current;
+        }
+        if (current != null) {
+            if (!refreshLock.tryLock()) {
+                return current;
+            }
+        } else {
+            refreshLock.lock();
+        }
+        try {
+            current = window;
+            if (current != null && System.currentTimeMillis() - current.loadedAt < CACHE_MILLIS) {
+                return current;
+            }
+            List<ActivityItem> items = merge(null, WINDOW_SIZE);
+            current = new Window(Collections.unmodifiableList(items), items.size() < WINDOW_SIZE, System.currentTimeMillis());
+            window = current;
+            return current;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * 从各事件源读取游标之后的一页，K路归并出最前面的 limit 条
+     */
+    private List<ActivityItem> merge(ActivityItem position, int limit) {
+        long start = System.nanoTime();
+        PriorityQueue<Run> heap = new PriorityQueue<>(sources.length, (a, b) -> ORDER.compare(a.head(), b.head()));
+        for (int i = 0; i < sources.length; i++) {
+            Date beforeTime = null;
+            Integer beforeId = null;
+            if (position != null) {
+                // 同一时间内排在游标类型之前的事件源只取更早的，之后的取同一时间的全部
+                int cursorRank = rank(position.getType());
+                beforeTime = position.getTime();
+                beforeId = i < cursorRank ? Integer.MIN_VALUE : i > cursorRank ? Integer.MAX_VALUE : position.getId();
+            }
+            List<ActivityItem> items;
+            try {
+                items = sources[i].fetch(beforeTime, beforeId, limit);
+            } catch (SQLException e) {
+                items = handleException(e, "查询动态广场" + TYPES[i], null);
+            }
+            if (items != null && !items.isEmpty()) {
+                heap.add(new Run(items));
+            }
+        }
+
+        List<ActivityItem> merged = new ArrayList<>(limit);
+        while (merged.size() < limit && !heap.isEmpty()) {
+            Run run = heap.poll();
+            merged.add(run.head());
+            if (run.advance()) {
+                heap.add(run);
+            }
+        }
+        mergeLatency.observeSince(start);
+        return merged;
+    }
+
+    /**
+     * 一个事件源已读取的有序结果
+     */
+    private static class Run {
+        private final List<ActivityItem> items;
+        private int index = 0;
+
+        Run(List<ActivityItem> items) {
+            this.items = items;
+        }
+
+        ActivityItem head() {
+            return items.get(index);
+        }
+
+        boolean advance() {
+            return ++index < items.size();
+        }
+    }
+
+    /**
+     * 二分查找窗口中第一条排在游标之后的位置
+     */
+    private static int firstAfter(List<ActivityItem> items, ActivityItem position) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ORDER.compare(items.get(mid), position) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int rank(String type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String encodeCursor(ActivityItem item) {
+        return item.getType() + "_" + new KeysetCursor(item.getTime(), item.getId()).encode();
+    }
+
+    private static ActivityItem decodeCursor(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        int sep = value.indexOf('_');
+        String type = sep > 0 ? value.substring(0, sep) : null;
+        if (type == null || rank(type) < 0) {
+            throw new IllegalArgumentException("游标格式错误: " + value);
+        }
+        KeysetCursor keyset = KeysetCursor.decode(value.substring(sep + 1));
+        if (keyset == null) {
+            throw new IllegalArgumentException("游标格式错误: " + value);
+        }
+        ActivityItem position = new ActivityItem();
+        position.setType(type);
+        position.setTime(keyset.getTime());
+        position.setId(keyset.getId());
+        return position;
+    }
+}
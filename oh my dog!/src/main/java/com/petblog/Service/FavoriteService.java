@@ -2,9 +2,16 @@ package com.petblog.Service;
 import com.petblog.dao.FavoriteDAO;
 import com.petblog.dao.impl.FavoriteDAOImpl;
 import com.petblog.model.Favorite;
+import com.petblog.model.InteractedBlog;
+import com.petblog.model.ToggleResult;
 import com.petblog.util.SQLExceptionHandler;
+import com.petblog.util.UserBitmapCache;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class FavoriteService extends BaseService {
 
@@ -22,6 +29,20 @@ public class FavoriteService extends BaseService {
         }
     }
 
+    /**
+     * 键集分页查询用户收藏的博客详情（含作者、计数和收藏时间）
+     * @param beforeTime 游标时间，为null时查询第一页
+     * @param beforeBlogId 游标博客ID
+     */
+    public List<InteractedBlog> getFavoritedBlogs(Integer userId, Date beforeTime, Integer beforeBlogId, int limit) {
+        try {
+            return favoriteDAO.findFavoritedBlogs(userId, beforeTime, beforeBlogId, limit);
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "分页查询用户收藏的博客");
+            return new ArrayList<>();
+        }
+    }
+
     /**
      * 根据博客ID查询所有收藏该博客的用户ID
      */
@@ -63,6 +84,10 @@ public class FavoriteService extends BaseService {
      */
     public boolean isBlogFavorite(Integer userId, Integer blogId) {
         try {
+            Boolean cached = UserBitmapCache.contains(UserBitmapCache.FAVORITES, userId, blogId, favoriteDAO::findAllBlogIdsByUserId);
+            if (cached != null) {
+                return cached;
+            }
             return favoriteDAO.isFavorite(userId, blogId);
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "检查博客收藏状态");
@@ -70,12 +95,51 @@ public class FavoriteService extends BaseService {
         }
     }
 
+    /**
+     * 批量查询用户收藏了哪些博客
+     * @return 已收藏的博客ID集合，失败返回空集合
+     */
+    public Set<Integer> getFavoritedBlogIds(Integer userId, List<Integer> blogIds) {
+        try {
+            Set<Integer> ids = UserBitmapCache.filter(UserBitmapCache.FAVORITES, userId, blogIds, favoriteDAO::findAllBlogIdsByUserId);
+            if (ids == null) {
+                ids = favoriteDAO.findFavoritedBlogIds(userId, blogIds);
+            }
+            return ids;
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "批量查询收藏状态");
+            return new HashSet<>();
+        }
+    }
+
+    /**
+     * 切换收藏状态（单次事务内完成收藏/取消收藏并返回最新收藏数）
+     * @return 切换结果，失败返回null
+     */
+    public ToggleResult toggleFavorite(Integer userId, Integer blogId) {
+        try {
+            ToggleResult result = favoriteDAO.toggle(userId, blogId);
+            if (result != null) {
+                UserBitmapCache.update(UserBitmapCache.FAVORITES, userId, blogId, result.isActive());
+                HeatScoreEngine.onEvent(blogId, HeatScoreEngine.FAVORITES, result.isActive() ? 1 : -1);
+            }
+            return result;
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "切换收藏状态");
+            return null;
+        }
+    }
+
     /**
      * 新增博客收藏
      */
     public boolean addFavorite(Favorite favorite) {
         try {
             int result = favoriteDAO.insert(favorite);
+            if (result > 0) {
+                UserBitmapCache.update(UserBitmapCache.FAVORITES, favorite.getUserId(), favorite.getBlogId(), true);
+                HeatScoreEngine.onEvent(favorite.getBlogId(), HeatScoreEngine.FAVORITES, 1);
+            }
             return result > 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "新增博客收藏");
@@ -89,6 +153,10 @@ public class FavoriteService extends BaseService {
     public boolean removeFavorite(Integer userId, Integer blogId) {
         try {
             int result = favoriteDAO.delete(userId, blogId);
+            if (result > 0) {
+                UserBitmapCache.update(UserBitmapCache.FAVORITES, userId, blogId, false);
+                HeatScoreEngine.onEvent(blogId, HeatScoreEngine.FAVORITES, -1);
+            }
             return result > 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "取消博客收藏");
@@ -102,6 +170,7 @@ public class FavoriteService extends BaseService {
     public boolean removeAllFavoritesOfUser(Integer userId) {
         try {
             int result = favoriteDAO.deleteByUserId(userId);
+            UserBitmapCache.invalidate(UserBitmapCache.FAVORITES, userId);
             return result >= 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "删除用户所有收藏");
@@ -115,6 +184,7 @@ public class FavoriteService extends BaseService {
     public boolean removeAllFavoritesOfBlog(Integer blogId) {
         try {
             int result = favoriteDAO.deleteByBlogId(blogId);
+            UserBitmapCache.invalidateAll(UserBitmapCache.FAVORITES);
             return result >= 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "移除博客所有收藏");
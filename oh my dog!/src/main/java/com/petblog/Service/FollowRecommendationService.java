@@ -0,0 +1,556 @@
+package com.petblog.Service;
+
+import com.petblog.dao.FollowGraph;
+import com.petblog.model.FollowRecommendation;
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.JdbcUtil;
+import com.petblog.util.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 关注推荐服务类
+ * 基于内存关注图做二跳遍历（我关注的人关注了谁），按共同关注（以中间用户粉丝数做 Adamic-Adar 加权）、
+ * 话题兴趣重合度（blogtopic）和近期活跃度综合打分。两跳的展开量都有上限，高出度用户按等间隔抽样。
+ * 后台任务定期为活跃用户并行预计算推荐结果并放入有界LRU缓存；缓存未命中时按需计算一次。
+ *
+ * 可选系统属性：follow.recommend.refreshMinutes（预计算间隔，默认60）、follow.recommend.cacheSize（缓存用户数，默认100000）、
+ * follow.recommend.maxFirstHop / maxSecondHop（两跳展开上限，默认各200）、follow.recommend.parallelism（并行度，默认CPU核数）
+ */
+public class FollowRecommendationService extends BaseService {
+    private static final Logger logger = Logger.getLogger(FollowRecommendationService.class.getName());
+
+    private static final int TOP_K = 20;
+    private static final int MAX_FIRST_HOP = Integer.getInteger("follow.recommend.maxFirstHop", 200);
+    private static final int MAX_SECOND_HOP = Integer.getInteger("follow.recommend.maxSecondHop", 200);
+    private static final int CACHE_SIZE = Integer.getInteger("follow.recommend.cacheSize", 100000);
+    private static final long REFRESH_MINUTES = Long.getLong("follow.recommend.refreshMinutes", 60L);
+    private static final int PARALLELISM = Integer.getInteger("follow.recommend.parallelism",
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * 活跃用户窗口：最近30天发过博客、点过赞或请求过推荐
+     */
+    private static final long ACTIVE_WINDOW_MS = TimeUnit.DAYS.toMillis(30);
+
+    /**
+     * 兜底热门候选数量（没有二跳候选或候选不足时补充）
+     */
+    private static final int POPULAR_SIZE = 100;
+
+    private static final double TOPIC_WEIGHT = 0.6;
+    private static final double ACTIVITY_WEIGHT = 0.4;
+    private static final double ACTIVITY_HALF_LIFE_DAYS = 7.0;
+
+    /**
+     * 一次预计算使用的信号
+     */
+    private static class Signals {
+        /**
+         * 用户兴趣话题（发布过和点赞过的博客所属话题，有序）
+         */
+        final Map<Integer, int[]> interestTopics;
+        /**
+         * 用户发布过的博客所属话题（有序）
+         */
+        final Map<Integer, int[]> authorTopics;
+        /**
+         * 用户最近一次发博客或点赞的时间
+         */
+        final Map<Integer, Long> lastActive;
+        final Set<Integer> banned;
+        final int[] popular;
+
+        Signals(Map<Integer, int[]> interestTopics, Map<Integer, int[]> authorTopics,
+                Map<Integer, Long> lastActive, Set<Integer> banned, int[] popular) {
+            this.interestTopics = interestTopics;
+            this.authorTopics = authorTopics;
+            this.lastActive = lastActive;
+            this.banned = banned;
+            this.popular = popular;
+        }
+    }
+
+    private static final Signals EMPTY_SIGNALS = new Signals(Collections.emptyMap(), Collections.emptyMap(),
+            Collections.emptyMap(), Collections.emptySet(), new int[0]);
+
+    private static volatile Signals signals = EMPTY_SIGNALS;
+
+    private static final Object cacheLock = new Object();
+    private static final LinkedHashMap<Integer, List<FollowRecommendation>> cache =
+            new LinkedHashMap<Integer, List<FollowRecommendation>>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<FollowRecommendation>> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    /**
+     * 最近请求过推荐的用户及请求时间（计入活跃用户）
+     */
+    private static final ConcurrentHashMap<Integer, Long> recentRequests = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(Accumulator::new);
+
+    private static volatile long lastRefreshTime = 0;
+    private static volatile int lastRefreshUsers = 0;
+    private static volatile long lastRefreshMillis = 0;
+
+    private static final MetricsRegistry.Counter cacheHits = MetricsRegistry.counter("follow.recommend.cache", "result", "hit");
+    private static final MetricsRegistry.Counter cacheMisses = MetricsRegistry.counter("follow.recommend.cache", "result", "miss");
+    private static final MetricsRegistry.Histogram refreshLatency = MetricsRegistry.histogram(
+            "follow.recommend.refresh_latency_ms", MetricsRegistry.LATENCY_BUCKETS_MS);
+    private static final MetricsRegistry.Histogram computeLatency = MetricsRegistry.histogram(
+            "follow.recommend.compute_latency_ms", MetricsRegistry.LATENCY_BUCKETS_MS);
+    private static final MetricsRegistry.Histogram candidateCount = MetricsRegistry.histogram(
+            "follow.recommend.candidates", new double[]{0, 10, 50, 100, 500, 1000, 5000, 10000, 40000});
+
+    /**
+     * 注册周期预计算任务（等待关注图加载完成后才会真正执行）
+     */
+    public static void start() {
+        FollowRecommendationService service = new FollowRecommendationService();
+        // 预计算耗时较长，使用独立线程，不占用共享调度线程
+        BackgroundScheduler.scheduleAtFixedRate(BackgroundScheduler.dedicated("follow-recommend"), "关注推荐预计算", () -> {
+            if (FollowGraph.isReady()) {
+                service.refreshAll();
+            }
+        }, 2, REFRESH_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 获取用户的关注推荐
+     * 已关注的用户在返回前实时过滤
+     * @return 推荐列表，关注图未就绪时返回null（调用方应回退到简单推荐）
+     */
+    public List<FollowRecommendation> getRecommendations(Integer userId, int limit) {
+        recentRequests.put(userId, System.currentTimeMillis());
+        if (!FollowGraph.isReady()) {
+            return null;
+        }
+        List<FollowRecommendation> cached;
+        synchronized (cacheLock) {
+            cached = cache.get(userId);
+        }
+        if (cached != null) {
+            cacheHits.increment();
+        } else {
+            cacheMisses.increment();
+            cached = compute(userId, signals, accumulators.get());
+            synchronized (cacheLock) {
+                cache.put(userId, cached);
+            }
+        }
+        List<FollowRecommendation> result = new ArrayList<>();
+        for (FollowRecommendation recommendation : cached) {
+            if (!FollowGraph.isFollowing(userId, recommendation.getUserId())) {
+                result.add(recommendation);
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 重新加载打分信号并为所有活跃用户并行预计算推荐
+     * @return 预计算的用户数，失败返回-1
+     */
+    public int refreshAll() {
+        long start = System.nanoTime();
+        Signals loaded;
+        try {
+            loaded = loadSignals();
+        } catch (SQLException e) {
+            handleException(e, "加载关注推荐信号");
+            return -1;
+        }
+        signals = loaded;
+
+        long cutoff = System.currentTimeMillis() - ACTIVE_WINDOW_MS;
+        recentRequests.values().removeIf(time -> time < cutoff);
+        Set<Integer> active = new HashSet<>(recentRequests.keySet());
+        for (Map.Entry<Integer, Long> entry : loaded.lastActive.entrySet()) {
+            if (entry.getValue() >= cutoff) {
+                active.add(entry.getKey());
+            }
+        }
+        active.removeAll(loaded.banned);
+
+        // 超出缓存容量时只保留最近活跃的用户，避免预计算后立即被淘汰
+        List<Integer> ordered = new ArrayList<>(active);
+        if (ordered.size() > CACHE_SIZE) {
+            ordered.sort((a, b) -> Long.compare(lastActiveOf(b, loaded), lastActiveOf(a, loaded)));
+            ordered = ordered.subList(0, CACHE_SIZE);
+        }
+        int[] users = ordered.stream().mapToInt(Integer::intValue).toArray();
+
+        AtomicInteger computed = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, PARALLELISM));
+        try {
+            int[] targets = users;
+            pool.submit(() -> Arrays.stream(targets).parallel().forEach(userId -> {
+                List<FollowRecommendation> recommendations = compute(userId, loaded, accumulators.get());
+                synchronized (cacheLock) {
+                    cache.put(userId, recommendations);
+                }
+                computed.incrementAndGet();
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "关注推荐预计算失败", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        lastRefreshTime = System.currentTimeMillis();
+        lastRefreshUsers = computed.get();
+        lastRefreshMillis = (System.nanoTime() - start) / 1_000_000;
+        refreshLatency.observeSince(start);
+        logger.info("关注推荐预计算完成，用户数=" + computed.get() + "，耗时=" + lastRefreshMillis + "ms");
+        return computed.get();
+    }
+
+    /**
+     * 推荐服务状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        synchronized (cacheLock) {
+            status.put("cachedUsers", cache.size());
+        }
+        status.put("cacheSize", CACHE_SIZE);
+        status.put("recentRequesters", recentRequests.size());
+        status.put("lastRefreshTime", lastRefreshTime);
+        status.put("lastRefreshUsers", lastRefreshUsers);
+        status.put("lastRefreshMillis", lastRefreshMillis);
+        status.put("refreshMinutes", REFRESH_MINUTES);
+        status.put("parallelism", PARALLELISM);
+        return status;
+    }
+
+    /**
+     * 为单个用户计算推荐：二跳累积共同关注得分，取前若干名后补充热门候选，再叠加话题和活跃度得分排序
+     */
+    private static List<FollowRecommendation> compute(int userId, Signals signals, Accumulator acc) {
+        long start = System.nanoTime();
+        int[] followingIds = FollowGraph.following(userId, 0, Integer.MAX_VALUE);
+        int[] firstHop = sample(followingIds, MAX_FIRST_HOP);
+
+        acc.reset();
+        for (int middle : firstHop) {
+            double weight = 1.0 / Math.log(2 + FollowGraph.countFollowers(middle));
+            for (int candidate : FollowGraph.sampleFollowing(middle, MAX_SECOND_HOP)) {
+                if (candidate != userId) {
+                    acc.add(candidate, (float) weight);
+                }
+            }
+        }
+        candidateCount.observe(acc.size);
+
+        // 先按共同关注得分取前 3*TOP_K 名，再补充热门候选，最后统一精排
+        PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Float.compare(acc.weights[a], acc.weights[b]));
+        for (int i = 0; i < acc.size; i++) {
+            int slot = acc.slots[i];
+            int candidate = acc.keys[slot];
+            if (Arrays.binarySearch(followingIds, candidate) >= 0 || signals.banned.contains(candidate)) {
+                continue;
+            }
+            if (top.size() < TOP_K * 3) {
+                top.offer(slot);
+            } else if (acc.weights[slot] > acc.weights[top.peek()]) {
+                top.poll();
+                top.offer(slot);
+            }
+        }
+
+        Map<Integer, FollowRecommendation> candidates = new HashMap<>();
+        for (int slot : top) {
+            candidates.put(acc.keys[slot], new FollowRecommendation(acc.keys[slot], acc.weights[slot], acc.counts[slot]));
+        }
+        for (int candidate : signals.popular) {
+            if (candidates.size() >= TOP_K * 3) {
+                break;
+            }
+            if (candidate != userId && !candidates.containsKey(candidate)
+                    && Arrays.binarySearch(followingIds, candidate) < 0) {
+                candidates.put(candidate, new FollowRecommendation(candidate, 0, 0));
+            }
+        }
+
+        int[] interests = signals.interestTopics.get(userId);
+        long now = System.currentTimeMillis();
+        List<FollowRecommendation> ranked = new ArrayList<>(candidates.values());
+        for (FollowRecommendation recommendation : ranked) {
+            double score = recommendation.getScore()
+                    + TOPIC_WEIGHT * topicSimilarity(interests, signals.authorTopics.get(recommendation.getUserId()))
+                    + ACTIVITY_WEIGHT * activity(signals.lastActive.get(recommendation.getUserId()), now);
+            recommendation.setScore(score);
+        }
+        ranked.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        if (ranked.size() > TOP_K) {
+            ranked = new ArrayList<>(ranked.subList(0, TOP_K));
+        }
+        computeLatency.observeSince(start);
+        return ranked;
+    }
+
+    private static long lastActiveOf(Integer userId, Signals signals) {
+        long requested = recentRequests.getOrDefault(userId, 0L);
+        return Math.max(requested, signals.lastActive.getOrDefault(userId, 0L));
+    }
+
+    private static int[] sample(int[] ids, int max) {
+        if (ids.length <= max) {
+            return ids;
+        }
+        int[] sample = new int[max];
+        double step = (double) ids.length / max;
+        for (int i = 0; i < max; i++) {
+            sample[i] = ids[(int) (i * step)];
+        }
+        return sample;
+    }
+
+    /**
+     * 两个有序话题集合的余弦相似度（集合交集 / 几何平均长度）
+     */
+    private static double topicSimilarity(int[] a, int[] b) {
+        if (a == null || b == null || a.length == 0 || b.length == 0) {
+            return 0;
+        }
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return common / Math.sqrt((double) a.length * b.length);
+    }
+
+    /**
+     * 活跃度：按最近活跃时间指数衰减，半衰期7天
+     */
+    private static double activity(Long lastActive, long now) {
+        if (lastActive == null) {
+            return 0;
+        }
+        double ageDays = Math.max(0, now - lastActive) / (double) TimeUnit.DAYS.toMillis(1);
+        return Math.pow(0.5, ageDays / ACTIVITY_HALF_LIFE_DAYS);
+    }
+
+    private Signals loadSignals() throws SQLException {
+        Map<Integer, int[]> authorTopics = loadTopics(
+                "SELECT DISTINCT b.user_id, bt.topic_id FROM blogs b JOIN blogtopic bt ON bt.blog_id = b.blog_id " +
+                "WHERE b.is_shielded = 0 ORDER BY b.user_id, bt.topic_id");
+        Map<Integer, int[]> likedTopics = loadTopics(
+                "SELECT DISTINCT l.user_id, bt.topic_id FROM likes l JOIN blogtopic bt ON bt.blog_id = l.blog_id " +
+                "ORDER BY l.user_id, bt.topic_id");
+        Map<Integer, int[]> interestTopics = new HashMap<>(likedTopics);
+        for (Map.Entry<Integer, int[]> entry : authorTopics.entrySet()) {
+            interestTopics.merge(entry.getKey(), entry.getValue(), FollowRecommendationService::union);
+        }
+
+        Map<Integer, Long> lastActive = new HashMap<>();
+        loadLastActive("SELECT user_id, MAX(blog_create_time) FROM blogs GROUP BY user_id", lastActive);
+        loadLastActive("SELECT user_id, MAX(like_time) FROM likes GROUP BY user_id", lastActive);
+
+        Set<Integer> banned = new HashSet<>();
+        try (Connection conn = JdbcUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT user_id FROM users WHERE is_ban = 1");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                banned.add(rs.getInt(1));
+            }
+        }
+
+        // 热门兜底候选：近期活跃且粉丝多的用户
+        long now = System.currentTimeMillis();
+        List<Integer> authors = new ArrayList<>(authorTopics.keySet());
+        authors.removeAll(banned);
+        Map<Integer, Double> popularity = new HashMap<>();
+        for (Integer author : authors) {
+            popularity.put(author, Math.log(2 + FollowGraph.countFollowers(author)) * activity(lastActive.get(author), now));
+        }
+        authors.sort((a, b) -> Double.compare(popularity.get(b), popularity.get(a)));
+        int[] popular = authors.stream().limit(POPULAR_SIZE).mapToInt(Integer::intValue).toArray();
+
+        return new Signals(interestTopics, authorTopics, lastActive, banned, popular);
+    }
+
+    /**
+     * 读取按 (user_id, topic_id) 排序的结果，按用户聚合为有序话题数组
+     */
+    private Map<Integer, int[]> loadTopics(String sql) throws SQLException {
+        Map<Integer, int[]> result = new HashMap<>();
+        try (Connection conn = JdbcUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            int currentUser = 0;
+            int[] topics = null;
+            int size = 0;
+            while (rs.next()) {
+                int userId = rs.getInt(1);
+                if (topics == null || userId != currentUser) {
+                    if (topics != null) {
+                        result.put(currentUser, Arrays.copyOf(topics, size));
+                    }
+                    currentUser = userId;
+                    topics = new int[8];
+                    size = 0;
+                }
+                if (size == topics.length) {
+                    topics = Arrays.copyOf(topics, size * 2);
+                }
+                topics[size++] = rs.getInt(2);
+            }
+            if (topics != null) {
+                result.put(currentUser, Arrays.copyOf(topics, size));
+            }
+        }
+        return result;
+    }
+
+    private void loadLastActive(String sql, Map<Integer, Long> lastActive) throws SQLException {
+        try (Connection conn = JdbcUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Timestamp time = rs.getTimestamp(2);
+                if (time != null) {
+                    lastActive.merge(rs.getInt(1), time.getTime(), Math::max);
+                }
+            }
+        }
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            merged[size++] = next;
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    /**
+     * 候选得分累加器（开放寻址，按代号复用，避免每个用户重新分配）
+     */
+    private static final class Accumulator {
+        int[] keys = new int[1024];
+        float[] weights = new float[1024];
+        int[] counts = new int[1024];
+        int[] stamps = new int[1024];
+        int[] slots = new int[512];
+        int size;
+        int generation;
+
+        void reset() {
+            size = 0;
+            generation++;
+            if (generation == 0) {
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+        }
+
+        void add(int key, float weight) {
+            if (size * 2 >= keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = slotOf(key);
+            while (stamps[slot] == generation) {
+                if (keys[slot] == key) {
+                    weights[slot] += weight;
+                    counts[slot]++;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            stamps[slot] = generation;
+            keys[slot] = key;
+            weights[slot] = weight;
+            counts[slot] = 1;
+            slots[size++] = slot;
+        }
+
+        /**
+         * 斐波那契散列，取乘积高位作为起始槽位
+         */
+        private int slotOf(int key) {
+            return (key * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(keys.length - 1);
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            float[] oldWeights = weights;
+            int[] oldCounts = counts;
+            int[] oldSlots = Arrays.copyOf(slots, size);
+            int oldSize = size;
+            int capacity = keys.length * 2;
+            keys = new int[capacity];
+            weights = new float[capacity];
+            counts = new int[capacity];
+            stamps = new int[capacity];
+            slots = new int[capacity / 2];
+            generation = 1;
+            size = 0;
+            int mask = capacity - 1;
+            for (int i = 0; i < oldSize; i++) {
+                int old = oldSlots[i];
+                int slot = slotOf(oldKeys[old]);
+                while (stamps[slot] == generation) {
+                    slot = (slot + 1) & mask;
+                }
+                stamps[slot] = generation;
+                keys[slot] = oldKeys[old];
+                weights[slot] = oldWeights[old];
+                counts[slot] = oldCounts[old];
+                slots[size++] = slot;
+            }
+        }
+    }
+}
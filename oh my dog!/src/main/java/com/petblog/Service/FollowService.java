@@ -2,11 +2,16 @@ package com.petblog.Service;
 
 
 import com.petblog.dao.FollowDAO;
+import com.petblog.dao.FollowGraph;
 import com.petblog.dao.impl.FollowDAOImpl;
 import com.petblog.model.Follow;
+import com.petblog.model.ToggleResult;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FollowService extends BaseService {
 
@@ -36,10 +41,43 @@ public class FollowService extends BaseService {
         }
     }
 
+    /**
+     * 关注列表切片（按用户ID升序；关注图就绪时不访问数据库，否则按同样顺序查库）
+     */
+    public List<Integer> getFollowingSlice(Integer userId, int offset, int limit) {
+        if (FollowGraph.isReady()) {
+            return toList(FollowGraph.following(userId, offset, limit));
+        }
+        try {
+            return followDAO.findFollowingIdsByOffset(userId, offset, limit);
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "查询用户关注列表");
+            return null;
+        }
+    }
+
+    /**
+     * 粉丝列表切片（按用户ID升序；关注图就绪时不访问数据库，否则按同样顺序查库）
+     */
+    public List<Integer> getFollowerSlice(Integer userId, int offset, int limit) {
+        if (FollowGraph.isReady()) {
+            return toList(FollowGraph.followers(userId, offset, limit));
+        }
+        try {
+            return followDAO.findFollowerIdsByOffset(userId, offset, limit);
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "查询用户粉丝列表");
+            return null;
+        }
+    }
+
     /**
      * 统计用户的关注数量（我关注了多少人）
      */
     public int countFollowing(Integer userId) {
+        if (FollowGraph.isReady()) {
+            return FollowGraph.countFollowing(userId);
+        }
         try {
             return followDAO.countFollowing(userId);
         } catch (SQLException e) {
@@ -52,6 +90,9 @@ public class FollowService extends BaseService {
      * 统计用户的粉丝数量（多少人关注了我）
      */
     public int countFollowers(Integer userId) {
+        if (FollowGraph.isReady()) {
+            return FollowGraph.countFollowers(userId);
+        }
         try {
             return followDAO.countFollowers(userId);
         } catch (SQLException e) {
@@ -60,10 +101,39 @@ public class FollowService extends BaseService {
         }
     }
 
+    /**
+     * 批量统计多个用户的粉丝数量（关注图就绪时不访问数据库，否则一次分组查询）
+     * @return 用户ID到粉丝数量的映射，每个传入的用户都有值
+     */
+    public Map<Integer, Integer> countFollowersByIds(List<Integer> userIds) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return counts;
+        }
+        if (FollowGraph.isReady()) {
+            for (Integer userId : userIds) {
+                counts.put(userId, FollowGraph.countFollowers(userId));
+            }
+            return counts;
+        }
+        try {
+            counts.putAll(followDAO.countFollowersByIds(userIds));
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "批量统计用户粉丝数量");
+        }
+        for (Integer userId : userIds) {
+            counts.putIfAbsent(userId, 0);
+        }
+        return counts;
+    }
+
     /**
      * 检查用户A是否关注了用户B
      */
     public boolean isUserFollowing(Integer fromUserId, Integer toUserId) {
+        if (FollowGraph.isReady()) {
+            return FollowGraph.isFollowing(fromUserId, toUserId);
+        }
         try {
             return followDAO.isFollowing(fromUserId, toUserId);
         } catch (SQLException e) {
@@ -72,12 +142,37 @@ public class FollowService extends BaseService {
         }
     }
 
+    /**
+     * 切换关注状态（单次事务内完成关注/取消关注并返回被关注者最新粉丝数）
+     * @return 切换结果，失败返回null
+     */
+    public ToggleResult toggleFollow(Integer fromUserId, Integer toUserId) {
+        try {
+            ToggleResult result = followDAO.toggle(fromUserId, toUserId);
+            if (result != null) {
+                if (result.isActive()) {
+                    FollowGraph.onFollow(fromUserId, toUserId);
+                    NotificationPipeline.userFollowed(fromUserId, toUserId);
+                } else {
+                    FollowGraph.onUnfollow(fromUserId, toUserId);
+                }
+            }
+            return result;
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "切换关注状态");
+            return null;
+        }
+    }
+
     /**
      * 新增关注关系（用户A关注用户B）
      */
     public boolean followUser(Follow follow) {
         try {
             int result = followDAO.insert(follow);
+            if (result > 0) {
+                FollowGraph.onFollow(follow.getFollowerId(), follow.getFolloweeId());
+            }
             return result > 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "新增关注关系");
@@ -91,6 +186,9 @@ public class FollowService extends BaseService {
     public boolean unfollowUser(Integer fromUserId, Integer toUserId) {
         try {
             int result = followDAO.delete(fromUserId, toUserId);
+            if (result > 0) {
+                FollowGraph.onUnfollow(fromUserId, toUserId);
+            }
             return result > 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "取消关注关系");
@@ -104,6 +202,9 @@ public class FollowService extends BaseService {
     public boolean removeAllFollowing(Integer fromUserId) {
         try {
             int result = followDAO.deleteAllFollowing(fromUserId);
+            if (result > 0) {
+                FollowGraph.onRemoveAllFollowing(fromUserId);
+            }
             return result >= 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "移除用户所有关注关系");
@@ -117,10 +218,21 @@ public class FollowService extends BaseService {
     public boolean removeAllFollowers(Integer toUserId) {
         try {
             int result = followDAO.deleteAllFollowers(toUserId);
+            if (result > 0) {
+                FollowGraph.onRemoveAllFollowers(toUserId);
+            }
             return result >= 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "移除用户所有粉丝关系");
             return false;
         }
     }
+
+    private static List<Integer> toList(int[] ids) {
+        List<Integer> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
 }
@@ -0,0 +1,312 @@
+package com.petblog.Service;
+
+import com.petblog.dao.BlogDAO;
+import com.petblog.dao.impl.BlogDAOImpl;
+import com.petblog.model.BlogEngagement;
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.MetricsRegistry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 博客热度计算引擎
+ * 统一热度公式：热度 = 投票数×50 + 点赞数×20 + 收藏数×20 + 评论数×10 + 转发数×10，
+ * 博客热度详情、挑战热度、管理端推荐都使用这里的权重。
+ *
+ * 热门榜按重力衰减排序：得分 = 热度 / (发布小时数 + 2)^重力。
+ * 内存中保存最近 trending.windowDays 天内发布的博客的互动计数，点赞、收藏、投票、评论、转发发生时按增量更新，
+ * 并按同一基准时间重新计算该博客的得分、就地调整前K名快照；后台每分钟按当前时间重算一次快照（衰减随时间推移），
+ * 每10分钟由一次聚合查询重新加载计数，纠正删除等未上报的变化。热门榜直接读取快照，耗时与K成正比，不扫描 blogs 表。
+ *
+ * 可选系统属性：trending.gravity（重力，默认1.8）、trending.windowDays（统计窗口天数，默认7）、
+ * trending.topK（快照保留的前K名，默认200）
+ */
+public class HeatScoreEngine {
+    private static final Logger logger = Logger.getLogger(HeatScoreEngine.class.getName());
+
+    public static final int VOTE_WEIGHT = 50;
+    public static final int LIKE_WEIGHT = 20;
+    public static final int FAVORITE_WEIGHT = 20;
+    public static final int COMMENT_WEIGHT = 10;
+    public static final int REPOST_WEIGHT = 10;
+
+    /**
+     * 互动类型：投票
+     */
+    public static final int VOTES = 0;
+
+    /**
+     * 互动类型：点赞
+     */
+    public static final int LIKES = 1;
+
+    /**
+     * 互动类型：收藏
+     */
+    public static final int FAVORITES = 2;
+
+    /**
+     * 互动类型：评论（一级评论）
+     */
+    public static final int COMMENTS = 3;
+
+    /**
+     * 互动类型：转发
+     */
+    public static final int REPOSTS = 4;
+
+    private static final int[] WEIGHTS = {VOTE_WEIGHT, LIKE_WEIGHT, FAVORITE_WEIGHT, COMMENT_WEIGHT, REPOST_WEIGHT};
+
+    private static final double GRAVITY = Double.parseDouble(System.getProperty("trending.gravity", "1.8"));
+    private static final int WINDOW_DAYS = Integer.getInteger("trending.windowDays", 7);
+    private static final int TOP_K = Integer.getInteger("trending.topK", 200);
+
+    private static final long REFRESH_SECONDS = 60;
+    private static final long RELOAD_MINUTES = 10;
+
+    /**
+     * 窗口内博客的发布时间和互动计数
+     */
+    private static final class Entry {
+        final long createTime;
+        final AtomicIntegerArray counts = new AtomicIntegerArray(WEIGHTS.length);
+
+        Entry(long createTime) {
+            this.createTime = createTime;
+        }
+
+        int heat() {
+            int heat = 0;
+            for (int i = 0; i < WEIGHTS.length; i++) {
+                heat += Math.max(0, counts.get(i)) * WEIGHTS[i];
+            }
+            return heat;
+        }
+    }
+
+    /**
+     * 快照中的一名
+     */
+    private static final class Ranked {
+        final int blogId;
+        final int heat;
+        final double score;
+
+        Ranked(int blogId, int heat, double score) {
+            this.blogId = blogId;
+            this.heat = heat;
+            this.score = score;
+        }
+    }
+
+    private static final BlogDAO blogDAO = new BlogDAOImpl();
+
+    private static volatile ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final Object lock = new Object();
+
+    /**
+     * 前K名快照（得分降序）及其计算基准时间；增量调整时按同一基准时间计算得分，保证可比
+     */
+    private static volatile Ranked[] top = new Ranked[0];
+    private static volatile long referenceTime = System.currentTimeMillis();
+
+    private static final MetricsRegistry.Counter events = MetricsRegistry.counter("trending.events");
+    private static final MetricsRegistry.Counter reloads = MetricsRegistry.counter("trending.reloads");
+    private static final MetricsRegistry.Histogram reloadLatency = MetricsRegistry.histogram("trending.reload_latency_ms",
+            MetricsRegistry.LATENCY_BUCKETS_MS);
+
+    /**
+     * 注册周期任务：立即加载一次计数，之后定期重算快照、重新加载计数
+     */
+    public static void start() {
+        BackgroundScheduler.scheduleAtFixedRate("热门榜计数加载", HeatScoreEngine::reload,
+                0, RELOAD_MINUTES, TimeUnit.MINUTES);
+        BackgroundScheduler.scheduleAtFixedRate("热门榜快照重算", HeatScoreEngine::refresh,
+                REFRESH_SECONDS, REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 计算博客热度（不含时间衰减）
+     */
+    public static int heat(int votes, int likes, int favorites, int comments, int reposts) {
+        return votes * VOTE_WEIGHT + likes * LIKE_WEIGHT + favorites * FAVORITE_WEIGHT
+                + comments * COMMENT_WEIGHT + reposts * REPOST_WEIGHT;
+    }
+
+    /**
+     * 计算博客热度（不含时间衰减）
+     */
+    public static int heat(BlogEngagement engagement) {
+        return heat(engagement.getVoteCount(), engagement.getLikeCount(), engagement.getFavoriteCount(),
+                engagement.getCommentCount(), engagement.getRepostCount());
+    }
+
+    /**
+     * 按重力衰减计算热门得分
+     * @param ageMillis 发布至今的毫秒数
+     */
+    public static double score(int heat, long ageMillis) {
+        double hours = Math.max(0, ageMillis) / 3_600_000.0;
+        return heat / Math.pow(hours + 2, GRAVITY);
+    }
+
+    /**
+     * 新博客发布后调用，加入统计窗口
+     */
+    public static void onBlogCreated(int blogId, Date createTime) {
+        long time = createTime != null ? createTime.getTime() : System.currentTimeMillis();
+        entries.putIfAbsent(blogId, new Entry(time));
+    }
+
+    /**
+     * 互动新增、删除或切换后调用
+     * 按增量更新而不是写入调用方读到的最新计数：并发的切换可能乱序到达，写入绝对值会让较旧的计数覆盖较新的
+     * @param kind 互动类型
+     * @param delta 计数变化
+     */
+    public static void onEvent(int blogId, int kind, int delta) {
+        Entry entry = entries.get(blogId);
+        if (entry == null || delta == 0) {
+            return;
+        }
+        entry.counts.addAndGet(kind, delta);
+        updated(blogId, entry);
+    }
+
+    /**
+     * 读取热门榜前N名
+     * @return 名次、博客ID、热度、衰减后得分，按名次排列
+     */
+    public static List<Map<String, Object>> trending(int limit) {
+        Ranked[] snapshot = top;
+        int n = Math.max(0, Math.min(limit, snapshot.length));
+        List<Map<String, Object>> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("ranking", i + 1);
+            item.put("blog_id", snapshot[i].blogId);
+            item.put("heat", snapshot[i].heat);
+            item.put("score", snapshot[i].score);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 引擎状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("trackedBlogs", entries.size());
+        status.put("topSize", top.length);
+        status.put("topK", TOP_K);
+        status.put("gravity", GRAVITY);
+        status.put("windowDays", WINDOW_DAYS);
+        status.put("referenceTime", new Date(referenceTime));
+        status.put("events", events.get());
+        status.put("reloads", reloads.get());
+        return status;
+    }
+
+    /**
+     * 由一次聚合查询重新加载窗口内博客的计数，并重算快照
+     * 加载期间到达的增量会被覆盖，在下次事件或下次加载时修正
+     */
+    static void reload() {
+        long start = System.nanoTime();
+        try {
+            Date since = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(WINDOW_DAYS));
+            ConcurrentHashMap<Integer, Entry> loaded = new ConcurrentHashMap<>();
+            for (BlogEngagement row : blogDAO.findEngagementSince(since)) {
+                Entry entry = new Entry(row.getBlogCreateTime() != null ? row.getBlogCreateTime().getTime() : since.getTime());
+                entry.counts.set(VOTES, row.getVoteCount());
+                entry.counts.set(LIKES, row.getLikeCount());
+                entry.counts.set(FAVORITES, row.getFavoriteCount());
+                entry.counts.set(COMMENTS, row.getCommentCount());
+                entry.counts.set(REPOSTS, row.getRepostCount());
+                loaded.put(row.getBlogId(), entry);
+            }
+            entries = loaded;
+            reloads.increment();
+            refresh();
+        } catch (SQLException | RuntimeException e) {
+            logger.log(Level.WARNING, "加载热门榜计数失败", e);
+        } finally {
+            reloadLatency.observeSince(start);
+        }
+    }
+
+    /**
+     * 按当前时间重算全部得分，选出前K名（小顶堆，O(n log K)），并移除超出窗口的博客
+     */
+    static void refresh() {
+        long now = System.currentTimeMillis();
+        long windowStart = now - TimeUnit.DAYS.toMillis(WINDOW_DAYS);
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(TOP_K + 1, (a, b) -> Double.compare(a.score, b.score));
+        for (Map.Entry<Integer, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.createTime < windowStart) {
+                entries.remove(e.getKey(), entry);
+                continue;
+            }
+            int heat = entry.heat();
+            if (heat == 0) {
+                continue;
+            }
+            heap.offer(new Ranked(e.getKey(), heat, score(heat, now - entry.createTime)));
+            if (heap.size() > TOP_K) {
+                heap.poll();
+            }
+        }
+        Ranked[] ranked = heap.toArray(new Ranked[0]);
+        Arrays.sort(ranked, (a, b) -> Double.compare(b.score, a.score));
+        synchronized (lock) {
+            referenceTime = now;
+            top = ranked;
+        }
+    }
+
+    /**
+     * 按快照的基准时间重新计算该博客的得分，并在前K名快照中就地调整（写时复制，O(K)）
+     */
+    private static void updated(int blogId, Entry entry) {
+        events.increment();
+        int heat = entry.heat();
+        synchronized (lock) {
+            Ranked[] current = top;
+            Ranked updated = new Ranked(blogId, heat, score(heat, referenceTime - entry.createTime));
+            List<Ranked> next = new ArrayList<>(current.length + 1);
+            boolean inserted = heat == 0;
+            for (Ranked r : current) {
+                if (r.blogId == blogId) {
+                    continue;
+                }
+                if (!inserted && updated.score > r.score) {
+                    next.add(updated);
+                    inserted = true;
+                }
+                next.add(r);
+            }
+            if (!inserted && next.size() < TOP_K) {
+                next.add(updated);
+            }
+            if (next.size() > TOP_K) {
+                next.remove(next.size() - 1);
+            }
+            top = next.toArray(new Ranked[0]);
+        }
+    }
+}
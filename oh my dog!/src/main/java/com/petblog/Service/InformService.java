@@ -3,6 +3,7 @@ package com.petblog.Service;
 import com.petblog.dao.InformDAO;
 import com.petblog.dao.impl.InformDAOImpl;
 import com.petblog.model.Inform;
+import com.petblog.util.PushHub;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.SQLException;
 import java.util.List;
@@ -10,6 +11,7 @@ import java.util.List;
 public class InformService extends BaseService {
 
     private InformDAO informDAO = new InformDAOImpl();
+    private final UnreadCountService unreadCountService = new UnreadCountService();
 
     /**
      * 根据通知ID查询通知详情
@@ -48,15 +50,10 @@ public class InformService extends BaseService {
     }
 
     /**
-     * 统计用户的未读通知数量
+     * 统计用户的未读通知数量（读取维护好的未读计数）
      */
     public int countUnreadInformsByUserId(Integer userId) {
-        try {
-            return informDAO.countUnreadByUserId(userId);
-        } catch (SQLException e) {
-            SQLExceptionHandler.handleSQLException(e, "统计用户未读通知数量");
-            return 0;
-        }
+        return unreadCountService.getUnreadInforms(userId);
     }
 
     /**
@@ -76,7 +73,12 @@ public class InformService extends BaseService {
      */
     public Integer createInform(Inform inform) {
         try {
-            return informDAO.insert(inform);
+            int informId = informDAO.insert(inform);
+            if (informId > 0 && inform.getUserId() != null) {
+                inform.setInformId(informId);
+                PushHub.publish(inform.getUserId(), "inform", inform);
+            }
+            return informId;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "新增通知");
             return 0;
@@ -89,6 +91,13 @@ public class InformService extends BaseService {
     public boolean batchCreateInforms(List<Inform> informs) {
         try {
             int result = informDAO.batchInsert(informs);
+            if (result > 0) {
+                for (Inform inform : informs) {
+                    if (inform.getUserId() != null) {
+                        PushHub.publish(inform.getUserId(), "inform", inform);
+                    }
+                }
+            }
             return result > 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "批量新增通知");
@@ -0,0 +1,179 @@
+package com.petblog.Service;
+
+import com.petblog.dao.DiseaseDAO;
+import com.petblog.dao.DiseaseSymptomDAO;
+import com.petblog.dao.SymptomDAO;
+import com.petblog.dao.impl.DiseaseDAOImpl;
+import com.petblog.dao.impl.DiseaseSymptomDAOImpl;
+import com.petblog.dao.impl.SymptomDAOImpl;
+import com.petblog.model.Disease;
+import com.petblog.model.DiseaseSymptom;
+import com.petblog.model.Symptom;
+import com.petblog.util.JdbcUtil;
+import com.petblog.util.KnowledgeBaseSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 知识库快照服务类
+ * 负责从数据库导出知识库快照、启动时映射快照文件，以及比对数据库版本判断快照是否过期。
+ * 快照加载后诊断引擎直接从快照读取疾病、症状和关系，数据库只用于版本校验。
+ */
+public class KnowledgeBaseService extends BaseService {
+    private static final Logger logger = Logger.getLogger(KnowledgeBaseService.class.getName());
+
+    private static final String DEFAULT_SNAPSHOT_PATH = "data/knowledge_base.snapshot";
+
+    private static volatile KnowledgeBaseSnapshot snapshot;
+
+    private final DiseaseDAO diseaseDAO = new DiseaseDAOImpl();
+    private final SymptomDAO symptomDAO = new SymptomDAOImpl();
+    private final DiseaseSymptomDAO diseaseSymptomDAO = new DiseaseSymptomDAOImpl();
+
+    /**
+     * 获取当前已映射的快照
+     * @return 快照，未加载时返回null（调用方应回退到数据库查询）
+     */
+    public static KnowledgeBaseSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 快照文件路径，可通过系统属性 kb.snapshot.path 覆盖
+     */
+    public static Path getSnapshotPath() {
+        return Paths.get(System.getProperty("kb.snapshot.path", DEFAULT_SNAPSHOT_PATH));
+    }
+
+    /**
+     * 映射本地快照文件（不访问数据库）
+     * @return 是否加载成功
+     */
+    public boolean loadLocalSnapshot() {
+        Path path = getSnapshotPath();
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try {
+            snapshot = KnowledgeBaseSnapshot.map(path);
+            logger.info("知识库快照已映射：" + path.toAbsolutePath() + "，版本=" + snapshot.getKbVersion()
+                    + "，疾病数=" + snapshot.getDiseaseCount() + "，症状数=" + snapshot.getSymptomCount());
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "知识库快照映射失败：" + path.toAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 查询数据库中知识库的当前版本
+     * 使用 CHECKSUM TABLE 计算三张知识库表的校验和，知识库表很小，开销可忽略
+     * @return 版本号，查询失败时返回null
+     */
+    public Long getDatabaseVersion() {
+        String sql = "CHECKSUM TABLE diseases, symptoms, disease_symptoms";
+        try (Connection conn = JdbcUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            long version = 17;
+            while (rs.next()) {
+                version = version * 31 + rs.getLong("Checksum");
+            }
+            return version;
+        } catch (SQLException e) {
+            return handleException(e, "查询知识库版本", null);
+        }
+    }
+
+    /**
+     * 从数据库导出快照并重新映射
+     * @return 是否导出成功
+     */
+    public boolean exportSnapshot() {
+        Long version = getDatabaseVersion();
+        if (version == null) {
+            return false;
+        }
+        try {
+            List<Disease> diseases = diseaseDAO.findAll();
+            List<Symptom> symptoms = symptomDAO.findAll();
+            List<DiseaseSymptom> relations = diseaseSymptomDAO.findAll();
+            if (diseases == null || symptoms == null || relations == null) {
+                return false;
+            }
+            Path path = getSnapshotPath();
+            KnowledgeBaseSnapshot.write(path, version, diseases, symptoms, relations);
+            snapshot = KnowledgeBaseSnapshot.map(path);
+            logger.info("知识库快照已导出：" + path.toAbsolutePath() + "，版本=" + version);
+            return true;
+        } catch (SQLException e) {
+            return handleException(e, "导出知识库快照", false);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "写入知识库快照失败", e);
+            return false;
+        }
+    }
+
+    /**
+     * 检查快照新鲜度，过期或不存在时重新导出
+     * @return 检查后快照是否可用且与数据库一致
+     */
+    public boolean refreshIfStale() {
+        Long dbVersion = getDatabaseVersion();
+        if (dbVersion == null) {
+            // 数据库不可用时继续使用现有快照
+            return false;
+        }
+        KnowledgeBaseSnapshot current = snapshot;
+        if (current != null && current.getKbVersion() == dbVersion) {
+            return true;
+        }
+        return exportSnapshot();
+    }
+
+    /**
+     * 快照状态（供管理员接口查看）
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        KnowledgeBaseSnapshot current = snapshot;
+        status.put("path", getSnapshotPath().toAbsolutePath().toString());
+        status.put("loaded", current != null);
+        if (current != null) {
+            status.put("version", current.getKbVersion());
+            status.put("createdAt", current.getCreatedAt());
+            status.put("diseaseCount", current.getDiseaseCount());
+            status.put("symptomCount", current.getSymptomCount());
+            status.put("relationCount", current.getRelationCount());
+        }
+        return status;
+    }
+
+    /**
+     * 命令行导出工具：java com.petblog.Service.KnowledgeBaseService [快照路径]
+     */
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            System.setProperty("kb.snapshot.path", args[0]);
+        }
+        KnowledgeBaseService service = new KnowledgeBaseService();
+        boolean success = service.exportSnapshot();
+        System.out.println(success ? "知识库快照导出成功：" + getSnapshotPath().toAbsolutePath() : "知识库快照导出失败");
+        JdbcUtil.shutdown();
+        if (!success) {
+            System.exit(1);
+        }
+    }
+}
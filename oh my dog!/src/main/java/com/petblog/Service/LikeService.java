@@ -1,11 +1,20 @@
 package com.petblog.Service;
 
 import com.petblog.dao.LikeDAO;
+import com.petblog.dao.WriteBehindToggleBuffer;
 import com.petblog.dao.impl.LikeDAOImpl;
 import com.petblog.model.Like;
+import com.petblog.model.InteractedBlog;
+import com.petblog.model.ToggleResult;
 import com.petblog.util.SQLExceptionHandler;
+import com.petblog.util.UserBitmapCache;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static com.petblog.util.JdbcUtil.getConnection;
 
@@ -46,6 +55,20 @@ public class LikeService extends BaseService {
         }
     }
 
+    /**
+     * 键集分页查询用户点赞的博客详情（含作者、计数和点赞时间）
+     * @param beforeTime 游标时间，为null时查询第一页
+     * @param beforeBlogId 游标博客ID
+     */
+    public List<InteractedBlog> getLikedBlogs(Integer userId, Date beforeTime, Integer beforeBlogId, int limit) {
+        try {
+            return likeDAO.findLikedBlogs(userId, beforeTime, beforeBlogId, limit);
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "分页查询用户点赞的博客");
+            return new ArrayList<>();
+        }
+    }
+
     /**
      * 根据博客ID查询所有点赞该博客的用户ID
      */
@@ -75,7 +98,8 @@ public class LikeService extends BaseService {
      */
     public int countBlogLikes(Integer blogId) {
         try {
-            return likeDAO.countByBlogId(blogId);
+            // 叠加写后缓冲中尚未落库的点赞变化
+            return likeDAO.countByBlogId(blogId) + WriteBehindToggleBuffer.LIKES.getPendingDelta(blogId);
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "统计博客获赞数量");
             return 0;
@@ -87,6 +111,14 @@ public class LikeService extends BaseService {
      */
     public boolean isBlogLiked(Integer userId, Integer blogId) {
         try {
+            Boolean buffered = WriteBehindToggleBuffer.LIKES.getBufferedState(userId, blogId);
+            if (buffered != null) {
+                return buffered;
+            }
+            Boolean cached = UserBitmapCache.contains(UserBitmapCache.LIKES, userId, blogId, this::loadLikedBlogIds);
+            if (cached != null) {
+                return cached;
+            }
             return likeDAO.isLiked(userId, blogId);
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "检查博客点赞状态");
@@ -94,12 +126,93 @@ public class LikeService extends BaseService {
         }
     }
 
+    /**
+     * 批量查询用户点赞了哪些博客
+     * @return 已点赞的博客ID集合，失败返回空集合
+     */
+    public Set<Integer> getLikedBlogIds(Integer userId, List<Integer> blogIds) {
+        try {
+            Set<Integer> ids = UserBitmapCache.filter(UserBitmapCache.LIKES, userId, blogIds, this::loadLikedBlogIds);
+            if (ids == null) {
+                ids = likeDAO.findLikedBlogIds(userId, blogIds);
+            }
+            // 叠加写后缓冲中尚未落库的状态
+            for (Integer blogId : blogIds) {
+                Boolean buffered = WriteBehindToggleBuffer.LIKES.getBufferedState(userId, blogId);
+                if (buffered != null) {
+                    if (buffered) {
+                        ids.add(blogId);
+                    } else {
+                        ids.remove(blogId);
+                    }
+                }
+            }
+            return ids;
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "批量查询点赞状态");
+            return new HashSet<>();
+        }
+    }
+
+    /**
+     * 切换点赞状态（单次事务内完成点赞/取消点赞并返回最新获赞数）
+     * 开启写后缓冲时只修改内存状态，由后台批量落库
+     * @return 切换结果，失败返回null
+     */
+    public ToggleResult toggleLike(Integer userId, Integer blogId) {
+        try {
+            ToggleResult result;
+            if (WriteBehindToggleBuffer.isEnabled()) {
+                result = WriteBehindToggleBuffer.LIKES.toggle(userId, blogId);
+            } else {
+                result = likeDAO.toggle(userId, blogId);
+            }
+            if (result != null) {
+                UserBitmapCache.update(UserBitmapCache.LIKES, userId, blogId, result.isActive());
+                HeatScoreEngine.onEvent(blogId, HeatScoreEngine.LIKES, result.isActive() ? 1 : -1);
+                if (result.isActive()) {
+                    NotificationPipeline.blogLiked(userId, blogId);
+                }
+            }
+            return result;
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "切换点赞状态");
+            return null;
+        }
+    }
+
+    /**
+     * 加载用户点赞过的全部博客ID（供位图缓存使用），并叠加写后缓冲中尚未落库的状态
+     * 缓冲状态在查询数据库之前读取：查询期间落库的条目已体现在查询结果或缓冲快照中，之后的切换会让本次加载不被缓存
+     */
+    private Set<Integer> loadLikedBlogIds(Integer userId) throws SQLException {
+        Map<Integer, Boolean> buffered = WriteBehindToggleBuffer.LIKES.getBufferedStates(userId);
+        Set<Integer> ids = likeDAO.findAllBlogIdsByUserId(userId);
+        if (ids == null || buffered.isEmpty()) {
+            return ids;
+        }
+        Set<Integer> merged = new HashSet<>(ids);
+        for (Map.Entry<Integer, Boolean> e : buffered.entrySet()) {
+            if (e.getValue()) {
+                merged.add(e.getKey());
+            } else {
+                merged.remove(e.getKey());
+            }
+        }
+        return merged;
+    }
+
     /**
      * 新增点赞记录
      */
     public boolean addLike(Like like) {
         try {
             int result = likeDAO.insert(like);
+            if (result > 0) {
+                UserBitmapCache.update(UserBitmapCache.LIKES, like.getUserId(), like.getBlogId(), true);
+                HeatScoreEngine.onEvent(like.getBlogId(), HeatScoreEngine.LIKES, 1);
+                NotificationPipeline.blogLiked(like.getUserId(), like.getBlogId());
+            }
             return result > 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "新增点赞记录");
@@ -113,6 +226,10 @@ public class LikeService extends BaseService {
     public boolean removeLike(Integer userId, Integer blogId) {
         try {
             int result = likeDAO.delete(userId, blogId);
+            if (result > 0) {
+                UserBitmapCache.update(UserBitmapCache.LIKES, userId, blogId, false);
+                HeatScoreEngine.onEvent(blogId, HeatScoreEngine.LIKES, -1);
+            }
             return result > 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "取消点赞");
@@ -126,6 +243,7 @@ public class LikeService extends BaseService {
     public boolean removeAllLikesOfUser(Integer userId) {
         try {
             int result = likeDAO.deleteByUserId(userId);
+            UserBitmapCache.invalidate(UserBitmapCache.LIKES, userId);
             return result >= 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "删除用户所有点赞记录");
@@ -139,6 +257,7 @@ public class LikeService extends BaseService {
     public boolean removeAllLikesOfBlog(Integer blogId) {
         try {
             int result = likeDAO.deleteByBlogId(blogId);
+            UserBitmapCache.invalidateAll(UserBitmapCache.LIKES);
             return result >= 0;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "移除博客所有点赞记录");
@@ -1,18 +1,45 @@
 package com.petblog.Service;
 
+import com.petblog.dao.ConversationDAO;
 import com.petblog.dao.MessageDAO;
+import com.petblog.dao.impl.ConversationDAOImpl;
 import com.petblog.dao.impl.MessageDAOImpl;
+import com.petblog.model.Conversation;
 import com.petblog.model.Message;
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.PushHub;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 public class MessageService extends BaseService {
+    private static final Logger logger = Logger.getLogger(MessageService.class.getName());
+
+    /**
+     * 私信在热表中保留的月数，更早的已读私信由后台任务移入归档表（小于等于0时不归档）
+     * 可通过系统属性 message.archive.months 设置，默认6
+     */
+    private static final int ARCHIVE_MONTHS = Integer.getInteger("message.archive.months", 6);
+
+    /**
+     * 每批归档的条数和每轮最多批数
+     */
+    private static final int ARCHIVE_BATCH_SIZE = 1000;
+    private static final int ARCHIVE_MAX_BATCHES = 100;
 
     private final MessageDAO messageDAO;
+    private final ConversationDAO conversationDAO;
+    private final UnreadCountService unreadCountService = new UnreadCountService();
 
     public MessageService() {
         this.messageDAO = new MessageDAOImpl();
+        this.conversationDAO = new ConversationDAOImpl();
     }
 
     /**
@@ -40,7 +67,22 @@ public class MessageService extends BaseService {
     }
 
     /**
-     * 查询两个用户之间的私信记录
+     * 键集分页查询用户的会话列表（含对方信息、最后一条消息和未读数，按最后消息时间倒序）
+     * 会话表在发送、已读、删除时与消息表同一事务维护
+     * @param beforeTime 游标时间，为null时查询第一页
+     * @param beforePeerId 游标对方用户ID
+     */
+    public List<Conversation> getConversations(Integer userId, Date beforeTime, Integer beforePeerId, int limit) {
+        try {
+            return conversationDAO.findByUserId(userId, beforeTime, beforePeerId, limit);
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "分页查询用户会话列表");
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 查询两个用户之间的私信记录（按页码，包含已归档的私信）
      */
     public List<Message> getChatRecords(Integer fromUserId, Integer toUserId, int pageNum, int pageSize) {
         try {
@@ -52,17 +94,86 @@ public class MessageService extends BaseService {
     }
 
     /**
-     * 统计用户的未读私信总数
+     * 键集分页查询两个用户之间早于游标的私信（从新到旧）
+     * 先查热表；热表不足一页，或这一页已经翻到归档时间线之前时，再按同一游标查询归档表并归并
+     * @param beforeTime 游标时间，为null时从最新一条开始
+     * @param beforeMessageId 游标私信ID
      */
-    public int countUserUnreadTotal(Integer userId) {
+    public List<Message> getChatHistory(Integer userId1, Integer userId2, Date beforeTime, Integer beforeMessageId, int limit) {
         try {
-            return messageDAO.countUnreadTotal(userId);
+            List<Message> hot = messageDAO.findChatHistory(userId1, userId2, beforeTime, beforeMessageId, limit);
+            if (ARCHIVE_MONTHS <= 0) {
+                return hot;
+            }
+            boolean pastHotWindow = hot.size() < limit
+                    || hot.get(hot.size() - 1).getCreationTime().before(archiveCutoff());
+            if (!pastHotWindow) {
+                return hot;
+            }
+            List<Message> archived = messageDAO.findArchivedChatHistory(userId1, userId2, beforeTime, beforeMessageId, limit);
+            if (archived.isEmpty()) {
+                return hot;
+            }
+            List<Message> merged = new ArrayList<>(hot.size() + archived.size());
+            merged.addAll(hot);
+            merged.addAll(archived);
+            merged.sort(Comparator.comparing(Message::getCreationTime).thenComparing(Message::getMessageId).reversed());
+            return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
         } catch (SQLException e) {
-            SQLExceptionHandler.handleSQLException(e, "统计用户未读私信总数");
-            return 0;
+            return handleException(e, "分页查询聊天记录", new ArrayList<>());
         }
     }
 
+    /**
+     * 注册历史私信归档任务
+     */
+    public static void start() {
+        if (ARCHIVE_MONTHS <= 0) {
+            return;
+        }
+        MessageService service = new MessageService();
+        // 一轮最多上百个批次，使用独立线程，不占用共享调度线程
+        BackgroundScheduler.scheduleAtFixedRate(BackgroundScheduler.dedicated("message-archive"), "历史私信归档",
+                service::archiveOldMessages, 5, 60, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 分批把超过保留期的已读私信移入归档表，每批一个短事务
+     * @return 移动的条数
+     */
+    public int archiveOldMessages() {
+        Date cutoff = archiveCutoff();
+        int total = 0;
+        try {
+            for (int i = 0; i < ARCHIVE_MAX_BATCHES; i++) {
+                int moved = messageDAO.archiveOlderThan(cutoff, ARCHIVE_BATCH_SIZE);
+                total += moved;
+                if (moved < ARCHIVE_BATCH_SIZE) {
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            handleException(e, "归档历史私信");
+        }
+        if (total > 0) {
+            logger.info("已归档历史私信" + total + "条");
+        }
+        return total;
+    }
+
+    private static Date archiveCutoff() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MONTH, -ARCHIVE_MONTHS);
+        return calendar.getTime();
+    }
+
+    /**
+     * 统计用户的未读私信总数（读取维护好的未读计数）
+     */
+    public int countUserUnreadTotal(Integer userId) {
+        return unreadCountService.getUnreadMessages(userId);
+    }
+
     /**
      * 统计两个用户之间的未读私信数量
      */
@@ -80,7 +191,12 @@ public class MessageService extends BaseService {
      */
     public Integer sendMessage(Message message) {
         try {
-            return messageDAO.insert(message);
+            int messageId = messageDAO.insert(message);
+            if (messageId > 0 && message.getReceiverId() != null) {
+                message.setMessageId(messageId);
+                PushHub.publish(message.getReceiverId(), "message", message);
+            }
+            return messageId;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "发送私信");
             return 0;
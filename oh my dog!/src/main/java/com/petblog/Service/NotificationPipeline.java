@@ -0,0 +1,349 @@
+package com.petblog.Service;
+
+import com.petblog.dao.BlogDAO;
+import com.petblog.dao.UserDAO;
+import com.petblog.dao.impl.BlogDAOImpl;
+import com.petblog.dao.impl.UserDAOImpl;
+import com.petblog.model.Blog;
+import com.petblog.model.Inform;
+import com.petblog.model.User;
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.MetricsRegistry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 互动通知异步管道
+ * 点赞、评论、关注等互动产生的通知不在请求线程中写库：事件先放入有界队列，
+ * 后台任务每个窗口取出一批，按 (接收用户, 类型, 博客) 合并为一条通知（如“A、B等5人赞了你的博客”），
+ * 批量查出博客作者和互动用户名后，以一次批量插入写入 informs 表并推送给在线用户。
+ * 队列写满时由调用线程同步处理一批（反压），应用关闭时处理完队列中剩余的事件。
+ * 处理失败的事件放回队列在下个窗口重试（受队列容量限制，每个事件最多处理 MAX_ATTEMPTS 次）。
+ *
+ * 可选系统属性：notification.pipeline.windowMs（合并窗口，默认2000）、
+ * notification.pipeline.queueCapacity（队列长度，默认10000）
+ */
+public class NotificationPipeline {
+    private static final Logger logger = Logger.getLogger(NotificationPipeline.class.getName());
+
+    private static final long WINDOW_MS = Long.getLong("notification.pipeline.windowMs", 2000L);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("notification.pipeline.queueCapacity", 10000);
+
+    /**
+     * 合并后的通知内容中最多列出的用户名数
+     */
+    private static final int MAX_NAMED_ACTORS = 2;
+
+    /**
+     * 事件最多参与的处理次数，写入失败时放回队列在下个窗口重试，超过次数后丢弃
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * 事件类型：点赞博客
+     */
+    public static final String LIKE = "点赞";
+
+    /**
+     * 事件类型：评论博客
+     */
+    public static final String COMMENT = "评论";
+
+    /**
+     * 事件类型：转发博客
+     */
+    public static final String REPOST = "转发";
+
+    /**
+     * 事件类型：关注用户
+     */
+    public static final String FOLLOW = "关注";
+
+    /**
+     * 一条互动事件
+     * 博客类事件的接收用户为博客作者（recipientId为null，处理时批量查询），关注事件的接收用户为被关注者
+     */
+    private static final class Event {
+        final String type;
+        final int actorId;
+        final Integer recipientId;
+        final Integer blogId;
+        final long time;
+        int attempts;
+
+        Event(String type, int actorId, Integer recipientId, Integer blogId) {
+            this.type = type;
+            this.actorId = actorId;
+            this.recipientId = recipientId;
+            this.blogId = blogId;
+            this.time = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 同一接收用户、同一类型、同一博客的事件合并结果
+     */
+    private static final class Group {
+        final String type;
+        final int recipientId;
+        final Integer blogId;
+        final Set<Integer> actorIds = new LinkedHashSet<>();
+        long latestTime;
+
+        Group(String type, int recipientId, Integer blogId) {
+            this.type = type;
+            this.recipientId = recipientId;
+            this.blogId = blogId;
+        }
+    }
+
+    private static final ArrayBlockingQueue<Event> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private static final BlogDAO blogDAO = new BlogDAOImpl();
+    private static final UserDAO userDAO = new UserDAOImpl();
+    private static final InformService informService = new InformService();
+
+    private static final MetricsRegistry.Counter enqueued = MetricsRegistry.counter("notification.pipeline.events", "result", "enqueued");
+    private static final MetricsRegistry.Counter backPressured = MetricsRegistry.counter("notification.pipeline.events", "result", "back_pressure");
+    private static final MetricsRegistry.Counter droppedEvents = MetricsRegistry.counter("notification.pipeline.events", "result", "dropped");
+    private static final MetricsRegistry.Counter coalesced = MetricsRegistry.counter("notification.pipeline.coalesced");
+    private static final MetricsRegistry.Counter written = MetricsRegistry.counter("notification.pipeline.written");
+    private static final MetricsRegistry.Counter failures = MetricsRegistry.counter("notification.pipeline.flush_errors");
+    private static final MetricsRegistry.Histogram batchSize = MetricsRegistry.histogram("notification.pipeline.batch_size",
+            MetricsRegistry.COUNT_BUCKETS);
+    private static final MetricsRegistry.Histogram flushLatency = MetricsRegistry.histogram("notification.pipeline.flush_latency_ms",
+            MetricsRegistry.LATENCY_BUCKETS_MS);
+
+    /**
+     * 注册周期处理任务和关闭时处理剩余事件的动作
+     */
+    public static void start() {
+        BackgroundScheduler.scheduleAtFixedRate("互动通知合并写入", NotificationPipeline::flush,
+                WINDOW_MS, WINDOW_MS, TimeUnit.MILLISECONDS);
+        BackgroundScheduler.addShutdownHook(NotificationPipeline::flush);
+    }
+
+    /**
+     * 用户点赞了博客（通知博客作者）
+     */
+    public static void blogLiked(int actorId, int blogId) {
+        enqueue(new Event(LIKE, actorId, null, blogId));
+    }
+
+    /**
+     * 用户评论了博客（通知博客作者）
+     */
+    public static void blogCommented(int actorId, int blogId) {
+        enqueue(new Event(COMMENT, actorId, null, blogId));
+    }
+
+    /**
+     * 用户转发了博客（通知博客作者）
+     */
+    public static void blogReposted(int actorId, int blogId) {
+        enqueue(new Event(REPOST, actorId, null, blogId));
+    }
+
+    /**
+     * 用户关注了另一用户（通知被关注者）
+     */
+    public static void userFollowed(int actorId, int followeeId) {
+        enqueue(new Event(FOLLOW, actorId, followeeId, null));
+    }
+
+    /**
+     * 取出队列中的全部事件，合并后批量写入
+     * @return 写入的通知条数
+     */
+    public static synchronized int flush() {
+        List<Event> events = new ArrayList<>();
+        queue.drainTo(events);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        try {
+            List<Inform> informs = buildInforms(events);
+            if (informs.isEmpty()) {
+                return 0;
+            }
+            if (!informService.batchCreateInforms(informs)) {
+                failures.increment();
+                logger.warning("互动通知批量写入失败，" + requeue(events));
+                return 0;
+            }
+            written.add(informs.size());
+            coalesced.add(events.size() - informs.size());
+            batchSize.observe(informs.size());
+            return informs.size();
+        } catch (SQLException | RuntimeException e) {
+            failures.increment();
+            logger.log(Level.WARNING, "互动通知处理失败，" + requeue(events), e);
+            return 0;
+        } finally {
+            flushLatency.observeSince(start);
+        }
+    }
+
+    /**
+     * 管道状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("queued", queue.size());
+        status.put("queueCapacity", QUEUE_CAPACITY);
+        status.put("windowMs", WINDOW_MS);
+        status.put("enqueued", enqueued.get());
+        status.put("backPressure", backPressured.get());
+        status.put("written", written.get());
+        status.put("coalesced", coalesced.get());
+        status.put("flushErrors", failures.get());
+        status.put("dropped", droppedEvents.get());
+        return status;
+    }
+
+    /**
+     * 把处理失败的事件放回队列，超过重试次数或队列已满的事件丢弃
+     * @return 日志说明
+     */
+    private static String requeue(List<Event> events) {
+        int retried = 0;
+        for (Event event : events) {
+            if (++event.attempts < MAX_ATTEMPTS && queue.offer(event)) {
+                retried++;
+            }
+        }
+        int dropped = events.size() - retried;
+        if (dropped > 0) {
+            droppedEvents.add(dropped);
+        }
+        return retried + "条事件等待重试，丢弃" + dropped + "条事件";
+    }
+
+    private static void enqueue(Event event) {
+        if (event.recipientId != null && event.recipientId == event.actorId) {
+            return;
+        }
+        while (!queue.offer(event)) {
+            // 队列已满，由调用线程同步处理一批，限制内存占用
+            backPressured.increment();
+            flush();
+        }
+        enqueued.increment();
+    }
+
+    /**
+     * 按 (接收用户, 类型, 博客) 合并事件并生成通知
+     */
+    private static List<Inform> buildInforms(List<Event> events) throws SQLException {
+        Set<Integer> blogIds = new LinkedHashSet<>();
+        for (Event event : events) {
+            if (event.blogId != null) {
+                blogIds.add(event.blogId);
+            }
+        }
+        Map<Integer, Blog> blogs = new HashMap<>();
+        if (!blogIds.isEmpty()) {
+            List<Blog> found = blogDAO.findByIds(new ArrayList<>(blogIds));
+            if (found != null) {
+                for (Blog blog : found) {
+                    blogs.put(blog.getBlogId(), blog);
+                }
+            }
+        }
+
+        Map<String, Group> groups = new LinkedHashMap<>();
+        Set<Integer> actorIds = new LinkedHashSet<>();
+        for (Event event : events) {
+            Integer recipientId = event.recipientId;
+            if (event.blogId != null) {
+                Blog blog = blogs.get(event.blogId);
+                // 博客已删除或被屏蔽时不再通知
+                recipientId = blog != null ? blog.getUserId() : null;
+            }
+            if (recipientId == null || recipientId == event.actorId) {
+                continue;
+            }
+            String key = recipientId + "_" + event.type + "_" + event.blogId;
+            Group group = groups.get(key);
+            if (group == null) {
+                group = new Group(event.type, recipientId, event.blogId);
+                groups.put(key, group);
+            }
+            group.actorIds.add(event.actorId);
+            group.latestTime = Math.max(group.latestTime, event.time);
+            actorIds.add(event.actorId);
+        }
+        if (groups.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, String> names = new HashMap<>();
+        for (User user : userDAO.selectByIds(new ArrayList<>(actorIds))) {
+            names.put(user.getUserId(), user.getUserName());
+        }
+
+        List<Inform> informs = new ArrayList<>(groups.size());
+        for (Group group : groups.values()) {
+            Inform inform = new Inform();
+            inform.setUserId(group.recipientId);
+            inform.setInformType(group.type);
+            inform.setInformTime(new Date(group.latestTime));
+            inform.setInformContent(content(group, names, group.blogId != null ? blogs.get(group.blogId) : null));
+            inform.setIsReaded(0);
+            informs.add(inform);
+        }
+        return informs;
+    }
+
+    /**
+     * 生成通知内容，如“小明、小红等5人赞了你的博客《标题》”
+     */
+    private static String content(Group group, Map<Integer, String> names, Blog blog) {
+        StringBuilder sb = new StringBuilder();
+        int named = 0;
+        for (Integer actorId : group.actorIds) {
+            if (named == MAX_NAMED_ACTORS) {
+                break;
+            }
+            if (named > 0) {
+                sb.append("、");
+            }
+            sb.append(names.getOrDefault(actorId, "用户" + actorId));
+            named++;
+        }
+        if (group.actorIds.size() > named) {
+            sb.append("等").append(group.actorIds.size()).append("人");
+        }
+        switch (group.type) {
+            case LIKE:
+                sb.append("赞了你的博客");
+                break;
+            case COMMENT:
+                sb.append("评论了你的博客");
+                break;
+            case REPOST:
+                sb.append("转发了你的博客");
+                break;
+            default:
+                sb.append("关注了你");
+                break;
+        }
+        if (blog != null) {
+            sb.append("《").append(blog.getBlogTitle()).append("》");
+        }
+        return sb.toString();
+    }
+}
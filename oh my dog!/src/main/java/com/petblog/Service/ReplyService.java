@@ -92,7 +92,12 @@ public class ReplyService extends BaseService {
      */
     public Integer createReply(Reply reply) {
         try {
-            return replyDAO.insert(reply);
+            int replyId = replyDAO.insert(reply);
+            if (replyId > 0 && reply.getParentReply() == null && reply.getUserId() != null && reply.getBlogId() != null) {
+                NotificationPipeline.blogCommented(reply.getUserId(), reply.getBlogId());
+                HeatScoreEngine.onEvent(reply.getBlogId(), HeatScoreEngine.COMMENTS, 1);
+            }
+            return replyId;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "新增回复");
             return 0;
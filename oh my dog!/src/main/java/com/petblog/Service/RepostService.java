@@ -3,9 +3,14 @@ package com.petblog.Service;
 import com.petblog.dao.RepostDAO;
 import com.petblog.dao.impl.RepostDAOImpl;
 import com.petblog.model.Repost;
+import com.petblog.model.RepostDetail;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class RepostService extends BaseService {
 
@@ -51,6 +56,34 @@ public class RepostService extends BaseService {
         }
     }
 
+    /**
+     * 键集分页查询用户的转发详情（含转发者、原博客、原作者和原博客计数）
+     * @param beforeTime 游标时间，为null时查询第一页
+     * @param beforeRepostId 游标转发ID
+     */
+    public List<RepostDetail> getRepostDetailsByUserId(Integer userId, Date beforeTime, Integer beforeRepostId, int limit) {
+        try {
+            return repostDAO.findDetailsByUserId(userId, beforeTime, beforeRepostId, limit);
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "分页查询用户的转发详情");
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 键集分页查询原博客的转发详情（含转发者、原博客、原作者和原博客计数）
+     * @param beforeTime 游标时间，为null时查询第一页
+     * @param beforeRepostId 游标转发ID
+     */
+    public List<RepostDetail> getRepostDetailsByOriginalBlogId(Integer originalBlogId, Date beforeTime, Integer beforeRepostId, int limit) {
+        try {
+            return repostDAO.findDetailsByOriginalBlogId(originalBlogId, beforeTime, beforeRepostId, limit);
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "分页查询博客的转发详情");
+            return new ArrayList<>();
+        }
+    }
+
     /**
      * 统计原博客的转发总数
      */
@@ -87,12 +120,30 @@ public class RepostService extends BaseService {
         }
     }
 
+    /**
+     * 批量查询用户转发了哪些博客
+     * @return 已转发的博客ID集合，失败返回空集合
+     */
+    public Set<Integer> getRepostedBlogIds(Integer userId, List<Integer> blogIds) {
+        try {
+            return repostDAO.findRepostedBlogIds(userId, blogIds);
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "批量查询转发状态");
+            return new HashSet<>();
+        }
+    }
+
     /**
      * 新增转发记录
      */
     public Integer createRepost(Repost repost) {
         try {
-            return repostDAO.insert(repost);
+            int result = repostDAO.insert(repost);
+            if (result > 0 && repost.getUserId() != null && repost.getBlogId() != null) {
+                NotificationPipeline.blogReposted(repost.getUserId(), repost.getBlogId());
+                HeatScoreEngine.onEvent(repost.getBlogId(), HeatScoreEngine.REPOSTS, 1);
+            }
+            return result;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "新增转发记录");
             return 0;
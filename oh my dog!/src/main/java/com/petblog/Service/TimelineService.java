@@ -0,0 +1,530 @@
+package com.petblog.Service;
+
+import com.petblog.dao.BlogDAO;
+import com.petblog.dao.FollowGraph;
+import com.petblog.dao.TimelineDAO;
+import com.petblog.dao.impl.BlogDAOImpl;
+import com.petblog.dao.impl.TimelineDAOImpl;
+import com.petblog.model.Blog;
+import com.petblog.model.TimelineEntry;
+import com.petblog.model.TimelinePage;
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.KeysetCursor;
+import com.petblog.util.MetricsRegistry;
+import com.petblog.util.TimelineRingBuffer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 关注时间线服务类（写扩散 + 大V读扩散的混合模式）
+ * 作者发布博客时把博客ID写入每个粉丝的收件箱：timeline表持久化全部收件箱，
+ * 最近读取过时间线的活跃用户在内存中保留一个定长环形缓冲，读取时直接分页，耗时与页大小成正比。
+ * 粉丝数超过阈值的作者不做写扩散，只记录到作者自己的发件箱，粉丝读取时按需拉取并归并。
+ *
+ * 可选系统属性：timeline.inboxCapacity（每个收件箱内存条数，默认500）、timeline.hotUsers（内存中保留的用户数，默认10000）、
+ * timeline.celebrityFollowers（读扩散的粉丝数阈值，默认5000）、timeline.retentionDays（timeline表保留天数，默认90）、
+ * timeline.fanOutThreads（写扩散线程数，默认2）、timeline.fanOutQueue（写扩散排队上限，默认10000）
+ */
+public class TimelineService extends BaseService {
+
+    private static final int INBOX_CAPACITY = Integer.getInteger("timeline.inboxCapacity", 500);
+    private static final int HOT_USERS = Integer.getInteger("timeline.hotUsers", 10000);
+    private static final int CELEBRITY_FOLLOWERS = Integer.getInteger("timeline.celebrityFollowers", 5000);
+    private static final int RETENTION_DAYS = Integer.getInteger("timeline.retentionDays", 90);
+    private static final int FAN_OUT_THREADS = Math.max(1, Integer.getInteger("timeline.fanOutThreads", 2));
+    private static final int FAN_OUT_QUEUE = Integer.getInteger("timeline.fanOutQueue", 10000);
+
+    /**
+     * 内存中保留发件箱的大V数量上限
+     */
+    private static final int MAX_OUTBOXES = 1000;
+
+    /**
+     * 冷启动回填时最多查询的关注对象数
+     */
+    private static final int MAX_BACKFILL_FOLLOWEES = 1000;
+
+    /**
+     * 无关注图时按页读取粉丝列表的页大小
+     */
+    private static final int FOLLOWER_PAGE_SIZE = 1000;
+
+    /**
+     * 写扩散专用线程池，不与共享调度线程上的长任务排队；队列满时由发布博客的线程自己执行
+     */
+    private static final AtomicInteger fanOutThreadCounter = new AtomicInteger();
+    private static final ThreadPoolExecutor fanOutExecutor = new ThreadPoolExecutor(FAN_OUT_THREADS, FAN_OUT_THREADS,
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(FAN_OUT_QUEUE), runnable -> {
+                Thread thread = new Thread(runnable, "petblog-timeline-fanout-" + fanOutThreadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private static final Object inboxLock = new Object();
+    private static final LinkedHashMap<Integer, TimelineRingBuffer> inboxes =
+            new LinkedHashMap<Integer, TimelineRingBuffer>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, TimelineRingBuffer> eldest) {
+                    return size() > HOT_USERS;
+                }
+            };
+
+    private static final Object outboxLock = new Object();
+    private static final LinkedHashMap<Integer, TimelineRingBuffer> outboxes =
+            new LinkedHashMap<Integer, TimelineRingBuffer>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, TimelineRingBuffer> eldest) {
+                    return size() > MAX_OUTBOXES;
+                }
+            };
+
+    /**
+     * 读扩散的大V用户ID（有序），由后台任务按关注图定期刷新
+     */
+    private static volatile int[] celebrities = new int[0];
+
+    private static final MetricsRegistry.Counter fanOutRows = MetricsRegistry.counter("timeline.fan_out_rows");
+    private static final MetricsRegistry.Counter celebrityPosts = MetricsRegistry.counter("timeline.celebrity_posts");
+    private static final MetricsRegistry.Counter inboxHits = MetricsRegistry.counter("timeline.inbox", "result", "hit");
+    private static final MetricsRegistry.Counter inboxLoads = MetricsRegistry.counter("timeline.inbox", "result", "load");
+    private static final MetricsRegistry.Histogram fanOutLatency = MetricsRegistry.histogram(
+            "timeline.fan_out_latency_ms", MetricsRegistry.LATENCY_BUCKETS_MS);
+    private static final MetricsRegistry.Histogram readLatency = MetricsRegistry.histogram(
+            "timeline.read_latency_ms", MetricsRegistry.LATENCY_BUCKETS_MS);
+
+    private final TimelineDAO timelineDAO = new TimelineDAOImpl();
+    private final BlogDAO blogDAO = new BlogDAOImpl();
+    private final FollowService followService = new FollowService();
+
+    /**
+     * 注册后台任务：定期刷新大V名单、每天清理过期收件箱记录
+     */
+    public static void start() {
+        TimelineService service = new TimelineService();
+        BackgroundScheduler.scheduleAtFixedRate("时间线大V名单刷新", () -> {
+            if (FollowGraph.isReady()) {
+                celebrities = FollowGraph.usersWithFollowersAtLeast(CELEBRITY_FOLLOWERS + 1);
+            }
+        }, 1, 10, TimeUnit.MINUTES);
+        BackgroundScheduler.scheduleAtFixedRate("时间线过期记录清理", service::purgeExpired, 1, 24 * 60, TimeUnit.MINUTES);
+        BackgroundScheduler.addShutdownHook(() -> {
+            // 等待已排队的写扩散完成
+            fanOutExecutor.shutdown();
+            try {
+                fanOutExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * 博客发布后调用：作者自己的收件箱同步写入，粉丝收件箱在后台写扩散；大V只写发件箱
+     */
+    public void onBlogCreated(Blog blog) {
+        if (blog.getBlogId() == null || blog.getBlogId() <= 0 || blog.getUserId() == null
+                || (blog.getIsShielded() != null && blog.getIsShielded() != 0)) {
+            return;
+        }
+        int authorId = blog.getUserId();
+        int blogId = blog.getBlogId();
+        Date createTime = blog.getBlogCreateTime() != null ? blog.getBlogCreateTime() : new Date();
+
+        try {
+            timelineDAO.insertBatch(List.of(authorId), blogId, createTime);
+        } catch (SQLException e) {
+            handleException(e, "写入作者时间线");
+        }
+        pushToInbox(authorId, blogId, createTime.getTime());
+
+        if (isCelebrity(authorId)) {
+            celebrityPosts.increment();
+            synchronized (outboxLock) {
+                TimelineRingBuffer outbox = outboxes.get(authorId);
+                if (outbox != null) {
+                    synchronized (outbox) {
+                        outbox.add(blogId, createTime.getTime());
+                    }
+                }
+            }
+            return;
+        }
+        fanOutExecutor.execute(BackgroundScheduler.wrap("时间线写扩散", () -> fanOut(authorId, blogId, createTime)));
+    }
+
+    /**
+     * 博客删除后调用：从所有收件箱中删除（内存中的收件箱在读取时按博客是否存在过滤）
+     */
+    public void onBlogDeleted(int blogId) {
+        try {
+            timelineDAO.deleteByBlogId(blogId);
+        } catch (SQLException e) {
+            handleException(e, "删除时间线中的博客");
+        }
+    }
+
+    /**
+     * 读取用户的关注时间线（自己和关注的人发布的博客，按发布时间倒序）
+     * @param beforeTime 游标时间（为null时从最新开始）
+     * @param beforeBlogId 游标博客ID
+     * @param limit 每页条数
+     */
+    public TimelinePage getHomeTimeline(int userId, Date beforeTime, Integer beforeBlogId, int limit) {
+        long start = System.nanoTime();
+        long cursorTime = beforeTime != null ? beforeTime.getTime() : 0;
+        int cursorId = beforeBlogId != null ? beforeBlogId : 0;
+
+        // 收件箱（写扩散部分）
+        List<TimelineEntry> merged = new ArrayList<>(readInbox(userId, cursorTime, cursorId, limit));
+
+        // 关注的大V发件箱（读扩散部分）
+        for (int celebrity : followedCelebrities(userId)) {
+            merged.addAll(readOutbox(celebrity, cursorTime, cursorId, limit));
+        }
+
+        merged.sort((a, b) -> {
+            int byTime = b.getBlogCreateTime().compareTo(a.getBlogCreateTime());
+            return byTime != 0 ? byTime : Integer.compare(b.getBlogId(), a.getBlogId());
+        });
+        List<TimelineEntry> page = new ArrayList<>(limit);
+        Set<Integer> seen = new HashSet<>();
+        for (TimelineEntry entry : merged) {
+            if (page.size() >= limit) {
+                break;
+            }
+            if (seen.add(entry.getBlogId())) {
+                page.add(entry);
+            }
+        }
+
+        List<Blog> blogs = hydrate(userId, page);
+        String nextCursor = page.size() == limit
+                ? new KeysetCursor(page.get(limit - 1).getBlogCreateTime(), page.get(limit - 1).getBlogId()).encode()
+                : null;
+        readLatency.observeSince(start);
+        return new TimelinePage(blogs, nextCursor);
+    }
+
+    /**
+     * 时间线状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        long bytes = 0;
+        synchronized (inboxLock) {
+            status.put("hotUsers", inboxes.size());
+            for (TimelineRingBuffer inbox : inboxes.values()) {
+                bytes += inbox.sizeInBytes();
+            }
+        }
+        status.put("inboxBytes", bytes);
+        synchronized (outboxLock) {
+            status.put("celebrityOutboxes", outboxes.size());
+        }
+        status.put("celebrities", celebrities.length);
+        status.put("inboxCapacity", INBOX_CAPACITY);
+        status.put("maxHotUsers", HOT_USERS);
+        status.put("celebrityFollowers", CELEBRITY_FOLLOWERS);
+        return status;
+    }
+
+    /**
+     * 清理超过保留期的收件箱记录
+     */
+    public int purgeExpired() {
+        try {
+            return timelineDAO.deleteOlderThan(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(RETENTION_DAYS)));
+        } catch (SQLException e) {
+            handleException(e, "清理过期时间线记录");
+            return 0;
+        }
+    }
+
+    private void fanOut(int authorId, int blogId, Date createTime) {
+        long start = System.nanoTime();
+        List<Integer> followerIds = new ArrayList<>();
+        if (FollowGraph.isReady()) {
+            for (int followerId : FollowGraph.followers(authorId, 0, Integer.MAX_VALUE)) {
+                followerIds.add(followerId);
+            }
+        } else {
+            for (int pageNum = 1; ; pageNum++) {
+                List<Integer> pageIds = followService.getFollowerIds(authorId, pageNum, FOLLOWER_PAGE_SIZE);
+                if (pageIds == null || pageIds.isEmpty()) {
+                    break;
+                }
+                followerIds.addAll(pageIds);
+                if (pageIds.size() < FOLLOWER_PAGE_SIZE) {
+                    break;
+                }
+            }
+        }
+        if (followerIds.isEmpty()) {
+            return;
+        }
+        try {
+            fanOutRows.add(timelineDAO.insertBatch(followerIds, blogId, createTime));
+        } catch (SQLException e) {
+            handleException(e, "时间线写扩散");
+        }
+        for (Integer followerId : followerIds) {
+            pushToInbox(followerId, blogId, createTime.getTime());
+        }
+        fanOutLatency.observeSince(start);
+    }
+
+    /**
+     * 写入内存收件箱（仅当该用户的收件箱已在内存中）
+     */
+    private static void pushToInbox(int userId, int blogId, long time) {
+        TimelineRingBuffer inbox;
+        synchronized (inboxLock) {
+            inbox = inboxes.get(userId);
+        }
+        if (inbox != null) {
+            synchronized (inbox) {
+                inbox.add(blogId, time);
+            }
+        }
+    }
+
+    /**
+     * 用户关注的大V：两个有序数组求交集，遍历较短的一方并在较长的一方中二分查找
+     */
+    private static List<Integer> followedCelebrities(int userId) {
+        List<Integer> result = new ArrayList<>();
+        int[] stars = celebrities;
+        if (stars.length == 0 || !FollowGraph.isReady()) {
+            return result;
+        }
+        int[] following = FollowGraph.following(userId, 0, Integer.MAX_VALUE);
+        int[] shorter = following.length <= stars.length ? following : stars;
+        int[] longer = shorter == following ? stars : following;
+        for (int id : shorter) {
+            if (id != userId && Arrays.binarySearch(longer, id) >= 0) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private boolean isCelebrity(int userId) {
+        if (Arrays.binarySearch(celebrities, userId) >= 0) {
+            return true;
+        }
+        if (FollowGraph.isReady() && FollowGraph.countFollowers(userId) > CELEBRITY_FOLLOWERS) {
+            // 新晋大V，先加入名单，等待下次定期刷新
+            int[] current = celebrities;
+            int[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = userId;
+            Arrays.sort(updated);
+            celebrities = updated;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 读取收件箱中早于游标的一页。内存收件箱翻过最旧记录后：已满时先回退到timeline表，
+     * 未满时内存中已是该用户在timeline表中的全部记录；两种情况翻完后都按关注对象拉取更早的博客
+     * （timeline表只保留最近的记录，冷启动回填的用户在表中也没有记录）
+     */
+    private List<TimelineEntry> readInbox(int userId, long cursorTime, int cursorId, int limit) {
+        TimelineRingBuffer inbox = getOrLoadInbox(userId);
+        int[] ids = new int[limit];
+        long[] times = new long[limit];
+        int count;
+        boolean full;
+        synchronized (inbox) {
+            count = inbox.page(cursorTime, cursorId, limit, ids, times);
+            full = inbox.isFull();
+        }
+        List<TimelineEntry> entries = new ArrayList<>(limit);
+        for (int i = 0; i < count; i++) {
+            entries.add(new TimelineEntry(ids[i], new Date(times[i])));
+        }
+        if (count < limit) {
+            Date before = count > 0 ? new Date(times[count - 1]) : (cursorTime > 0 ? new Date(cursorTime) : null);
+            Integer beforeId = count > 0 ? Integer.valueOf(ids[count - 1]) : Integer.valueOf(cursorId);
+            try {
+                if (full) {
+                    List<TimelineEntry> older = timelineDAO.findPage(userId, before, beforeId, limit - count);
+                    if (older == null) {
+                        return entries;
+                    }
+                    entries.addAll(older);
+                    if (!older.isEmpty()) {
+                        TimelineEntry last = older.get(older.size() - 1);
+                        before = last.getBlogCreateTime();
+                        beforeId = last.getBlogId();
+                    }
+                }
+                if (entries.size() < limit) {
+                    List<TimelineEntry> pulled = timelineDAO.findByAuthors(backfillAuthors(userId), before, beforeId,
+                            limit - entries.size());
+                    if (pulled != null) {
+                        entries.addAll(pulled);
+                    }
+                }
+            } catch (SQLException e) {
+                handleException(e, "分页查询时间线收件箱");
+            }
+        }
+        return entries;
+    }
+
+    private TimelineRingBuffer getOrLoadInbox(int userId) {
+        synchronized (inboxLock) {
+            TimelineRingBuffer inbox = inboxes.get(userId);
+            if (inbox != null) {
+                inboxHits.increment();
+                return inbox;
+            }
+        }
+        inboxLoads.increment();
+        TimelineRingBuffer loaded = new TimelineRingBuffer(INBOX_CAPACITY);
+        try {
+            List<TimelineEntry> entries = timelineDAO.findPage(userId, null, null, INBOX_CAPACITY);
+            if (entries != null && entries.size() < INBOX_CAPACITY) {
+                // timeline表中的记录不足一个收件箱（如功能上线前的历史数据、已过保留期），从最旧一条往后按关注对象补齐
+                TimelineEntry oldest = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+                List<TimelineEntry> pulled = timelineDAO.findByAuthors(backfillAuthors(userId),
+                        oldest != null ? oldest.getBlogCreateTime() : null, oldest != null ? oldest.getBlogId() : null,
+                        INBOX_CAPACITY - entries.size());
+                if (pulled != null) {
+                    entries = new ArrayList<>(entries);
+                    entries.addAll(pulled);
+                }
+            }
+            if (entries != null) {
+                for (TimelineEntry entry : entries) {
+                    loaded.add(entry.getBlogId(), entry.getBlogCreateTime().getTime());
+                }
+            }
+        } catch (SQLException e) {
+            handleException(e, "加载时间线收件箱");
+        }
+        synchronized (inboxLock) {
+            TimelineRingBuffer existing = inboxes.get(userId);
+            if (existing != null) {
+                return existing;
+            }
+            inboxes.put(userId, loaded);
+        }
+        return loaded;
+    }
+
+    private List<Integer> backfillAuthors(int userId) {
+        List<Integer> authors = new ArrayList<>();
+        authors.add(userId);
+        List<Integer> following = followService.getFollowingSlice(userId, 0, MAX_BACKFILL_FOLLOWEES);
+        if (following != null) {
+            authors.addAll(following);
+        }
+        return authors;
+    }
+
+    private List<TimelineEntry> readOutbox(int authorId, long cursorTime, int cursorId, int limit) {
+        TimelineRingBuffer outbox;
+        synchronized (outboxLock) {
+            outbox = outboxes.get(authorId);
+        }
+        if (outbox == null) {
+            outbox = new TimelineRingBuffer(INBOX_CAPACITY);
+            try {
+                List<TimelineEntry> entries = timelineDAO.findByAuthors(List.of(authorId), null, null, INBOX_CAPACITY);
+                if (entries != null) {
+                    for (TimelineEntry entry : entries) {
+                        outbox.add(entry.getBlogId(), entry.getBlogCreateTime().getTime());
+                    }
+                }
+            } catch (SQLException e) {
+                handleException(e, "加载大V发件箱");
+            }
+            synchronized (outboxLock) {
+                TimelineRingBuffer existing = outboxes.putIfAbsent(authorId, outbox);
+                if (existing != null) {
+                    outbox = existing;
+                }
+            }
+        }
+        int[] ids = new int[limit];
+        long[] times = new long[limit];
+        int count;
+        boolean full;
+        synchronized (outbox) {
+            count = outbox.page(cursorTime, cursorId, limit, ids, times);
+            full = outbox.isFull();
+        }
+        List<TimelineEntry> entries = new ArrayList<>(limit);
+        for (int i = 0; i < count; i++) {
+            entries.add(new TimelineEntry(ids[i], new Date(times[i])));
+        }
+        if (count < limit && full) {
+            // 发件箱只保留最近的博客，翻过最旧一条后回退到博客表
+            Date before = count > 0 ? new Date(times[count - 1]) : (cursorTime > 0 ? new Date(cursorTime) : null);
+            Integer beforeId = count > 0 ? Integer.valueOf(ids[count - 1]) : Integer.valueOf(cursorId);
+            try {
+                List<TimelineEntry> older = timelineDAO.findByAuthors(List.of(authorId), before, beforeId, limit - count);
+                if (older != null) {
+                    entries.addAll(older);
+                }
+            } catch (SQLException e) {
+                handleException(e, "分页查询大V发件箱");
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 批量取出博客详情，跳过已删除/屏蔽的博客和已取消关注的作者（关注图就绪时判断）
+     */
+    private List<Blog> hydrate(int userId, List<TimelineEntry> page) {
+        List<Blog> result = new ArrayList<>();
+        if (page.isEmpty()) {
+            return result;
+        }
+        List<Integer> ids = new ArrayList<>(page.size());
+        for (TimelineEntry entry : page) {
+            ids.add(entry.getBlogId());
+        }
+        List<Blog> blogs;
+        try {
+            blogs = blogDAO.findByIds(ids);
+        } catch (SQLException e) {
+            handleException(e, "批量查询时间线博客");
+            return result;
+        }
+        if (blogs == null) {
+            return result;
+        }
+        Map<Integer, Blog> byId = new HashMap<>();
+        for (Blog blog : blogs) {
+            byId.put(blog.getBlogId(), blog);
+        }
+        for (TimelineEntry entry : page) {
+            Blog blog = byId.get(entry.getBlogId());
+            if (blog == null) {
+                continue;
+            }
+            if (blog.getUserId() != userId && FollowGraph.isReady() && !FollowGraph.isFollowing(userId, blog.getUserId())) {
+                continue;
+            }
+            result.add(blog);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+package com.petblog.Service;
+
+import com.petblog.dao.UnreadCounterDAO;
+import com.petblog.dao.impl.UnreadCounterDAOImpl;
+import com.petblog.model.UnreadCount;
+import com.petblog.util.UnreadCounterCache;
+
+import java.sql.SQLException;
+
+/**
+ * 未读计数服务
+ * 计数由私信、通知DAO在写入时同一事务维护，这里先读热缓存，未命中时读 unread_counters 表的一行
+ */
+public class UnreadCountService extends BaseService {
+
+    private final UnreadCounterDAO unreadCounterDAO = new UnreadCounterDAOImpl();
+
+    /**
+     * 查询用户的未读私信数和未读通知数
+     */
+    public UnreadCount getUnreadCount(Integer userId) {
+        if (userId == null) {
+            return new UnreadCount(0, 0);
+        }
+        try {
+            int[] counts = UnreadCounterCache.get(userId, id -> {
+                UnreadCount count = unreadCounterDAO.findByUserId(id);
+                return new int[]{count.getMessages(), count.getInforms()};
+            });
+            if (counts == null) {
+                return new UnreadCount(0, 0);
+            }
+            return new UnreadCount(counts[UnreadCounterCache.MESSAGES], counts[UnreadCounterCache.INFORMS]);
+        } catch (SQLException e) {
+            return handleException(e, "查询用户未读计数", new UnreadCount(0, 0));
+        }
+    }
+
+    /**
+     * 查询用户的未读私信数
+     */
+    public int getUnreadMessages(Integer userId) {
+        return getUnreadCount(userId).getMessages();
+    }
+
+    /**
+     * 查询用户的未读通知数
+     */
+    public int getUnreadInforms(Integer userId) {
+        return getUnreadCount(userId).getInforms();
+    }
+}
@@ -108,6 +108,17 @@ public boolean deleteUser(Integer userId) {
         }
     }
 
+    /**
+     * 批量获取用户信息（不含密码，不保证与参数顺序一致）
+     */
+    public List<User> getUsersByIds(List<Integer> userIds) {
+        try {
+            return userDAO.selectByIds(userIds);
+        } catch (SQLException e) {
+            return handleException(e, "批量查询用户信息", null);
+        }
+    }
+
     /**
      * 更新用户密码
      * @param userId 用户ID
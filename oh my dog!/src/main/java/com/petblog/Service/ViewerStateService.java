@@ -0,0 +1,61 @@
+package com.petblog.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 查看者状态服务类
+ * 一次性返回当前用户对一批博客的点赞、收藏、转发、投票状态，每张表只执行一次IN查询
+ * （点赞、收藏优先使用已缓存的用户互动位图），代替前端逐条卡片分别查询四种状态。
+ */
+public class ViewerStateService extends BaseService {
+
+    /**
+     * 单次请求最多查询的博客数
+     */
+    public static final int MAX_BLOG_IDS = 200;
+
+    private final LikeService likeService = new LikeService();
+    private final FavoriteService favoriteService = new FavoriteService();
+    private final RepostService repostService = new RepostService();
+    private final VoteService voteService = new VoteService();
+
+    /**
+     * 批量查询用户对博客的互动状态
+     * @param userId 用户ID
+     * @param blogIds 博客ID列表（去重，超过上限的部分忽略）
+     * @return 博客ID -> {liked, favorited, reposted, voted}，保持请求中的顺序
+     */
+    public Map<Integer, Map<String, Boolean>> getViewerState(Integer userId, List<Integer> blogIds) {
+        Set<Integer> unique = new LinkedHashSet<>();
+        for (Integer blogId : blogIds) {
+            if (blogId != null && unique.size() < MAX_BLOG_IDS) {
+                unique.add(blogId);
+            }
+        }
+        Map<Integer, Map<String, Boolean>> result = new LinkedHashMap<>();
+        if (unique.isEmpty()) {
+            return result;
+        }
+
+        List<Integer> ids = new ArrayList<>(unique);
+        Set<Integer> liked = likeService.getLikedBlogIds(userId, ids);
+        Set<Integer> favorited = favoriteService.getFavoritedBlogIds(userId, ids);
+        Set<Integer> reposted = repostService.getRepostedBlogIds(userId, ids);
+        Set<Integer> voted = voteService.getVotedBlogIds(userId, ids);
+
+        for (Integer blogId : ids) {
+            Map<String, Boolean> flags = new LinkedHashMap<>();
+            flags.put("liked", liked.contains(blogId));
+            flags.put("favorited", favorited.contains(blogId));
+            flags.put("reposted", reposted.contains(blogId));
+            flags.put("voted", voted.contains(blogId));
+            result.put(blogId, flags);
+        }
+        return result;
+    }
+}
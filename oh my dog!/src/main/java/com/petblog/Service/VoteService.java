@@ -1,11 +1,16 @@
 package com.petblog.Service;
 
+import com.petblog.dao.ShardedVoteCounter;
 import com.petblog.dao.VoteDAO;
+import com.petblog.dao.WriteBehindToggleBuffer;
 import com.petblog.dao.impl.VoteDAOImpl;
 import com.petblog.model.Vote;
+import com.petblog.model.ToggleResult;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.SQLException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class VoteService extends BaseService {
 
@@ -87,12 +92,78 @@ public class VoteService extends BaseService {
         }
     }
 
+    /**
+     * 查询博客的投票数（分片计数镜像 + 写后缓冲中尚未落库的变化）
+     */
+    public int getVoteCount(Integer blogId) {
+        try {
+            return ShardedVoteCounter.get(blogId) + WriteBehindToggleBuffer.VOTES.getPendingDelta(blogId);
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "查询博客投票数");
+            return 0;
+        }
+    }
+
+    /**
+     * 批量查询用户投票了哪些博客
+     * @return 已投票的博客ID集合，失败返回空集合
+     */
+    public Set<Integer> getVotedBlogIds(Integer userId, List<Integer> blogIds) {
+        try {
+            Set<Integer> ids = voteDAO.findVotedBlogIds(userId, blogIds);
+            // 叠加写后缓冲中尚未落库的状态
+            for (Integer blogId : blogIds) {
+                Boolean buffered = WriteBehindToggleBuffer.VOTES.getBufferedState(userId, blogId);
+                if (buffered != null) {
+                    if (buffered) {
+                        ids.add(blogId);
+                    } else {
+                        ids.remove(blogId);
+                    }
+                }
+            }
+            return ids;
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "批量查询投票状态");
+            return new HashSet<>();
+        }
+    }
+
+    /**
+     * 切换用户对博客的投票状态（单次事务内完成投票/取消投票并返回最新投票数）
+     * 开启写后缓冲时只修改内存状态，由后台批量落库
+     * @return 切换结果，失败返回null
+     */
+    public ToggleResult toggleVote(Integer userId, Integer blogId) {
+        try {
+            ToggleResult result;
+            if (WriteBehindToggleBuffer.isEnabled()) {
+                result = WriteBehindToggleBuffer.VOTES.toggle(userId, blogId);
+            } else {
+                result = voteDAO.toggle(userId, blogId);
+            }
+            if (result != null) {
+                ChallengeLeaderboard.onVoteChanged(blogId);
+                HeatScoreEngine.onEvent(blogId, HeatScoreEngine.VOTES, result.isActive() ? 1 : -1);
+            }
+            return result;
+        } catch (SQLException e) {
+            SQLExceptionHandler.handleSQLException(e, "切换投票状态");
+            return null;
+        }
+    }
+
     /**
      * 新增投票记录
      */
     public Integer createVote(Vote vote) {
         try {
-            return voteDAO.insert(vote);
+            int inserted = voteDAO.insert(vote);
+            if (inserted > 0 && vote.getBlogId() != null) {
+                ChallengeLeaderboard.onVoteChanged(vote.getBlogId());
+                HeatScoreEngine.onEvent(vote.getBlogId(), HeatScoreEngine.VOTES, inserted);
+            }
+            return inserted;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "新增投票记录");
             return 0;
@@ -143,8 +214,14 @@ public class VoteService extends BaseService {
      */
     public boolean deleteVotesByUserId(Integer userId) {
         try {
-            int result = voteDAO.deleteByUserId(userId);
-            return result >= 0;
+            List<Integer> blogIds = voteDAO.deleteAndListBlogIdsByUserId(userId);
+            for (Integer blogId : blogIds) {
+                HeatScoreEngine.onEvent(blogId, HeatScoreEngine.VOTES, -1);
+            }
+            for (Integer blogId : new HashSet<>(blogIds)) {
+                ChallengeLeaderboard.onVoteChanged(blogId);
+            }
+            return true;
         } catch (SQLException e) {
             SQLExceptionHandler.handleSQLException(e, "删除用户投票记录");
             return false;
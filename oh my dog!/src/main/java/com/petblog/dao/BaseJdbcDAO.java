@@ -2,12 +2,22 @@ package com.petblog.dao;
 
 
 
+import com.petblog.model.ToggleResult;
 import com.petblog.util.JdbcUtil;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 public abstract class BaseJdbcDAO<T> {
+
+    /**
+     * 事务因死锁回滚后的最大重试次数
+     */
+    private static final int DEADLOCK_RETRIES = 3;
     
     /**
      * 插入操作
@@ -117,6 +127,32 @@ public abstract class BaseJdbcDAO<T> {
         }
     }
     
+    /**
+     * 查询其他类型的对象列表（用于联表查询返回非本DAO实体的结果）
+     * @param sql SQL语句
+     * @param mapper 结果映射器
+     * @param params 参数
+     * @return 查询结果列表
+     */
+    protected <R> List<R> queryForRows(String sql, RowMapper<R> mapper, Object... params) throws SQLException {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = JdbcUtil.getConnection();
+            pstmt = conn.prepareStatement(sql);
+            setParameters(pstmt, params);
+            rs = pstmt.executeQuery();
+            List<R> list = new ArrayList<>();
+            while (rs.next()) {
+                list.add(mapper.mapRow(rs));
+            }
+            return list;
+        } finally {
+            JdbcUtil.close(conn, pstmt, rs);
+        }
+    }
+
     /**
      * 查询单个值
      * @param sql SQL语句
@@ -141,6 +177,228 @@ public abstract class BaseJdbcDAO<T> {
         }
     }
     
+    /**
+     * 查询整数ID集合（结果集第一列）
+     * @param sql SQL语句
+     * @param params 参数
+     * @return ID集合
+     */
+    protected Set<Integer> queryForIdSet(String sql, Object... params) throws SQLException {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = JdbcUtil.getConnection();
+            pstmt = conn.prepareStatement(sql);
+            setParameters(pstmt, params);
+            rs = pstmt.executeQuery();
+            Set<Integer> ids = new HashSet<>();
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+            return ids;
+        } finally {
+            JdbcUtil.close(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * 批量更新（同一连接内以JDBC批处理执行，按 batchSize 分批提交到数据库）
+     * @param sql SQL语句
+     * @param paramsList 每一行的参数
+     * @param batchSize 每批行数
+     * @return 总影响行数
+     */
+    protected int batchUpdate(String sql, List<Object[]> paramsList, int batchSize) throws SQLException {
+        if (paramsList.isEmpty()) {
+            return 0;
+        }
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = JdbcUtil.getConnection();
+            pstmt = conn.prepareStatement(sql);
+            int total = 0;
+            int pending = 0;
+            for (Object[] params : paramsList) {
+                setParameters(pstmt, params);
+                pstmt.addBatch();
+                if (++pending == batchSize) {
+                    total += sum(pstmt.executeBatch());
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                total += sum(pstmt.executeBatch());
+            }
+            return total;
+        } finally {
+            JdbcUtil.close(conn, pstmt);
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            // SUCCESS_NO_INFO(-2) 视为成功1行
+            total += count >= 0 ? count : (count == Statement.SUCCESS_NO_INFO ? 1 : 0);
+        }
+        return total;
+    }
+
+    /**
+     * 构建IN子句的占位符，如 "?,?,?"
+     * @param count 占位符数量
+     */
+    protected static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * 切换关系记录（存在则删除，不存在则插入），并返回切换后的状态和计数
+     * 在同一连接的一个短事务中完成：先按唯一键条件删除，删除0行时再执行插入，最后统计计数。
+     * 插入语句应使用 INSERT IGNORE / ON DUPLICATE KEY，依赖唯一键保证并发重复点击时不会产生重复记录。
+     * 同一对记录的并发切换在可重复读下会因删除未命中时的间隙锁互相等待而死锁，死锁时整个事务重试。
+     * @param deleteSql 按唯一键删除的SQL
+     * @param deleteParams 删除参数
+     * @param insertSql 插入SQL（INSERT IGNORE 或 ON DUPLICATE KEY UPDATE）
+     * @param insertParams 插入参数
+     * @param countSql 统计计数的SQL
+     * @param countParams 计数参数
+     * @return 切换结果
+     */
+    protected ToggleResult toggle(String deleteSql, Object[] deleteParams,
+                                  String insertSql, Object[] insertParams,
+                                  String countSql, Object[] countParams) throws SQLException {
+        return inTransactionRetryingDeadlocks(conn -> {
+            boolean active = executeUpdate(conn, deleteSql, deleteParams) == 0;
+            if (active) {
+                // 插入影响0行说明并发请求已插入，状态同样为已激活
+                executeUpdate(conn, insertSql, insertParams);
+            }
+            Integer count = queryFirst(conn, countSql, rs -> rs.getInt(1), countParams);
+            return new ToggleResult(active, count != null ? count : 0);
+        });
+    }
+
+    /**
+     * 同 {@link #inTransaction(TransactionCallback)}，事务因死锁被回滚时重新执行（最多 DEADLOCK_RETRIES 次）
+     * 回调只能包含数据库操作，重试时会再次执行
+     */
+    protected <R> R inTransactionRetryingDeadlocks(TransactionCallback<R> callback) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return inTransaction(callback);
+            } catch (SQLException e) {
+                if (attempt > DEADLOCK_RETRIES || !isDeadlock(e)) {
+                    throw e;
+                }
+                try {
+                    // 稍等片刻，让胜出的事务先提交
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(1, 10) * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 是否为死锁导致的回滚（SQLState 40001，MySQL 错误码 1213）
+     */
+    protected static boolean isDeadlock(SQLException e) {
+        return "40001".equals(e.getSQLState()) || e.getErrorCode() == 1213;
+    }
+
+    /**
+     * 在同一连接的一个事务中执行多条语句，回调正常返回时提交，抛出异常时回滚
+     * 回调内使用 executeUpdate / executeInsert / queryFirst 的连接重载访问数据库
+     * @param callback 事务内的操作
+     * @return 回调的返回值
+     */
+    protected <R> R inTransaction(TransactionCallback<R> callback) throws SQLException {
+        Connection conn = null;
+        boolean autoCommit = true;
+        try {
+            conn = JdbcUtil.getConnection();
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            R result = callback.doInTransaction(conn);
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(autoCommit);
+                JdbcUtil.close(conn, null);
+            }
+        }
+    }
+
+    /**
+     * 在给定连接上执行更新（用于事务内）
+     * @return 影响行数
+     */
+    protected int executeUpdate(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setParameters(pstmt, params);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * 在给定连接上执行插入（用于事务内）
+     * @return 生成的主键，没有生成主键时返回影响行数
+     */
+    protected int executeInsert(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            setParameters(pstmt, params);
+            int result = pstmt.executeUpdate();
+            if (result > 0) {
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        return rs.getInt(1);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 在给定连接上查询第一行（用于事务内）
+     * @return 映射结果，没有记录时返回null
+     */
+    protected <R> R queryFirst(Connection conn, String sql, RowMapper<R> mapper, Object... params) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setParameters(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapper.mapRow(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * 在给定连接上查询多行（用于事务内）
+     */
+    protected <R> List<R> queryForRows(Connection conn, String sql, RowMapper<R> mapper, Object... params) throws SQLException {
+        List<R> list = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setParameters(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapper.mapRow(rs));
+                }
+            }
+        }
+        return list;
+    }
+
     /**
      * 设置参数
      */
@@ -158,4 +416,11 @@ public abstract class BaseJdbcDAO<T> {
     public interface RowMapper<T> {
         T mapRow(ResultSet rs) throws SQLException;
     }
+
+    /**
+     * 事务回调接口
+     */
+    public interface TransactionCallback<R> {
+        R doInTransaction(Connection conn) throws SQLException;
+    }
 }
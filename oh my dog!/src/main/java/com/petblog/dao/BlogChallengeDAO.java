@@ -1,8 +1,12 @@
 package com.petblog.dao;
 
+import com.petblog.model.ActivityItem;
 import com.petblog.model.BlogChallenge;
+import com.petblog.model.ChallengeBlogHeat;
+import com.petblog.model.PetRanking;
 
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
 
 public interface BlogChallengeDAO {
@@ -14,4 +18,28 @@ public interface BlogChallengeDAO {
     List<BlogChallenge> findByBlogId(int blogId) throws SQLException;
     List<BlogChallenge> findByChallengeId(int challengeId) throws SQLException;
     List<BlogChallenge> findAll() throws SQLException;
-}
\ No newline at end of file
+
+    /**
+     * 键集分页查询最新的挑战投稿（按时间、ID倒序），供动态广场归并
+     * @param beforeTime 游标时间（为null时从最新开始）
+     * @param beforeId 游标ID
+     * @param limit 条数
+     * @return 动态条目
+     */
+    List<ActivityItem> findActivities(Date beforeTime, Integer beforeId, int limit) throws SQLException;
+
+    /**
+     * 一次聚合查询多个挑战全部参赛博客的热度构成（投票、点赞、收藏、评论、转发数和作者信息）
+     * 各计数在子查询中按博客分组，只统计这些挑战的博客；已屏蔽的博客和被封禁用户的博客不计入
+     * @param challengeIds 挑战ID列表
+     * @return 每个 (挑战, 博客) 一行，热度字段由调用方计算
+     */
+    List<ChallengeBlogHeat> findBlogHeatByChallengeIds(List<Integer> challengeIds) throws SQLException;
+
+    /**
+     * 一条分组查询统计挑战中的宠物排名：按宠物汇总参赛博客的投票数和博客数，关联宠物和主人信息
+     * @param challengeId 挑战ID
+     * @return 按投票数降序、宠物ID升序排列的排名（名次按顺序从1编号）
+     */
+    List<PetRanking> findPetRankings(int challengeId) throws SQLException;
+}
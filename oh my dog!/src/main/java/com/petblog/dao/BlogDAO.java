@@ -1,9 +1,13 @@
 package com.petblog.dao;
 
+import com.petblog.model.ActivityItem;
 import com.petblog.model.Blog;
+import com.petblog.model.BlogEngagement;
 
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 public interface BlogDAO {
     
@@ -15,5 +19,51 @@ public interface BlogDAO {
     List<Blog> findByAuthorId(int authorId)throws SQLException;
     List<Blog> findByTopicId(int topicId)throws SQLException;
     List<Blog> findRecentBlogs(int limit)throws SQLException;
+
+    /**
+     * 批量查询博客（含作者信息和统计字段，只返回未屏蔽且作者未封禁的博客，不保证与参数顺序一致）
+     */
+    List<Blog> findByIds(List<Integer> blogIds) throws SQLException;
     int countAll() throws SQLException;
-}
\ No newline at end of file
+
+    /**
+     * 键集分页查询最新发布的普通博客（不含转发和挑战投稿）（按时间、ID倒序），供动态广场归并
+     * @param beforeTime 游标时间（为null时从最新开始）
+     * @param beforeId 游标ID
+     * @param limit 条数
+     * @return 动态条目
+     */
+    List<ActivityItem> findActivities(Date beforeTime, Integer beforeId, int limit) throws SQLException;
+
+    /**
+     * 一次聚合查询统计指定时间之后发布的博客的互动计数（只含未屏蔽且作者未封禁的博客）
+     * @param since 起始发布时间
+     * @return 互动计数
+     */
+    List<BlogEngagement> findEngagementSince(Date since) throws SQLException;
+
+    /**
+     * 一次聚合查询统计指定博客的互动计数（只含未屏蔽且作者未封禁的博客，不保证与参数顺序一致）
+     */
+    List<BlogEngagement> findEngagementByIds(List<Integer> blogIds) throws SQLException;
+
+    /**
+     * 管理员后台分页查询博客（包括已屏蔽的，含作者信息，按发布时间倒序），正文只取开头部分作为摘要
+     * @param offset 跳过的条数
+     * @param limit 条数
+     */
+    List<Blog> findPageForAdmin(int offset, int limit) throws SQLException;
+
+    /**
+     * 一次聚合查询统计指定博客的互动计数（包括已屏蔽的博客，供管理员后台使用，不保证与参数顺序一致）
+     * 评论数与前台一致，只含可见的一级评论
+     */
+    List<BlogEngagement> findEngagementByIdsForAdmin(List<Integer> blogIds) throws SQLException;
+
+    /**
+     * 一次聚合查询统计未屏蔽且作者未封禁的博客数及其点赞、收藏、可见一级评论总数
+     * 统计范围与原先逐篇累加时一致（博客取自 findAll，评论取自 ReplyDAO.findByBlogId），只是改为一次查询
+     * @return 键为 blogs、likes、favorites、comments 的计数（点赞数不含写后缓冲中尚未落库的变化）
+     */
+    Map<String, Integer> findEngagementTotals() throws SQLException;
+}
@@ -74,6 +74,13 @@ public interface ChallengeDAO {
      */
     int updateStatus(Integer challengeId, Integer status, Date endTime) throws SQLException;
 
+    /**
+     * 把已到开始时间、尚未结束的规划中挑战切换为进行中（已取消的挑战不处理）
+     * @param now 当前时间
+     * @return 切换的挑战数
+     */
+    int startDueChallenges(Date now) throws SQLException;
+
     /**
      * 删除挑战活动（仅允许删除未开始的挑战）
      * @param challengeId 挑战ID
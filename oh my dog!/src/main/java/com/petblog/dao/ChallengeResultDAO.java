@@ -0,0 +1,61 @@
+package com.petblog.dao;
+
+import com.petblog.model.ChallengeBlogHeat;
+import com.petblog.model.PetRanking;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 挑战最终结果DAO接口
+ * 挑战结束时把博客热度、宠物排名和挑战热度一次写入结果表，此后这些数据只读不变
+ */
+public interface ChallengeResultDAO {
+
+    /**
+     * 查询已到结束时间、尚未保存结果的挑战（已取消的挑战不处理）
+     * @param now 当前时间
+     * @param limit 最多返回条数
+     * @return 挑战ID列表（按结束时间升序）
+     */
+    List<Integer> findChallengesToFinalize(Date now, int limit) throws SQLException;
+
+    /**
+     * 在一个事务中保存挑战的最终结果并把挑战状态设为已结束
+     * @param challengeId 挑战ID
+     * @param heat 挑战热度
+     * @param blogs 参赛博客热度（按投票数降序、博客ID升序排列，名次按顺序从1编号）
+     * @param pets 宠物排名
+     * @return 是否保存（结果已存在时返回false，不做任何修改）
+     */
+    boolean saveResults(int challengeId, int heat, List<ChallengeBlogHeat> blogs, List<PetRanking> pets) throws SQLException;
+
+    /**
+     * 批量查询已保存结果的挑战热度
+     * @param challengeIds 挑战ID列表
+     * @return 挑战ID到热度的映射，只包含已保存结果的挑战
+     */
+    Map<Integer, Integer> findHeats(List<Integer> challengeIds) throws SQLException;
+
+    /**
+     * 查询挑战最终的参赛博客热度（博客标题、作者等信息按当前数据关联）
+     * @param challengeId 挑战ID
+     * @return 按名次排列的参赛博客
+     */
+    List<ChallengeBlogHeat> findBlogResults(int challengeId) throws SQLException;
+
+    /**
+     * 查询挑战最终的宠物排名（宠物和主人信息按当前数据关联）
+     * @param challengeId 挑战ID
+     * @return 按名次排列的宠物排名
+     */
+    List<PetRanking> findPetResults(int challengeId) throws SQLException;
+
+    /**
+     * 查询最近保存结果的挑战
+     * @return 挑战ID，还没有挑战结束时返回null
+     */
+    Integer findLatestFinalizedChallengeId() throws SQLException;
+}
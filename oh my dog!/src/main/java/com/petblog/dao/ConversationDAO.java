@@ -0,0 +1,24 @@
+package com.petblog.dao;
+
+import com.petblog.model.Conversation;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 私信会话DAO接口
+ * 定义对conversations表的查询操作；会话的维护与message表的写入在MessageDAO的同一事务中完成
+ */
+public interface ConversationDAO {
+
+    /**
+     * 键集分页查询用户的会话列表（按最后消息时间、对方ID倒序）
+     * @param userId 用户ID
+     * @param beforeTime 游标：上一页最后一条的最后消息时间，为null时查询第一页
+     * @param beforePeerId 游标：上一页最后一条的对方用户ID
+     * @param limit 每页条数
+     * @return 会话列表（含对方信息、最后一条消息和未读数）
+     */
+    List<Conversation> findByUserId(Integer userId, Date beforeTime, Integer beforePeerId, int limit) throws SQLException;
+}
@@ -1,8 +1,12 @@
 package com.petblog.dao;
 import com.petblog.model.Favorite;
+import com.petblog.model.InteractedBlog;
+import com.petblog.model.ToggleResult;
 
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 用户收藏DAO接口
@@ -77,4 +81,37 @@ public interface FavoriteDAO {
      * @return 影响行数
      */
     int deleteByBlogId(Integer blogId) throws SQLException;
-}
\ No newline at end of file
+
+    /**
+     * 切换收藏状态（已收藏则取消，未收藏则收藏）
+     * @param userId 用户ID
+     * @param blogId 博客ID
+     * @return 切换后的收藏状态和博客收藏数
+     */
+    ToggleResult toggle(Integer userId, Integer blogId) throws SQLException;
+
+    /**
+     * 批量检查用户收藏了哪些博客（一次IN查询）
+     * @param userId 用户ID
+     * @param blogIds 待检查的博客ID列表
+     * @return 其中已收藏的博客ID集合
+     */
+    Set<Integer> findFavoritedBlogIds(Integer userId, List<Integer> blogIds) throws SQLException;
+
+    /**
+     * 查询用户收藏过的全部博客ID（用于构建用户互动位图）
+     * @param userId 用户ID
+     * @return 博客ID集合，失败返回null
+     */
+    Set<Integer> findAllBlogIdsByUserId(Integer userId) throws SQLException;
+
+    /**
+     * 键集分页查询用户收藏的博客（联表一次取出博客、作者、计数和收藏时间）
+     * @param userId 用户ID
+     * @param beforeTime 游标：上一页最后一条的收藏时间，为null时查询第一页
+     * @param beforeBlogId 游标：上一页最后一条的博客ID
+     * @param limit 每页条数
+     * @return 按收藏时间倒序的博客列表
+     */
+    List<InteractedBlog> findFavoritedBlogs(Integer userId, Date beforeTime, Integer beforeBlogId, int limit) throws SQLException;
+}
@@ -1,9 +1,11 @@
 package com.petblog.dao;
 
 import com.petblog.model.Follow;
+import com.petblog.model.ToggleResult;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 用户关注DAO接口
@@ -30,6 +32,22 @@ public interface FollowDAO {
      */
     List<Integer> findFollowerIds(Integer userId, int pageNum, int pageSize) throws SQLException;
 
+    /**
+     * 按偏移量查询用户的关注列表切片
+     * @param offset 跳过的条数
+     * @param limit 条数
+     * @return 被关注用户的ID列表（按用户ID升序，与关注图一致）
+     */
+    List<Integer> findFollowingIdsByOffset(Integer userId, int offset, int limit) throws SQLException;
+
+    /**
+     * 按偏移量查询用户的粉丝列表切片
+     * @param offset 跳过的条数
+     * @param limit 条数
+     * @return 粉丝用户的ID列表（按用户ID升序，与关注图一致）
+     */
+    List<Integer> findFollowerIdsByOffset(Integer userId, int offset, int limit) throws SQLException;
+
     /**
      * 统计用户的关注数量（我关注了多少人）
      * @param userId 用户ID
@@ -44,6 +62,13 @@ public interface FollowDAO {
      */
     int countFollowers(Integer userId) throws SQLException;
 
+    /**
+     * 批量统计多个用户的粉丝数量
+     * @param userIds 用户ID列表
+     * @return 用户ID到粉丝数量的映射，没有粉丝的用户不在结果中
+     */
+    Map<Integer, Integer> countFollowersByIds(List<Integer> userIds) throws SQLException;
+
     /**
      * 检查用户A是否关注了用户B
      * @param fromUserId 关注者ID（用户A）
@@ -80,4 +105,12 @@ public interface FollowDAO {
      * @return 影响行数
      */
     int deleteAllFollowers(Integer toUserId) throws SQLException;
-}
\ No newline at end of file
+
+    /**
+     * 切换关注状态（已关注则取消，未关注则关注）
+     * @param fromUserId 关注者ID
+     * @param toUserId 被关注者ID
+     * @return 切换后的关注状态和被关注者的粉丝数
+     */
+    ToggleResult toggle(Integer fromUserId, Integer toUserId) throws SQLException;
+}
@@ -0,0 +1,492 @@
+package com.petblog.dao;
+
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.JdbcUtil;
+import com.petblog.util.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 进程内关注关系图
+ * 启动时从 follows 表整体加载，按用户保存两个方向（关注、粉丝）的有序 int[] 邻接表，
+ * 关注/取消关注时增量更新（二分查找定位后插入或删除），后台定期压缩回收多余容量。
+ * 加载完成后，关注数、粉丝数、是否关注和列表切片都直接在内存中回答；未就绪时调用方回退到数据库。
+ *
+ * 可通过系统属性 follow.graph.enabled=false 关闭；follow.graph.compactMinutes 设置压缩间隔（默认10分钟）。
+ */
+public class FollowGraph {
+    private static final Logger logger = Logger.getLogger(FollowGraph.class.getName());
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("follow.graph.enabled", "true"));
+    private static final long COMPACT_INTERVAL_MINUTES = Long.getLong("follow.graph.compactMinutes", 10L);
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * 单个用户单个方向的邻接表：ids[0, size) 有序且不重复，size 之后为预留容量
+     */
+    private static class Adjacency {
+        int[] ids;
+        int size;
+
+        Adjacency(int[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        boolean add(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return false;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+            return true;
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * 预留容量超过元素数一半时收缩到实际大小
+         * @return 是否发生了收缩
+         */
+        boolean trim() {
+            if (ids.length - size <= Math.max(4, size >> 1)) {
+                return false;
+            }
+            ids = Arrays.copyOf(ids, size);
+            return true;
+        }
+    }
+
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private static Map<Integer, Adjacency> following = new HashMap<>();
+    private static Map<Integer, Adjacency> followers = new HashMap<>();
+    private static long edgeCount = 0;
+    private static volatile boolean ready = false;
+    private static long lastBuildTime = 0;
+
+    private static final int FOLLOW = 1;
+    private static final int UNFOLLOW = 0;
+    private static final int REMOVE_ALL_FOLLOWING = 2;
+    private static final int REMOVE_ALL_FOLLOWERS = 3;
+
+    /**
+     * 加载期间发生的变更 {followerId, followeeId, 类型}，加载完成后按顺序重放；为null表示当前没有加载在进行
+     */
+    private static List<int[]> journal = null;
+
+    private static final MetricsRegistry.Counter buildCounter = MetricsRegistry.counter("follow.graph.builds");
+    private static final MetricsRegistry.Counter buildErrorCounter = MetricsRegistry.counter("follow.graph.build_errors");
+    private static final MetricsRegistry.Counter trimmedCounter = MetricsRegistry.counter("follow.graph.trimmed_lists");
+    private static final MetricsRegistry.Histogram buildLatency = MetricsRegistry.histogram("follow.graph.build_latency_ms",
+            MetricsRegistry.LATENCY_BUCKETS_MS);
+
+    /**
+     * 关注图是否已加载完成可用
+     */
+    public static boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 注册后台加载和周期压缩任务（关闭时不做任何事）
+     * 加载失败时下一个周期重试，期间调用方回退到数据库查询
+     */
+    public static void start() {
+        if (!ENABLED) {
+            return;
+        }
+        BackgroundScheduler.scheduleAtFixedRate("关注图加载与压缩", () -> {
+            if (ready) {
+                compact();
+            } else {
+                rebuild();
+            }
+        }, 0, COMPACT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 从数据库重新加载整张关注图
+     * 加载期间的增量变更会记录下来，在新图替换旧图前重放，保证不丢失
+     * @return 是否加载成功
+     */
+    public static boolean rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                return false;
+            }
+            journal = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.nanoTime();
+        Map<Integer, Adjacency> newFollowing = new HashMap<>();
+        Map<Integer, Adjacency> newFollowers = new HashMap<>();
+        long edges;
+        try {
+            edges = load(newFollowing, newFollowers);
+        } catch (SQLException e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            buildErrorCounter.increment();
+            logger.log(Level.WARNING, "关注图加载失败，暂时回退到数据库查询", e);
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            following = newFollowing;
+            followers = newFollowers;
+            edgeCount = edges;
+            for (int[] change : journal) {
+                apply(change[0], change[1], change[2]);
+            }
+            journal = null;
+            lastBuildTime = System.currentTimeMillis();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        buildCounter.increment();
+        buildLatency.observeSince(start);
+        logger.info("关注图加载完成，用户数=" + newFollowing.size() + "，关注关系数=" + edges);
+        return true;
+    }
+
+    /**
+     * 收缩预留容量过多的邻接表，并移除已为空的用户
+     * @return 收缩的邻接表数量
+     */
+    public static int compact() {
+        lock.writeLock().lock();
+        try {
+            int trimmed = compact(following) + compact(followers);
+            trimmedCounter.add(trimmed);
+            return trimmed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 记录一次关注（followerId 关注了 followeeId）
+     */
+    public static void onFollow(int followerId, int followeeId) {
+        record(followerId, followeeId, FOLLOW);
+    }
+
+    /**
+     * 记录一次取消关注
+     */
+    public static void onUnfollow(int followerId, int followeeId) {
+        record(followerId, followeeId, UNFOLLOW);
+    }
+
+    /**
+     * 记录用户取消了所有关注
+     */
+    public static void onRemoveAllFollowing(int followerId) {
+        record(followerId, 0, REMOVE_ALL_FOLLOWING);
+    }
+
+    /**
+     * 记录用户被所有粉丝取消关注
+     */
+    public static void onRemoveAllFollowers(int followeeId) {
+        record(0, followeeId, REMOVE_ALL_FOLLOWERS);
+    }
+
+    /**
+     * 关注数（我关注了多少人）
+     */
+    public static int countFollowing(int userId) {
+        return size(true, userId);
+    }
+
+    /**
+     * 粉丝数（多少人关注了我）
+     */
+    public static int countFollowers(int userId) {
+        return size(false, userId);
+    }
+
+    /**
+     * followerId 是否关注了 followeeId（二分查找）
+     */
+    public static boolean isFollowing(int followerId, int followeeId) {
+        lock.readLock().lock();
+        try {
+            Adjacency adjacency = following.get(followerId);
+            return adjacency != null && adjacency.contains(followeeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 关注列表切片（按用户ID升序）
+     */
+    public static int[] following(int userId, int offset, int limit) {
+        return slice(true, userId, offset, limit);
+    }
+
+    /**
+     * 粉丝列表切片（按用户ID升序）
+     */
+    public static int[] followers(int userId, int offset, int limit) {
+        return slice(false, userId, offset, limit);
+    }
+
+    /**
+     * 关注列表等间隔抽样（列表不超过 max 时返回全部），用于限制图遍历时高出度用户的展开量
+     */
+    public static int[] sampleFollowing(int userId, int max) {
+        lock.readLock().lock();
+        try {
+            Adjacency adjacency = following.get(userId);
+            if (adjacency == null || max <= 0) {
+                return EMPTY;
+            }
+            if (adjacency.size <= max) {
+                return Arrays.copyOf(adjacency.ids, adjacency.size);
+            }
+            int[] sample = new int[max];
+            double step = (double) adjacency.size / max;
+            for (int i = 0; i < max; i++) {
+                sample[i] = adjacency.ids[(int) (i * step)];
+            }
+            return sample;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 粉丝数不少于 minFollowers 的用户（有序）
+     */
+    public static int[] usersWithFollowersAtLeast(int minFollowers) {
+        lock.readLock().lock();
+        try {
+            int[] result = new int[16];
+            int count = 0;
+            for (Map.Entry<Integer, Adjacency> entry : followers.entrySet()) {
+                if (entry.getValue().size >= minFollowers) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2);
+                    }
+                    result[count++] = entry.getKey();
+                }
+            }
+            result = Arrays.copyOf(result, count);
+            Arrays.sort(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 关注图状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", ENABLED);
+        status.put("ready", ready);
+        lock.readLock().lock();
+        try {
+            status.put("users", following.size());
+            status.put("followees", followers.size());
+            status.put("edges", edgeCount);
+            status.put("allocatedBytes", allocatedBytes(following) + allocatedBytes(followers));
+            status.put("rebuilding", journal != null);
+            status.put("lastBuildTime", lastBuildTime);
+        } finally {
+            lock.readLock().unlock();
+        }
+        status.put("compactIntervalMinutes", COMPACT_INTERVAL_MINUTES);
+        return status;
+    }
+
+    private static void record(int followerId, int followeeId, int type) {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.add(new int[]{followerId, followeeId, type});
+            }
+            if (ready) {
+                apply(followerId, followeeId, type);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(int followerId, int followeeId, int type) {
+        switch (type) {
+            case FOLLOW:
+                if (following.computeIfAbsent(followerId, k -> new Adjacency(new int[4], 0)).add(followeeId)) {
+                    followers.computeIfAbsent(followeeId, k -> new Adjacency(new int[4], 0)).add(followerId);
+                    edgeCount++;
+                }
+                break;
+            case UNFOLLOW:
+                Adjacency out = following.get(followerId);
+                if (out != null && out.remove(followeeId)) {
+                    followers.get(followeeId).remove(followerId);
+                    edgeCount--;
+                }
+                break;
+            case REMOVE_ALL_FOLLOWING:
+                Adjacency outs = following.remove(followerId);
+                if (outs != null) {
+                    for (int i = 0; i < outs.size; i++) {
+                        followers.get(outs.ids[i]).remove(followerId);
+                    }
+                    edgeCount -= outs.size;
+                }
+                break;
+            case REMOVE_ALL_FOLLOWERS:
+                Adjacency ins = followers.remove(followeeId);
+                if (ins != null) {
+                    for (int i = 0; i < ins.size; i++) {
+                        following.get(ins.ids[i]).remove(followeeId);
+                    }
+                    edgeCount -= ins.size;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static int size(boolean outgoing, int userId) {
+        lock.readLock().lock();
+        try {
+            Adjacency adjacency = (outgoing ? following : followers).get(userId);
+            return adjacency != null ? adjacency.size : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int[] slice(boolean outgoing, int userId, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Adjacency adjacency = (outgoing ? following : followers).get(userId);
+            if (adjacency == null || offset >= adjacency.size || limit <= 0) {
+                return EMPTY;
+            }
+            int from = Math.max(0, offset);
+            int to = (int) Math.min(adjacency.size, (long) from + limit);
+            return Arrays.copyOfRange(adjacency.ids, from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int compact(Map<Integer, Adjacency> graph) {
+        int trimmed = 0;
+        Iterator<Adjacency> it = graph.values().iterator();
+        while (it.hasNext()) {
+            Adjacency adjacency = it.next();
+            if (adjacency.size == 0) {
+                it.remove();
+                trimmed++;
+            } else if (adjacency.trim()) {
+                trimmed++;
+            }
+        }
+        return trimmed;
+    }
+
+    private static long allocatedBytes(Map<Integer, Adjacency> graph) {
+        long bytes = 0;
+        for (Adjacency adjacency : graph.values()) {
+            bytes += 32 + adjacency.ids.length * 4L;
+        }
+        return bytes;
+    }
+
+    /**
+     * 按 (follower_id, followee_id) 顺序流式读取全部关注关系，两个方向都按读取顺序追加即为有序
+     */
+    private static long load(Map<Integer, Adjacency> outMap, Map<Integer, Adjacency> inMap) throws SQLException {
+        String sql = "SELECT follower_id, followee_id FROM follows ORDER BY follower_id, followee_id";
+        long edges = 0;
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = JdbcUtil.getConnection();
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            rs = pstmt.executeQuery();
+            Adjacency current = null;
+            int currentFollower = 0;
+            while (rs.next()) {
+                int followerId = rs.getInt(1);
+                int followeeId = rs.getInt(2);
+                if (current == null || followerId != currentFollower) {
+                    current = new Adjacency(new int[4], 0);
+                    outMap.put(followerId, current);
+                    currentFollower = followerId;
+                } else if (current.ids[current.size - 1] == followeeId) {
+                    continue;
+                }
+                append(current, followeeId);
+                append(inMap.computeIfAbsent(followeeId, k -> new Adjacency(new int[4], 0)), followerId);
+                edges++;
+            }
+        } finally {
+            JdbcUtil.close(conn, pstmt, rs);
+        }
+        compact(outMap);
+        compact(inMap);
+        return edges;
+    }
+
+    private static void append(Adjacency adjacency, int id) {
+        if (adjacency.size == adjacency.ids.length) {
+            adjacency.ids = Arrays.copyOf(adjacency.ids, adjacency.size * 2);
+        }
+        adjacency.ids[adjacency.size++] = id;
+    }
+}
@@ -1,9 +1,13 @@
 package com.petblog.dao;
 
 import com.petblog.model.Like;
+import com.petblog.model.InteractedBlog;
+import com.petblog.model.ToggleResult;
 
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 用户点赞DAO接口
@@ -85,4 +89,37 @@ public interface LikeDAO {
      * @return 影响行数
      */
     int deleteByBlogId(Integer blogId) throws SQLException;
-}
\ No newline at end of file
+
+    /**
+     * 切换点赞状态（已点赞则取消，未点赞则点赞）
+     * @param userId 用户ID
+     * @param blogId 博客ID
+     * @return 切换后的点赞状态和博客获赞数
+     */
+    ToggleResult toggle(Integer userId, Integer blogId) throws SQLException;
+
+    /**
+     * 批量检查用户点赞了哪些博客（一次IN查询）
+     * @param userId 用户ID
+     * @param blogIds 待检查的博客ID列表
+     * @return 其中已点赞的博客ID集合
+     */
+    Set<Integer> findLikedBlogIds(Integer userId, List<Integer> blogIds) throws SQLException;
+
+    /**
+     * 查询用户点赞过的全部博客ID（用于构建用户互动位图）
+     * @param userId 用户ID
+     * @return 博客ID集合，失败返回null
+     */
+    Set<Integer> findAllBlogIdsByUserId(Integer userId) throws SQLException;
+
+    /**
+     * 键集分页查询用户点赞的博客（联表一次取出博客、作者、计数和点赞时间）
+     * @param userId 用户ID
+     * @param beforeTime 游标：上一页最后一条的点赞时间，为null时查询第一页
+     * @param beforeBlogId 游标：上一页最后一条的博客ID
+     * @param limit 每页条数
+     * @return 按点赞时间倒序的博客列表
+     */
+    List<InteractedBlog> findLikedBlogs(Integer userId, Date beforeTime, Integer beforeBlogId, int limit) throws SQLException;
+}
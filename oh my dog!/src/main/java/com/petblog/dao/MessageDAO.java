@@ -3,6 +3,7 @@ package com.petblog.dao;
 import com.petblog.model.Message;
 
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -36,6 +37,31 @@ public interface MessageDAO {
      */
     List<Message> findChatRecords(Integer fromUserId, Integer toUserId, int pageNum, int pageSize) throws SQLException;
 
+    /**
+     * 键集分页查询两个用户之间早于游标的私信（热表）
+     * @param userId1 用户ID1
+     * @param userId2 用户ID2
+     * @param beforeTime 游标时间，为null时从最新一条开始
+     * @param beforeMessageId 游标私信ID
+     * @param limit 条数
+     * @return 私信记录列表（按发送时间倒序）
+     */
+    List<Message> findChatHistory(Integer userId1, Integer userId2, Date beforeTime, Integer beforeMessageId, int limit) throws SQLException;
+
+    /**
+     * 键集分页查询两个用户之间早于游标的已归档私信
+     * @return 私信记录列表（按发送时间倒序）
+     */
+    List<Message> findArchivedChatHistory(Integer userId1, Integer userId2, Date beforeTime, Integer beforeMessageId, int limit) throws SQLException;
+
+    /**
+     * 把早于指定时间的已读私信移入归档表（单个事务内移动一批）
+     * @param before 截止时间
+     * @param batchSize 本批最多移动条数
+     * @return 移动的条数
+     */
+    int archiveOlderThan(Date before, int batchSize) throws SQLException;
+
     /**
      * 统计用户的未读私信总数
      * @param userId 接收方用户ID
@@ -59,6 +59,18 @@ public interface ReplyDAO {
      */
     int countByUserId(Integer userId) throws SQLException;
 
+    /**
+     * 管理员后台分页查询全部回复（包括已删除的，按发布时间倒序）
+     * @param offset 跳过的条数
+     * @param limit 条数
+     */
+    List<Reply> findPageForAdmin(int offset, int limit) throws SQLException;
+
+    /**
+     * 统计回复总数（包括已删除的）
+     */
+    int countAll() throws SQLException;
+
     /**
      * 新增回复
      * @param reply 回复实体（包含评论ID、内容、回复者ID等信息）
@@ -1,9 +1,13 @@
 package com.petblog.dao;
 
+import com.petblog.model.ActivityItem;
 import com.petblog.model.Repost;
+import com.petblog.model.RepostDetail;
 
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 博客转发DAO接口
@@ -94,4 +98,41 @@ public interface RepostDAO {
      * @return 影响行数
      */
     int deleteByOriginalBlogId(Integer originalBlogId) throws SQLException;
-}
\ No newline at end of file
+
+    /**
+     * 批量检查用户转发了哪些博客（一次IN查询）
+     * @param userId 用户ID
+     * @param blogIds 待检查的博客ID列表
+     * @return 其中已转发的博客ID集合
+     */
+    Set<Integer> findRepostedBlogIds(Integer userId, List<Integer> blogIds) throws SQLException;
+
+    /**
+     * 键集分页查询最新的转发（按时间、ID倒序），供动态广场归并
+     * @param beforeTime 游标时间（为null时从最新开始）
+     * @param beforeId 游标ID
+     * @param limit 条数
+     * @return 动态条目
+     */
+    List<ActivityItem> findActivities(Date beforeTime, Integer beforeId, int limit) throws SQLException;
+
+    /**
+     * 键集分页查询用户的转发详情（联表一次取出转发者、原博客、原作者和原博客计数）
+     * @param userId 转发者ID
+     * @param beforeTime 游标：上一页最后一条的转发时间，为null时查询第一页
+     * @param beforeRepostId 游标：上一页最后一条的转发ID
+     * @param limit 每页条数
+     * @return 按转发时间倒序的转发详情
+     */
+    List<RepostDetail> findDetailsByUserId(Integer userId, Date beforeTime, Integer beforeRepostId, int limit) throws SQLException;
+
+    /**
+     * 键集分页查询原博客的转发详情（联表一次取出转发者、原博客、原作者和原博客计数）
+     * @param originalBlogId 原博客ID
+     * @param beforeTime 游标：上一页最后一条的转发时间，为null时查询第一页
+     * @param beforeRepostId 游标：上一页最后一条的转发ID
+     * @param limit 每页条数
+     * @return 按转发时间倒序的转发详情
+     */
+    List<RepostDetail> findDetailsByOriginalBlogId(Integer originalBlogId, Date beforeTime, Integer beforeRepostId, int limit) throws SQLException;
+}
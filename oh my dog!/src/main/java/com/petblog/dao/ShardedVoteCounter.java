@@ -0,0 +1,283 @@
+package com.petblog.dao;
+
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.JdbcUtil;
+import com.petblog.util.LoadVersions;
+import com.petblog.util.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 分片投票计数
+ * 每篇博客的投票数拆成最多N行（vote_counter_shards 表的 (blog_id, shard_id)），投票/取消投票时在同一事务中
+ * 随机选一个分片增减，热门博客的并发投票分散到不同行上，不再争抢同一行锁；单个分片可以为负，总数为各分片之和。
+ * 读取时先查进程内的镜像，未命中时对分片求和一次并缓存，不再对 votes 表做 COUNT(*)。
+ * 写路径在事务提交后移除该博客的镜像（不在镜像上叠加增量：加载可能已读到刚提交的分片，再叠加会重复计数），
+ * 加载期间有写入的结果不放入镜像。
+ * 后台定期把一段时间内没有投票的博客的分片合并为一行，并按 votes 表重新校准总数。
+ *
+ * 可选系统属性：vote.counter.shards（分片数，默认16）、vote.counter.hotBlogs（镜像缓存的博客数，默认100000）、
+ * vote.counter.compactMinutes（合并间隔，默认10）
+ */
+public class ShardedVoteCounter {
+    private static final Logger logger = Logger.getLogger(ShardedVoteCounter.class.getName());
+
+    private static volatile int shards = Math.max(1, Integer.getInteger("vote.counter.shards", 16));
+    private static final int HOT_BLOGS = Integer.getInteger("vote.counter.hotBlogs", 100000);
+    private static final long COMPACT_MINUTES = Long.getLong("vote.counter.compactMinutes", 10L);
+
+    /**
+     * 每次合并最多处理的博客数
+     */
+    private static final int COMPACT_BATCH = 500;
+
+    /**
+     * 合并单个博客的事务因死锁被回滚时的最多重试次数
+     */
+    private static final int DEADLOCK_RETRIES = 3;
+
+    private static final ConcurrentHashMap<Integer, Long> mirror = new ConcurrentHashMap<>();
+
+    /**
+     * 加载版本戳：写路径移除镜像前递增，加载期间版本变化的结果不放入镜像
+     */
+    private static final LoadVersions versions = new LoadVersions(4096);
+
+    private static final MetricsRegistry.Counter hits = MetricsRegistry.counter("vote.counter.lookups", "result", "hit");
+    private static final MetricsRegistry.Counter misses = MetricsRegistry.counter("vote.counter.lookups", "result", "miss");
+    private static final MetricsRegistry.Counter increments = MetricsRegistry.counter("vote.counter.increments");
+    private static final MetricsRegistry.Counter compacted = MetricsRegistry.counter("vote.counter.compacted_blogs");
+    private static final MetricsRegistry.Counter corrected = MetricsRegistry.counter("vote.counter.corrected_blogs");
+
+    /**
+     * 注册周期合并任务
+     */
+    public static void start() {
+        BackgroundScheduler.scheduleAtFixedRate("投票计数分片合并", ShardedVoteCounter::compact,
+                COMPACT_MINUTES, COMPACT_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 在调用方事务内给博客的一个随机分片增减计数
+     * 事务提交后调用方需调用 {@link #applied(int, int)} 移除镜像
+     */
+    public static void add(Connection conn, int blogId, int delta) throws SQLException {
+        if (delta == 0) {
+            return;
+        }
+        String sql = "INSERT INTO vote_counter_shards (blog_id, shard_id, vote_count) VALUES (?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE vote_count = vote_count + VALUES(vote_count)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, blogId);
+            pstmt.setInt(2, ThreadLocalRandom.current().nextInt(shards));
+            pstmt.setInt(3, delta);
+            pstmt.executeUpdate();
+        }
+        increments.increment();
+    }
+
+    /**
+     * 当前的分片数
+     */
+    public static int getShards() {
+        return shards;
+    }
+
+    /**
+     * 修改分片数（负载测试用来比较不同分片数下的吞吐），之后的增减写入新范围内的分片；
+     * 超出新范围的已有分片行仍计入总数，下次合并时归并
+     */
+    public static void setShards(int count) {
+        shards = Math.max(1, count);
+    }
+
+    /**
+     * 事务提交后调用：移除博客的镜像，下次读取时重新对分片求和
+     */
+    public static void applied(int blogId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        evict(blogId);
+    }
+
+    /**
+     * 按 votes 表重新校准单个博客的分片计数（批量写入无法确定实际影响行数时调用）
+     */
+    public static void reconcile(int blogId) throws SQLException {
+        compact(blogId);
+    }
+
+    /**
+     * 读取博客的投票数（已落库部分）
+     */
+    public static int get(int blogId) throws SQLException {
+        Long cached = mirror.get(blogId);
+        if (cached != null) {
+            hits.increment();
+            return (int) Math.max(0, cached);
+        }
+        misses.increment();
+        long version = versions.current(blogId);
+        long loaded = load(blogId);
+        if (mirror.size() >= HOT_BLOGS) {
+            // 超过容量时整体清空，热门博客随后重新加载
+            mirror.clear();
+        }
+        // 版本检查与放入在同一个桶锁内完成，写路径先递增版本再移除，二者不会交错成放入旧值
+        mirror.compute(blogId, (k, existing) -> existing != null || !versions.unchanged(blogId, version) ? existing : loaded);
+        return (int) Math.max(0, loaded);
+    }
+
+    /**
+     * 合并一段时间内没有投票的博客的分片，并按 votes 表校准总数
+     * 每篇博客一个短事务：先锁住该博客的全部分片，再统计 votes 表并写回为一行
+     * @return 合并的博客数
+     */
+    public static int compact() {
+        Timestamp idleBefore = new Timestamp(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(COMPACT_MINUTES));
+        String candidatesSql = "SELECT blog_id FROM vote_counter_shards GROUP BY blog_id " +
+                               "HAVING COUNT(*) > 1 AND MAX(update_time) < ? LIMIT ?";
+        List<Integer> blogIds = new ArrayList<>();
+        try (Connection conn = JdbcUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(candidatesSql)) {
+            ps.setTimestamp(1, idleBefore);
+            ps.setInt(2, COMPACT_BATCH);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    blogIds.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "查询待合并的投票计数分片失败", e);
+            return 0;
+        }
+        int done = 0;
+        for (Integer blogId : blogIds) {
+            try {
+                compact(blogId);
+                done++;
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "合并投票计数分片失败: " + blogId, e);
+            }
+        }
+        compacted.add(done);
+        return done;
+    }
+
+    /**
+     * 计数状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("shards", shards);
+        status.put("cachedBlogs", mirror.size());
+        status.put("hotBlogs", HOT_BLOGS);
+        status.put("compactMinutes", COMPACT_MINUTES);
+        status.put("hits", hits.get());
+        status.put("misses", misses.get());
+        status.put("increments", increments.get());
+        status.put("compactedBlogs", compacted.get());
+        status.put("correctedBlogs", corrected.get());
+        return status;
+    }
+
+    /**
+     * 合并单个博客的分片，完成后移除镜像（镜像可能在合并期间按旧分片加载）
+     * 与并发投票的事务互相等待锁被数据库判为死锁时重新执行
+     */
+    private static void compact(int blogId) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                compactOnce(blogId);
+                return;
+            } catch (SQLException e) {
+                if (attempt > DEADLOCK_RETRIES || !BaseJdbcDAO.isDeadlock(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void compactOnce(int blogId) throws SQLException {
+        Connection conn = null;
+        boolean autoCommit = true;
+        long before = 0;
+        int actual = 0;
+        try {
+            conn = JdbcUtil.getConnection();
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            // 锁住分片后并发投票会等待本事务提交，再写入新的分片行，总数不会丢失
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT vote_count FROM vote_counter_shards WHERE blog_id = ? FOR UPDATE")) {
+                ps.setInt(1, blogId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        before += rs.getLong(1);
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM votes WHERE blog_id = ?")) {
+                ps.setInt(1, blogId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    actual = rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM vote_counter_shards WHERE blog_id = ?")) {
+                ps.setInt(1, blogId);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO vote_counter_shards (blog_id, shard_id, vote_count) VALUES (?, 0, ?)")) {
+                ps.setInt(1, blogId);
+                ps.setInt(2, actual);
+                ps.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(autoCommit);
+                JdbcUtil.close(conn, null);
+            }
+        }
+        evict(blogId);
+        if (before != actual) {
+            corrected.increment();
+        }
+    }
+
+    private static void evict(int blogId) {
+        versions.bump(blogId);
+        mirror.remove(blogId);
+    }
+
+    private static long load(int blogId) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(vote_count), 0) FROM vote_counter_shards WHERE blog_id = ?";
+        try (Connection conn = JdbcUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, blogId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+}
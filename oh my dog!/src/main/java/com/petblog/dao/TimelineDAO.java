@@ -0,0 +1,57 @@
+package com.petblog.dao;
+
+import com.petblog.model.TimelineEntry;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 关注时间线DAO接口
+ * 定义对timeline表（粉丝收件箱）的数据操作，以及按作者拉取博客的读扩散查询
+ */
+public interface TimelineDAO {
+
+    /**
+     * 把一篇博客批量写入多个用户的收件箱（已存在的记录忽略）
+     * @param userIds 收件人ID列表
+     * @param blogId 博客ID
+     * @param blogCreateTime 博客发布时间
+     * @return 写入行数
+     */
+    int insertBatch(List<Integer> userIds, int blogId, Date blogCreateTime) throws SQLException;
+
+    /**
+     * 键集分页查询用户收件箱（按发布时间、博客ID倒序）
+     * @param userId 用户ID
+     * @param beforeTime 游标时间（为null时从最新开始）
+     * @param beforeBlogId 游标博客ID
+     * @param limit 条数
+     * @return 收件箱条目
+     */
+    List<TimelineEntry> findPage(int userId, Date beforeTime, Integer beforeBlogId, int limit) throws SQLException;
+
+    /**
+     * 键集分页查询一组作者发布的博客（按发布时间、博客ID倒序），用于读扩散和冷启动回填
+     * @param authorIds 作者ID列表
+     * @param beforeTime 游标时间（为null时从最新开始）
+     * @param beforeBlogId 游标博客ID
+     * @param limit 条数
+     * @return 博客条目
+     */
+    List<TimelineEntry> findByAuthors(List<Integer> authorIds, Date beforeTime, Integer beforeBlogId, int limit) throws SQLException;
+
+    /**
+     * 从所有收件箱中删除某篇博客
+     * @param blogId 博客ID
+     * @return 删除行数
+     */
+    int deleteByBlogId(int blogId) throws SQLException;
+
+    /**
+     * 删除早于指定时间的收件箱记录
+     * @param before 截止时间
+     * @return 删除行数
+     */
+    int deleteOlderThan(Date before) throws SQLException;
+}
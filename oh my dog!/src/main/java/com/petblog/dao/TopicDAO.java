@@ -1,8 +1,10 @@
 package com.petblog.dao;
 
+import com.petblog.model.ActivityItem;
 import com.petblog.model.Topic;
 
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -95,4 +97,13 @@ public interface TopicDAO {
      * @return 存在返回true，否则返回false
      */
     boolean existsByName(String topicName) throws SQLException;
-}
\ No newline at end of file
+
+    /**
+     * 键集分页查询新创建的话题（按时间、ID倒序），供动态广场归并
+     * @param beforeTime 游标时间（为null时从最新开始）
+     * @param beforeId 游标ID
+     * @param limit 条数
+     * @return 动态条目
+     */
+    List<ActivityItem> findActivities(Date beforeTime, Integer beforeId, int limit) throws SQLException;
+}
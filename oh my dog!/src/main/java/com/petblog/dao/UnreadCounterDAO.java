@@ -0,0 +1,19 @@
+package com.petblog.dao;
+
+import com.petblog.model.UnreadCount;
+
+import java.sql.SQLException;
+
+/**
+ * 未读计数DAO接口
+ * 定义对unread_counters表的查询操作；计数的增减在私信、通知写入的同一事务中完成
+ */
+public interface UnreadCounterDAO {
+
+    /**
+     * 查询用户的未读计数
+     * @param userId 用户ID
+     * @return 未读计数（没有记录时为0）
+     */
+    UnreadCount findByUserId(Integer userId) throws SQLException;
+}
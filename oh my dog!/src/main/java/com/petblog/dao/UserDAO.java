@@ -56,12 +56,25 @@ public interface UserDAO {
      */
     List<User> searchUsers(String keyword, int pageNum, int pageSize) throws SQLException;
 
+    /**
+     * 批量查询用户
+     * @param userIds 用户ID列表
+     * @return 用户列表（不含密码信息，不保证与参数顺序一致）
+     */
+    List<User> selectByIds(List<Integer> userIds) throws SQLException;
+
     /**
      * 统计用户总数
      * @return 系统总用户数量
      */
     int countTotalUsers();
 
+    /**
+     * 统计按关键词搜索到的用户数（与 {@link #searchUsers(String, int, int)} 条件相同）
+     * @param keyword 搜索关键词
+     */
+    int countSearchUsers(String keyword) throws SQLException;
+
     /**
      * 新增用户（注册功能）
      * @param user 包含用户名、密码、手机号等信息的User对象
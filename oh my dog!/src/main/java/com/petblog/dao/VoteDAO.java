@@ -2,9 +2,11 @@ package com.petblog.dao;
 
 
 import com.petblog.model.Vote;
+import com.petblog.model.ToggleResult;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 投票DAO接口
@@ -99,5 +101,27 @@ public interface VoteDAO {
      * @return 影响行数
      */
     int deleteByUserId(Integer userId) throws SQLException;
+
+    /**
+     * 删除用户的所有投票记录并返回涉及的博客
+     * @param userId 用户ID
+     * @return 被删除投票所属的博客ID列表
+     */
+    List<Integer> deleteAndListBlogIdsByUserId(Integer userId) throws SQLException;
+
+    /**
+     * 切换用户对博客的投票状态（已投票则取消，未投票则投票）
+     * @param userId 用户ID
+     * @param blogId 博客ID
+     * @return 切换后的投票状态和博客投票数
+     */
+    ToggleResult toggle(Integer userId, Integer blogId) throws SQLException;
+
+    /**
+     * 批量检查用户投票了哪些博客（一次IN查询）
+     * @param userId 用户ID
+     * @param blogIds 待检查的博客ID列表
+     * @return 其中已投票的博客ID集合
+     */
+    Set<Integer> findVotedBlogIds(Integer userId, List<Integer> blogIds) throws SQLException;
 }
-    
\ No newline at end of file
@@ -0,0 +1,485 @@
+package com.petblog.dao;
+
+import com.petblog.model.ToggleResult;
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.JdbcUtil;
+import com.petblog.util.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 点赞/投票切换的写后缓冲（write-behind）
+ * 开启后切换操作只修改内存中按 (用户, 博客) 分段加锁的状态，同一用户对同一博客的反复切换在内存中合并，
+ * 后台线程定期把净变化以 JDBC 批处理写入数据库；缓冲条目数达到上限时由调用线程同步刷盘，应用关闭时刷盘。
+ * 缓冲条目数不会超过上限：刷盘失败（如数据库不可用）后的一个刷盘间隔内不再同步重试，缓冲已满时直接拒绝新的切换。
+ * 读取用户自己的状态和博客计数时会叠加缓冲中尚未落库的变化，保证读到自己的写入。
+ *
+ * 通过系统属性开启：-Dinteraction.writeBehind=true
+ * 可选参数：interaction.writeBehind.flushMs（刷盘间隔，默认500）、interaction.writeBehind.maxPending（缓冲上限，默认10000）
+ */
+public class WriteBehindToggleBuffer {
+    private static final Logger logger = Logger.getLogger(WriteBehindToggleBuffer.class.getName());
+
+    private static final boolean ENABLED = Boolean.getBoolean("interaction.writeBehind");
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("interaction.writeBehind.flushMs", 500L);
+    private static final int MAX_PENDING = Integer.getInteger("interaction.writeBehind.maxPending", 10000);
+
+    private static final int STRIPES = 64;
+
+    /**
+     * 点赞缓冲（likes表）
+     */
+    public static final WriteBehindToggleBuffer LIKES = new WriteBehindToggleBuffer("likes", "like_time", false);
+
+    /**
+     * 投票缓冲（votes表）
+     */
+    public static final WriteBehindToggleBuffer VOTES = new WriteBehindToggleBuffer("votes", "vote_create_time", true);
+
+    /**
+     * 缓冲条目：base 为数据库中的状态，current 为内存中的最新状态，二者不同即为待写入的净变化
+     */
+    private static class Entry {
+        boolean base;
+        boolean current;
+
+        Entry(boolean base) {
+            this.base = base;
+            this.current = base;
+        }
+
+        int contribution() {
+            return (current ? 1 : 0) - (base ? 1 : 0);
+        }
+    }
+
+    /**
+     * 一次刷盘中要写入的变化
+     */
+    private static class Change {
+        final long key;
+        final boolean state;
+
+        Change(long key, boolean state) {
+            this.key = key;
+            this.state = state;
+        }
+    }
+
+    private final String table;
+    private final String timeColumn;
+
+    /**
+     * 计数是否由 {@link ShardedVoteCounter} 维护（投票）
+     */
+    private final boolean shardedCount;
+    private final Object[] locks = new Object[STRIPES];
+    private final List<Map<Long, Entry>> stripes = new ArrayList<>(STRIPES);
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * 最近一次刷盘失败的时间（成功后清零）
+     */
+    private volatile long lastFlushFailure;
+
+    /**
+     * 每个博客尚未落库的计数变化（为0时移除）
+     */
+    private final ConcurrentHashMap<Integer, Integer> pendingDeltas = new ConcurrentHashMap<>();
+
+    /**
+     * 博客在数据库中的计数缓存，每次刷盘后清空重新加载
+     */
+    private final ConcurrentHashMap<Integer, Integer> baseCounts = new ConcurrentHashMap<>();
+
+    private final MetricsRegistry.Counter toggleCounter;
+    private final MetricsRegistry.Counter flushedCounter;
+    private final MetricsRegistry.Counter coalescedCounter;
+    private final MetricsRegistry.Counter flushErrorCounter;
+    private final MetricsRegistry.Histogram flushLatency;
+
+    private WriteBehindToggleBuffer(String table, String timeColumn, boolean shardedCount) {
+        this.table = table;
+        this.timeColumn = timeColumn;
+        this.shardedCount = shardedCount;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+            stripes.add(new HashMap<>());
+        }
+        toggleCounter = MetricsRegistry.counter("interaction.write_behind.toggles", "table", table);
+        flushedCounter = MetricsRegistry.counter("interaction.write_behind.flushed_rows", "table", table);
+        coalescedCounter = MetricsRegistry.counter("interaction.write_behind.coalesced", "table", table);
+        flushErrorCounter = MetricsRegistry.counter("interaction.write_behind.flush_errors", "table", table);
+        flushLatency = MetricsRegistry.histogram("interaction.write_behind.flush_latency_ms",
+                MetricsRegistry.LATENCY_BUCKETS_MS, "table", table);
+    }
+
+    /**
+     * 是否开启写后缓冲
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 注册周期刷盘任务和关闭时刷盘动作（未开启时不做任何事）
+     */
+    public static void start() {
+        if (!ENABLED) {
+            return;
+        }
+        for (WriteBehindToggleBuffer buffer : new WriteBehindToggleBuffer[]{LIKES, VOTES}) {
+            BackgroundScheduler.scheduleAtFixedRate(buffer.table + "写后缓冲刷盘",
+                    buffer::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            BackgroundScheduler.addShutdownHook(buffer::flush);
+        }
+        logger.info("点赞/投票写后缓冲已开启，刷盘间隔=" + FLUSH_INTERVAL_MS + "ms，缓冲上限=" + MAX_PENDING);
+    }
+
+    /**
+     * 切换用户对博客的状态（只修改内存，由后台刷盘）
+     * 首次触及某个 (用户, 博客) 时读取一次数据库状态，之后的切换都在内存中完成
+     * @return 切换后的状态和计数（计数 = 数据库计数 + 未落库变化）
+     */
+    public ToggleResult toggle(int userId, int blogId) throws SQLException {
+        if (size.get() >= MAX_PENDING && System.currentTimeMillis() - lastFlushFailure >= FLUSH_INTERVAL_MS) {
+            // 缓冲已满，由调用线程同步刷盘，限制内存占用；刚失败过时不再重试，避免每个请求都阻塞在失败的刷盘上
+            flush();
+        }
+        long key = key(userId, blogId);
+        int stripe = stripe(key);
+        Map<Long, Entry> map = stripes.get(stripe);
+
+        Boolean dbState = null;
+        boolean active;
+        while (true) {
+            synchronized (locks[stripe]) {
+                Entry entry = map.get(key);
+                if (entry == null && dbState != null) {
+                    if (!reserveSlot()) {
+                        throw new SQLException(table + "写后缓冲已满且刷盘未成功，拒绝本次切换");
+                    }
+                    entry = new Entry(dbState);
+                    map.put(key, entry);
+                }
+                if (entry != null) {
+                    int before = entry.contribution();
+                    entry.current = !entry.current;
+                    active = entry.current;
+                    applyDelta(blogId, entry.contribution() - before);
+                    break;
+                }
+            }
+            // 在锁外读取数据库状态，避免持锁等待数据库
+            dbState = loadState(userId, blogId);
+        }
+        toggleCounter.increment();
+        return new ToggleResult(active, getCount(blogId));
+    }
+
+    /**
+     * 获取缓冲中的状态
+     * @return 缓冲中的最新状态，未缓冲时返回null（调用方应查询数据库）
+     */
+    public Boolean getBufferedState(int userId, int blogId) {
+        long key = key(userId, blogId);
+        int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            Entry entry = stripes.get(stripe).get(key);
+            return entry != null ? entry.current : null;
+        }
+    }
+
+    /**
+     * 获取用户在缓冲中的全部状态（遍历整个缓冲，只用于加载用户的完整集合等低频路径）
+     * @return 博客ID -> 缓冲中的最新状态
+     */
+    public Map<Integer, Boolean> getBufferedStates(int userId) {
+        Map<Integer, Boolean> states = new HashMap<>();
+        for (int i = 0; i < STRIPES; i++) {
+            synchronized (locks[i]) {
+                for (Map.Entry<Long, Entry> e : stripes.get(i).entrySet()) {
+                    if (userId(e.getKey()) == userId) {
+                        states.put(blogId(e.getKey()), e.getValue().current);
+                    }
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * 获取博客尚未落库的计数变化
+     */
+    public int getPendingDelta(int blogId) {
+        return pendingDeltas.getOrDefault(blogId, 0);
+    }
+
+    /**
+     * 获取所有博客尚未落库的计数变化之和（全站总数统计时叠加）
+     */
+    public int getPendingDeltaTotal() {
+        int total = 0;
+        for (int delta : pendingDeltas.values()) {
+            total += delta;
+        }
+        return total;
+    }
+
+    /**
+     * 获取博客计数（数据库计数缓存 + 未落库变化）
+     */
+    public int getCount(int blogId) throws SQLException {
+        if (shardedCount) {
+            // 分片计数有自己的镜像，无需再缓存
+            return ShardedVoteCounter.get(blogId) + getPendingDelta(blogId);
+        }
+        Integer base = baseCounts.get(blogId);
+        if (base == null) {
+            base = loadCount(blogId);
+            baseCounts.put(blogId, base);
+        }
+        return base + getPendingDelta(blogId);
+    }
+
+    /**
+     * 把净变化批量写入数据库
+     * 合并后无变化的条目直接丢弃；写入失败时条目保持待写状态，下次刷盘重试
+     * @return 写入的行数
+     */
+    public synchronized int flush() {
+        long start = System.nanoTime();
+        List<Change> changes = new ArrayList<>();
+        int coalesced = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            synchronized (locks[i]) {
+                Iterator<Map.Entry<Long, Entry>> it = stripes.get(i).entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Long, Entry> e = it.next();
+                    Entry entry = e.getValue();
+                    if (entry.current == entry.base) {
+                        // 已落库或反复切换后回到原状态
+                        it.remove();
+                        size.decrementAndGet();
+                        coalesced++;
+                    } else {
+                        changes.add(new Change(e.getKey(), entry.current));
+                    }
+                }
+            }
+        }
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        // 投票的计数变化在同一事务中写入分片计数，提交后更新镜像
+        Map<Integer, Integer> countDeltas = shardedCount ? new HashMap<>() : null;
+        Set<Integer> uncounted = new HashSet<>();
+        try {
+            writeBatch(changes, countDeltas, uncounted);
+        } catch (SQLException e) {
+            lastFlushFailure = System.currentTimeMillis();
+            // 计数缓存可能已与数据库不一致，下次读取时重新加载
+            baseCounts.clear();
+            flushErrorCounter.increment();
+            logger.log(Level.WARNING, table + "写后缓冲刷盘失败，" + changes.size() + "条变化将在下次刷盘重试", e);
+            return 0;
+        }
+        lastFlushFailure = 0;
+
+        // 写入成功后把 base 推进到已写入的状态并移除已落库的条目；期间再次切换的条目仍会留在缓冲中
+        for (Change change : changes) {
+            int stripe = stripe(change.key);
+            synchronized (locks[stripe]) {
+                Map<Long, Entry> map = stripes.get(stripe);
+                Entry entry = map.get(change.key);
+                if (entry != null) {
+                    int before = entry.contribution();
+                    entry.base = change.state;
+                    applyDelta(blogId(change.key), entry.contribution() - before);
+                    if (entry.current == entry.base) {
+                        map.remove(change.key);
+                        size.decrementAndGet();
+                    }
+                }
+            }
+        }
+        baseCounts.clear();
+        if (countDeltas != null) {
+            for (Map.Entry<Integer, Integer> e : countDeltas.entrySet()) {
+                ShardedVoteCounter.applied(e.getKey(), e.getValue());
+            }
+            for (Integer blogId : uncounted) {
+                try {
+                    ShardedVoteCounter.reconcile(blogId);
+                } catch (SQLException e) {
+                    // 下一轮后台合并会再次校准
+                    logger.log(Level.WARNING, "校准投票计数分片失败: " + blogId, e);
+                }
+            }
+        }
+
+        flushedCounter.add(changes.size());
+        coalescedCounter.add(coalesced);
+        flushLatency.observeSince(start);
+        return changes.size();
+    }
+
+    /**
+     * 缓冲状态（供指标和管理接口查看）
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("table", table);
+        status.put("enabled", ENABLED);
+        status.put("entries", size.get());
+        status.put("blogsWithPendingChanges", pendingDeltas.size());
+        status.put("maxPending", MAX_PENDING);
+        status.put("flushIntervalMs", FLUSH_INTERVAL_MS);
+        status.put("lastFlushFailure", lastFlushFailure > 0 ? new Date(lastFlushFailure) : null);
+        return status;
+    }
+
+    /**
+     * 批量写入变化
+     * @param countDeltas 不为null时按实际影响的行数汇总每个博客的计数变化，并在同一事务中写入分片计数
+     * @param uncounted 驱动未返回影响行数的语句所属的博客，提交后需按 votes 表校准
+     */
+    private void writeBatch(List<Change> changes, Map<Integer, Integer> countDeltas, Set<Integer> uncounted) throws SQLException {
+        String deleteSql = "DELETE FROM " + table + " WHERE user_id = ? AND blog_id = ?";
+        String insertSql = "INSERT IGNORE INTO " + table + " (user_id, blog_id, " + timeColumn + ") VALUES (?, ?, NOW())";
+        Connection conn = null;
+        boolean autoCommit = true;
+        try {
+            conn = JdbcUtil.getConnection();
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql);
+                 PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
+                for (Change change : changes) {
+                    PreparedStatement stmt = change.state ? insertStmt : deleteStmt;
+                    stmt.setInt(1, userId(change.key));
+                    stmt.setInt(2, blogId(change.key));
+                    stmt.addBatch();
+                }
+                int[] deleted = deleteStmt.executeBatch();
+                int[] inserted = insertStmt.executeBatch();
+                if (countDeltas != null) {
+                    collectCountDeltas(changes, deleted, inserted, countDeltas, uncounted);
+                    for (Map.Entry<Integer, Integer> e : countDeltas.entrySet()) {
+                        ShardedVoteCounter.add(conn, e.getKey(), e.getValue());
+                    }
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(autoCommit);
+                JdbcUtil.close(conn, null);
+            }
+        }
+    }
+
+    private boolean loadState(int userId, int blogId) throws SQLException {
+        String sql = "SELECT 1 FROM " + table + " WHERE user_id = ? AND blog_id = ?";
+        try (Connection conn = JdbcUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            ps.setInt(2, blogId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private int loadCount(int blogId) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM " + table + " WHERE blog_id = ?";
+        try (Connection conn = JdbcUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, blogId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * 按批处理中每条语句实际影响的行数汇总博客的计数变化（删除、插入按加入批处理的顺序对应）
+     * 返回 SUCCESS_NO_INFO 的语句无法确定是否生效（INSERT IGNORE 可能被忽略、DELETE 可能没有匹配行），不计入增量，
+     * 其博客记入 uncounted 由调用方在提交后校准
+     */
+    private static void collectCountDeltas(List<Change> changes, int[] deleted, int[] inserted,
+                                           Map<Integer, Integer> countDeltas, Set<Integer> uncounted) {
+        int d = 0;
+        int i = 0;
+        for (Change change : changes) {
+            int affected = change.state ? inserted[i++] : deleted[d++];
+            if (affected > 0) {
+                countDeltas.merge(blogId(change.key), change.state ? 1 : -1, Integer::sum);
+            } else if (affected == Statement.SUCCESS_NO_INFO) {
+                uncounted.add(blogId(change.key));
+            }
+        }
+    }
+
+    /**
+     * 为新条目占用一个缓冲名额，已达上限时返回false
+     */
+    private boolean reserveSlot() {
+        while (true) {
+            int current = size.get();
+            if (current >= MAX_PENDING) {
+                return false;
+            }
+            if (size.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void applyDelta(int blogId, int delta) {
+        if (delta != 0) {
+            // 合并结果为0时移除该博客的记录
+            pendingDeltas.merge(blogId, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    private static long key(int userId, int blogId) {
+        return ((long) userId << 32) | (blogId & 0xFFFFFFFFL);
+    }
+
+    private static int userId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int blogId(long key) {
+        return (int) key;
+    }
+
+    private static int stripe(long key) {
+        return (int) ((key ^ (key >>> 29)) & (STRIPES - 1));
+    }
+}
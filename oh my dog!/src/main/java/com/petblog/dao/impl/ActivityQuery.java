@@ -0,0 +1,56 @@
+package com.petblog.dao.impl;
+
+import com.petblog.model.ActivityItem;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 动态广场各事件源共用的键集分页片段
+ * 每个事件源的查询都把列别名统一为 item_id、title、item_time、user_id、user_name、ref_id，
+ * 按 (时间, ID) 倒序取一页，查询代价只与页大小有关。
+ */
+class ActivityQuery {
+
+    private ActivityQuery() {
+    }
+
+    /**
+     * 键集条件：(time &lt; 游标时间) 或 (time = 游标时间 且 id &lt; 游标ID)
+     */
+    static String cursorCondition(String timeColumn, String idColumn) {
+        return "AND (" + timeColumn + " < ? OR (" + timeColumn + " = ? AND " + idColumn + " < ?)) ";
+    }
+
+    /**
+     * @param beforeTime 游标时间，为null时查询第一页（不追加游标参数）
+     */
+    static Object[] params(Date beforeTime, Integer beforeId, int limit) {
+        List<Object> params = new ArrayList<>(4);
+        if (beforeTime != null) {
+            Timestamp cursor = new Timestamp(beforeTime.getTime());
+            params.add(cursor);
+            params.add(cursor);
+            params.add(beforeId != null ? beforeId : Integer.MAX_VALUE);
+        }
+        params.add(limit);
+        return params.toArray();
+    }
+
+    static ActivityItem mapRow(ResultSet rs, String type) throws SQLException {
+        ActivityItem item = new ActivityItem();
+        item.setType(type);
+        item.setId(rs.getInt("item_id"));
+        item.setTitle(rs.getString("title"));
+        Timestamp time = rs.getTimestamp("item_time");
+        item.setTime(time != null ? new Date(time.getTime()) : new Date(0));
+        item.setUserId(rs.getObject("user_id", Integer.class));
+        item.setUserName(rs.getString("user_name"));
+        item.setRefId(rs.getObject("ref_id", Integer.class));
+        return item;
+    }
+}
@@ -3,11 +3,16 @@ package com.petblog.dao.impl;
 
 import com.petblog.dao.BaseJdbcDAO;
 import com.petblog.dao.BlogChallengeDAO;
+import com.petblog.model.ActivityItem;
 import com.petblog.model.BlogChallenge;
+import com.petblog.model.ChallengeBlogHeat;
+import com.petblog.model.PetRanking;
 import com.petblog.util.SQLExceptionHandler;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 public class BlogChallengeDAOImpl extends BaseJdbcDAO<BlogChallenge> implements BlogChallengeDAO {
@@ -86,4 +91,108 @@ public class BlogChallengeDAOImpl extends BaseJdbcDAO<BlogChallenge> implements
         blogChallenge.setBlogId(rs.getInt("blog_id"));
         return blogChallenge;
     }
+
+    @Override
+    public List<ActivityItem> findActivities(Date beforeTime, Integer beforeId, int limit) {
+        // 一篇博客可能参加多个挑战，按博客去重，关联ID取最早关联的挑战
+        String sql = "SELECT b.blog_id AS item_id, b.blog_title AS title, b.blog_create_time AS item_time, " +
+                     "b.user_id, u.user_name, " +
+                     "(SELECT MIN(bc.challenge_id) FROM blogchallenge bc WHERE bc.blog_id = b.blog_id) AS ref_id " +
+                     "FROM blogs b " +
+                     "LEFT JOIN users u ON b.user_id = u.user_id " +
+                     "WHERE b.is_shielded = 0 AND (u.is_ban IS NULL OR u.is_ban = 0) " +
+                     "AND EXISTS (SELECT 1 FROM blogchallenge bc WHERE bc.blog_id = b.blog_id) " +
+                     (beforeTime != null ? ActivityQuery.cursorCondition("b.blog_create_time", "b.blog_id") : "") +
+                     "ORDER BY b.blog_create_time DESC, b.blog_id DESC LIMIT ?";
+        try {
+            return queryForRows(sql, rs -> ActivityQuery.mapRow(rs, "challenge"), ActivityQuery.params(beforeTime, beforeId, limit));
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "查询动态广场挑战投稿", null);
+        }
+    }
+
+    @Override
+    public List<ChallengeBlogHeat> findBlogHeatByChallengeIds(List<Integer> challengeIds) throws SQLException {
+        if (challengeIds == null || challengeIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String in = placeholders(challengeIds.size());
+        String entries = "SELECT blog_id FROM blogchallenge WHERE challenge_id IN (" + in + ")";
+        String sql = "SELECT bc.challenge_id, b.blog_id, b.blog_title, b.blog_content, b.blog_create_time, b.user_id, " +
+                     "u.user_name, u.user_avatar_path, " +
+                     "COALESCE(v.cnt, 0) AS vote_count, COALESCE(l.cnt, 0) AS like_count, COALESCE(f.cnt, 0) AS favorite_count, " +
+                     "COALESCE(r.cnt, 0) AS comment_count, COALESCE(p.cnt, 0) AS repost_count " +
+                     "FROM (SELECT DISTINCT challenge_id, blog_id FROM blogchallenge WHERE challenge_id IN (" + in + ")) bc " +
+                     "JOIN blogs b ON b.blog_id = bc.blog_id " +
+                     "LEFT JOIN users u ON b.user_id = u.user_id " +
+                     "LEFT JOIN (SELECT blog_id, SUM(vote_count) AS cnt FROM vote_counter_shards WHERE blog_id IN (" + entries + ") GROUP BY blog_id) v ON v.blog_id = b.blog_id " +
+                     "LEFT JOIN (SELECT blog_id, COUNT(*) AS cnt FROM likes WHERE blog_id IN (" + entries + ") GROUP BY blog_id) l ON l.blog_id = b.blog_id " +
+                     "LEFT JOIN (SELECT blog_id, COUNT(*) AS cnt FROM favorites WHERE blog_id IN (" + entries + ") GROUP BY blog_id) f ON f.blog_id = b.blog_id " +
+                     "LEFT JOIN (SELECT blog_id, COUNT(*) AS cnt FROM replies WHERE parentReply IS NULL AND blog_id IN (" + entries + ") GROUP BY blog_id) r ON r.blog_id = b.blog_id " +
+                     "LEFT JOIN (SELECT blog_Id AS blog_id, COUNT(*) AS cnt FROM reposts WHERE blog_Id IN (" + entries + ") GROUP BY blog_Id) p ON p.blog_id = b.blog_id " +
+                     "WHERE b.is_shielded = 0 AND (u.is_ban IS NULL OR u.is_ban = 0) " +
+                     "ORDER BY bc.challenge_id, b.blog_id";
+        // 挑战ID列表依次用于参赛关联和五个计数子查询
+        List<Object> params = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            params.addAll(challengeIds);
+        }
+        // 异常交给调用方处理：挑战结束时冻结结果不能把查询失败当作没有参赛博客
+        return queryForRows(sql, this::mapRowToBlogHeat, params.toArray());
+    }
+
+    @Override
+    public List<PetRanking> findPetRankings(int challengeId) throws SQLException {
+        // 先按博客统计票数，再按宠物汇总；参赛博客按 (挑战, 博客) 去重，已屏蔽的博客和被封禁用户的博客不计入
+        String sql = "SELECT bp.pet_id, p.pet_name, p.pet_breed, p.pet_avatar_path, " +
+                     "o.user_name AS owner_name, o.user_avatar_path AS owner_avatar, " +
+                     "COALESCE(SUM(v.cnt), 0) AS vote_count, COUNT(*) AS blog_count " +
+                     "FROM (SELECT DISTINCT bc.blog_id FROM blogchallenge bc " +
+                     "JOIN blogs b ON b.blog_id = bc.blog_id " +
+                     "LEFT JOIN users u ON b.user_id = u.user_id " +
+                     "WHERE bc.challenge_id = ? AND b.is_shielded = 0 AND (u.is_ban IS NULL OR u.is_ban = 0)) e " +
+                     "JOIN blogpet bp ON bp.blog_id = e.blog_id " +
+                     "LEFT JOIN (SELECT blog_id, SUM(vote_count) AS cnt FROM vote_counter_shards " +
+                     "WHERE blog_id IN (SELECT blog_id FROM blogchallenge WHERE challenge_id = ?) GROUP BY blog_id) v ON v.blog_id = e.blog_id " +
+                     "LEFT JOIN pets p ON p.pet_id = bp.pet_id " +
+                     "LEFT JOIN users o ON o.user_id = p.user_id " +
+                     "GROUP BY bp.pet_id, p.pet_name, p.pet_breed, p.pet_avatar_path, o.user_name, o.user_avatar_path " +
+                     "ORDER BY vote_count DESC, bp.pet_id";
+        List<PetRanking> rankings = queryForRows(sql, this::mapRowToPetRanking, challengeId, challengeId);
+        for (int i = 0; i < rankings.size(); i++) {
+            rankings.get(i).setRanking(i + 1);
+        }
+        return rankings;
+    }
+
+    private PetRanking mapRowToPetRanking(ResultSet rs) throws SQLException {
+        PetRanking ranking = new PetRanking();
+        ranking.setPetId(rs.getInt("pet_id"));
+        ranking.setPetName(rs.getString("pet_name"));
+        ranking.setPetBreed(rs.getString("pet_breed"));
+        ranking.setPetAvatarPath(rs.getString("pet_avatar_path"));
+        ranking.setOwnerName(rs.getString("owner_name"));
+        ranking.setOwnerAvatar(rs.getString("owner_avatar"));
+        ranking.setVoteCount(rs.getInt("vote_count"));
+        ranking.setBlogCount(rs.getInt("blog_count"));
+        return ranking;
+    }
+
+    private ChallengeBlogHeat mapRowToBlogHeat(ResultSet rs) throws SQLException {
+        ChallengeBlogHeat heat = new ChallengeBlogHeat();
+        heat.setChallengeId(rs.getInt("challenge_id"));
+        heat.setBlogId(rs.getInt("blog_id"));
+        heat.setBlogTitle(rs.getString("blog_title"));
+        heat.setBlogContent(rs.getString("blog_content"));
+        heat.setBlogCreateTime(rs.getTimestamp("blog_create_time"));
+        heat.setUserId(rs.getInt("user_id"));
+        heat.setUserName(rs.getString("user_name"));
+        heat.setUserAvatarPath(rs.getString("user_avatar_path"));
+        heat.setVoteCount(rs.getInt("vote_count"));
+        heat.setLikeCount(rs.getInt("like_count"));
+        heat.setFavoriteCount(rs.getInt("favorite_count"));
+        heat.setCommentCount(rs.getInt("comment_count"));
+        heat.setRepostCount(rs.getInt("repost_count"));
+        return heat;
+    }
 }
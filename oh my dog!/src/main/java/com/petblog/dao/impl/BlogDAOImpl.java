@@ -3,15 +3,28 @@ package com.petblog.dao.impl;
 
 import com.petblog.dao.BaseJdbcDAO;
 import com.petblog.dao.BlogDAO;
+import com.petblog.model.ActivityItem;
 import com.petblog.model.Blog;
+import com.petblog.model.BlogEngagement;
 import com.petblog.util.SQLExceptionHandler;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class BlogDAOImpl extends BaseJdbcDAO<Blog> implements BlogDAO {
 
+    /**
+     * 管理员博客列表中正文摘要的长度
+     */
+    private static final int ADMIN_SUMMARY_LENGTH = 200;
+
     @Override
     public void insert(Blog blog) {
         String sql = "INSERT INTO blogs (user_id, blog_title, blog_content, blog_update_time, blog_create_time, is_shielded) VALUES (?, ?, ?, ?, ?, ?)";
@@ -159,6 +172,110 @@ public class BlogDAOImpl extends BaseJdbcDAO<Blog> implements BlogDAO {
         }
     }
 
+    @Override
+    public List<Blog> findByIds(List<Integer> blogIds) {
+        if (blogIds == null || blogIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "SELECT b.blog_id, b.user_id, b.blog_title, b.blog_content, b.blog_update_time, b.blog_create_time, b.is_shielded, " +
+                     "u.user_name, u.user_avatar_path, " +
+                     "COALESCE((SELECT COUNT(*) FROM likes WHERE likes.blog_id = b.blog_id), 0) as like_count, " +
+                     "COALESCE((SELECT COUNT(*) FROM favorites WHERE favorites.blog_id = b.blog_id), 0) as favorite_count, " +
+                     "COALESCE((SELECT COUNT(*) FROM replies WHERE replies.blog_id = b.blog_id AND replies.parentReply IS NULL), 0) as comment_count, " +
+                     "COALESCE((SELECT COUNT(*) FROM reposts WHERE reposts.blog_Id = b.blog_id), 0) as repost_count " +
+                     "FROM blogs b " +
+                     "LEFT JOIN users u ON b.user_id = u.user_id " +
+                     "WHERE b.blog_id IN (" + placeholders(blogIds.size()) + ") " +
+                     "AND b.is_shielded = 0 AND (u.is_ban IS NULL OR u.is_ban = 0)";
+        try {
+            return queryForList(sql, this::mapRowToBlogWithStats, blogIds.toArray());
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "批量查询博客数据", null);
+        }
+    }
+
+    @Override
+    public List<BlogEngagement> findEngagementSince(Date since) throws SQLException {
+        return findEngagement(true, "SELECT blog_id FROM blogs WHERE blog_create_time >= ?", new Timestamp(since.getTime()));
+    }
+
+    @Override
+    public List<BlogEngagement> findEngagementByIds(List<Integer> blogIds) throws SQLException {
+        if (blogIds == null || blogIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return findEngagement(true, "SELECT blog_id FROM blogs WHERE blog_id IN (" + placeholders(blogIds.size()) + ")",
+                blogIds.toArray());
+    }
+
+    @Override
+    public List<Blog> findPageForAdmin(int offset, int limit) throws SQLException {
+        String sql = "SELECT b.blog_id, b.user_id, b.blog_title, LEFT(b.blog_content, " + ADMIN_SUMMARY_LENGTH + ") AS blog_content, " +
+                     "b.blog_update_time, b.blog_create_time, b.is_shielded, u.user_name, u.user_avatar_path " +
+                     "FROM blogs b " +
+                     "LEFT JOIN users u ON b.user_id = u.user_id " +
+                     "ORDER BY b.blog_create_time DESC, b.blog_id DESC LIMIT ? OFFSET ?";
+        return queryForList(sql, this::mapRowToBlogWithUser, limit, offset);
+    }
+
+    @Override
+    public List<BlogEngagement> findEngagementByIdsForAdmin(List<Integer> blogIds) throws SQLException {
+        if (blogIds == null || blogIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return findEngagement(false, "SELECT blog_id FROM blogs WHERE blog_id IN (" + placeholders(blogIds.size()) + ")",
+                blogIds.toArray());
+    }
+
+    @Override
+    public Map<String, Integer> findEngagementTotals() throws SQLException {
+        String visible = "SELECT b.blog_id FROM blogs b LEFT JOIN users u ON b.user_id = u.user_id " +
+                         "WHERE b.is_shielded = 0 AND (u.is_ban IS NULL OR u.is_ban = 0)";
+        String sql = "SELECT (SELECT COUNT(*) FROM (" + visible + ") vb) AS blogs, " +
+                     "(SELECT COUNT(*) FROM likes WHERE blog_id IN (" + visible + ")) AS likes, " +
+                     "(SELECT COUNT(*) FROM favorites WHERE blog_id IN (" + visible + ")) AS favorites, " +
+                     "(SELECT COUNT(*) FROM replies WHERE parentReply IS NULL AND is_visible = 1 AND blog_id IN (" + visible + ")) AS comments";
+        List<Map<String, Integer>> rows = queryForRows(sql, rs -> {
+            Map<String, Integer> totals = new LinkedHashMap<>();
+            totals.put("blogs", rs.getInt("blogs"));
+            totals.put("likes", rs.getInt("likes"));
+            totals.put("favorites", rs.getInt("favorites"));
+            totals.put("comments", rs.getInt("comments"));
+            return totals;
+        });
+        return rows.get(0);
+    }
+
+    /**
+     * 按博客范围子查询统计互动计数：各计数表先限定到范围内的博客再分组，投票数取分片计数之和，
+     * 评论数只含可见的一级评论（与 findEngagementTotals 一致）
+     * @param visibleOnly 是否只含未屏蔽且作者未封禁的博客（只影响博客范围，不影响评论的可见性过滤）
+     * @param scope 返回 blog_id 的子查询
+     * @param scopeParams 子查询参数
+     */
+    private List<BlogEngagement> findEngagement(boolean visibleOnly, String scope, Object... scopeParams) throws SQLException {
+        String sql = "SELECT b.blog_id, b.blog_create_time, " +
+                     "COALESCE(v.cnt, 0) AS vote_count, COALESCE(l.cnt, 0) AS like_count, COALESCE(f.cnt, 0) AS favorite_count, " +
+                     "COALESCE(r.cnt, 0) AS comment_count, COALESCE(p.cnt, 0) AS repost_count " +
+                     "FROM blogs b " +
+                     "LEFT JOIN users u ON b.user_id = u.user_id " +
+                     "LEFT JOIN (SELECT blog_id, SUM(vote_count) AS cnt FROM vote_counter_shards WHERE blog_id IN (" + scope + ") GROUP BY blog_id) v ON v.blog_id = b.blog_id " +
+                     "LEFT JOIN (SELECT blog_id, COUNT(*) AS cnt FROM likes WHERE blog_id IN (" + scope + ") GROUP BY blog_id) l ON l.blog_id = b.blog_id " +
+                     "LEFT JOIN (SELECT blog_id, COUNT(*) AS cnt FROM favorites WHERE blog_id IN (" + scope + ") GROUP BY blog_id) f ON f.blog_id = b.blog_id " +
+                     "LEFT JOIN (SELECT blog_id, COUNT(*) AS cnt FROM replies WHERE parentReply IS NULL AND is_visible = 1 AND blog_id IN (" + scope + ") GROUP BY blog_id) r ON r.blog_id = b.blog_id " +
+                     "LEFT JOIN (SELECT blog_Id AS blog_id, COUNT(*) AS cnt FROM reposts WHERE blog_Id IN (" + scope + ") GROUP BY blog_Id) p ON p.blog_id = b.blog_id " +
+                     "WHERE b.blog_id IN (" + scope + ")" +
+                     (visibleOnly ? " AND b.is_shielded = 0 AND (u.is_ban IS NULL OR u.is_ban = 0)" : "");
+        // 范围子查询依次用于五个计数子查询和外层条件
+        List<Object> params = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            params.addAll(Arrays.asList(scopeParams));
+        }
+        return queryForRows(sql, rs -> new BlogEngagement(rs.getInt("blog_id"), rs.getTimestamp("blog_create_time"),
+                rs.getInt("vote_count"), rs.getInt("like_count"), rs.getInt("favorite_count"),
+                rs.getInt("comment_count"), rs.getInt("repost_count")), params.toArray());
+    }
+
     /**
      * 将ResultSet映射为Blog对象（基础字段）
      */
@@ -244,5 +361,22 @@ public class BlogDAOImpl extends BaseJdbcDAO<Blog> implements BlogDAO {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "统计博客总数", 0);
         }
     }
-}
 
+    @Override
+    public List<ActivityItem> findActivities(Date beforeTime, Integer beforeId, int limit) {
+        String sql = "SELECT b.blog_id AS item_id, b.blog_title AS title, b.blog_create_time AS item_time, " +
+                     "b.user_id, u.user_name, NULL AS ref_id " +
+                     "FROM blogs b " +
+                     "LEFT JOIN users u ON b.user_id = u.user_id " +
+                     "WHERE b.is_shielded = 0 AND (u.is_ban IS NULL OR u.is_ban = 0) " +
+                     "AND NOT EXISTS (SELECT 1 FROM reposts r WHERE r.repost_id = b.blog_id) " +
+                     "AND NOT EXISTS (SELECT 1 FROM blogchallenge bc WHERE bc.blog_id = b.blog_id) " +
+                     (beforeTime != null ? ActivityQuery.cursorCondition("b.blog_create_time", "b.blog_id") : "") +
+                     "ORDER BY b.blog_create_time DESC, b.blog_id DESC LIMIT ?";
+        try {
+            return queryForRows(sql, rs -> ActivityQuery.mapRow(rs, "blog"), ActivityQuery.params(beforeTime, beforeId, limit));
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "查询动态广场博客", null);
+        }
+    }
+}
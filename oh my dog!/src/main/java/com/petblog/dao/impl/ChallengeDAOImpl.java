@@ -8,6 +8,7 @@ import com.petblog.util.SQLExceptionHandler;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.Date;
 import java.util.List;
 
@@ -123,6 +124,19 @@ public class ChallengeDAOImpl extends BaseJdbcDAO<Challenge> implements Challeng
         }
     }
 
+    @Override
+    public int startDueChallenges(Date now) {
+        String sql = "UPDATE challenges SET chellenge_status = '进行中' " +
+                     "WHERE chellenge_status = '规划中' AND challenge_start_time <= ? AND challenge_end_time > ? " +
+                     "AND (challenge_is_cancell IS NULL OR challenge_is_cancell = 0)";
+        try {
+            Timestamp time = new Timestamp(now.getTime());
+            return update(sql, time, time);
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "开始到期挑战", 0);
+        }
+    }
+
     @Override
     public int delete(Integer challengeId) {
         String sql = "DELETE FROM challenges WHERE challenge_id = ?";
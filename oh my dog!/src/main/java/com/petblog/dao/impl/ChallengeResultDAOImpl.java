@@ -0,0 +1,154 @@
+package com.petblog.dao.impl;
+
+import com.petblog.dao.BaseJdbcDAO;
+import com.petblog.dao.ChallengeResultDAO;
+import com.petblog.model.ChallengeBlogHeat;
+import com.petblog.model.PetRanking;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ChallengeResultDAO接口的JDBC实现类
+ * 结果写入 challenge_results（每个挑战一行）、challenge_blog_results 和 challenge_pet_results 三张表
+ */
+public class ChallengeResultDAOImpl extends BaseJdbcDAO<ChallengeBlogHeat> implements ChallengeResultDAO {
+
+    /**
+     * 多行插入时每条语句的行数
+     */
+    private static final int INSERT_CHUNK = 500;
+
+    @Override
+    public List<Integer> findChallengesToFinalize(Date now, int limit) throws SQLException {
+        String sql = "SELECT c.challenge_id FROM challenges c " +
+                     "LEFT JOIN challenge_results r ON r.challenge_id = c.challenge_id " +
+                     "WHERE c.challenge_end_time <= ? AND r.challenge_id IS NULL " +
+                     "AND (c.challenge_is_cancell IS NULL OR c.challenge_is_cancell = 0) " +
+                     "ORDER BY c.challenge_end_time, c.challenge_id LIMIT ?";
+        return queryForRows(sql, rs -> rs.getInt("challenge_id"), new Timestamp(now.getTime()), limit);
+    }
+
+    @Override
+    public boolean saveResults(int challengeId, int heat, List<ChallengeBlogHeat> blogs, List<PetRanking> pets) throws SQLException {
+        return inTransaction(conn -> {
+            // 主键保证只保存一次：多个实例同时处理同一挑战时，后到的插入不生效并直接返回
+            int inserted = executeUpdate(conn, "INSERT IGNORE INTO challenge_results " +
+                    "(challenge_id, heat, blog_count, pet_count, finalized_time) VALUES (?, ?, ?, ?, ?)",
+                    challengeId, heat, blogs.size(), pets.size(), new Timestamp(System.currentTimeMillis()));
+            if (inserted == 0) {
+                return false;
+            }
+            List<Object[]> blogRows = new ArrayList<>(blogs.size());
+            for (int i = 0; i < blogs.size(); i++) {
+                ChallengeBlogHeat blog = blogs.get(i);
+                blogRows.add(new Object[]{challengeId, blog.getBlogId(), i + 1, blog.getVoteCount(), blog.getLikeCount(),
+                        blog.getFavoriteCount(), blog.getCommentCount(), blog.getRepostCount(), blog.getHeat()});
+            }
+            insertRows(conn, "INSERT INTO challenge_blog_results (challenge_id, blog_id, ranking, vote_count, like_count, " +
+                    "favorite_count, comment_count, repost_count, heat) VALUES ", 9, blogRows);
+            List<Object[]> petRows = new ArrayList<>(pets.size());
+            for (PetRanking pet : pets) {
+                petRows.add(new Object[]{challengeId, pet.getPetId(), pet.getRanking(), pet.getVoteCount(), pet.getBlogCount()});
+            }
+            insertRows(conn, "INSERT INTO challenge_pet_results (challenge_id, pet_id, ranking, vote_count, blog_count) VALUES ",
+                    5, petRows);
+            executeUpdate(conn, "UPDATE challenges SET chellenge_status = '已结束' WHERE challenge_id = ?", challengeId);
+            return true;
+        });
+    }
+
+    @Override
+    public Map<Integer, Integer> findHeats(List<Integer> challengeIds) throws SQLException {
+        Map<Integer, Integer> heats = new HashMap<>();
+        if (challengeIds == null || challengeIds.isEmpty()) {
+            return heats;
+        }
+        String sql = "SELECT challenge_id, heat FROM challenge_results WHERE challenge_id IN (" +
+                     placeholders(challengeIds.size()) + ")";
+        for (int[] row : queryForRows(sql, rs -> new int[]{rs.getInt("challenge_id"), rs.getInt("heat")},
+                challengeIds.toArray())) {
+            heats.put(row[0], row[1]);
+        }
+        return heats;
+    }
+
+    @Override
+    public List<ChallengeBlogHeat> findBlogResults(int challengeId) throws SQLException {
+        String sql = "SELECT r.challenge_id, r.blog_id, b.blog_title, b.blog_content, b.blog_create_time, b.user_id, " +
+                     "u.user_name, u.user_avatar_path, r.vote_count, r.like_count, r.favorite_count, " +
+                     "r.comment_count, r.repost_count, r.heat " +
+                     "FROM challenge_blog_results r " +
+                     "JOIN blogs b ON b.blog_id = r.blog_id " +
+                     "LEFT JOIN users u ON b.user_id = u.user_id " +
+                     "WHERE r.challenge_id = ? ORDER BY r.ranking";
+        return queryForRows(sql, this::mapRowToBlogHeat, challengeId);
+    }
+
+    @Override
+    public Integer findLatestFinalizedChallengeId() throws SQLException {
+        String sql = "SELECT challenge_id FROM challenge_results ORDER BY finalized_time DESC, challenge_id DESC LIMIT 1";
+        List<Integer> ids = queryForRows(sql, rs -> rs.getInt("challenge_id"));
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    @Override
+    public List<PetRanking> findPetResults(int challengeId) throws SQLException {
+        String sql = "SELECT r.ranking, r.pet_id, p.pet_name, p.pet_breed, p.pet_avatar_path, " +
+                     "o.user_name AS owner_name, o.user_avatar_path AS owner_avatar, r.vote_count, r.blog_count " +
+                     "FROM challenge_pet_results r " +
+                     "LEFT JOIN pets p ON p.pet_id = r.pet_id " +
+                     "LEFT JOIN users o ON o.user_id = p.user_id " +
+                     "WHERE r.challenge_id = ? ORDER BY r.ranking";
+        return queryForRows(sql, rs -> new PetRanking(rs.getInt("ranking"), rs.getInt("pet_id"), rs.getString("pet_name"),
+                rs.getString("pet_breed"), rs.getString("pet_avatar_path"), rs.getString("owner_name"),
+                rs.getString("owner_avatar"), rs.getInt("vote_count"), rs.getInt("blog_count")), challengeId);
+    }
+
+    /**
+     * 分块执行多行插入
+     * @param prefix "INSERT INTO ... VALUES " 前缀
+     * @param columns 每行的列数
+     */
+    private void insertRows(Connection conn, String prefix, int columns, List<Object[]> rows) throws SQLException {
+        String row = "(" + placeholders(columns) + ")";
+        for (int from = 0; from < rows.size(); from += INSERT_CHUNK) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + INSERT_CHUNK, rows.size()));
+            StringBuilder sql = new StringBuilder(prefix);
+            List<Object> params = new ArrayList<>(chunk.size() * columns);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append(row);
+                for (Object value : chunk.get(i)) {
+                    params.add(value);
+                }
+            }
+            executeUpdate(conn, sql.toString(), params.toArray());
+        }
+    }
+
+    private ChallengeBlogHeat mapRowToBlogHeat(ResultSet rs) throws SQLException {
+        ChallengeBlogHeat heat = new ChallengeBlogHeat();
+        heat.setChallengeId(rs.getInt("challenge_id"));
+        heat.setBlogId(rs.getInt("blog_id"));
+        heat.setBlogTitle(rs.getString("blog_title"));
+        heat.setBlogContent(rs.getString("blog_content"));
+        heat.setBlogCreateTime(rs.getTimestamp("blog_create_time"));
+        heat.setUserId(rs.getInt("user_id"));
+        heat.setUserName(rs.getString("user_name"));
+        heat.setUserAvatarPath(rs.getString("user_avatar_path"));
+        heat.setVoteCount(rs.getInt("vote_count"));
+        heat.setLikeCount(rs.getInt("like_count"));
+        heat.setFavoriteCount(rs.getInt("favorite_count"));
+        heat.setCommentCount(rs.getInt("comment_count"));
+        heat.setRepostCount(rs.getInt("repost_count"));
+        heat.setHeat(rs.getInt("heat"));
+        return heat;
+    }
+}
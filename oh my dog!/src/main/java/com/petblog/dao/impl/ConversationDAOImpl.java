@@ -0,0 +1,71 @@
+package com.petblog.dao.impl;
+
+import com.petblog.dao.BaseJdbcDAO;
+import com.petblog.dao.ConversationDAO;
+import com.petblog.model.Conversation;
+import com.petblog.util.SQLExceptionHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * ConversationDAO接口的JDBC实现类
+ * 会话按 (user_low, user_high) 存一行，用户作为较小ID一方和较大ID一方分别走
+ * (user_low, last_time, user_high) 和 (user_high, last_time, user_low) 两个索引做键集扫描，再合并取一页。
+ */
+public class ConversationDAOImpl extends BaseJdbcDAO<Conversation> implements ConversationDAO {
+
+    @Override
+    public List<Conversation> findByUserId(Integer userId, Date beforeTime, Integer beforePeerId, int limit) {
+        String lowSide = "SELECT c.user_high AS peer_id, c.last_message_id, c.last_time, c.unread_low AS unread_count " +
+                         "FROM conversations c WHERE c.user_low = ? " +
+                         (beforeTime != null ? "AND (c.last_time < ? OR (c.last_time = ? AND c.user_high < ?)) " : "") +
+                         "ORDER BY c.last_time DESC, c.user_high DESC LIMIT ?";
+        String highSide = "SELECT c.user_low AS peer_id, c.last_message_id, c.last_time, c.unread_high AS unread_count " +
+                          "FROM conversations c WHERE c.user_high = ? AND c.user_low <> c.user_high " +
+                          (beforeTime != null ? "AND (c.last_time < ? OR (c.last_time = ? AND c.user_low < ?)) " : "") +
+                          "ORDER BY c.last_time DESC, c.user_low DESC LIMIT ?";
+        String sql = "SELECT p.peer_id, p.last_message_id, p.last_time, p.unread_count, " +
+                     "u.user_name, u.user_avatar_path, m.sender_id, m.message_content " +
+                     "FROM ((" + lowSide + ") UNION ALL (" + highSide + ")) p " +
+                     "LEFT JOIN users u ON u.user_id = p.peer_id " +
+                     "LEFT JOIN message m ON m.message_id = p.last_message_id " +
+                     "ORDER BY p.last_time DESC, p.peer_id DESC LIMIT ?";
+
+        List<Object> sideParams = new ArrayList<>();
+        sideParams.add(userId);
+        if (beforeTime != null) {
+            Timestamp cursor = new Timestamp(beforeTime.getTime());
+            sideParams.add(cursor);
+            sideParams.add(cursor);
+            sideParams.add(beforePeerId != null ? beforePeerId : Integer.MAX_VALUE);
+        }
+        sideParams.add(limit);
+        List<Object> params = new ArrayList<>(sideParams);
+        params.addAll(sideParams);
+        params.add(limit);
+        try {
+            return queryForList(sql, this::mapRowToConversation, params.toArray());
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "分页查询用户会话列表", new ArrayList<>());
+        }
+    }
+
+    private Conversation mapRowToConversation(ResultSet rs) throws SQLException {
+        Conversation conversation = new Conversation();
+        conversation.setPeerId(rs.getInt("peer_id"));
+        conversation.setPeerName(rs.getString("user_name"));
+        conversation.setPeerAvatarPath(rs.getString("user_avatar_path"));
+        conversation.setLastMessageId(rs.getInt("last_message_id"));
+        conversation.setLastSenderId(rs.getObject("sender_id", Integer.class));
+        conversation.setLastMessageContent(rs.getString("message_content"));
+        Timestamp lastTime = rs.getTimestamp("last_time");
+        conversation.setLastTime(lastTime != null ? new Date(lastTime.getTime()) : null);
+        conversation.setUnreadCount(rs.getInt("unread_count"));
+        return conversation;
+    }
+}
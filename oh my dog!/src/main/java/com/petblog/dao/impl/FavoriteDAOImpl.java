@@ -4,13 +4,21 @@ package com.petblog.dao.impl;
 import com.petblog.dao.BaseJdbcDAO;
 import com.petblog.dao.FavoriteDAO;
 import com.petblog.model.Favorite;
+import com.petblog.model.InteractedBlog;
+import com.petblog.model.ToggleResult;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class FavoriteDAOImpl extends BaseJdbcDAO<Integer> implements FavoriteDAO {
 
+    private static final InteractedBlogQuery FAVORITED_BLOGS_QUERY = new InteractedBlogQuery("favorites", "favorite_time");
+
     @Override
     public List<Integer> findBlogIdsByUserId(Integer userId, int pageNum, int pageSize) {
         String sql = "SELECT blog_id FROM favorites WHERE user_id = ? ORDER BY favorite_time DESC LIMIT ? OFFSET ?";
@@ -115,4 +123,51 @@ public class FavoriteDAOImpl extends BaseJdbcDAO<Integer> implements FavoriteDAO
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "删除博客的所有收藏记录", 0);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public ToggleResult toggle(Integer userId, Integer blogId) {
+        try {
+            return toggle("DELETE FROM favorites WHERE user_id = ? AND blog_id = ?", new Object[]{userId, blogId},
+                    "INSERT IGNORE INTO favorites (user_id, blog_id, favorite_time) VALUES (?, ?, NOW())", new Object[]{userId, blogId},
+                    "SELECT COUNT(*) FROM favorites WHERE blog_id = ?", new Object[]{blogId});
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "切换博客收藏状态", null);
+        }
+    }
+
+    @Override
+    public Set<Integer> findFavoritedBlogIds(Integer userId, List<Integer> blogIds) {
+        if (blogIds == null || blogIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sql = "SELECT blog_id FROM favorites WHERE user_id = ? AND blog_id IN (" + placeholders(blogIds.size()) + ")";
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        params.addAll(blogIds);
+        try {
+            return queryForIdSet(sql, params.toArray());
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "批量检查用户收藏的博客", new HashSet<>());
+        }
+    }
+
+    @Override
+    public Set<Integer> findAllBlogIdsByUserId(Integer userId) {
+        String sql = "SELECT blog_id FROM favorites WHERE user_id = ?";
+        try {
+            return queryForIdSet(sql, userId);
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "查询用户收藏的全部博客ID", null);
+        }
+    }
+
+    @Override
+    public List<InteractedBlog> findFavoritedBlogs(Integer userId, Date beforeTime, Integer beforeBlogId, int limit) {
+        try {
+            return queryForRows(FAVORITED_BLOGS_QUERY.sql(beforeTime), InteractedBlogQuery::mapRow,
+                    FAVORITED_BLOGS_QUERY.params(userId, beforeTime, beforeBlogId, limit));
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "分页查询用户收藏的博客", new ArrayList<>());
+        }
+    }
+}
@@ -3,10 +3,13 @@ package com.petblog.dao.impl;
 import com.petblog.dao.BaseJdbcDAO;
 import com.petblog.dao.FollowDAO;
 import com.petblog.model.Follow;
+import com.petblog.model.ToggleResult;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FollowDAOImpl extends BaseJdbcDAO<Integer> implements FollowDAO {
 
@@ -42,6 +45,18 @@ public class FollowDAOImpl extends BaseJdbcDAO<Integer> implements FollowDAO {
         }
     }
 
+    @Override
+    public List<Integer> findFollowingIdsByOffset(Integer userId, int offset, int limit) throws SQLException {
+        String sql = "SELECT followee_id FROM follows WHERE follower_id = ? ORDER BY followee_id LIMIT ? OFFSET ?";
+        return queryForRows(sql, rs -> rs.getInt("followee_id"), userId, limit, offset);
+    }
+
+    @Override
+    public List<Integer> findFollowerIdsByOffset(Integer userId, int offset, int limit) throws SQLException {
+        String sql = "SELECT follower_id FROM follows WHERE followee_id = ? ORDER BY follower_id LIMIT ? OFFSET ?";
+        return queryForRows(sql, rs -> rs.getInt("follower_id"), userId, limit, offset);
+    }
+
     @Override
     public int countFollowing(Integer userId) {
         String sql = "SELECT COUNT(*) FROM follows WHERE follower_id = ?";
@@ -64,6 +79,21 @@ public class FollowDAOImpl extends BaseJdbcDAO<Integer> implements FollowDAO {
         }
     }
 
+    @Override
+    public Map<Integer, Integer> countFollowersByIds(List<Integer> userIds) throws SQLException {
+        Map<Integer, Integer> counts = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return counts;
+        }
+        String sql = "SELECT followee_id, COUNT(*) AS cnt FROM follows WHERE followee_id IN (" +
+                     placeholders(userIds.size()) + ") GROUP BY followee_id";
+        for (int[] row : queryForRows(sql, rs -> new int[]{rs.getInt("followee_id"), rs.getInt("cnt")},
+                userIds.toArray())) {
+            counts.put(row[0], row[1]);
+        }
+        return counts;
+    }
+
     @Override
     public boolean isFollowing(Integer fromUserId, Integer toUserId) {
         String sql = "SELECT COUNT(*) FROM follows WHERE follower_id = ? AND followee_id = ?";
@@ -114,4 +144,15 @@ public class FollowDAOImpl extends BaseJdbcDAO<Integer> implements FollowDAO {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "删除用户的所有粉丝关系", 0);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public ToggleResult toggle(Integer fromUserId, Integer toUserId) {
+        try {
+            return toggle("DELETE FROM follows WHERE follower_id = ? AND followee_id = ?", new Object[]{fromUserId, toUserId},
+                    "INSERT IGNORE INTO follows (follower_id, followee_id, follow_time) VALUES (?, ?, NOW())", new Object[]{fromUserId, toUserId},
+                    "SELECT COUNT(*) FROM follows WHERE followee_id = ?", new Object[]{toUserId});
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "切换关注状态", null);
+        }
+    }
+}
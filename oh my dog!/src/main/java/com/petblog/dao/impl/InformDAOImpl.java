@@ -6,12 +6,16 @@ import com.petblog.dao.InformDAO;
 import com.petblog.model.Inform;
 import com.petblog.util.JdbcUtil;
 import com.petblog.util.SQLExceptionHandler;
+import com.petblog.util.UnreadCounterCache;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class InformDAOImpl extends BaseJdbcDAO<Inform> implements InformDAO {
 
@@ -70,9 +74,21 @@ public class InformDAOImpl extends BaseJdbcDAO<Inform> implements InformDAO {
     @Override
     public int insert(Inform inform) {
         String sql = "INSERT INTO informs (user_id, inform_type, inform_time, inform_content, is_readed) VALUES (?, ?, ?, ?, ?)";
+        boolean unread = isUnread(inform);
         try {
-            return insert(sql, inform.getUserId(), inform.getInformType(),
-                         inform.getInformTime(), inform.getInformContent(), inform.getIsReaded());
+            // 通知和接收方未读计数在同一事务中写入
+            int id = inTransaction(conn -> {
+                int informId = executeInsert(conn, sql, inform.getUserId(), inform.getInformType(),
+                        inform.getInformTime(), inform.getInformContent(), inform.getIsReaded());
+                if (informId > 0 && unread) {
+                    UnreadCounterDAOImpl.add(conn, UnreadCounterDAOImpl.INFORMS, inform.getUserId(), 1);
+                }
+                return informId;
+            });
+            if (id > 0 && unread) {
+                UnreadCounterCache.invalidate(inform.getUserId());
+            }
+            return id;
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "插入通知", 0);
         }
@@ -93,7 +109,7 @@ public class InformDAOImpl extends BaseJdbcDAO<Inform> implements InformDAO {
             for (Inform inform : informs) {
                 pstmt.setInt(1, inform.getUserId());
                 pstmt.setString(2, inform.getInformType());
-                pstmt.setDate(3, new java.sql.Date(inform.getInformTime().getTime()));
+                pstmt.setTimestamp(3, new Timestamp(inform.getInformTime().getTime()));
                 pstmt.setString(4, inform.getInformContent());
                 pstmt.setInt(5, inform.getIsReaded());
                 pstmt.addBatch();
@@ -104,7 +120,21 @@ public class InformDAOImpl extends BaseJdbcDAO<Inform> implements InformDAO {
                 if (result > 0) count++;
             }
 
+            // 按接收方汇总未读条数，同一事务内累加计数
+            Map<Integer, Integer> unreadByUser = new HashMap<>();
+            for (Inform inform : informs) {
+                if (isUnread(inform)) {
+                    unreadByUser.merge(inform.getUserId(), 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : unreadByUser.entrySet()) {
+                UnreadCounterDAOImpl.add(conn, UnreadCounterDAOImpl.INFORMS, entry.getKey(), entry.getValue());
+            }
+
             conn.commit();
+            for (Map.Entry<Integer, Integer> entry : unreadByUser.entrySet()) {
+                UnreadCounterCache.invalidate(entry.getKey());
+            }
             return count;
         } catch (SQLException e) {
             try {
@@ -127,7 +157,22 @@ public class InformDAOImpl extends BaseJdbcDAO<Inform> implements InformDAO {
     public int markAsRead(Integer informId) {
         String sql = "UPDATE informs SET is_readed = 1 WHERE inform_id = ?";
         try {
-            return update(sql, informId);
+            // 原先未读时记录接收方ID，提交后更新缓存
+            int[] unreadOwner = {0};
+            int updated = inTransaction(conn -> {
+                Inform inform = queryFirst(conn, "SELECT inform_id, user_id, inform_type, inform_time, inform_content, is_readed " +
+                        "FROM informs WHERE inform_id = ? FOR UPDATE", this::mapRowToInform, informId);
+                int result = executeUpdate(conn, sql, informId);
+                if (inform != null && isUnread(inform)) {
+                    UnreadCounterDAOImpl.add(conn, UnreadCounterDAOImpl.INFORMS, inform.getUserId(), -1);
+                    unreadOwner[0] = inform.getUserId();
+                }
+                return result;
+            });
+            if (unreadOwner[0] != 0) {
+                UnreadCounterCache.invalidate(unreadOwner[0]);
+            }
+            return updated;
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "标记通知为已读", 0);
         }
@@ -137,7 +182,13 @@ public class InformDAOImpl extends BaseJdbcDAO<Inform> implements InformDAO {
     public int markAllAsRead(Integer userId) {
         String sql = "UPDATE informs SET is_readed = 1 WHERE user_id = ? AND is_readed = 0";
         try {
-            return update(sql, userId);
+            int updated = inTransaction(conn -> {
+                int result = executeUpdate(conn, sql, userId);
+                UnreadCounterDAOImpl.reset(conn, UnreadCounterDAOImpl.INFORMS, userId);
+                return result;
+            });
+            UnreadCounterCache.invalidate(userId);
+            return updated;
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "标记用户所有通知为已读", 0);
         }
@@ -145,12 +196,10 @@ public class InformDAOImpl extends BaseJdbcDAO<Inform> implements InformDAO {
 
     @Override
     public int delete(Integer informId) {
-        String sql = "DELETE FROM informs WHERE inform_id = ?";
-        try {
-            return delete(sql, informId);
-        } catch (SQLException e) {
-            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "删除通知", 0);
+        if (informId == null) {
+            return 0;
         }
+        return batchDelete(List.of(informId));
     }
 
     @Override
@@ -170,7 +219,25 @@ public class InformDAOImpl extends BaseJdbcDAO<Inform> implements InformDAO {
 
         try {
             Object[] params = informIds.toArray();
-            return update(sql.toString(), params);
+            // 先统计被删除的未读通知所属的用户，删除后在同一事务内扣减计数
+            Map<Integer, Integer> unreadByUser = new HashMap<>();
+            int deleted = inTransaction(conn -> {
+                List<Integer> unreadOwners = queryForRows(conn, "SELECT user_id FROM informs WHERE inform_id IN (" +
+                        placeholders(informIds.size()) + ") AND is_readed = 0 FOR UPDATE",
+                        rs -> rs.getInt("user_id"), params);
+                int result = executeUpdate(conn, sql.toString(), params);
+                for (Integer owner : unreadOwners) {
+                    unreadByUser.merge(owner, 1, Integer::sum);
+                }
+                for (Map.Entry<Integer, Integer> entry : unreadByUser.entrySet()) {
+                    UnreadCounterDAOImpl.add(conn, UnreadCounterDAOImpl.INFORMS, entry.getKey(), -entry.getValue());
+                }
+                return result;
+            });
+            for (Map.Entry<Integer, Integer> entry : unreadByUser.entrySet()) {
+                UnreadCounterCache.invalidate(entry.getKey());
+            }
+            return deleted;
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "批量删除通知", 0);
         }
@@ -180,12 +247,25 @@ public class InformDAOImpl extends BaseJdbcDAO<Inform> implements InformDAO {
     public int clearAllByUserId(Integer userId) {
         String sql = "DELETE FROM informs WHERE user_id = ?";
         try {
-            return delete(sql, userId);
+            int deleted = inTransaction(conn -> {
+                int result = executeUpdate(conn, sql, userId);
+                UnreadCounterDAOImpl.reset(conn, UnreadCounterDAOImpl.INFORMS, userId);
+                return result;
+            });
+            UnreadCounterCache.invalidate(userId);
+            return deleted;
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "清空用户所有通知", 0);
         }
     }
 
+    /**
+     * 通知是否计入接收方的未读数
+     */
+    private static boolean isUnread(Inform inform) {
+        return inform.getUserId() != null && Integer.valueOf(0).equals(inform.getIsReaded());
+    }
+
     private Inform mapRowToInform(ResultSet rs) throws SQLException {
         Inform inform = new Inform();
         inform.setInformId(rs.getInt("inform_id"));
@@ -0,0 +1,92 @@
+package com.petblog.dao.impl;
+
+import com.petblog.model.InteractedBlog;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 点赞列表、收藏列表共用的联表分页查询
+ * 内层按 (互动时间, 博客ID) 倒序做键集分页，只取一页博客；外层再联表取作者信息和计数，
+ * 计数子查询只针对当前页执行。
+ */
+class InteractedBlogQuery {
+
+    private final String sql;
+    private final String sqlWithCursor;
+
+    /**
+     * @param table 互动表（likes / favorites）
+     * @param timeColumn 互动时间列（like_time / favorite_time）
+     */
+    InteractedBlogQuery(String table, String timeColumn) {
+        this.sql = build(table, timeColumn, false);
+        this.sqlWithCursor = build(table, timeColumn, true);
+    }
+
+    /**
+     * @param beforeTime 游标：上一页最后一条的互动时间，为null时查询第一页
+     */
+    String sql(Date beforeTime) {
+        return beforeTime != null ? sqlWithCursor : sql;
+    }
+
+    /**
+     * @param beforeBlogId 游标：上一页最后一条的博客ID（与 beforeTime 一起使用）
+     */
+    Object[] params(Integer userId, Date beforeTime, Integer beforeBlogId, int limit) {
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        if (beforeTime != null) {
+            Timestamp cursor = new Timestamp(beforeTime.getTime());
+            params.add(cursor);
+            params.add(cursor);
+            params.add(beforeBlogId != null ? beforeBlogId : Integer.MAX_VALUE);
+        }
+        params.add(limit);
+        return params.toArray();
+    }
+
+    static InteractedBlog mapRow(ResultSet rs) throws SQLException {
+        InteractedBlog blog = new InteractedBlog();
+        blog.setBlogId(rs.getInt("blog_id"));
+        blog.setUserId(rs.getInt("user_id"));
+        blog.setBlogTitle(rs.getString("blog_title"));
+        blog.setBlogContent(rs.getString("blog_content"));
+        blog.setBlogCreateTime(rs.getTimestamp("blog_create_time"));
+        blog.setUserName(rs.getString("user_name"));
+        blog.setUserAvatarPath(rs.getString("user_avatar_path"));
+        blog.setLikeCount(rs.getInt("like_count"));
+        blog.setFavoriteCount(rs.getInt("favorite_count"));
+        blog.setCommentCount(rs.getInt("comment_count"));
+        blog.setRepostCount(rs.getInt("repost_count"));
+        blog.setInteractionTime(rs.getTimestamp("interaction_time"));
+        return blog;
+    }
+
+    private static String build(String table, String timeColumn, boolean withCursor) {
+        return "SELECT p.blog_id, p.interaction_time, b.user_id, b.blog_title, b.blog_content, b.blog_create_time, " +
+               "u.user_name, u.user_avatar_path, " +
+               "(SELECT COUNT(*) FROM likes WHERE likes.blog_id = p.blog_id) AS like_count, " +
+               "(SELECT COUNT(*) FROM favorites WHERE favorites.blog_id = p.blog_id) AS favorite_count, " +
+               "(SELECT COUNT(*) FROM replies WHERE replies.blog_id = p.blog_id AND replies.parentReply IS NULL) AS comment_count, " +
+               "(SELECT COUNT(*) FROM reposts WHERE reposts.blog_Id = p.blog_id) AS repost_count " +
+               "FROM (" +
+               "SELECT x.blog_id, x." + timeColumn + " AS interaction_time " +
+               "FROM " + table + " x " +
+               "JOIN blogs b ON b.blog_id = x.blog_id " +
+               "LEFT JOIN users u ON u.user_id = b.user_id " +
+               "WHERE x.user_id = ? AND b.is_shielded = 0 AND (u.is_ban IS NULL OR u.is_ban = 0) " +
+               (withCursor ? "AND (x." + timeColumn + " < ? OR (x." + timeColumn + " = ? AND x.blog_id < ?)) " : "") +
+               "ORDER BY x." + timeColumn + " DESC, x.blog_id DESC " +
+               "LIMIT ?" +
+               ") p " +
+               "JOIN blogs b ON b.blog_id = p.blog_id " +
+               "LEFT JOIN users u ON u.user_id = b.user_id " +
+               "ORDER BY p.interaction_time DESC, p.blog_id DESC";
+    }
+}
@@ -1,16 +1,25 @@
 package com.petblog.dao.impl;
 
+import com.petblog.dao.BaseJdbcDAO;
 import com.petblog.dao.LikeDAO;
 import com.petblog.model.Like;
+import com.petblog.model.InteractedBlog;
+import com.petblog.model.ToggleResult;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * LikeDAO接口的JDBC实现类
+ * 切换操作（toggle）使用连接池中的独立连接开启短事务，不占用构造时传入的共享连接
  */
-public class LikeDAOImpl implements LikeDAO {
+public class LikeDAOImpl extends BaseJdbcDAO<Integer> implements LikeDAO {
+
+    private static final InteractedBlogQuery LIKED_BLOGS_QUERY = new InteractedBlogQuery("likes", "like_time");
 
     private final Connection connection;
 
@@ -157,4 +166,51 @@ public class LikeDAOImpl implements LikeDAO {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "删除博客的所有点赞记录", 0);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public ToggleResult toggle(Integer userId, Integer blogId) {
+        try {
+            return toggle("DELETE FROM likes WHERE user_id = ? AND blog_id = ?", new Object[]{userId, blogId},
+                    "INSERT IGNORE INTO likes (user_id, blog_id, like_time) VALUES (?, ?, NOW())", new Object[]{userId, blogId},
+                    "SELECT COUNT(*) FROM likes WHERE blog_id = ?", new Object[]{blogId});
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "切换点赞状态", null);
+        }
+    }
+
+    @Override
+    public Set<Integer> findLikedBlogIds(Integer userId, List<Integer> blogIds) {
+        if (blogIds == null || blogIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sql = "SELECT blog_id FROM likes WHERE user_id = ? AND blog_id IN (" + placeholders(blogIds.size()) + ")";
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        params.addAll(blogIds);
+        try {
+            return queryForIdSet(sql, params.toArray());
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "批量检查用户点赞的博客", new HashSet<>());
+        }
+    }
+
+    @Override
+    public Set<Integer> findAllBlogIdsByUserId(Integer userId) {
+        String sql = "SELECT blog_id FROM likes WHERE user_id = ?";
+        try {
+            return queryForIdSet(sql, userId);
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "查询用户点赞的全部博客ID", null);
+        }
+    }
+
+    @Override
+    public List<InteractedBlog> findLikedBlogs(Integer userId, Date beforeTime, Integer beforeBlogId, int limit) {
+        try {
+            return queryForRows(LIKED_BLOGS_QUERY.sql(beforeTime), InteractedBlogQuery::mapRow,
+                    LIKED_BLOGS_QUERY.params(userId, beforeTime, beforeBlogId, limit));
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "分页查询用户点赞的博客", new ArrayList<>());
+        }
+    }
+}
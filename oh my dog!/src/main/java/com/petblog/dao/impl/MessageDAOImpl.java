@@ -5,8 +5,12 @@ import com.petblog.dao.BaseJdbcDAO;
 import com.petblog.dao.MessageDAO;
 import com.petblog.model.Message;
 import com.petblog.util.SQLExceptionHandler;
+import com.petblog.util.UnreadCounterCache;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -24,7 +28,15 @@ public class MessageDAOImpl extends BaseJdbcDAO<Message> implements MessageDAO {
 
     @Override
     public List<Message> findConversationList(Integer userId) {
-        String sql = "SELECT sender_id, receiver_id, message_id, message_content, creation_time, update_time, is_withdraw, is_read FROM message WHERE sender_id = ? OR receiver_id = ? GROUP BY sender_id, receiver_id ORDER BY creation_time DESC";
+        // 通过会话表取每个会话的最后一条消息，两侧分别走 (user_low, ...) 和 (user_high, ...) 索引
+        String sql = "SELECT m.sender_id, m.receiver_id, m.message_id, m.message_content, m.creation_time, m.update_time, m.is_withdraw, m.is_read " +
+                     "FROM conversations c JOIN message m ON m.message_id = c.last_message_id " +
+                     "WHERE c.user_low = ? " +
+                     "UNION ALL " +
+                     "SELECT m.sender_id, m.receiver_id, m.message_id, m.message_content, m.creation_time, m.update_time, m.is_withdraw, m.is_read " +
+                     "FROM conversations c JOIN message m ON m.message_id = c.last_message_id " +
+                     "WHERE c.user_high = ? AND c.user_low <> c.user_high " +
+                     "ORDER BY creation_time DESC";
         try {
             return queryForList(sql, this::mapRowToMessage, userId, userId);
         } catch (SQLException e) {
@@ -32,19 +44,69 @@ public class MessageDAOImpl extends BaseJdbcDAO<Message> implements MessageDAO {
         }
     }
 
+    /**
+     * 页码方式按时间正序翻页，归档后的旧私信也要计入页码：热表和归档表各取前 offset + pageSize 条（走 (user_low, user_high, creation_time) 索引），
+     * 合并排序后再取这一页
+     */
     @Override
     public List<Message> findChatRecords(Integer fromUserId, Integer toUserId, int pageNum, int pageSize) {
-        String sql = "SELECT sender_id, receiver_id, message_id, message_content, creation_time, update_time, is_withdraw, is_read FROM message WHERE (sender_id = ? AND receiver_id = ?) OR (sender_id = ? AND receiver_id = ?) ORDER BY creation_time ASC LIMIT ? OFFSET ?";
+        String columns = "SELECT sender_id, receiver_id, message_id, message_content, creation_time, update_time, is_withdraw, is_read FROM ";
+        String where = " WHERE user_low = ? AND user_high = ? ORDER BY creation_time ASC, message_id ASC LIMIT ?";
+        String sql = "SELECT * FROM ((" + columns + "message" + where + ") UNION ALL (" + columns + "message_archive" + where + ")) t " +
+                     "ORDER BY creation_time ASC, message_id ASC LIMIT ? OFFSET ?";
+        int low = Math.min(fromUserId, toUserId);
+        int high = Math.max(fromUserId, toUserId);
+        int offset = (pageNum - 1) * pageSize;
         try {
-            return queryForList(sql, this::mapRowToMessage, fromUserId, toUserId, toUserId, fromUserId, pageSize, (pageNum - 1) * pageSize);
+            return queryForList(sql, this::mapRowToMessage, low, high, offset + pageSize, low, high, offset + pageSize,
+                    pageSize, offset);
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "查询聊天记录", null);
         }
     }
 
+    @Override
+    public List<Message> findChatHistory(Integer userId1, Integer userId2, Date beforeTime, Integer beforeMessageId, int limit) {
+        return findHistory("message", "查询聊天记录", userId1, userId2, beforeTime, beforeMessageId, limit);
+    }
+
+    @Override
+    public List<Message> findArchivedChatHistory(Integer userId1, Integer userId2, Date beforeTime, Integer beforeMessageId, int limit) {
+        return findHistory("message_archive", "查询归档聊天记录", userId1, userId2, beforeTime, beforeMessageId, limit);
+    }
+
+    @Override
+    public int archiveOlderThan(Date before, int batchSize) {
+        // 只归档已读（或发给自己）的消息，未读计数和会话未读数不受影响；会话的最后一条消息留在热表供会话列表关联
+        String selectSql = "SELECT m.message_id FROM message m " +
+                           "WHERE m.creation_time < ? AND (m.is_read = 1 OR m.sender_id = m.receiver_id) " +
+                           "AND NOT EXISTS (SELECT 1 FROM conversations c WHERE c.user_low = m.user_low " +
+                           "AND c.user_high = m.user_high AND c.last_message_id = m.message_id) " +
+                           "ORDER BY m.creation_time, m.message_id LIMIT ? FOR UPDATE";
+        try {
+            return inTransaction(conn -> {
+                List<Integer> ids = queryForRows(conn, selectSql, rs -> rs.getInt("message_id"),
+                        new Timestamp(before.getTime()), batchSize);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                Object[] params = ids.toArray();
+                String in = placeholders(ids.size());
+                executeUpdate(conn, "INSERT IGNORE INTO message_archive (message_id, user_low, user_high, sender_id, receiver_id, " +
+                        "message_content, creation_time, update_time, is_withdraw, is_read) " +
+                        "SELECT message_id, user_low, user_high, sender_id, receiver_id, message_content, creation_time, " +
+                        "update_time, is_withdraw, is_read FROM message WHERE message_id IN (" + in + ")", params);
+                return executeUpdate(conn, "DELETE FROM message WHERE message_id IN (" + in + ")", params);
+            });
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "归档历史消息", 0);
+        }
+    }
+
     @Override
     public int countUnreadTotal(Integer userId) {
-        String sql = "SELECT COUNT(*) FROM message WHERE receiver_id = ? AND is_read = 0";
+        // 读取维护好的计数，不再对 message 表做 COUNT
+        String sql = "SELECT unread_messages FROM unread_counters WHERE user_id = ?";
         try {
             Number count = (Number) queryForSingleValue(sql, userId);
             return count != null ? count.intValue() : 0;
@@ -68,8 +130,23 @@ public class MessageDAOImpl extends BaseJdbcDAO<Message> implements MessageDAO {
     public int insert(Message message) {
         String sql = "INSERT INTO message (sender_id, receiver_id, message_content, creation_time, update_time, is_withdraw, is_read) VALUES (?, ?, ?, ?, ?, ?, ?)";
         try {
-            return insert(sql, message.getSenderId(), message.getReceiverId(), message.getMessageContent(),
-                         message.getCreationTime(), message.getUpdateTime(), message.getIsWithdraw(), message.getIsRead());
+            boolean unread = isUnreadForReceiver(message);
+            // 消息、会话和接收方未读计数在同一事务中写入
+            int id = inTransaction(conn -> {
+                int messageId = executeInsert(conn, sql, message.getSenderId(), message.getReceiverId(), message.getMessageContent(),
+                        message.getCreationTime(), message.getUpdateTime(), message.getIsWithdraw(), message.getIsRead());
+                if (messageId > 0 && message.getSenderId() != null && message.getReceiverId() != null) {
+                    upsertConversation(conn, message, messageId);
+                    if (unread) {
+                        UnreadCounterDAOImpl.add(conn, UnreadCounterDAOImpl.MESSAGES, message.getReceiverId(), 1);
+                    }
+                }
+                return messageId;
+            });
+            if (id > 0 && unread) {
+                UnreadCounterCache.invalidate(message.getReceiverId());
+            }
+            return id;
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "发送消息", 0);
         }
@@ -79,7 +156,21 @@ public class MessageDAOImpl extends BaseJdbcDAO<Message> implements MessageDAO {
     public int markAsRead(Integer fromUserId, Integer toUserId) {
         String sql = "UPDATE message SET is_read = 1 WHERE sender_id = ? AND receiver_id = ? AND is_read = 0";
         try {
-            return update(sql, fromUserId, toUserId);
+            boolean counted = !fromUserId.equals(toUserId);
+            int marked = inTransaction(conn -> {
+                int updated = executeUpdate(conn, sql, fromUserId, toUserId);
+                // 会话中接收方一侧的未读数清零，接收方未读总数减去本次标记的条数
+                executeUpdate(conn, "UPDATE conversations SET " + unreadColumn(fromUserId, toUserId) + " = 0 " +
+                        "WHERE user_low = ? AND user_high = ?", Math.min(fromUserId, toUserId), Math.max(fromUserId, toUserId));
+                if (counted) {
+                    UnreadCounterDAOImpl.add(conn, UnreadCounterDAOImpl.MESSAGES, toUserId, -updated);
+                }
+                return updated;
+            });
+            if (counted && marked > 0) {
+                UnreadCounterCache.invalidate(toUserId);
+            }
+            return marked;
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "标记消息为已读", 0);
         }
@@ -89,7 +180,32 @@ public class MessageDAOImpl extends BaseJdbcDAO<Message> implements MessageDAO {
     public int delete(Integer messageId) {
         String sql = "DELETE FROM message WHERE message_id = ?";
         try {
-            return delete(sql, messageId);
+            // 删除了一条未读消息时记录接收方ID，提交后更新缓存
+            int[] unreadReceiver = {0};
+            int result = inTransaction(conn -> {
+                Message message = queryFirst(conn, "SELECT sender_id, receiver_id, message_id, message_content, creation_time, " +
+                        "update_time, is_withdraw, is_read FROM message WHERE message_id = ? FOR UPDATE", this::mapRowToMessage, messageId);
+                if (message == null) {
+                    // 已归档的消息都是已读的，直接从归档表删除
+                    return executeUpdate(conn, "DELETE FROM message_archive WHERE message_id = ?", messageId);
+                }
+                int deleted = executeUpdate(conn, sql, messageId);
+                int low = Math.min(message.getSenderId(), message.getReceiverId());
+                int high = Math.max(message.getSenderId(), message.getReceiverId());
+                if (deleted > 0 && isUnreadForReceiver(message)) {
+                    String column = unreadColumn(message.getSenderId(), message.getReceiverId());
+                    executeUpdate(conn, "UPDATE conversations SET " + column + " = GREATEST(" + column + " - 1, 0) " +
+                            "WHERE user_low = ? AND user_high = ?", low, high);
+                    UnreadCounterDAOImpl.add(conn, UnreadCounterDAOImpl.MESSAGES, message.getReceiverId(), -1);
+                    unreadReceiver[0] = message.getReceiverId();
+                }
+                refreshLastMessage(conn, low, high, messageId);
+                return deleted;
+            });
+            if (unreadReceiver[0] != 0) {
+                UnreadCounterCache.invalidate(unreadReceiver[0]);
+            }
+            return result;
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "删除消息", 0);
         }
@@ -99,20 +215,126 @@ public class MessageDAOImpl extends BaseJdbcDAO<Message> implements MessageDAO {
     public int clearConversation(Integer userId1, Integer userId2) {
         String sql = "DELETE FROM message WHERE (sender_id = ? AND receiver_id = ?) OR (sender_id = ? AND receiver_id = ?)";
         try {
-            return delete(sql, userId1, userId2, userId2, userId1);
+            int low = Math.min(userId1, userId2);
+            int high = Math.max(userId1, userId2);
+            // 会话中双方的未读数，清空后从各自的未读总数中扣除
+            int[] unread = {0, 0};
+            int result = inTransaction(conn -> {
+                int[] counts = queryFirst(conn, "SELECT unread_low, unread_high FROM conversations " +
+                        "WHERE user_low = ? AND user_high = ? FOR UPDATE",
+                        rs -> new int[]{rs.getInt("unread_low"), rs.getInt("unread_high")}, low, high);
+                int deleted = executeUpdate(conn, sql, userId1, userId2, userId2, userId1);
+                executeUpdate(conn, "DELETE FROM conversations WHERE user_low = ? AND user_high = ?", low, high);
+                deleted += executeUpdate(conn, "DELETE FROM message_archive WHERE user_low = ? AND user_high = ?", low, high);
+                if (counts != null && low != high) {
+                    UnreadCounterDAOImpl.add(conn, UnreadCounterDAOImpl.MESSAGES, low, -counts[0]);
+                    UnreadCounterDAOImpl.add(conn, UnreadCounterDAOImpl.MESSAGES, high, -counts[1]);
+                    unread[0] = counts[0];
+                    unread[1] = counts[1];
+                }
+                return deleted;
+            });
+            if (unread[0] > 0) {
+                UnreadCounterCache.invalidate(low);
+            }
+            if (unread[1] > 0) {
+                UnreadCounterCache.invalidate(high);
+            }
+            return result;
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "清空会话消息", 0);
         }
     }
 
+    /**
+     * 新消息写入会话：不存在时创建，存在时更新最后一条消息并累加接收方未读数
+     * ON DUPLICATE KEY UPDATE 按书写顺序赋值，last_message_id 先与旧的 last_time 比较
+     */
+    private void upsertConversation(Connection conn, Message message, int messageId) throws SQLException {
+        int senderId = message.getSenderId();
+        int receiverId = message.getReceiverId();
+        int low = Math.min(senderId, receiverId);
+        int high = Math.max(senderId, receiverId);
+        boolean unread = isUnreadForReceiver(message);
+        Timestamp time = new Timestamp(message.getCreationTime() != null ? message.getCreationTime().getTime() : System.currentTimeMillis());
+        String sql = "INSERT INTO conversations (user_low, user_high, last_message_id, last_time, unread_low, unread_high) " +
+                     "VALUES (?, ?, ?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE " +
+                     "last_message_id = IF(VALUES(last_time) >= last_time, VALUES(last_message_id), last_message_id), " +
+                     "last_time = GREATEST(last_time, VALUES(last_time)), " +
+                     "unread_low = unread_low + VALUES(unread_low), " +
+                     "unread_high = unread_high + VALUES(unread_high)";
+        executeUpdate(conn, sql, low, high, messageId, time,
+                unread && receiverId == low ? 1 : 0, unread && receiverId == high ? 1 : 0);
+    }
+
+    /**
+     * 删除的消息是会话的最后一条时，改指向剩余的最新消息；没有剩余消息时删除会话
+     */
+    private void refreshLastMessage(Connection conn, int low, int high, int deletedMessageId) throws SQLException {
+        Object[] latest = queryFirst(conn, "SELECT message_id, creation_time FROM message " +
+                "WHERE user_low = ? AND user_high = ? " +
+                "ORDER BY creation_time DESC, message_id DESC LIMIT 1",
+                rs -> new Object[]{rs.getInt("message_id"), rs.getTimestamp("creation_time")}, low, high);
+        if (latest == null) {
+            executeUpdate(conn, "DELETE FROM conversations WHERE user_low = ? AND user_high = ?", low, high);
+        } else {
+            executeUpdate(conn, "UPDATE conversations SET last_message_id = ?, last_time = ? " +
+                    "WHERE user_low = ? AND user_high = ? AND last_message_id = ?", latest[0], latest[1], low, high, deletedMessageId);
+        }
+    }
+
+    /**
+     * 按会话键 (user_low, user_high) 键集分页查询早于游标的消息，从新到旧
+     * @param table 热表 message 或归档表 message_archive
+     */
+    private List<Message> findHistory(String table, String operation, Integer userId1, Integer userId2,
+                                      Date beforeTime, Integer beforeMessageId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT sender_id, receiver_id, message_id, message_content, creation_time, " +
+                "update_time, is_withdraw, is_read FROM " + table + " WHERE user_low = ? AND user_high = ? ");
+        List<Object> params = new ArrayList<>();
+        params.add(Math.min(userId1, userId2));
+        params.add(Math.max(userId1, userId2));
+        if (beforeTime != null && beforeMessageId != null) {
+            Timestamp time = new Timestamp(beforeTime.getTime());
+            sql.append("AND (creation_time < ? OR (creation_time = ? AND message_id < ?)) ");
+            params.add(time);
+            params.add(time);
+            params.add(beforeMessageId);
+        }
+        sql.append("ORDER BY creation_time DESC, message_id DESC LIMIT ?");
+        params.add(limit);
+        try {
+            return queryForList(sql.toString(), this::mapRowToMessage, params.toArray());
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, operation, new ArrayList<>());
+        }
+    }
+
+    /**
+     * 消息是否计入接收方的未读数（给自己发的消息不计）
+     */
+    private static boolean isUnreadForReceiver(Message message) {
+        return message.getSenderId() != null && message.getReceiverId() != null
+                && !message.getSenderId().equals(message.getReceiverId())
+                && (message.getIsRead() == null || message.getIsRead() == 0);
+    }
+
+    /**
+     * 接收方在会话中对应的未读列
+     */
+    private static String unreadColumn(int senderId, int receiverId) {
+        return receiverId <= senderId ? "unread_low" : "unread_high";
+    }
+
     private Message mapRowToMessage(ResultSet rs) throws SQLException {
         Message message = new Message();
         message.setSenderId(rs.getInt("sender_id"));
         message.setReceiverId(rs.getInt("receiver_id"));
         message.setMessageId(rs.getInt("message_id"));
         message.setMessageContent(rs.getString("message_content"));
-        message.setCreationTime(rs.getDate("creation_time"));
-        message.setUpdateTime(rs.getDate("update_time"));
+        message.setCreationTime(rs.getTimestamp("creation_time"));
+        message.setUpdateTime(rs.getTimestamp("update_time"));
         message.setIsWithdraw(rs.getInt("is_withdraw"));
         message.setIsRead(rs.getInt("is_read"));
         return message;
@@ -82,6 +82,19 @@ public class ReplyDAOImpl extends BaseJdbcDAO<Reply> implements ReplyDAO {
         }
     }
 
+    @Override
+    public List<Reply> findPageForAdmin(int offset, int limit) throws SQLException {
+        String sql = "SELECT user_id, blog_id, reply_id, parentReply, reply_createdtime, reply_content, is_visible " +
+                     "FROM replies ORDER BY reply_createdtime DESC, reply_id DESC LIMIT ? OFFSET ?";
+        return queryForList(sql, this::mapRowToReply, limit, offset);
+    }
+
+    @Override
+    public int countAll() throws SQLException {
+        Number count = (Number) queryForSingleValue("SELECT COUNT(*) FROM replies");
+        return count != null ? count.intValue() : 0;
+    }
+
     @Override
     public int insert(Reply reply) {
         String sql = "INSERT INTO replies (user_id, blog_id, parentReply, reply_createdtime, reply_content, is_visible) VALUES (?, ?, ?, ?, ?, ?)";
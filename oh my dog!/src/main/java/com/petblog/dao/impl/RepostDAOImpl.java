@@ -3,12 +3,23 @@ package com.petblog.dao.impl;
 
 import com.petblog.dao.BaseJdbcDAO;
 import com.petblog.dao.RepostDAO;
+import com.petblog.dao.WriteBehindToggleBuffer;
+import com.petblog.model.ActivityItem;
+import com.petblog.model.Blog;
 import com.petblog.model.Repost;
+import com.petblog.model.RepostDetail;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class RepostDAOImpl extends BaseJdbcDAO<Repost> implements RepostDAO {
 
@@ -130,4 +141,141 @@ public class RepostDAOImpl extends BaseJdbcDAO<Repost> implements RepostDAO {
         repost.setRepostId(rs.getInt("repost_id"));
         return repost;
     }
-}
\ No newline at end of file
+
+    @Override
+    public Set<Integer> findRepostedBlogIds(Integer userId, List<Integer> blogIds) {
+        if (blogIds == null || blogIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sql = "SELECT blog_Id FROM reposts WHERE user_id = ? AND blog_Id IN (" + placeholders(blogIds.size()) + ")";
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        params.addAll(blogIds);
+        try {
+            return queryForIdSet(sql, params.toArray());
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "批量检查用户转发的博客", new HashSet<>());
+        }
+    }
+
+    @Override
+    public List<ActivityItem> findActivities(Date beforeTime, Integer beforeId, int limit) {
+        String sql = "SELECT r.repost_id AS item_id, ob.blog_title AS title, r.reposts_time AS item_time, " +
+                     "r.user_id, u.user_name, r.blog_Id AS ref_id " +
+                     "FROM reposts r " +
+                     "JOIN blogs ob ON ob.blog_id = r.blog_Id " +
+                     "LEFT JOIN users u ON r.user_id = u.user_id " +
+                     "WHERE ob.is_shielded = 0 AND (u.is_ban IS NULL OR u.is_ban = 0) " +
+                     (beforeTime != null ? ActivityQuery.cursorCondition("r.reposts_time", "r.repost_id") : "") +
+                     "ORDER BY r.reposts_time DESC, r.repost_id DESC LIMIT ?";
+        try {
+            return queryForRows(sql, rs -> ActivityQuery.mapRow(rs, "repost"), ActivityQuery.params(beforeTime, beforeId, limit));
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "查询动态广场转发", null);
+        }
+    }
+
+    @Override
+    public List<RepostDetail> findDetailsByUserId(Integer userId, Date beforeTime, Integer beforeRepostId, int limit) {
+        try {
+            return findDetails("user_id", userId, beforeTime, beforeRepostId, limit);
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "分页查询用户的转发详情", new ArrayList<>());
+        }
+    }
+
+    @Override
+    public List<RepostDetail> findDetailsByOriginalBlogId(Integer originalBlogId, Date beforeTime, Integer beforeRepostId, int limit) {
+        try {
+            return findDetails("blog_Id", originalBlogId, beforeTime, beforeRepostId, limit);
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "分页查询博客的转发详情", new ArrayList<>());
+        }
+    }
+
+    /**
+     * 转发详情联表查询
+     * 内层按 (转发时间, 转发ID) 倒序做键集分页，只取一页转发记录；外层联表取转发者、原博客和原作者。
+     * 原博客计数按本页去重后的原博客ID计算一次，映射时同一原博客只构造一个对象供各条转发共用。
+     * @param filterColumn 过滤列（user_id / blog_Id）
+     */
+    private List<RepostDetail> findDetails(String filterColumn, Integer filterValue, Date beforeTime,
+                                           Integer beforeRepostId, int limit) throws SQLException {
+        String page = "SELECT r.repost_id, r.reposts_time, r.user_id, r.blog_Id AS blog_id FROM reposts r " +
+                      "WHERE r." + filterColumn + " = ? " +
+                      (beforeTime != null ? "AND (r.reposts_time < ? OR (r.reposts_time = ? AND r.repost_id < ?)) " : "") +
+                      "ORDER BY r.reposts_time DESC, r.repost_id DESC LIMIT ?";
+        String sql = "SELECT p.repost_id, p.reposts_time, p.user_id, ru.user_name, ru.user_avatar_path, " +
+                     "p.blog_id, ob.user_id AS blog_user_id, ob.blog_title, ob.blog_content, ob.blog_create_time, " +
+                     "ob.blog_update_time, ob.is_shielded, ou.user_name AS blog_user_name, " +
+                     "ou.user_avatar_path AS blog_user_avatar_path, ou.is_ban AS blog_user_is_ban, " +
+                     "s.like_count, s.favorite_count, s.comment_count, s.repost_count " +
+                     "FROM (" + page + ") p " +
+                     "LEFT JOIN users ru ON ru.user_id = p.user_id " +
+                     "LEFT JOIN blogs ob ON ob.blog_id = p.blog_id " +
+                     "LEFT JOIN users ou ON ou.user_id = ob.user_id " +
+                     "LEFT JOIN (" +
+                     "SELECT d.blog_id, " +
+                     "(SELECT COUNT(*) FROM likes WHERE likes.blog_id = d.blog_id) AS like_count, " +
+                     "(SELECT COUNT(*) FROM favorites WHERE favorites.blog_id = d.blog_id) AS favorite_count, " +
+                     "(SELECT COUNT(*) FROM replies WHERE replies.blog_id = d.blog_id AND replies.parentReply IS NULL) AS comment_count, " +
+                     "(SELECT COUNT(*) FROM reposts WHERE reposts.blog_Id = d.blog_id) AS repost_count " +
+                     "FROM (SELECT DISTINCT x.blog_id FROM (" + page + ") x) d" +
+                     ") s ON s.blog_id = p.blog_id " +
+                     "ORDER BY p.reposts_time DESC, p.repost_id DESC";
+
+        List<Object> pageParams = new ArrayList<>();
+        pageParams.add(filterValue);
+        if (beforeTime != null) {
+            Timestamp cursor = new Timestamp(beforeTime.getTime());
+            pageParams.add(cursor);
+            pageParams.add(cursor);
+            pageParams.add(beforeRepostId != null ? beforeRepostId : Integer.MAX_VALUE);
+        }
+        pageParams.add(limit);
+        List<Object> params = new ArrayList<>(pageParams);
+        params.addAll(pageParams);
+
+        Map<Integer, Blog> originals = new HashMap<>();
+        return queryForRows(sql, rs -> mapRowToDetail(rs, originals), params.toArray());
+    }
+
+    private RepostDetail mapRowToDetail(ResultSet rs, Map<Integer, Blog> originals) throws SQLException {
+        RepostDetail detail = new RepostDetail();
+        detail.setRepostId(rs.getInt("repost_id"));
+        Timestamp repostsTime = rs.getTimestamp("reposts_time");
+        detail.setRepostsTime(repostsTime != null ? new Date(repostsTime.getTime()) : null);
+        detail.setUserId(rs.getInt("user_id"));
+        detail.setUserName(rs.getString("user_name"));
+        detail.setUserAvatarPath(rs.getString("user_avatar_path"));
+        int originalBlogId = rs.getInt("blog_id");
+        detail.setOriginalBlogId(originalBlogId);
+
+        Blog original = originals.get(originalBlogId);
+        if (original == null && !originals.containsKey(originalBlogId)) {
+            // 原博客已删除时联表列为null
+            boolean missing = rs.getObject("blog_user_id") == null;
+            boolean hidden = rs.getInt("is_shielded") != 0 || rs.getInt("blog_user_is_ban") != 0;
+            if (!missing && !hidden) {
+                original = new Blog();
+                original.setBlogId(originalBlogId);
+                original.setUserId(rs.getInt("blog_user_id"));
+                original.setBlogTitle(rs.getString("blog_title"));
+                original.setBlogContent(rs.getString("blog_content"));
+                original.setBlogCreateTime(rs.getTimestamp("blog_create_time"));
+                original.setBlogUpdateTime(rs.getTimestamp("blog_update_time"));
+                original.setIsShielded(0);
+                original.setUserName(rs.getString("blog_user_name"));
+                original.setUserAvatarPath(rs.getString("blog_user_avatar_path"));
+                // 叠加写后缓冲中尚未落库的点赞变化
+                original.setLikeCount(rs.getInt("like_count") + WriteBehindToggleBuffer.LIKES.getPendingDelta(originalBlogId));
+                original.setFavoriteCount(rs.getInt("favorite_count"));
+                original.setCommentCount(rs.getInt("comment_count"));
+                original.setRepostCount(rs.getInt("repost_count"));
+            }
+            originals.put(originalBlogId, original);
+        }
+        detail.setOriginalBlog(original);
+        return detail;
+    }
+}
@@ -0,0 +1,100 @@
+package com.petblog.dao.impl;
+
+import com.petblog.dao.BaseJdbcDAO;
+import com.petblog.dao.TimelineDAO;
+import com.petblog.model.TimelineEntry;
+import com.petblog.util.SQLExceptionHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class TimelineDAOImpl extends BaseJdbcDAO<TimelineEntry> implements TimelineDAO {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public int insertBatch(List<Integer> userIds, int blogId, Date blogCreateTime) {
+        String sql = "INSERT IGNORE INTO timeline (user_id, blog_id, blog_create_time) VALUES (?, ?, ?)";
+        Timestamp time = new Timestamp(blogCreateTime.getTime());
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        for (Integer userId : userIds) {
+            rows.add(new Object[]{userId, blogId, time});
+        }
+        try {
+            return batchUpdate(sql, rows, BATCH_SIZE);
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "批量写入时间线收件箱", 0);
+        }
+    }
+
+    @Override
+    public List<TimelineEntry> findPage(int userId, Date beforeTime, Integer beforeBlogId, int limit) {
+        try {
+            if (beforeTime == null) {
+                String sql = "SELECT blog_id, blog_create_time FROM timeline WHERE user_id = ? " +
+                             "ORDER BY blog_create_time DESC, blog_id DESC LIMIT ?";
+                return queryForList(sql, this::mapRowToEntry, userId, limit);
+            }
+            Timestamp time = new Timestamp(beforeTime.getTime());
+            String sql = "SELECT blog_id, blog_create_time FROM timeline WHERE user_id = ? " +
+                         "AND (blog_create_time < ? OR (blog_create_time = ? AND blog_id < ?)) " +
+                         "ORDER BY blog_create_time DESC, blog_id DESC LIMIT ?";
+            return queryForList(sql, this::mapRowToEntry, userId, time, time, beforeBlogId, limit);
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "分页查询时间线收件箱", null);
+        }
+    }
+
+    @Override
+    public List<TimelineEntry> findByAuthors(List<Integer> authorIds, Date beforeTime, Integer beforeBlogId, int limit) {
+        if (authorIds == null || authorIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> params = new ArrayList<>(authorIds);
+        StringBuilder sql = new StringBuilder("SELECT blog_id, blog_create_time FROM blogs WHERE user_id IN (")
+                .append(placeholders(authorIds.size())).append(") AND is_shielded = 0 ");
+        if (beforeTime != null) {
+            Timestamp time = new Timestamp(beforeTime.getTime());
+            sql.append("AND (blog_create_time < ? OR (blog_create_time = ? AND blog_id < ?)) ");
+            params.add(time);
+            params.add(time);
+            params.add(beforeBlogId);
+        }
+        sql.append("ORDER BY blog_create_time DESC, blog_id DESC LIMIT ?");
+        params.add(limit);
+        try {
+            return queryForList(sql.toString(), this::mapRowToEntry, params.toArray());
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "按作者查询时间线博客", null);
+        }
+    }
+
+    @Override
+    public int deleteByBlogId(int blogId) {
+        String sql = "DELETE FROM timeline WHERE blog_id = ?";
+        try {
+            return delete(sql, blogId);
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "删除时间线中的博客", 0);
+        }
+    }
+
+    @Override
+    public int deleteOlderThan(Date before) {
+        String sql = "DELETE FROM timeline WHERE blog_create_time < ?";
+        try {
+            return delete(sql, new Timestamp(before.getTime()));
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "清理过期时间线记录", 0);
+        }
+    }
+
+    private TimelineEntry mapRowToEntry(ResultSet rs) throws SQLException {
+        Timestamp time = rs.getTimestamp("blog_create_time");
+        return new TimelineEntry(rs.getInt("blog_id"), time != null ? new Date(time.getTime()) : new Date(0));
+    }
+}
@@ -3,11 +3,13 @@ package com.petblog.dao.impl;
 
 import com.petblog.dao.BaseJdbcDAO;
 import com.petblog.dao.TopicDAO;
+import com.petblog.model.ActivityItem;
 import com.petblog.model.Topic;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.Date;
 import java.util.List;
 
 public class TopicDAOImpl extends BaseJdbcDAO<Topic> implements TopicDAO {
@@ -147,4 +149,19 @@ public class TopicDAOImpl extends BaseJdbcDAO<Topic> implements TopicDAO {
         topic.setTopicCreateTime(rs.getObject("topic_create_time", LocalDateTime.class));
         return topic;
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<ActivityItem> findActivities(Date beforeTime, Integer beforeId, int limit) {
+        String sql = "SELECT topic_id AS item_id, topic_name AS title, topic_create_time AS item_time, " +
+                     "NULL AS user_id, NULL AS user_name, NULL AS ref_id " +
+                     "FROM topics " +
+                     "WHERE topic_create_time IS NOT NULL " +
+                     (beforeTime != null ? ActivityQuery.cursorCondition("topic_create_time", "topic_id") : "") +
+                     "ORDER BY topic_create_time DESC, topic_id DESC LIMIT ?";
+        try {
+            return queryForRows(sql, rs -> ActivityQuery.mapRow(rs, "topic"), ActivityQuery.params(beforeTime, beforeId, limit));
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "查询动态广场话题", null);
+        }
+    }
+}
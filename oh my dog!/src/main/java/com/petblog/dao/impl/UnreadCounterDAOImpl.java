@@ -0,0 +1,65 @@
+package com.petblog.dao.impl;
+
+import com.petblog.dao.BaseJdbcDAO;
+import com.petblog.dao.UnreadCounterDAO;
+import com.petblog.model.UnreadCount;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * UnreadCounterDAO接口的JDBC实现类
+ * 同时提供在调用方事务内增减计数的静态方法，供私信、通知DAO使用
+ */
+public class UnreadCounterDAOImpl extends BaseJdbcDAO<UnreadCount> implements UnreadCounterDAO {
+
+    /**
+     * 计数列：未读私信
+     */
+    static final String MESSAGES = "unread_messages";
+
+    /**
+     * 计数列：未读通知
+     */
+    static final String INFORMS = "unread_informs";
+
+    @Override
+    public UnreadCount findByUserId(Integer userId) throws SQLException {
+        // 异常交给调用方处理：加载失败时不应把0写入缓存
+        String sql = "SELECT unread_messages, unread_informs FROM unread_counters WHERE user_id = ?";
+        UnreadCount count = queryForObject(sql,
+                rs -> new UnreadCount(rs.getInt("unread_messages"), rs.getInt("unread_informs")), userId);
+        return count != null ? count : new UnreadCount(0, 0);
+    }
+
+    /**
+     * 在给定连接上增减计数（不存在时创建，结果不小于0）
+     * @param column 计数列（MESSAGES / INFORMS）
+     */
+    static void add(Connection conn, String column, int userId, int delta) throws SQLException {
+        if (delta == 0) {
+            return;
+        }
+        String sql = "INSERT INTO unread_counters (user_id, " + column + ") VALUES (?, ?) " +
+                     "ON DUPLICATE KEY UPDATE " + column + " = GREATEST(" + column + " + ?, 0)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, Math.max(delta, 0));
+            pstmt.setInt(3, delta);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * 在给定连接上把计数清零
+     * @param column 计数列（MESSAGES / INFORMS）
+     */
+    static void reset(Connection conn, String column, int userId) throws SQLException {
+        String sql = "UPDATE unread_counters SET " + column + " = 0 WHERE user_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.executeUpdate();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.petblog.util.SQLExceptionHandler;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 public class UserDAOImpl extends BaseJdbcDAO<User> implements UserDAO {
@@ -55,7 +56,7 @@ public class UserDAOImpl extends BaseJdbcDAO<User> implements UserDAO {
 
     @Override
     public List<User> selectAll(int pageNum, int pageSize) {
-        String sql = "SELECT user_id, user_name, registration_date, last_login, is_ban, email, user_avatar_path FROM users LIMIT ? OFFSET ?";
+        String sql = "SELECT user_id, user_name, registration_date, last_login, is_ban, email, user_avatar_path FROM users ORDER BY user_id LIMIT ? OFFSET ?";
         try {
             return queryForList(sql, this::mapRowToUserWithoutPassword, pageSize, (pageNum - 1) * pageSize);
         } catch (SQLException e) {
@@ -65,7 +66,7 @@ public class UserDAOImpl extends BaseJdbcDAO<User> implements UserDAO {
 
     @Override
     public List<User> searchUsers(String keyword, int pageNum, int pageSize) {
-        String sql = "SELECT user_id, user_name, registration_date, last_login, is_ban, email, user_avatar_path FROM users WHERE user_name LIKE ? OR email LIKE ? LIMIT ? OFFSET ?";
+        String sql = "SELECT user_id, user_name, registration_date, last_login, is_ban, email, user_avatar_path FROM users WHERE user_name LIKE ? OR email LIKE ? ORDER BY user_id LIMIT ? OFFSET ?";
         try {
             return queryForList(sql, this::mapRowToUserWithoutPassword,
                                "%" + keyword + "%", "%" + keyword + "%", pageSize, (pageNum - 1) * pageSize);
@@ -74,6 +75,20 @@ public class UserDAOImpl extends BaseJdbcDAO<User> implements UserDAO {
         }
     }
 
+    @Override
+    public List<User> selectByIds(List<Integer> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "SELECT user_id, user_name, registration_date, last_login, is_ban, email, user_avatar_path FROM users WHERE user_id IN ("
+                + placeholders(userIds.size()) + ")";
+        try {
+            return queryForList(sql, this::mapRowToUserWithoutPassword, userIds.toArray());
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "批量查询用户", null);
+        }
+    }
+
     @Override
     public int countTotalUsers() {
         String sql = "SELECT COUNT(*) FROM users";
@@ -85,6 +100,13 @@ public class UserDAOImpl extends BaseJdbcDAO<User> implements UserDAO {
         }
     }
 
+    @Override
+    public int countSearchUsers(String keyword) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM users WHERE user_name LIKE ? OR email LIKE ?";
+        Number count = (Number) queryForSingleValue(sql, "%" + keyword + "%", "%" + keyword + "%");
+        return count != null ? count.intValue() : 0;
+    }
+
     @Override
     public int insert(User user) {
         String sql = "INSERT INTO users (user_name, user_password, registration_date, last_login, is_ban, email, user_avatar_path) VALUES (?, ?, ?, ?, ?, ?, ?)";
@@ -2,13 +2,18 @@
 package com.petblog.dao.impl;
 
 import com.petblog.dao.BaseJdbcDAO;
+import com.petblog.dao.ShardedVoteCounter;
 import com.petblog.dao.VoteDAO;
 import com.petblog.model.Vote;
+import com.petblog.model.ToggleResult;
 import com.petblog.util.SQLExceptionHandler;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class VoteDAOImpl extends BaseJdbcDAO<Vote> implements VoteDAO {
 
@@ -80,7 +85,13 @@ public class VoteDAOImpl extends BaseJdbcDAO<Vote> implements VoteDAO {
     public int insert(Vote vote) {
         String sql = "INSERT INTO votes (user_id, blog_id, vote_create_time) VALUES (?, ?, ?)";
         try {
-            return insert(sql, vote.getUserId(), vote.getBlogId(), vote.getVoteCreateTime());
+            int inserted = inTransactionRetryingDeadlocks(conn -> {
+                int rows = executeUpdate(conn, sql, vote.getUserId(), vote.getBlogId(), vote.getVoteCreateTime());
+                ShardedVoteCounter.add(conn, vote.getBlogId(), rows);
+                return rows;
+            });
+            ShardedVoteCounter.applied(vote.getBlogId(), inserted);
+            return inserted;
         } catch (SQLException e) {
             return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "添加投票记录", 0);
         }
@@ -119,11 +130,28 @@ public class VoteDAOImpl extends BaseJdbcDAO<Vote> implements VoteDAO {
 
     @Override
     public int deleteByUserId(Integer userId) {
-        String sql = "DELETE FROM votes WHERE user_id = ?";
+        return deleteAndListBlogIdsByUserId(userId).size();
+    }
+
+    @Override
+    public List<Integer> deleteAndListBlogIdsByUserId(Integer userId) {
         try {
-            return delete(sql, userId);
+            // 先锁住用户的投票并记下涉及的博客，删除后在同一事务中给这些博客的计数减一
+            List<Integer> blogIds = inTransactionRetryingDeadlocks(conn -> {
+                List<Integer> ids = queryForRows(conn, "SELECT blog_id FROM votes WHERE user_id = ? FOR UPDATE",
+                        rs -> rs.getInt("blog_id"), userId);
+                executeUpdate(conn, "DELETE FROM votes WHERE user_id = ?", userId);
+                for (Integer blogId : ids) {
+                    ShardedVoteCounter.add(conn, blogId, -1);
+                }
+                return ids;
+            });
+            for (Integer blogId : blogIds) {
+                ShardedVoteCounter.applied(blogId, -1);
+            }
+            return blogIds;
         } catch (SQLException e) {
-            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "删除用户的所有投票", 0);
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "删除用户的所有投票", new ArrayList<>());
         }
     }
 
@@ -134,4 +162,43 @@ public class VoteDAOImpl extends BaseJdbcDAO<Vote> implements VoteDAO {
         vote.setVoteCreateTime(rs.getObject("vote_create_time", LocalDateTime.class));
         return vote;
     }
-}
\ No newline at end of file
+
+    @Override
+    public ToggleResult toggle(Integer userId, Integer blogId) {
+        try {
+            // 计数变化写入随机分片，热门博客的并发投票不再争抢同一行；最新计数读分片镜像，不再 COUNT(*)
+            int delta = inTransactionRetryingDeadlocks(conn -> {
+                int change;
+                if (executeUpdate(conn, "DELETE FROM votes WHERE user_id = ? AND blog_id = ?", userId, blogId) > 0) {
+                    change = -1;
+                } else {
+                    // 插入影响0行说明并发请求已插入，状态同样为已投票
+                    change = executeUpdate(conn, "INSERT IGNORE INTO votes (user_id, blog_id, vote_create_time) VALUES (?, ?, NOW())",
+                            userId, blogId);
+                }
+                ShardedVoteCounter.add(conn, blogId, change);
+                return change;
+            });
+            ShardedVoteCounter.applied(blogId, delta);
+            return new ToggleResult(delta >= 0, ShardedVoteCounter.get(blogId));
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "切换博客投票状态", null);
+        }
+    }
+
+    @Override
+    public Set<Integer> findVotedBlogIds(Integer userId, List<Integer> blogIds) {
+        if (blogIds == null || blogIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sql = "SELECT blog_id FROM votes WHERE user_id = ? AND blog_id IN (" + placeholders(blogIds.size()) + ")";
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        params.addAll(blogIds);
+        try {
+            return queryForIdSet(sql, params.toArray());
+        } catch (SQLException e) {
+            return SQLExceptionHandler.handleSQLExceptionWithDefault(e, "批量检查用户投票的博客", new HashSet<>());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * 动态广场的一条动态（新博客、转发、挑战投稿或新话题）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityItem {
+    /**
+     * 动态类型：blog / repost / challenge / topic
+     */
+    private String type;
+    /**
+     * 动态ID（blog、challenge为博客ID，repost为转发生成的博客ID，topic为话题ID）
+     */
+    private int id;
+    /**
+     * 标题（博客标题、被转发博客的标题或话题名称）
+     */
+    private String title;
+    /**
+     * 发生时间（排序依据）
+     */
+    private Date time;
+    /**
+     * 发起用户ID和用户名（话题为null）
+     */
+    private Integer userId;
+    private String userName;
+    /**
+     * 关联对象ID（repost为原博客ID，challenge为挑战ID，其余为null）
+     */
+    private Integer refId;
+}
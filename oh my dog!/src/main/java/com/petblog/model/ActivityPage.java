@@ -0,0 +1,24 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 动态广场的一页
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityPage {
+    /**
+     * 本页动态（按时间倒序）
+     */
+    private List<ActivityItem> items;
+    /**
+     * 下一页游标，没有更多时为null
+     */
+    private String nextCursor;
+}
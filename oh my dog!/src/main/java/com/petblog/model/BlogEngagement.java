@@ -0,0 +1,44 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * 博客的互动计数（热度计算的输入）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlogEngagement {
+    /**
+     * 博客ID
+     */
+    private Integer blogId;
+    /**
+     * 博客创建时间
+     */
+    private Date blogCreateTime;
+    /**
+     * 投票数
+     */
+    private int voteCount;
+    /**
+     * 点赞数
+     */
+    private int likeCount;
+    /**
+     * 收藏数
+     */
+    private int favoriteCount;
+    /**
+     * 评论数（一级评论）
+     */
+    private int commentCount;
+    /**
+     * 转发数
+     */
+    private int repostCount;
+}
@@ -0,0 +1,72 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * 挑战参赛博客的热度构成（一次聚合查询的结果行）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChallengeBlogHeat {
+    /**
+     * 挑战ID
+     */
+    private Integer challengeId;
+    /**
+     * 博客ID
+     */
+    private Integer blogId;
+    /**
+     * 博客标题
+     */
+    private String blogTitle;
+    /**
+     * 博客内容
+     */
+    private String blogContent;
+    /**
+     * 博客创建时间
+     */
+    private Date blogCreateTime;
+    /**
+     * 作者ID
+     */
+    private Integer userId;
+    /**
+     * 作者用户名
+     */
+    private String userName;
+    /**
+     * 作者头像路径
+     */
+    private String userAvatarPath;
+    /**
+     * 投票数
+     */
+    private int voteCount;
+    /**
+     * 点赞数
+     */
+    private int likeCount;
+    /**
+     * 收藏数
+     */
+    private int favoriteCount;
+    /**
+     * 评论数（一级评论）
+     */
+    private int commentCount;
+    /**
+     * 转发数
+     */
+    private int repostCount;
+    /**
+     * 博客热度 = 投票数×50 + 点赞数×20 + 收藏数×20 + 评论数×10 + 转发数×10
+     */
+    private int heat;
+}
@@ -0,0 +1,37 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * 私信会话（会话列表的一行，从当前用户的视角展示）
+ * 对应数据库表：conversations（按 (较小用户ID, 较大用户ID) 唯一）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Conversation {
+    /**
+     * 对方用户ID、用户名和头像
+     */
+    private Integer peerId;
+    private String peerName;
+    private String peerAvatarPath;
+    /**
+     * 最后一条消息的ID、发送者和内容
+     */
+    private Integer lastMessageId;
+    private Integer lastSenderId;
+    private String lastMessageContent;
+    /**
+     * 最后一条消息的时间（排序依据）
+     */
+    private Date lastTime;
+    /**
+     * 当前用户在该会话中的未读消息数
+     */
+    private Integer unreadCount;
+}
@@ -47,6 +47,16 @@ public class DiagnosisSession {
      */
     private List<Integer> recentAskedSymptoms = new ArrayList<>();
     
+    /**
+     * 是否强制开启本次选题追踪（不受采样率影响）
+     */
+    private boolean traceEnabled = false;
+    
+    /**
+     * 本次选题生成的追踪ID（未追踪时为null）
+     */
+    private Long traceId;
+    
     /**
      * 添加已选择的症状
      */
@@ -0,0 +1,26 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 关注推荐结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowRecommendation {
+    /**
+     * 被推荐的用户ID
+     */
+    private int userId;
+    /**
+     * 综合得分（共同关注 + 话题兴趣 + 近期活跃）
+     */
+    private double score;
+    /**
+     * 共同关注数（我关注的人中有多少关注了该用户）
+     */
+    private int mutualCount;
+}
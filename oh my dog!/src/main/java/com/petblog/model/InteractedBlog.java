@@ -0,0 +1,34 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Date;
+
+/**
+ * 用户互动过的博客（点赞列表、收藏列表的一行）
+ * 包含博客基本信息、作者信息、互动计数以及用户的点赞/收藏时间
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InteractedBlog {
+    private Integer blogId;
+    private Integer userId;
+    private String blogTitle;
+    private String blogContent;
+    private Date blogCreateTime;
+    /**
+     * 作者用户名和头像
+     */
+    private String userName;
+    private String userAvatarPath;
+    private Integer likeCount;
+    private Integer favoriteCount;
+    private Integer commentCount;
+    private Integer repostCount;
+    /**
+     * 点赞时间或收藏时间（分页游标的排序键）
+     */
+    private Date interactionTime;
+}
@@ -0,0 +1,50 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 挑战中的宠物排名（按宠物汇总参赛博客的投票数）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PetRanking {
+    /**
+     * 名次（从1开始）
+     */
+    private int ranking;
+    /**
+     * 宠物ID
+     */
+    private Integer petId;
+    /**
+     * 宠物名
+     */
+    private String petName;
+    /**
+     * 宠物品种
+     */
+    private String petBreed;
+    /**
+     * 宠物头像路径
+     */
+    private String petAvatarPath;
+    /**
+     * 主人用户名
+     */
+    private String ownerName;
+    /**
+     * 主人头像路径
+     */
+    private String ownerAvatar;
+    /**
+     * 参赛博客的投票总数
+     */
+    private int voteCount;
+    /**
+     * 参赛博客数
+     */
+    private int blogCount;
+}
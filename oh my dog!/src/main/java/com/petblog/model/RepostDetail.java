@@ -0,0 +1,39 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * 转发详情（转发列表的一行）
+ * 包含转发记录、转发者信息以及原博客（含作者和计数）；同一次查询中转发同一篇博客的记录共用同一个原博客对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RepostDetail {
+    /**
+     * 转发生成的新博客ID
+     */
+    private Integer repostId;
+    /**
+     * 转发时间
+     */
+    private Date repostsTime;
+    /**
+     * 转发者ID、用户名和头像
+     */
+    private Integer userId;
+    private String userName;
+    private String userAvatarPath;
+    /**
+     * 原博客ID
+     */
+    private Integer originalBlogId;
+    /**
+     * 原博客（已删除、被屏蔽或作者被封禁时为null）
+     */
+    private Blog originalBlog;
+}
@@ -0,0 +1,24 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * 时间线条目（收件箱中的一篇博客及其发布时间）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineEntry {
+    /**
+     * 博客ID
+     */
+    private int blogId;
+    /**
+     * 博客发布时间（排序依据）
+     */
+    private Date blogCreateTime;
+}
@@ -0,0 +1,24 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 关注时间线的一页
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelinePage {
+    /**
+     * 本页博客（按发布时间倒序）
+     */
+    private List<Blog> blogs;
+    /**
+     * 下一页游标，没有更多时为null
+     */
+    private String nextCursor;
+}
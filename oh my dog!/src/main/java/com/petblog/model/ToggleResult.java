@@ -0,0 +1,23 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 切换操作结果（点赞、收藏、投票、关注）
+ * 在同一事务中得到切换后的状态和最新计数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToggleResult {
+    /**
+     * 切换后的状态（true=已点赞/已收藏/已投票/已关注）
+     */
+    private boolean active;
+    /**
+     * 切换后的计数（博客的点赞数/收藏数/投票数，或被关注者的粉丝数）
+     */
+    private int count;
+}
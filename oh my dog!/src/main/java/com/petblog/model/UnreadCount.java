@@ -0,0 +1,22 @@
+package com.petblog.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户未读计数（对应表：unread_counters）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCount {
+    /**
+     * 未读私信数
+     */
+    private int messages;
+    /**
+     * 未读通知数
+     */
+    private int informs;
+}
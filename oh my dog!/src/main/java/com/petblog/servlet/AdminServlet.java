@@ -2,8 +2,24 @@ package com.petblog.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.petblog.Service.AdminService;
+import com.petblog.Service.ChallengeLeaderboard;
+import com.petblog.Service.ChallengeLifecycleService;
+import com.petblog.Service.HeatScoreEngine;
+import com.petblog.Service.DynamicSquareService;
+import com.petblog.Service.FollowRecommendationService;
+import com.petblog.Service.KnowledgeBaseService;
+import com.petblog.Service.NotificationPipeline;
+import com.petblog.Service.TimelineService;
+import com.petblog.dao.FollowGraph;
+import com.petblog.dao.ShardedVoteCounter;
+import com.petblog.dao.WriteBehindToggleBuffer;
 import com.petblog.model.Blog;
+import com.petblog.util.CountCache;
+import com.petblog.util.DiagnosisTracer;
 import com.petblog.util.JsonUtil;
+import com.petblog.util.PushHub;
+import com.petblog.util.UnreadCounterCache;
+import com.petblog.util.UserBitmapCache;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -23,6 +39,7 @@ import java.util.Map;
 @WebServlet("/api/admin/*")
 public class AdminServlet extends HttpServlet {
     private final AdminService adminService = new AdminService();
+    private final KnowledgeBaseService knowledgeBaseService = new KnowledgeBaseService();
     private final ObjectMapper objectMapper = JsonUtil.getObjectMapper();
 
     @Override
@@ -71,6 +88,103 @@ public class AdminServlet extends HttpServlet {
             else if (pathInfo.startsWith("/analytics")) {
                 handleAnalytics(request, response, pathInfo);
             }
+            // 诊断选题追踪
+            else if (pathInfo.startsWith("/diagnosis")) {
+                handleDiagnosisTrace(request, response, pathInfo);
+            }
+            // 知识库快照
+            else if (pathInfo.startsWith("/knowledge-base")) {
+                handleKnowledgeBase(request, response, pathInfo, false);
+            }
+            // 点赞/投票写后缓冲
+            else if (pathInfo.startsWith("/write-behind")) {
+                handleWriteBehind(request, response, pathInfo, false);
+            }
+            // 用户互动位图缓存
+            else if (pathInfo.equals("/interaction-bitmaps")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", UserBitmapCache.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
+            // 关注图
+            else if (pathInfo.startsWith("/follow-graph")) {
+                handleFollowGraph(request, response, pathInfo, false);
+            }
+            // 关注推荐
+            else if (pathInfo.startsWith("/follow-recommendations")) {
+                handleFollowRecommendations(request, response, pathInfo, false);
+            }
+            // 关注时间线
+            else if (pathInfo.equals("/timeline")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", TimelineService.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
+            // 动态广场窗口缓存
+            else if (pathInfo.equals("/dynamic-square")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", DynamicSquareService.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
+            // 实时推送连接
+            else if (pathInfo.equals("/push")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", PushHub.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
+            // 未读计数热缓存
+            else if (pathInfo.equals("/unread-counters")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", UnreadCounterCache.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
+            // 挑战投票排行榜
+            else if (pathInfo.equals("/leaderboards")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", ChallengeLeaderboard.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
+            // 分片投票计数
+            else if (pathInfo.equals("/vote-counters")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", ShardedVoteCounter.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
+            // 热门榜热度引擎
+            else if (pathInfo.equals("/trending")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", HeatScoreEngine.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
+            // 管理员列表总数缓存
+            else if (pathInfo.equals("/count-cache")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", CountCache.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
+            // 挑战生命周期调度
+            else if (pathInfo.equals("/challenge-lifecycle")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", ChallengeLifecycleService.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
+            // 互动通知异步管道
+            else if (pathInfo.equals("/notification-pipeline")) {
+                Map<String, Object> responseData = new HashMap<>();
+                responseData.put("success", true);
+                responseData.put("data", NotificationPipeline.getStatus());
+                out.print(objectMapper.writeValueAsString(responseData));
+            }
             else {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 out.print("{\"error\":\"Resource not found\"}");
@@ -115,6 +229,26 @@ public class AdminServlet extends HttpServlet {
             else if (pathInfo.startsWith("/replies")) {
                 handleReplyPost(request, response, pathInfo, requestData);
             }
+            // 诊断选题追踪
+            else if (pathInfo.startsWith("/diagnosis")) {
+                handleDiagnosisTracePost(request, response, pathInfo, requestData);
+            }
+            // 知识库快照
+            else if (pathInfo.startsWith("/knowledge-base")) {
+                handleKnowledgeBase(request, response, pathInfo, true);
+            }
+            // 点赞/投票写后缓冲
+            else if (pathInfo.startsWith("/write-behind")) {
+                handleWriteBehind(request, response, pathInfo, true);
+            }
+            // 关注图
+            else if (pathInfo.startsWith("/follow-graph")) {
+                handleFollowGraph(request, response, pathInfo, true);
+            }
+            // 关注推荐
+            else if (pathInfo.startsWith("/follow-recommendations")) {
+                handleFollowRecommendations(request, response, pathInfo, true);
+            }
             else {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 out.print("{\"error\":\"Resource not found\"}");
@@ -358,8 +492,10 @@ public class AdminServlet extends HttpServlet {
             out.print(objectMapper.writeValueAsString(responseData));
         } else if (pathInfo.equals("/votes/winners")) {
             // 获取获胜狗狗
+            // challengeId 可选，缺省时取最近结束的挑战
             int limit = getIntParameter(request, "limit", 10);
-            java.util.List<Map<String, Object>> winners = adminService.getWinningDogs(limit);
+            int challengeId = getIntParameter(request, "challengeId", 0);
+            java.util.List<Map<String, Object>> winners = adminService.getWinningDogs(challengeId > 0 ? challengeId : null, limit);
             Map<String, Object> responseData = new HashMap<>();
             responseData.put("success", true);
             responseData.put("data", winners);
@@ -471,5 +607,159 @@ public class AdminServlet extends HttpServlet {
             out.print("{\"error\":\"Resource not found\"}");
         }
     }
-}
+    
+    // ==================== 诊断选题追踪 ====================
+    private void handleDiagnosisTrace(HttpServletRequest request, HttpServletResponse response, String pathInfo) throws IOException {
+        PrintWriter out = response.getWriter();
+        if (pathInfo.equals("/diagnosis/traces") || pathInfo.equals("/diagnosis/traces/")) {
+            // 获取最近的选题追踪（最新的在前）
+            int limit = getIntParameter(request, "limit", 20);
+            Map<String, Object> data = new HashMap<>();
+            data.put("sampleRate", DiagnosisTracer.getSampleRate());
+            data.put("capacity", DiagnosisTracer.getBufferCapacity());
+            data.put("traces", DiagnosisTracer.getRecentTraces(limit));
+            Map<String, Object> responseData = new HashMap<>();
+            responseData.put("success", true);
+            responseData.put("data", data);
+            out.print(objectMapper.writeValueAsString(responseData));
+        } else {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            out.print("{\"error\":\"Resource not found\"}");
+        }
+    }
 
+    private void handleDiagnosisTracePost(HttpServletRequest request, HttpServletResponse response,
+                                          String pathInfo, Map<String, Object> requestData) throws IOException {
+        PrintWriter out = response.getWriter();
+        if (pathInfo.equals("/diagnosis/trace-config")) {
+            // 设置采样率（0表示关闭，1表示全部追踪）
+            Object rate = requestData.get("sampleRate");
+            if (!(rate instanceof Number)) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.print("{\"error\":\"Missing sampleRate\"}");
+                return;
+            }
+            DiagnosisTracer.setSampleRate(((Number) rate).doubleValue());
+            if (Boolean.TRUE.equals(requestData.get("clear"))) {
+                DiagnosisTracer.clear();
+            }
+            Map<String, Object> responseData = new HashMap<>();
+            responseData.put("success", true);
+            responseData.put("sampleRate", DiagnosisTracer.getSampleRate());
+            out.print(objectMapper.writeValueAsString(responseData));
+        } else {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            out.print("{\"error\":\"Resource not found\"}");
+        }
+    }
+    
+    // ==================== 知识库快照 ====================
+    private void handleKnowledgeBase(HttpServletRequest request, HttpServletResponse response,
+                                     String pathInfo, boolean isPost) throws IOException {
+        PrintWriter out = response.getWriter();
+        if (!isPost && (pathInfo.equals("/knowledge-base") || pathInfo.equals("/knowledge-base/"))) {
+            // 获取快照状态
+            Map<String, Object> responseData = new HashMap<>();
+            responseData.put("success", true);
+            responseData.put("data", knowledgeBaseService.getStatus());
+            out.print(objectMapper.writeValueAsString(responseData));
+        } else if (isPost && pathInfo.equals("/knowledge-base/export")) {
+            // 从数据库重新导出快照并重新映射
+            boolean success = knowledgeBaseService.exportSnapshot();
+            Map<String, Object> responseData = new HashMap<>();
+            responseData.put("success", success);
+            responseData.put("data", knowledgeBaseService.getStatus());
+            out.print(objectMapper.writeValueAsString(responseData));
+        } else {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            out.print("{\"error\":\"Resource not found\"}");
+        }
+    }
+
+    /**
+     * 点赞/投票写后缓冲
+     * GET  /api/admin/write-behind        - 查看缓冲状态
+     * POST /api/admin/write-behind/flush  - 立即刷盘
+     */
+    private void handleWriteBehind(HttpServletRequest request, HttpServletResponse response,
+                                   String pathInfo, boolean isPost) throws IOException {
+        PrintWriter out = response.getWriter();
+        if (isPost && pathInfo.equals("/write-behind/flush")) {
+            Map<String, Object> flushed = new HashMap<>();
+            flushed.put("likes", WriteBehindToggleBuffer.LIKES.flush());
+            flushed.put("votes", WriteBehindToggleBuffer.VOTES.flush());
+            Map<String, Object> responseData = new HashMap<>();
+            responseData.put("success", true);
+            responseData.put("data", flushed);
+            out.print(objectMapper.writeValueAsString(responseData));
+        } else if (!isPost && (pathInfo.equals("/write-behind") || pathInfo.equals("/write-behind/"))) {
+            Map<String, Object> status = new HashMap<>();
+            status.put("likes", WriteBehindToggleBuffer.LIKES.getStatus());
+            status.put("votes", WriteBehindToggleBuffer.VOTES.getStatus());
+            Map<String, Object> responseData = new HashMap<>();
+            responseData.put("success", true);
+            responseData.put("data", status);
+            out.print(objectMapper.writeValueAsString(responseData));
+        } else {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            out.print("{\"error\":\"Resource not found\"}");
+        }
+    }
+
+    /**
+     * 关注图管理
+     * GET  /api/admin/follow-graph          - 查看关注图状态
+     * POST /api/admin/follow-graph/rebuild  - 从数据库重新加载
+     * POST /api/admin/follow-graph/compact  - 立即压缩
+     */
+    private void handleFollowGraph(HttpServletRequest request, HttpServletResponse response,
+                                   String pathInfo, boolean isPost) throws IOException {
+        PrintWriter out = response.getWriter();
+        Map<String, Object> responseData = new HashMap<>();
+        if (isPost && pathInfo.equals("/follow-graph/rebuild")) {
+            boolean rebuilt = FollowGraph.rebuild();
+            responseData.put("success", rebuilt);
+            responseData.put("data", FollowGraph.getStatus());
+        } else if (isPost && pathInfo.equals("/follow-graph/compact")) {
+            responseData.put("success", true);
+            responseData.put("data", FollowGraph.compact());
+        } else if (!isPost && (pathInfo.equals("/follow-graph") || pathInfo.equals("/follow-graph/"))) {
+            responseData.put("success", true);
+            responseData.put("data", FollowGraph.getStatus());
+        } else {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            out.print("{\"error\":\"Resource not found\"}");
+            return;
+        }
+        out.print(objectMapper.writeValueAsString(responseData));
+    }
+
+    /**
+     * 关注推荐管理
+     * GET  /api/admin/follow-recommendations          - 查看预计算状态
+     * POST /api/admin/follow-recommendations/refresh  - 立即为活跃用户重新预计算
+     */
+    private void handleFollowRecommendations(HttpServletRequest request, HttpServletResponse response,
+                                             String pathInfo, boolean isPost) throws IOException {
+        PrintWriter out = response.getWriter();
+        Map<String, Object> responseData = new HashMap<>();
+        if (isPost && pathInfo.equals("/follow-recommendations/refresh")) {
+            if (!FollowGraph.isReady()) {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                out.print("{\"error\":\"关注图尚未加载完成\"}");
+                return;
+            }
+            int computed = new FollowRecommendationService().refreshAll();
+            responseData.put("success", computed >= 0);
+            responseData.put("data", FollowRecommendationService.getStatus());
+        } else if (!isPost && (pathInfo.equals("/follow-recommendations") || pathInfo.equals("/follow-recommendations/"))) {
+            responseData.put("success", true);
+            responseData.put("data", FollowRecommendationService.getStatus());
+        } else {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            out.print("{\"error\":\"Resource not found\"}");
+            return;
+        }
+        out.print(objectMapper.writeValueAsString(responseData));
+    }
+}
@@ -0,0 +1,75 @@
+package com.petblog.servlet;
+
+import com.petblog.Service.ChallengeLeaderboard;
+import com.petblog.Service.ChallengeLifecycleService;
+import com.petblog.Service.FollowRecommendationService;
+import com.petblog.Service.HeatScoreEngine;
+import com.petblog.Service.KnowledgeBaseService;
+import com.petblog.Service.MessageService;
+import com.petblog.Service.NotificationPipeline;
+import com.petblog.Service.TimelineService;
+import com.petblog.dao.FollowGraph;
+import com.petblog.dao.ShardedVoteCounter;
+import com.petblog.dao.WriteBehindToggleBuffer;
+import com.petblog.util.BackgroundScheduler;
+import com.petblog.util.JdbcUtil;
+import com.petblog.util.PushHub;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 应用生命周期监听器
+ * 启动时加载知识库快照并注册后台任务，关闭时执行刷盘动作并关闭连接池
+ */
+@WebListener
+public class ApplicationLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // 先映射本地知识库快照（不依赖数据库），再在后台校验版本
+        KnowledgeBaseService knowledgeBaseService = new KnowledgeBaseService();
+        knowledgeBaseService.loadLocalSnapshot();
+        BackgroundScheduler.scheduleAtFixedRate("知识库快照版本校验",
+                knowledgeBaseService::refreshIfStale, 0, 5, TimeUnit.MINUTES);
+
+        // 点赞/投票写后缓冲（未开启时为空操作）
+        WriteBehindToggleBuffer.start();
+
+        // 投票计数分片的周期合并
+        ShardedVoteCounter.start();
+
+        // 关注图在后台加载，加载完成前关注相关查询回退到数据库
+        FollowGraph.start();
+        FollowRecommendationService.start();
+
+        // 关注时间线：大V名单刷新、过期收件箱清理
+        TimelineService.start();
+
+        // 私信、通知实时推送的连接心跳
+        PushHub.start();
+
+        // 点赞、评论、关注等互动通知的合并写入
+        NotificationPipeline.start();
+
+        // 超过保留期的已读私信移入归档表
+        MessageService.start();
+
+        // 热门榜：加载近期博客的互动计数，定期按时间衰减重算前K名
+        HeatScoreEngine.start();
+
+        // 挑战按开始/结束时间切换状态，结束时保存最终结果
+        ChallengeLifecycleService.start();
+
+        // 进行中挑战的投票排行榜在后台预加载
+        ChallengeLeaderboard.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        BackgroundScheduler.shutdown();
+        JdbcUtil.shutdown();
+    }
+}
@@ -2,7 +2,9 @@ package com.petblog.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.petblog.Service.BlogService;
+import com.petblog.Service.HeatScoreEngine;
 import com.petblog.model.Blog;
+import com.petblog.model.BlogEngagement;
 import com.petblog.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -13,9 +15,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -104,6 +103,22 @@ public class BlogServlet extends HttpServlet {
             }
         }
         
+        // 处理 /api/blogs/hot 路径：热门博客（按时间衰减后的热度排序）
+        if (pathInfo != null && pathInfo.equals("/hot")) {
+            int limit = 20;
+            try {
+                if (request.getParameter("limit") != null) {
+                    limit = Integer.parseInt(request.getParameter("limit"));
+                }
+            } catch (NumberFormatException e) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.print("{\"error\":\"参数格式错误\"}");
+                return;
+            }
+            out.print(objectMapper.writeValueAsString(blogService.getTrendingBlogs(Math.max(1, Math.min(limit, 100)))));
+            return;
+        }
+        
         // 处理 /api/blogs/by-topic 路径
         if (pathInfo != null && pathInfo.equals("/by-topic")) {
             String topicParam2 = request.getParameter("topic");
@@ -571,10 +586,11 @@ public class BlogServlet extends HttpServlet {
     
     /**
      * 获取博客热度详情
+     * 各项计数由一次聚合查询得到，权重与热门榜、挑战热度共用 HeatScoreEngine
      */
     private void handleGetBlogHeatDetails(Integer blogId, HttpServletResponse response, PrintWriter out) throws Exception {
-        Blog blog = blogService.getBlogById(blogId);
-        if (blog == null) {
+        BlogEngagement engagement = blogService.getBlogEngagement(blogId);
+        if (engagement == null) {
             response.setStatus(HttpServletResponse.SC_NOT_FOUND);
             Map<String, Object> result = new HashMap<>();
             result.put("success", false);
@@ -583,15 +599,14 @@ public class BlogServlet extends HttpServlet {
             return;
         }
         
-        // 获取各项统计数据
-        int voteCount = countVotesForBlog(blogId);
-        int likeCount = blog.getLikeCount() != null ? blog.getLikeCount() : 0;
-        int favoriteCount = blog.getFavoriteCount() != null ? blog.getFavoriteCount() : 0;
-        int replyCount = blog.getCommentCount() != null ? blog.getCommentCount() : 0;
-        int repostCount = blog.getRepostCount() != null ? blog.getRepostCount() : 0;
+        int voteCount = engagement.getVoteCount();
+        int likeCount = engagement.getLikeCount();
+        int favoriteCount = engagement.getFavoriteCount();
+        int replyCount = engagement.getCommentCount();
+        int repostCount = engagement.getRepostCount();
         
         // 计算总热度
-        int totalHeat = voteCount * 50 + likeCount * 20 + favoriteCount * 20 + replyCount * 10 + repostCount * 10;
+        int totalHeat = HeatScoreEngine.heat(engagement);
         
         // 构建详情
         Map<String, Object> details = new HashMap<>();
@@ -603,11 +618,11 @@ public class BlogServlet extends HttpServlet {
         
         // 构建计算过程
         Map<String, String> calculation = new HashMap<>();
-        calculation.put("votes", voteCount + " × 50 = " + (voteCount * 50));
-        calculation.put("likes", likeCount + " × 20 = " + (likeCount * 20));
-        calculation.put("favorites", favoriteCount + " × 20 = " + (favoriteCount * 20));
-        calculation.put("replies", replyCount + " × 10 = " + (replyCount * 10));
-        calculation.put("reposts", repostCount + " × 10 = " + (repostCount * 10));
+        calculation.put("votes", voteCount + " × " + HeatScoreEngine.VOTE_WEIGHT + " = " + (voteCount * HeatScoreEngine.VOTE_WEIGHT));
+        calculation.put("likes", likeCount + " × " + HeatScoreEngine.LIKE_WEIGHT + " = " + (likeCount * HeatScoreEngine.LIKE_WEIGHT));
+        calculation.put("favorites", favoriteCount + " × " + HeatScoreEngine.FAVORITE_WEIGHT + " = " + (favoriteCount * HeatScoreEngine.FAVORITE_WEIGHT));
+        calculation.put("replies", replyCount + " × " + HeatScoreEngine.COMMENT_WEIGHT + " = " + (replyCount * HeatScoreEngine.COMMENT_WEIGHT));
+        calculation.put("reposts", repostCount + " × " + HeatScoreEngine.REPOST_WEIGHT + " = " + (repostCount * HeatScoreEngine.REPOST_WEIGHT));
         
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
@@ -617,27 +632,4 @@ public class BlogServlet extends HttpServlet {
         
         out.print(objectMapper.writeValueAsString(result));
     }
-    
-    /**
-     * 统计博客的投票数
-     */
-    private int countVotesForBlog(Integer blogId) {
-        try {
-            String sql = "SELECT COUNT(*) FROM votes WHERE blog_id = ?";
-            Connection conn = com.petblog.util.JdbcUtil.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, blogId);
-            ResultSet rs = pstmt.executeQuery();
-            int count = 0;
-            if (rs.next()) {
-                count = rs.getInt(1);
-            }
-            com.petblog.util.JdbcUtil.close(conn, pstmt, rs);
-            return count;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return 0;
-        }
-    }
 }
-
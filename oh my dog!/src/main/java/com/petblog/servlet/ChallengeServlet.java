@@ -1,13 +1,14 @@
 package com.petblog.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.petblog.Service.ChallengeLeaderboard;
 import com.petblog.Service.ChallengeService;
 import com.petblog.Service.BlogChallengeService;
-import com.petblog.Service.BlogService;
 import com.petblog.Service.VoteService;
 import com.petblog.model.Challenge;
 import com.petblog.model.BlogChallenge;
-import com.petblog.model.Blog;
+import com.petblog.model.ChallengeBlogHeat;
+import com.petblog.model.PetRanking;
 import com.petblog.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -27,7 +28,6 @@ import java.util.HashMap;
 public class ChallengeServlet extends HttpServlet {
     private final ChallengeService challengeService = new ChallengeService();
     private final BlogChallengeService blogChallengeService = new BlogChallengeService();
-    private final BlogService blogService = new BlogService();
     private final VoteService voteService = new VoteService();
     private final ObjectMapper objectMapper = JsonUtil.getObjectMapper();
 
@@ -45,10 +45,17 @@ public class ChallengeServlet extends HttpServlet {
                 List<Challenge> challenges = getAllChallenges();
                 System.out.println("查询到挑战数量: " + (challenges != null ? challenges.size() : 0));
                 
+                // 所有挑战的热度由一次聚合查询得到
+                List<Integer> challengeIds = new java.util.ArrayList<>();
+                for (Challenge challenge : challenges) {
+                    challengeIds.add(challenge.getChallengeId());
+                }
+                Map<Integer, Integer> heats = blogChallengeService.getChallengeHeats(challengeIds);
+
                 // 为每个挑战添加用户信息和热度
                 List<Map<String, Object>> challengesWithDetails = new java.util.ArrayList<>();
                 for (Challenge challenge : challenges) {
-                    Map<String, Object> challengeMap = buildChallengeMap(challenge);
+                    Map<String, Object> challengeMap = buildChallengeMap(challenge, heats.getOrDefault(challenge.getChallengeId(), 0));
                     challengesWithDetails.add(challengeMap);
                 }
                 
@@ -109,6 +116,10 @@ public class ChallengeServlet extends HttpServlet {
                             e.printStackTrace();
                         }
                         return;
+                    } else if ("leaderboard".equals(action)) {
+                        // 获取实时投票排行榜（前N名，可附带某篇博客的名次）
+                        handleGetLeaderboard(challengeId, request, response, out);
+                        return;
                     } else if ("heat".equals(action)) {
                         // 获取挑战热度
                         try {
@@ -133,7 +144,7 @@ public class ChallengeServlet extends HttpServlet {
                 } else {
                     Map<String, Object> result = new HashMap<>();
                     result.put("success", true);
-                    result.put("challenge", buildChallengeMap(challenge));
+                    result.put("challenge", buildChallengeMap(challenge, blogChallengeService.getChallengeHeat(challengeId)));
                     out.print(objectMapper.writeValueAsString(result));
                 }
             } catch (NumberFormatException e) {
@@ -338,7 +349,7 @@ public class ChallengeServlet extends HttpServlet {
     /**
      * 构建挑战Map（包含用户信息和热度）
      */
-    private Map<String, Object> buildChallengeMap(Challenge challenge) {
+    private Map<String, Object> buildChallengeMap(Challenge challenge, int heat) {
         Map<String, Object> map = new HashMap<>();
         map.put("challenge_id", challenge.getChallengeId());
         map.put("challenge_title", challenge.getChallengeTitle());
@@ -359,66 +370,19 @@ public class ChallengeServlet extends HttpServlet {
             }
         }
         
-        // 计算热度
-        Integer heat = calculateChallengeHeat(challenge.getChallengeId());
         map.put("heat", heat);
         
         return map;
     }
     
-    /**
-     * 计算挑战热度
-     * 热度 = 博客数×50 + 投票数×50 + 点赞数×20 + 收藏数×20 + 评论数×10 + 转发数×10
-     */
-    private Integer calculateChallengeHeat(Integer challengeId) {
-        try {
-            // 获取挑战相关的所有博客
-            List<BlogChallenge> blogChallenges = blogChallengeService.getBlogChallengesByChallengeId(challengeId);
-            if (blogChallenges == null || blogChallenges.isEmpty()) {
-                return 0;
-            }
-            
-            int totalHeat = 0;
-            for (BlogChallenge bc : blogChallenges) {
-                Blog blog = blogService.getBlogById(bc.getBlogId());
-                if (blog != null) {
-                    // 博客数贡献
-                    totalHeat += 50;
-                    
-                    // 投票数贡献（votes表）
-                    int voteCount = countVotesForBlog(blog.getBlogId());
-                    totalHeat += voteCount * 50;
-                    
-                    // 点赞数、收藏数、评论数、转发数贡献
-                    totalHeat += (blog.getLikeCount() != null ? blog.getLikeCount() : 0) * 20;
-                    totalHeat += (blog.getFavoriteCount() != null ? blog.getFavoriteCount() : 0) * 20;
-                    totalHeat += (blog.getCommentCount() != null ? blog.getCommentCount() : 0) * 10;
-                    totalHeat += (blog.getRepostCount() != null ? blog.getRepostCount() : 0) * 10;
-                }
-            }
-            
-            return totalHeat;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return 0;
-        }
-    }
-    
     /**
      * 获取挑战的博客列表（带热度）
+     * 热度 = 投票数×50 + 点赞数×20 + 收藏数×20 + 评论数×10 + 转发数×10，各计数由一次聚合查询得到
      */
     private void handleGetChallengeBlogsWithHeat(Integer challengeId, HttpServletResponse response, PrintWriter out) throws Exception {
-        List<BlogChallenge> blogChallenges = blogChallengeService.getBlogChallengesByChallengeId(challengeId);
         List<Map<String, Object>> blogsWithHeat = new java.util.ArrayList<>();
-        
-        if (blogChallenges != null) {
-            for (BlogChallenge bc : blogChallenges) {
-                Blog blog = blogService.getBlogById(bc.getBlogId());
-                if (blog != null) {
-                    Map<String, Object> blogMap = buildBlogMapWithHeat(blog);
-                    blogsWithHeat.add(blogMap);
-                }
-            }
+        for (ChallengeBlogHeat row : blogChallengeService.getBlogHeats(challengeId)) {
+            blogsWithHeat.add(buildBlogMapWithHeat(row));
         }
         
         out.print(objectMapper.writeValueAsString(blogsWithHeat));
@@ -427,86 +391,20 @@ public class ChallengeServlet extends HttpServlet {
     /**
      * 构建博客Map（包含热度和用户信息）
      */
-    private Map<String, Object> buildBlogMapWithHeat(Blog blog) {
+    private Map<String, Object> buildBlogMapWithHeat(ChallengeBlogHeat row) {
         Map<String, Object> map = new HashMap<>();
-        map.put("blog_id", blog.getBlogId());
-        map.put("blog_title", blog.getBlogTitle());
-        map.put("blog_content", blog.getBlogContent());
-        map.put("blog_create_time", blog.getBlogCreateTime());
-        map.put("user_id", blog.getUserId());
-        
-        // 获取用户信息（如果Blog对象中没有，则从数据库查询）
-        String userName = blog.getUserName();
-        String userAvatarPath = blog.getUserAvatarPath();
-        
-        if (userName == null || userAvatarPath == null) {
-            // 从数据库查询用户信息
-            if (blog.getUserId() != null) {
-                com.petblog.Service.UserService userService = new com.petblog.Service.UserService();
-                com.petblog.model.User user = userService.getUserById(blog.getUserId());
-                if (user != null) {
-                    userName = user.getUserName();
-                    userAvatarPath = user.getUserAvatarPath();
-                }
-            }
-        }
-        
-        map.put("user_name", userName);
-        map.put("user_avatar_path", userAvatarPath);
-        
-        // 计算热度
-        int heat = calculateBlogHeat(blog.getBlogId());
-        map.put("heat", heat);
-        
-        // 获取投票数
-        int voteCount = countVotesForBlog(blog.getBlogId());
-        map.put("vote_count", voteCount);
-        
+        map.put("blog_id", row.getBlogId());
+        map.put("blog_title", row.getBlogTitle());
+        map.put("blog_content", row.getBlogContent());
+        map.put("blog_create_time", row.getBlogCreateTime());
+        map.put("user_id", row.getUserId());
+        map.put("user_name", row.getUserName());
+        map.put("user_avatar_path", row.getUserAvatarPath());
+        map.put("heat", row.getHeat());
+        map.put("vote_count", row.getVoteCount());
         return map;
     }
     
-    /**
-     * 计算博客热度
-     */
-    private int calculateBlogHeat(Integer blogId) {
-        Blog blog = blogService.getBlogById(blogId);
-        if (blog == null) return 0;
-        
-        int heat = 0;
-        heat += countVotesForBlog(blogId) * 50;
-        heat += (blog.getLikeCount() != null ? blog.getLikeCount() : 0) * 20;
-        heat += (blog.getFavoriteCount() != null ? blog.getFavoriteCount() : 0) * 20;
-        heat += (blog.getCommentCount() != null ? blog.getCommentCount() : 0) * 10;
-        heat += (blog.getRepostCount() != null ? blog.getRepostCount() : 0) * 10;
-        
-        return heat;
-    }
-    
-    /**
-     * 统计博客的投票数
-     */
-    private int countVotesForBlog(Integer blogId) {
-        try {
-            // votes表结构：user_id, blog_id, vote_create_time
-            // 直接查询votes表中blog_id的记录数
-            String sql = "SELECT COUNT(*) FROM votes WHERE blog_id = ?";
-            com.petblog.util.JdbcUtil jdbcUtil = new com.petblog.util.JdbcUtil();
-            java.sql.Connection conn = com.petblog.util.JdbcUtil.getConnection();
-            java.sql.PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, blogId);
-            java.sql.ResultSet rs = pstmt.executeQuery();
-            int count = 0;
-            if (rs.next()) {
-                count = rs.getInt(1);
-            }
-            com.petblog.util.JdbcUtil.close(conn, pstmt, rs);
-            return count;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return 0;
-        }
-    }
-    
     /**
      * 从挑战中移除博客
      */
@@ -578,6 +476,7 @@ public class ChallengeServlet extends HttpServlet {
             pstmt.setInt(2, blogId);
             int rowsAffected = pstmt.executeUpdate();
             com.petblog.util.JdbcUtil.close(conn, pstmt, null);
+            ChallengeLeaderboard.invalidate(challengeId);
             
             if (rowsAffected == 0) {
                 System.out.println("警告: 未找到要删除的博客-挑战关联 (challenge_id=" + challengeId + ", blog_id=" + blogId + ")");
@@ -598,69 +497,19 @@ public class ChallengeServlet extends HttpServlet {
      * 获取狗狗排名
      */
     private void handleGetPetRankings(Integer challengeId, HttpServletResponse response, PrintWriter out) throws Exception {
-        // 获取挑战的所有博客
-        List<BlogChallenge> blogChallenges = blogChallengeService.getBlogChallengesByChallengeId(challengeId);
-        if (blogChallenges == null || blogChallenges.isEmpty()) {
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("rankings", new java.util.ArrayList<>());
-            out.print(objectMapper.writeValueAsString(result));
-            return;
-        }
-        
-        // 获取每个博客的宠物和投票数
-        Map<Integer, PetRankingInfo> petRankingMap = new HashMap<>();
-        
-        for (BlogChallenge bc : blogChallenges) {
-            Blog blog = blogService.getBlogById(bc.getBlogId());
-            if (blog != null) {
-                // 获取博客关联的宠物（通过blogpet表）
-                com.petblog.Service.BlogPetService blogPetService = new com.petblog.Service.BlogPetService();
-                List<Integer> petIds = blogPetService.getPetIdsByBlogId(blog.getBlogId());
-                
-                if (petIds != null) {
-                    for (Integer petId : petIds) {
-                        PetRankingInfo info = petRankingMap.getOrDefault(petId, new PetRankingInfo());
-                        info.petId = petId;
-                        info.voteCount += countVotesForBlog(blog.getBlogId());
-                        info.blogCount += 1;
-                        petRankingMap.put(petId, info);
-                    }
-                }
-            }
-        }
-        
-        // 转换为列表并排序
+        // 按宠物汇总投票数和博客数、关联宠物和主人信息、排序都在一条分组查询中完成
         List<Map<String, Object>> rankings = new java.util.ArrayList<>();
-        int rank = 1;
-        for (PetRankingInfo info : petRankingMap.values().stream()
-                .sorted((a, b) -> b.voteCount - a.voteCount)
-                .toList()) {
+        for (PetRanking ranking : blogChallengeService.getPetRankings(challengeId)) {
             Map<String, Object> rankingMap = new HashMap<>();
-            rankingMap.put("ranking", rank++);
-            rankingMap.put("pet_id", info.petId);
-            rankingMap.put("vote_count", info.voteCount);
-            rankingMap.put("blog_count", info.blogCount);
-            
-            // 获取宠物信息
-            com.petblog.Service.PetService petService = new com.petblog.Service.PetService();
-            com.petblog.model.Pet pet = petService.getPetById(info.petId);
-            if (pet != null) {
-                rankingMap.put("pet_name", pet.getPetName());
-                rankingMap.put("pet_breed", pet.getPetBreed());
-                rankingMap.put("pet_avatar_path", pet.getPetAvatarPath());
-                
-                // 获取主人信息
-                if (pet.getUserId() != null) {
-                    com.petblog.Service.UserService userService = new com.petblog.Service.UserService();
-                    com.petblog.model.User owner = userService.getUserById(pet.getUserId());
-                    if (owner != null) {
-                        rankingMap.put("owner_name", owner.getUserName());
-                        rankingMap.put("owner_avatar", owner.getUserAvatarPath());
-                    }
-                }
-            }
-            
+            rankingMap.put("ranking", ranking.getRanking());
+            rankingMap.put("pet_id", ranking.getPetId());
+            rankingMap.put("vote_count", ranking.getVoteCount());
+            rankingMap.put("blog_count", ranking.getBlogCount());
+            rankingMap.put("pet_name", ranking.getPetName());
+            rankingMap.put("pet_breed", ranking.getPetBreed());
+            rankingMap.put("pet_avatar_path", ranking.getPetAvatarPath());
+            rankingMap.put("owner_name", ranking.getOwnerName());
+            rankingMap.put("owner_avatar", ranking.getOwnerAvatar());
             rankings.add(rankingMap);
         }
         
@@ -680,23 +529,43 @@ public class ChallengeServlet extends HttpServlet {
     }
     
     /**
-     * 获取挑战热度
+     * 获取实时投票排行榜
+     * GET /api/challenges/{id}/leaderboard?limit=10&amp;blogId=5
+     * 名次变化通过 /api/push?challengeId={id} 推送 leaderboard 事件
      */
-    private void handleGetChallengeHeat(Integer challengeId, HttpServletResponse response, PrintWriter out) throws Exception {
-        Integer heat = calculateChallengeHeat(challengeId);
+    private void handleGetLeaderboard(Integer challengeId, HttpServletRequest request, HttpServletResponse response, PrintWriter out) throws IOException {
+        int limit = 10;
+        Integer blogId = null;
+        try {
+            if (request.getParameter("limit") != null) {
+                limit = Integer.parseInt(request.getParameter("limit"));
+            }
+            if (request.getParameter("blogId") != null) {
+                blogId = Integer.valueOf(request.getParameter("blogId"));
+            }
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"error\":\"参数格式错误\"}");
+            return;
+        }
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
-        result.put("heat", heat);
+        result.put("rankings", ChallengeLeaderboard.top(challengeId, Math.max(1, limit)));
+        result.put("total", ChallengeLeaderboard.size(challengeId));
+        if (blogId != null) {
+            result.put("blog", ChallengeLeaderboard.rankOf(challengeId, blogId));
+        }
         out.print(objectMapper.writeValueAsString(result));
     }
     
     /**
-     * 宠物排名信息内部类
+     * 获取挑战热度
      */
-    private static class PetRankingInfo {
-        Integer petId;
-        int voteCount = 0;
-        int blogCount = 0;
+    private void handleGetChallengeHeat(Integer challengeId, HttpServletResponse response, PrintWriter out) throws Exception {
+        int heat = blogChallengeService.getChallengeHeat(challengeId);
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("heat", heat);
+        out.print(objectMapper.writeValueAsString(result));
     }
 }
-
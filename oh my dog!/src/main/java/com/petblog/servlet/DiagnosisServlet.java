@@ -432,6 +432,7 @@ public class DiagnosisServlet extends HttpServlet {
                 session.setUncertainSymptoms(uncertainSymptoms != null ? uncertainSymptoms : new ArrayList<>());
                 session.setQuestionCount(totalQuestions != null ? totalQuestions : (askedSymptoms != null ? askedSymptoms.size() : 0));
                 session.setMainComplaintId(mainComplaintId);
+                session.setTraceEnabled(Boolean.TRUE.equals(requestData.get("trace")));
                 
                 Map<String, Object> nextStepResult = diagnosisService.nextStep(session);
                 
@@ -486,6 +487,9 @@ public class DiagnosisServlet extends HttpServlet {
                     result.put("description", "");
                     result.put("structured", false);
                     result.put("transitionMessage", transitionMessage);
+                    if (nextStepResult.get("traceId") != null) {
+                        result.put("traceId", nextStepResult.get("traceId"));
+                    }
                     out.print(objectMapper.writeValueAsString(result));
                     return;
                 } else {
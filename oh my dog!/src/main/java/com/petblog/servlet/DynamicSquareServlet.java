@@ -1,6 +1,8 @@
 package com.petblog.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.petblog.Service.DynamicSquareService;
+import com.petblog.model.ActivityPage;
 import com.petblog.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -10,18 +12,23 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * 动态广场接口
+ * GET /api/dynamic-square?limit=20&cursor=...
+ * 返回新博客、转发、挑战投稿、新话题归并后的动态（按时间倒序），
+ * 还有下一页时在 nextCursor 字段和响应头 X-Next-Cursor 中返回游标
  */
 @WebServlet("/api/dynamic-square")
 public class DynamicSquareServlet extends HttpServlet {
+    private final DynamicSquareService dynamicSquareService = new DynamicSquareService();
     private final ObjectMapper objectMapper = JsonUtil.getObjectMapper();
 
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 50;
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -29,27 +36,33 @@ public class DynamicSquareServlet extends HttpServlet {
         PrintWriter out = response.getWriter();
 
         try {
-            // 返回动态广场数据（示例数据）
-            // 实际应该从数据库获取热门动态
-            List<Map<String, Object>> data = new ArrayList<>();
-            
-            // 示例数据
-            Map<String, Object> item1 = new HashMap<>();
-            item1.put("id", 1);
-            item1.put("type", "blog");
-            item1.put("title", "热门动态1");
-            item1.put("content", "这是一条热门动态");
-            data.add(item1);
-            
+            int limit = request.getParameter("limit") != null ? Integer.parseInt(request.getParameter("limit")) : DEFAULT_LIMIT;
+            limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+            ActivityPage page;
+            try {
+                page = dynamicSquareService.getActivities(request.getParameter("cursor"), limit);
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.print("{\"success\":false,\"error\":\"cursor格式错误\"}");
+                return;
+            }
+            if (page.getNextCursor() != null) {
+                response.setHeader("X-Next-Cursor", page.getNextCursor());
+            }
+
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
-            result.put("data", data);
-            
+            result.put("data", page.getItems());
+            result.put("nextCursor", page.getNextCursor());
+
             out.print(objectMapper.writeValueAsString(result));
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"success\":false,\"error\":\"参数格式错误\"}");
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.print("{\"success\":false,\"error\":\"获取动态广场失败\"}");
         }
     }
 }
-
@@ -1,8 +1,13 @@
 package com.petblog.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.petblog.Service.FollowRecommendationService;
 import com.petblog.Service.FollowService;
+import com.petblog.Service.UserService;
 import com.petblog.model.Follow;
+import com.petblog.model.FollowRecommendation;
+import com.petblog.model.ToggleResult;
+import com.petblog.model.User;
 import com.petblog.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -13,19 +18,43 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @WebServlet("/api/follows/*")
 public class FollowServlet extends HttpServlet {
     private final FollowService followService = new FollowService();
+    private final UserService userService = new UserService();
+    private final FollowRecommendationService recommendationService = new FollowRecommendationService();
     private final ObjectMapper objectMapper = JsonUtil.getObjectMapper();
 
+    /**
+     * 关注/粉丝用户列表默认和最大条数
+     */
+    private static final int DEFAULT_LIST_LIMIT = 100;
+    private static final int MAX_LIST_LIMIT = 500;
+
+    /**
+     * 推荐关注返回条数
+     */
+    private static final int RECOMMENDATION_LIMIT = 10;
+
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         response.setContentType("application/json;charset=UTF-8");
         PrintWriter out = response.getWriter();
 
+        // 处理 /api/follows/toggle 请求
+        String pathInfo = request.getPathInfo();
+        if (pathInfo != null && pathInfo.equals("/toggle")) {
+            processToggleFollow(request, response, out);
+            return;
+        }
+
         try {
             // 从请求体获取关注信息
             StringBuilder sb = new StringBuilder();
@@ -58,6 +87,65 @@ public class FollowServlet extends HttpServlet {
         }
     }
 
+    /**
+     * 处理关注切换逻辑（关注者取请求体中的 follower_id/userId，缺省时取session中的userId）
+     */
+    private void processToggleFollow(HttpServletRequest request, HttpServletResponse response, PrintWriter out)
+            throws IOException {
+        try {
+            StringBuilder sb = new StringBuilder();
+            BufferedReader reader = request.getReader();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> requestData = objectMapper.readValue(sb.toString(),
+                objectMapper.getTypeFactory().constructMapType(Map.class, String.class, Object.class));
+
+            Object followeeObj = requestData.get("followee_id");
+            Object followerObj = requestData.get("follower_id") != null ? requestData.get("follower_id") : requestData.get("userId");
+            if (followerObj == null) {
+                followerObj = request.getSession().getAttribute("userId");
+            }
+
+            if (followeeObj == null || followerObj == null) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.print("{\"success\":false,\"error\":\"缺少必要参数: followee_id 或未登录\"}");
+                return;
+            }
+            Integer followeeId = Integer.valueOf(followeeObj.toString());
+            Integer followerId = Integer.valueOf(followerObj.toString());
+            if (followerId.equals(followeeId)) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.print("{\"success\":false,\"error\":\"不能关注自己\"}");
+                return;
+            }
+
+            // 单次事务内切换关注状态，同时得到被关注者最新粉丝数
+            ToggleResult toggle = followService.toggleFollow(followerId, followeeId);
+
+            Map<String, Object> result = new HashMap<>();
+            if (toggle == null) {
+                result.put("success", false);
+                result.put("message", "切换关注状态失败");
+            } else {
+                result.put("success", true);
+                result.put("followed", toggle.isActive());
+                result.put("followerCount", toggle.getCount());
+                result.put("message", toggle.isActive() ? "关注成功" : "取消关注成功");
+            }
+            out.print(objectMapper.writeValueAsString(result));
+        } catch (Exception e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            Map<String, Object> errorResult = new HashMap<>();
+            errorResult.put("success", false);
+            errorResult.put("error", "切换关注状态失败: " + e.getMessage());
+            out.print(objectMapper.writeValueAsString(errorResult));
+        }
+    }
+
     @Override
     protected void doDelete(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -109,6 +197,12 @@ public class FollowServlet extends HttpServlet {
             return;
         }
         
+        // 处理 /api/follows/following/{userId} 和 /api/follows/followers/{userId} 请求 - 关注/粉丝用户列表
+        if (pathInfo != null && (pathInfo.startsWith("/following/") || pathInfo.startsWith("/followers/"))) {
+            processFollowList(request, response, out, pathInfo);
+            return;
+        }
+
         // 处理 /api/follows/recommendations 请求 - 获取推荐关注列表
         if (pathInfo != null && pathInfo.equals("/recommendations")) {
             try {
@@ -123,27 +217,26 @@ public class FollowServlet extends HttpServlet {
                     currentUserId = userIdObj instanceof Integer ? (Integer) userIdObj : Integer.valueOf(userIdObj.toString());
                 }
                 
-                // 获取推荐用户列表（简单实现：返回所有用户，排除已关注的和自己）
-                com.petblog.Service.UserService userService = new com.petblog.Service.UserService();
+                // 登录用户优先使用基于关注图的推荐（共同关注 + 话题兴趣 + 活跃度）
+                if (currentUserId != null) {
+                    List<FollowRecommendation> ranked = recommendationService.getRecommendations(currentUserId, RECOMMENDATION_LIMIT);
+                    if (ranked != null) {
+                        out.print(objectMapper.writeValueAsString(toRecommendationMaps(ranked)));
+                        return;
+                    }
+                }
+
+                // 关注图未就绪或未登录：返回前50个用户中未关注的，排除自己
                 java.util.List<com.petblog.model.User> allUsers = userService.getAllUsers(1, 50);
                 java.util.List<java.util.Map<String, Object>> recommendations = new java.util.ArrayList<>();
                 
                 if (allUsers != null) {
-                    // 获取当前用户已关注的用户ID列表
-                    java.util.Set<Integer> followingIds = new java.util.HashSet<>();
-                    if (currentUserId != null) {
-                        java.util.List<Integer> following = followService.getFollowingIds(currentUserId, 1, 1000);
-                        if (following != null) {
-                            followingIds.addAll(following);
-                        }
-                    }
-                    
                     for (com.petblog.model.User user : allUsers) {
-                        // 排除自己和已关注的用户
+                        // 排除自己和已关注的用户（关注图就绪时为内存中的二分查找）
                         if (currentUserId != null && user.getUserId().equals(currentUserId)) {
                             continue;
                         }
-                        if (followingIds.contains(user.getUserId())) {
+                        if (currentUserId != null && followService.isUserFollowing(currentUserId, user.getUserId())) {
                             continue;
                         }
                         
@@ -155,11 +248,20 @@ public class FollowServlet extends HttpServlet {
                         recommendations.add(userMap);
                         
                         // 限制返回数量
-                        if (recommendations.size() >= 10) {
+                        if (recommendations.size() >= RECOMMENDATION_LIMIT) {
                             break;
                         }
                     }
                 }
+                // 粉丝数一次批量统计
+                java.util.List<Integer> recommendedIds = new java.util.ArrayList<>();
+                for (java.util.Map<String, Object> userMap : recommendations) {
+                    recommendedIds.add((Integer) userMap.get("user_id"));
+                }
+                java.util.Map<Integer, Integer> followerCounts = followService.countFollowersByIds(recommendedIds);
+                for (java.util.Map<String, Object> userMap : recommendations) {
+                    userMap.put("follower_count", followerCounts.getOrDefault(userMap.get("user_id"), 0));
+                }
                 
                 out.print(objectMapper.writeValueAsString(recommendations));
             } catch (Exception e) {
@@ -200,4 +302,93 @@ public class FollowServlet extends HttpServlet {
             out.print("{\"error\":\"参数格式错误\"}");
         }
     }
+
+    /**
+     * 处理关注/粉丝用户列表（按用户ID升序切片，附带用户信息；粉丝列表标记该用户是否已回关）
+     * 参数 offset（默认0）、limit（默认100，最大500）
+     */
+    private void processFollowList(HttpServletRequest request, HttpServletResponse response, PrintWriter out, String pathInfo)
+            throws IOException {
+        try {
+            String[] splits = pathInfo.split("/");
+            if (splits.length < 3) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.print("{\"error\":\"需要指定用户ID\"}");
+                return;
+            }
+            boolean followerList = "followers".equals(splits[1]);
+            Integer userId = Integer.valueOf(splits[2]);
+            int offset = request.getParameter("offset") != null ? Math.max(0, Integer.parseInt(request.getParameter("offset"))) : 0;
+            int limit = request.getParameter("limit") != null ? Integer.parseInt(request.getParameter("limit")) : DEFAULT_LIST_LIMIT;
+            limit = Math.max(1, Math.min(limit, MAX_LIST_LIMIT));
+
+            List<Integer> ids = followerList
+                    ? followService.getFollowerSlice(userId, offset, limit)
+                    : followService.getFollowingSlice(userId, offset, limit);
+            List<Map<String, Object>> users = new ArrayList<>();
+            if (ids != null && !ids.isEmpty()) {
+                List<User> found = userService.getUsersByIds(ids);
+                Map<Integer, User> byId = new HashMap<>();
+                if (found != null) {
+                    for (User user : found) {
+                        byId.put(user.getUserId(), user);
+                    }
+                }
+                for (Integer id : ids) {
+                    User user = byId.get(id);
+                    if (user == null) {
+                        continue;
+                    }
+                    Map<String, Object> userMap = new HashMap<>();
+                    userMap.put("user_id", user.getUserId());
+                    userMap.put("user_name", user.getUserName());
+                    userMap.put("user_avatar_path", user.getUserAvatarPath());
+                    userMap.put("is_following", !followerList || followService.isUserFollowing(userId, id));
+                    users.add(userMap);
+                }
+            }
+            out.print(objectMapper.writeValueAsString(users));
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"error\":\"参数格式错误\"}");
+        }
+    }
+
+    /**
+     * 推荐结果附带用户信息（按推荐顺序，跳过已不存在的用户）
+     */
+    private List<Map<String, Object>> toRecommendationMaps(List<FollowRecommendation> ranked) {
+        List<Map<String, Object>> recommendations = new ArrayList<>();
+        if (ranked.isEmpty()) {
+            return recommendations;
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (FollowRecommendation recommendation : ranked) {
+            ids.add(recommendation.getUserId());
+        }
+        List<User> found = userService.getUsersByIds(ids);
+        Map<Integer, User> byId = new HashMap<>();
+        if (found != null) {
+            for (User user : found) {
+                byId.put(user.getUserId(), user);
+            }
+        }
+        Map<Integer, Integer> followerCounts = followService.countFollowersByIds(ids);
+        for (FollowRecommendation recommendation : ranked) {
+            User user = byId.get(recommendation.getUserId());
+            if (user == null) {
+                continue;
+            }
+            Map<String, Object> userMap = new HashMap<>();
+            userMap.put("user_id", user.getUserId());
+            userMap.put("user_name", user.getUserName());
+            userMap.put("user_avatar_path", user.getUserAvatarPath());
+            userMap.put("email", user.getEmail());
+            userMap.put("is_ban", user.getIsBan());
+            userMap.put("follower_count", followerCounts.getOrDefault(user.getUserId(), 0));
+            userMap.put("mutual_count", recommendation.getMutualCount());
+            recommendations.add(userMap);
+        }
+        return recommendations;
+    }
 }
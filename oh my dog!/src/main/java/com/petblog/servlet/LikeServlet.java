@@ -2,7 +2,10 @@ package com.petblog.servlet;
 
 import com.petblog.Service.LikeService;
 import com.petblog.model.Like;
+import com.petblog.model.InteractedBlog;
+import com.petblog.model.ToggleResult;
 import com.petblog.util.JsonUtil;
+import com.petblog.util.KeysetCursor;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -23,6 +26,11 @@ public class LikeServlet extends HttpServlet {
     private final LikeService likeService = new LikeService();
     private final ObjectMapper objectMapper = JsonUtil.getObjectMapper();
 
+    /**
+     * /my 列表单页最大条数
+     */
+    private static final int MAX_LIST_LIMIT = 1000;
+
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -58,26 +66,18 @@ public class LikeServlet extends HttpServlet {
                     return;
                 }
 
-                // 检查是否已点赞
-                boolean isLiked = likeService.isBlogLiked(userId, blogId);
-                
+                // 单次事务内切换点赞状态，同时得到最新获赞数
+                ToggleResult toggle = likeService.toggleLike(userId, blogId);
+
                 java.util.Map<String, Object> result = new java.util.HashMap<>();
-                if (isLiked) {
-                    // 取消点赞
-                    boolean removed = likeService.removeLike(userId, blogId);
-                    result.put("success", removed);
-                    result.put("liked", false);
-                    result.put("message", removed ? "取消点赞成功" : "取消点赞失败");
+                if (toggle == null) {
+                    result.put("success", false);
+                    result.put("message", "切换点赞状态失败");
                 } else {
-                    // 添加点赞
-                    Like like = new Like();
-                    like.setUserId(userId);
-                    like.setBlogId(blogId);
-                    like.setLikeTime(new Date());
-                    boolean added = likeService.addLike(like);
-                    result.put("success", added);
-                    result.put("liked", added);
-                    result.put("message", added ? "点赞成功" : "点赞失败");
+                    result.put("success", true);
+                    result.put("liked", toggle.isActive());
+                    result.put("likeCount", toggle.getCount());
+                    result.put("message", toggle.isActive() ? "点赞成功" : "取消点赞成功");
                 }
                 
                 out.print(objectMapper.writeValueAsString(result));
@@ -220,49 +220,43 @@ public class LikeServlet extends HttpServlet {
                     return;
                 }
                 
-                // 获取用户点赞的博客ID列表
-                List<Integer> blogIds = likeService.getLikedBlogIdsByUserId(userId, 1, 1000);
-                if (blogIds == null || blogIds.isEmpty()) {
-                    out.print("[]");
+                // 键集分页：limit 默认1000（与原先一次返回的上限一致），cursor 为上一页响应头 X-Next-Cursor 的值
+                int limit = request.getParameter("limit") != null ? Integer.parseInt(request.getParameter("limit")) : MAX_LIST_LIMIT;
+                limit = Math.max(1, Math.min(limit, MAX_LIST_LIMIT));
+                KeysetCursor cursor;
+                try {
+                    cursor = KeysetCursor.decode(request.getParameter("cursor"));
+                } catch (IllegalArgumentException e) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    out.print("{\"error\":\"cursor格式错误\"}");
                     return;
                 }
-                
-                // 获取博客详情
-                com.petblog.Service.BlogService blogService = new com.petblog.Service.BlogService();
+
+                // 一次联表查询取出博客、作者、计数和点赞时间
+                List<InteractedBlog> blogs = likeService.getLikedBlogs(userId,
+                        cursor != null ? cursor.getTime() : null, cursor != null ? cursor.getId() : null, limit);
                 java.util.List<java.util.Map<String, Object>> blogsWithDetails = new java.util.ArrayList<>();
-                
-                for (Integer blogId : blogIds) {
-                    com.petblog.model.Blog blog = blogService.getBlogById(blogId);
-                    if (blog != null) {
-                        java.util.Map<String, Object> blogMap = new java.util.HashMap<>();
-                        blogMap.put("blog_id", blog.getBlogId());
-                        blogMap.put("blog_title", blog.getBlogTitle());
-                        blogMap.put("blog_content", blog.getBlogContent());
-                        blogMap.put("blog_create_time", blog.getBlogCreateTime());
-                        blogMap.put("user_id", blog.getUserId());
-                        blogMap.put("user_name", blog.getUserName());
-                        blogMap.put("user_avatar_path", blog.getUserAvatarPath());
-                        
-                        // 获取点赞时间
-                        try {
-                            java.sql.Connection conn = com.petblog.util.JdbcUtil.getConnection();
-                            java.sql.PreparedStatement pstmt = conn.prepareStatement(
-                                "SELECT like_time FROM likes WHERE user_id = ? AND blog_id = ? ORDER BY like_time DESC LIMIT 1");
-                            pstmt.setInt(1, userId);
-                            pstmt.setInt(2, blogId);
-                            java.sql.ResultSet rs = pstmt.executeQuery();
-                            if (rs.next()) {
-                                blogMap.put("like_time", rs.getTimestamp("like_time"));
-                            }
-                            com.petblog.util.JdbcUtil.close(conn, pstmt, rs);
-                        } catch (Exception e) {
-                            // 忽略错误
-                        }
-                        
-                        blogsWithDetails.add(blogMap);
-                    }
+                for (InteractedBlog blog : blogs) {
+                    java.util.Map<String, Object> blogMap = new java.util.HashMap<>();
+                    blogMap.put("blog_id", blog.getBlogId());
+                    blogMap.put("blog_title", blog.getBlogTitle());
+                    blogMap.put("blog_content", blog.getBlogContent());
+                    blogMap.put("blog_create_time", blog.getBlogCreateTime());
+                    blogMap.put("user_id", blog.getUserId());
+                    blogMap.put("user_name", blog.getUserName());
+                    blogMap.put("user_avatar_path", blog.getUserAvatarPath());
+                    blogMap.put("like_count", blog.getLikeCount());
+                    blogMap.put("favorite_count", blog.getFavoriteCount());
+                    blogMap.put("comment_count", blog.getCommentCount());
+                    blogMap.put("repost_count", blog.getRepostCount());
+                    blogMap.put("like_time", blog.getInteractionTime());
+                    blogsWithDetails.add(blogMap);
                 }
-                
+                if (blogs.size() == limit) {
+                    InteractedBlog last = blogs.get(blogs.size() - 1);
+                    response.setHeader("X-Next-Cursor", new KeysetCursor(last.getInteractionTime(), last.getBlogId()).encode());
+                }
+
                 out.print(objectMapper.writeValueAsString(blogsWithDetails));
             } catch (Exception e) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
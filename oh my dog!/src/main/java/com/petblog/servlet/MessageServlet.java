@@ -2,7 +2,9 @@ package com.petblog.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.petblog.Service.MessageService;
+import com.petblog.model.Conversation;
 import com.petblog.model.Message;
+import com.petblog.util.KeysetCursor;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -20,6 +22,9 @@ public class MessageServlet extends HttpServlet {
     private final MessageService messageService = new MessageService();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -39,6 +44,32 @@ public class MessageServlet extends HttpServlet {
 
             List<Message> conversations = messageService.getConversationList(userId);
             out.print(objectMapper.writeValueAsString(conversations));
+        } else if (pathInfo.equals("/conversations")) {
+            // 会话列表（含对方用户、最后一条消息和未读数）/api/messages/conversations
+            Integer userId = (Integer) request.getSession().getAttribute("userId");
+            if (userId == null) {
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                out.print("{\"error\":\"未登录\"}");
+                return;
+            }
+
+            // 键集分页：cursor 为上一页响应头 X-Next-Cursor 的值（最后消息时间_对方用户ID）
+            try {
+                int limit = request.getParameter("limit") != null ? Integer.parseInt(request.getParameter("limit")) : DEFAULT_LIMIT;
+                limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+                KeysetCursor cursor = KeysetCursor.decode(request.getParameter("cursor"));
+                List<Conversation> conversations = messageService.getConversations(userId,
+                        cursor != null ? cursor.getTime() : null, cursor != null ? cursor.getId() : null, limit);
+                if (conversations.size() == limit) {
+                    Conversation last = conversations.get(conversations.size() - 1);
+                    response.setHeader("X-Next-Cursor", new KeysetCursor(last.getLastTime(), last.getPeerId()).encode());
+                }
+                out.print(objectMapper.writeValueAsString(conversations));
+            } catch (IllegalArgumentException e) {
+                // 包含 NumberFormatException
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.print("{\"error\":\"参数格式错误\"}");
+            }
         } else {
             String[] splits = pathInfo.split("/");
             if (splits.length < 2) {
@@ -53,9 +84,23 @@ public class MessageServlet extends HttpServlet {
                     Integer fromUserId = Integer.valueOf(splits[2]);
                     Integer toUserId = Integer.valueOf(splits[3]);
                     String pageNumParam = request.getParameter("pageNum");
+                    if (pageNumParam == null) {
+                        // 键集分页（从新到旧）：cursor 为上一页响应头 X-Next-Cursor 的值（发送时间_私信ID），翻过热数据后自动查询归档
+                        int limit = request.getParameter("limit") != null ? Integer.parseInt(request.getParameter("limit")) : DEFAULT_LIMIT;
+                        limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+                        KeysetCursor cursor = KeysetCursor.decode(request.getParameter("cursor"));
+                        List<Message> history = messageService.getChatHistory(fromUserId, toUserId,
+                                cursor != null ? cursor.getTime() : null, cursor != null ? cursor.getId() : null, limit);
+                        if (history.size() == limit) {
+                            Message last = history.get(history.size() - 1);
+                            response.setHeader("X-Next-Cursor", new KeysetCursor(last.getCreationTime(), last.getMessageId()).encode());
+                        }
+                        out.print(objectMapper.writeValueAsString(history));
+                        return;
+                    }
                     String pageSizeParam = request.getParameter("pageSize");
 
-                    int pageNum = pageNumParam != null ? Integer.parseInt(pageNumParam) : 1;
+                    int pageNum = Integer.parseInt(pageNumParam);
                     int pageSize = pageSizeParam != null ? Integer.parseInt(pageSizeParam) : 10;
 
                     List<Message> chatRecords = messageService.getChatRecords(fromUserId, toUserId, pageNum, pageSize);
@@ -63,6 +108,9 @@ public class MessageServlet extends HttpServlet {
                 } catch (NumberFormatException e) {
                     response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     out.print("{\"error\":\"Invalid user ID format\"}");
+                } catch (IllegalArgumentException e) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    out.print("{\"error\":\"参数格式错误\"}");
                 }
                 return;
             }
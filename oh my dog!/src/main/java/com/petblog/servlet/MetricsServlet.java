@@ -0,0 +1,42 @@
+package com.petblog.servlet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.petblog.util.JsonUtil;
+import com.petblog.util.MetricsRegistry;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 指标导出Servlet
+ * GET /api/metrics                    - JSON格式
+ * GET /api/metrics?format=prometheus  - Prometheus文本格式
+ */
+@WebServlet("/api/metrics")
+public class MetricsServlet extends HttpServlet {
+    private final ObjectMapper objectMapper = JsonUtil.getObjectMapper();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if ("prometheus".equals(request.getParameter("format"))) {
+            response.setContentType("text/plain;version=0.0.4;charset=UTF-8");
+            response.getWriter().print(MetricsRegistry.toPrometheus());
+            return;
+        }
+
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put("success", true);
+        responseData.put("data", MetricsRegistry.snapshot());
+        out.print(objectMapper.writeValueAsString(responseData));
+    }
+}
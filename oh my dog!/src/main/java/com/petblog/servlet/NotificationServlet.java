@@ -2,12 +2,15 @@ package com.petblog.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.petblog.Service.InformService;
+import com.petblog.Service.UnreadCountService;
+import com.petblog.model.UnreadCount;
 import com.petblog.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -20,6 +23,7 @@ import java.util.Map;
 @WebServlet("/api/notifications/*")
 public class NotificationServlet extends HttpServlet {
     private final InformService informService = new InformService();
+    private final UnreadCountService unreadCountService = new UnreadCountService();
     private final ObjectMapper objectMapper = JsonUtil.getObjectMapper();
 
     @Override
@@ -32,32 +36,44 @@ public class NotificationServlet extends HttpServlet {
         
         // 处理 /api/notifications/unread-count 请求
         if (pathInfo != null && pathInfo.equals("/unread-count")) {
-            try {
-                String userIdParam = request.getParameter("userId");
-                if (userIdParam != null) {
-                    Integer userId = Integer.valueOf(userIdParam);
-                    java.util.List<com.petblog.model.Inform> unreadInforms = informService.getUnreadInformsByUserId(userId);
-                    int count = unreadInforms != null ? unreadInforms.size() : 0;
-                    
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("count", count);
-                    out.print(objectMapper.writeValueAsString(result));
-                } else {
-                    // 如果没有userId参数，返回0
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("count", 0);
-                    out.print(objectMapper.writeValueAsString(result));
-                }
-            } catch (Exception e) {
-                Map<String, Object> result = new HashMap<>();
-                result.put("count", 0);
-                out.print(objectMapper.writeValueAsString(result));
-            }
+            Map<String, Object> result = new HashMap<>();
+            Integer userId = resolveUserId(request);
+            result.put("count", userId != null ? informService.countUnreadInformsByUserId(userId) : 0);
+            out.print(objectMapper.writeValueAsString(result));
+            return;
+        }
+
+        // 处理 /api/notifications/badge 请求：一次返回未读私信数和未读通知数
+        if (pathInfo != null && pathInfo.equals("/badge")) {
+            Map<String, Object> result = new HashMap<>();
+            Integer userId = resolveUserId(request);
+            UnreadCount count = unreadCountService.getUnreadCount(userId);
+            result.put("messages", count.getMessages());
+            result.put("notifications", count.getInforms());
+            result.put("total", count.getMessages() + count.getInforms());
+            out.print(objectMapper.writeValueAsString(result));
             return;
         }
         
         response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
         out.print("{\"error\":\"Invalid request\"}");
     }
-}
 
+    /**
+     * 读取用户ID：优先取userId参数，没有时取当前登录用户
+     * @return 用户ID，参数无效或未登录时返回null
+     */
+    private Integer resolveUserId(HttpServletRequest request) {
+        String userIdParam = request.getParameter("userId");
+        if (userIdParam != null) {
+            try {
+                return Integer.valueOf(userIdParam);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        HttpSession session = request.getSession(false);
+        Object userId = session != null ? session.getAttribute("userId") : null;
+        return userId instanceof Integer ? (Integer) userId : null;
+    }
+}
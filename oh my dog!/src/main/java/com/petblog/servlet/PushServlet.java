@@ -0,0 +1,69 @@
+package com.petblog.servlet;
+
+import com.petblog.Service.ChallengeLeaderboard;
+import com.petblog.util.PushHub;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * 实时推送Servlet（Server-Sent Events）
+ * GET /api/push 订阅当前登录用户（取session中的userId，未登录返回401）
+ * 保持一个长连接，推送事件：message（新私信）、inform（新通知），空闲时定期发送心跳注释行。
+ * GET /api/push?challengeId=3 订阅挑战排行榜（无需登录），推送 leaderboard（名次、票数变化）事件。
+ * 浏览器使用 EventSource 连接，断线后自动重连。
+ */
+@WebServlet(urlPatterns = "/api/push", asyncSupported = true)
+public class PushServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String challengeIdParam = request.getParameter("challengeId");
+        if (challengeIdParam != null) {
+            int challengeId;
+            try {
+                challengeId = Integer.parseInt(challengeIdParam);
+            } catch (NumberFormatException e) {
+                response.setContentType("application/json;charset=UTF-8");
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().print("{\"error\":\"参数格式错误\"}");
+                return;
+            }
+            AsyncContext context = startStream(request, response);
+            PushHub.subscribeTopic(ChallengeLeaderboard.topic(challengeId), request.getSession().getId(), context);
+            return;
+        }
+
+        Integer userId = (Integer) request.getSession().getAttribute("userId");
+        if (userId == null) {
+            response.setContentType("application/json;charset=UTF-8");
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().print("{\"error\":\"用户未登录\"}");
+            return;
+        }
+
+        AsyncContext context = startStream(request, response);
+        PushHub.subscribe(userId, request.getSession().getId(), context);
+    }
+
+    /**
+     * 设置事件流响应头并进入异步模式
+     */
+    private AsyncContext startStream(HttpServletRequest request, HttpServletResponse response) {
+        response.setContentType("text/event-stream;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        // 关闭反向代理的响应缓冲
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext context = request.startAsync();
+        // 连接不超时，由心跳发现断开的客户端
+        context.setTimeout(0);
+        return context;
+    }
+}
@@ -1,9 +1,12 @@
 package com.petblog.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.petblog.Service.BlogService;
 import com.petblog.Service.RepostService;
 import com.petblog.model.Repost;
+import com.petblog.model.RepostDetail;
 import com.petblog.util.JsonUtil;
+import com.petblog.util.KeysetCursor;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -14,13 +17,18 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.time.LocalDateTime;
+import java.util.Date;
 import java.util.List;
 
 @WebServlet("/api/reposts/*")
 public class RepostServlet extends HttpServlet {
     private final RepostService repostService = new RepostService();
+    private final BlogService blogService = new BlogService();
     private final ObjectMapper objectMapper = JsonUtil.getObjectMapper();
 
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -42,6 +50,12 @@ public class RepostServlet extends HttpServlet {
             String pageNumParam = request.getParameter("pageNum");
             String pageSizeParam = request.getParameter("pageSize");
 
+            boolean keyset = request.getParameter("cursor") != null || request.getParameter("limit") != null;
+            if (keyset && pageNumParam == null && (originalBlogIdParam != null || userIdParam != null)) {
+                processRepostDetails(request, response, out, originalBlogIdParam, userIdParam);
+                return;
+            }
+
             try {
                 int pageNum = pageNumParam != null ? Integer.parseInt(pageNumParam) : 1;
                 int pageSize = pageSizeParam != null ? Integer.parseInt(pageSizeParam) : 10;
@@ -152,8 +166,7 @@ public class RepostServlet extends HttpServlet {
                     result.put("reposted", true);
                     result.put("message", "您已经转发过这篇博客");
                 } else {
-                    // 获取原博客信息
-                    com.petblog.Service.BlogService blogService = new com.petblog.Service.BlogService();
+                    // 获取原博客信息（联表带出作者用户名）
                     com.petblog.model.Blog originalBlog = blogService.getBlogById(blogId);
                     if (originalBlog == null) {
                         result.put("success", false);
@@ -163,10 +176,7 @@ public class RepostServlet extends HttpServlet {
                         return;
                     }
                     
-                    // 获取原博客作者信息
-                    com.petblog.Service.UserService userService = new com.petblog.Service.UserService();
-                    com.petblog.model.User originalAuthor = userService.getUserById(originalBlog.getUserId());
-                    String authorName = originalAuthor != null ? originalAuthor.getUserName() : "未知用户";
+                    String authorName = originalBlog.getUserName() != null ? originalBlog.getUserName() : "未知用户";
                     
                     // 创建转发博客
                     com.petblog.model.Blog repostBlog = new com.petblog.model.Blog();
@@ -370,4 +380,41 @@ public class RepostServlet extends HttpServlet {
             }
         }
     }
+
+    /**
+     * 转发详情列表（键集分页）
+     * GET /api/reposts?userId=1&limit=20&cursor=... 或 GET /api/reposts?originalBlogId=1&limit=20&cursor=...
+     * 一次联表查询返回转发者、原博客、原作者和原博客计数，还有下一页时通过响应头 X-Next-Cursor 返回游标；
+     * 只有传 limit 或 cursor（且不传 pageNum）时返回详情，其余请求仍按旧的页码方式返回转发记录；未传 limit 时使用 pageSize
+     */
+    private void processRepostDetails(HttpServletRequest request, HttpServletResponse response, PrintWriter out,
+                                      String originalBlogIdParam, String userIdParam) throws IOException {
+        try {
+            String limitParam = request.getParameter("limit") != null ? request.getParameter("limit") : request.getParameter("pageSize");
+            int limit = limitParam != null ? Integer.parseInt(limitParam) : DEFAULT_LIMIT;
+            limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+            KeysetCursor cursor;
+            try {
+                cursor = KeysetCursor.decode(request.getParameter("cursor"));
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.print("{\"error\":\"cursor格式错误\"}");
+                return;
+            }
+            Date beforeTime = cursor != null ? cursor.getTime() : null;
+            Integer beforeRepostId = cursor != null ? cursor.getId() : null;
+
+            List<RepostDetail> reposts = originalBlogIdParam != null
+                    ? repostService.getRepostDetailsByOriginalBlogId(Integer.valueOf(originalBlogIdParam), beforeTime, beforeRepostId, limit)
+                    : repostService.getRepostDetailsByUserId(Integer.valueOf(userIdParam), beforeTime, beforeRepostId, limit);
+            if (reposts.size() == limit) {
+                RepostDetail last = reposts.get(reposts.size() - 1);
+                response.setHeader("X-Next-Cursor", new KeysetCursor(last.getRepostsTime(), last.getRepostId()).encode());
+            }
+            out.print(objectMapper.writeValueAsString(reposts));
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"error\":\"参数格式错误\"}");
+        }
+    }
 }
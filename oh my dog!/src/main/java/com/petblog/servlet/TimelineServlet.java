@@ -0,0 +1,70 @@
+package com.petblog.servlet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.petblog.Service.TimelineService;
+import com.petblog.model.TimelinePage;
+import com.petblog.util.JsonUtil;
+import com.petblog.util.KeysetCursor;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * 关注时间线Servlet
+ * GET /api/timeline?userId=1&limit=20&cursor=...（userId缺省时取session）
+ * 返回自己和关注的人发布的博客数组（按发布时间倒序），还有下一页时通过响应头 X-Next-Cursor 返回游标
+ */
+@WebServlet("/api/timeline")
+public class TimelineServlet extends HttpServlet {
+    private final TimelineService timelineService = new TimelineService();
+    private final ObjectMapper objectMapper = JsonUtil.getObjectMapper();
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+
+        try {
+            Object userIdObj = request.getParameter("userId");
+            if (userIdObj == null) {
+                userIdObj = request.getSession().getAttribute("userId");
+            }
+            if (userIdObj == null) {
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                out.print("{\"error\":\"用户未登录\"}");
+                return;
+            }
+            int userId = Integer.parseInt(userIdObj.toString());
+            int limit = request.getParameter("limit") != null ? Integer.parseInt(request.getParameter("limit")) : DEFAULT_LIMIT;
+            limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+            KeysetCursor cursor;
+            try {
+                cursor = KeysetCursor.decode(request.getParameter("cursor"));
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.print("{\"error\":\"cursor格式错误\"}");
+                return;
+            }
+
+            TimelinePage page = timelineService.getHomeTimeline(userId,
+                    cursor != null ? cursor.getTime() : null, cursor != null ? cursor.getId() : null, limit);
+            if (page.getNextCursor() != null) {
+                response.setHeader("X-Next-Cursor", page.getNextCursor());
+            }
+            out.print(objectMapper.writeValueAsString(page.getBlogs()));
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"error\":\"参数格式错误\"}");
+        }
+    }
+}
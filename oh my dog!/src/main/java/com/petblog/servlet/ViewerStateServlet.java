@@ -0,0 +1,82 @@
+package com.petblog.servlet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.petblog.Service.ViewerStateService;
+import com.petblog.util.JsonUtil;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查看者状态Servlet
+ * POST /api/viewer-state  请求体 {"blogIds": [1, 2, 3], "userId": 1}（userId缺省时取session）
+ * 返回每篇博客的 liked / favorited / reposted / voted 标记
+ */
+@WebServlet("/api/viewer-state")
+public class ViewerStateServlet extends HttpServlet {
+    private final ViewerStateService viewerStateService = new ViewerStateService();
+    private final ObjectMapper objectMapper = JsonUtil.getObjectMapper();
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+
+        try {
+            StringBuilder sb = new StringBuilder();
+            BufferedReader reader = request.getReader();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> requestData = objectMapper.readValue(sb.toString(),
+                objectMapper.getTypeFactory().constructMapType(Map.class, String.class, Object.class));
+
+            Object userIdObj = requestData.get("userId");
+            if (userIdObj == null) {
+                userIdObj = request.getSession().getAttribute("userId");
+            }
+            Object blogIdsObj = requestData.get("blogIds");
+            if (userIdObj == null || !(blogIdsObj instanceof List)) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.print("{\"success\":false,\"error\":\"缺少必要参数: blogIds 或未登录\"}");
+                return;
+            }
+
+            Integer userId = Integer.valueOf(userIdObj.toString());
+            List<Integer> blogIds = new ArrayList<>();
+            for (Object id : (List<?>) blogIdsObj) {
+                if (id != null) {
+                    blogIds.add(Integer.valueOf(id.toString()));
+                }
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("data", viewerStateService.getViewerState(userId, blogIds));
+            out.print(objectMapper.writeValueAsString(result));
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print("{\"success\":false,\"error\":\"ID格式错误\"}");
+        } catch (Exception e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            Map<String, Object> errorResult = new HashMap<>();
+            errorResult.put("success", false);
+            errorResult.put("error", "获取互动状态失败: " + e.getMessage());
+            out.print(objectMapper.writeValueAsString(errorResult));
+        }
+    }
+}
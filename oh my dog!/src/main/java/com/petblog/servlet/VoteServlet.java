@@ -2,6 +2,8 @@ package com.petblog.servlet;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.petblog.Service.VoteService;
+import com.petblog.dao.WriteBehindToggleBuffer;
+import com.petblog.model.ToggleResult;
 import com.petblog.model.Vote;
 import com.petblog.util.JsonUtil;
 import com.petblog.util.JdbcUtil;
@@ -95,7 +97,7 @@ public class VoteServlet extends HttpServlet {
                     
                     // 检查用户是否已投票（votes表：user_id, blog_id）
                     boolean userVoted = checkUserVotedForBlog(userId, blogId);
-                    int voteCount = countVotesForBlog(blogId);
+                    int voteCount = voteService.getVoteCount(blogId);
                     
                     Map<String, Object> result = new HashMap<>();
                     result.put("success", true);
@@ -385,31 +387,19 @@ public class VoteServlet extends HttpServlet {
         
         Integer userId = Integer.valueOf(userIdStr);
         
-        // 检查是否已投票
-        boolean userVoted = checkUserVotedForBlog(userId, blogId);
+        // 单次事务内切换投票状态，同时得到最新投票数
+        ToggleResult toggle = voteService.toggleVote(userId, blogId);
         
         Map<String, Object> result = new HashMap<>();
-        
-        if (userVoted) {
-            // 取消投票
-            deleteVote(userId, blogId);
-            result.put("success", true);
-            result.put("voted", false);
+        if (toggle == null) {
+            result.put("success", false);
+            result.put("error", "切换投票状态失败");
         } else {
-            // 添加投票
-            Vote vote = new Vote();
-            vote.setUserId(userId);
-            vote.setBlogId(blogId);
-            vote.setVoteCreateTime(LocalDateTime.now());
-            voteService.createVote(vote);
             result.put("success", true);
-            result.put("voted", true);
+            result.put("voted", toggle.isActive());
+            result.put("voteCount", toggle.getCount());
         }
         
-        // 获取更新后的投票数
-        int voteCount = countVotesForBlog(blogId);
-        result.put("voteCount", voteCount);
-        
         out.print(objectMapper.writeValueAsString(result));
     }
     
@@ -417,6 +407,10 @@ public class VoteServlet extends HttpServlet {
      * 检查用户是否已投票
      */
     private boolean checkUserVotedForBlog(Integer userId, Integer blogId) {
+        Boolean buffered = WriteBehindToggleBuffer.VOTES.getBufferedState(userId, blogId);
+        if (buffered != null) {
+            return buffered;
+        }
         try {
             String sql = "SELECT COUNT(*) FROM votes WHERE user_id = ? AND blog_id = ?";
             Connection conn = JdbcUtil.getConnection();
@@ -435,43 +429,4 @@ public class VoteServlet extends HttpServlet {
             return false;
         }
     }
-    
-    /**
-     * 删除投票
-     */
-    private void deleteVote(Integer userId, Integer blogId) {
-        try {
-            String sql = "DELETE FROM votes WHERE user_id = ? AND blog_id = ?";
-            Connection conn = JdbcUtil.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, userId);
-            pstmt.setInt(2, blogId);
-            pstmt.executeUpdate();
-            JdbcUtil.close(conn, pstmt, null);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-    
-    /**
-     * 统计博客的投票数
-     */
-    private int countVotesForBlog(Integer blogId) {
-        try {
-            String sql = "SELECT COUNT(*) FROM votes WHERE blog_id = ?";
-            Connection conn = JdbcUtil.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, blogId);
-            ResultSet rs = pstmt.executeQuery();
-            int count = 0;
-            if (rs.next()) {
-                count = rs.getInt(1);
-            }
-            JdbcUtil.close(conn, pstmt, rs);
-            return count;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return 0;
-        }
-    }
 }
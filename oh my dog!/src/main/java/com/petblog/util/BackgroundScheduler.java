@@ -0,0 +1,128 @@
+package com.petblog.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 后台任务调度工具类
+ * 全局共享一个守护线程池执行周期任务，并统一管理应用关闭时需要执行的清理动作（如缓冲区刷盘）。
+ * 共享线程池只有两个线程，只放刷盘、心跳这类短任务；耗时较长的任务使用 {@link #dedicated(String)} 创建的独立线程，
+ * 避免阻塞短任务。
+ */
+public class BackgroundScheduler {
+    private static final Logger logger = Logger.getLogger(BackgroundScheduler.class.getName());
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+    private static final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "petblog-background-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final List<Runnable> shutdownHooks = new ArrayList<>();
+
+    private static final List<ScheduledExecutorService> dedicatedExecutors = new ArrayList<>();
+
+    /**
+     * 周期执行任务（任务抛出的异常会被记录，不会终止后续执行）
+     * @param name 任务名称（用于日志）
+     */
+    public static ScheduledFuture<?> scheduleAtFixedRate(String name, Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return executor.scheduleAtFixedRate(wrap(name, task), initialDelay, period, unit);
+    }
+
+    /**
+     * 延迟执行一次任务
+     * @param name 任务名称（用于日志）
+     */
+    public static ScheduledFuture<?> schedule(String name, Runnable task, long delay, TimeUnit unit) {
+        return executor.schedule(wrap(name, task), delay, unit);
+    }
+
+    /**
+     * 创建独立的单线程调度器（守护线程），应用关闭时与共享线程池一同停止
+     * @param name 线程名称
+     */
+    public static ScheduledExecutorService dedicated(String name) {
+        ScheduledExecutorService dedicated = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "petblog-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        synchronized (dedicatedExecutors) {
+            dedicatedExecutors.add(dedicated);
+        }
+        return dedicated;
+    }
+
+    /**
+     * 在指定调度器上周期执行任务（任务抛出的异常会被记录，不会终止后续执行）
+     * @param name 任务名称（用于日志）
+     */
+    public static ScheduledFuture<?> scheduleAtFixedRate(ScheduledExecutorService on, String name, Runnable task,
+                                                         long initialDelay, long period, TimeUnit unit) {
+        return on.scheduleAtFixedRate(wrap(name, task), initialDelay, period, unit);
+    }
+
+    /**
+     * 注册应用关闭时执行的动作（按注册顺序执行，在数据库连接池关闭之前）
+     */
+    public static void addShutdownHook(Runnable hook) {
+        synchronized (shutdownHooks) {
+            shutdownHooks.add(hook);
+        }
+    }
+
+    /**
+     * 停止调度并执行关闭动作
+     */
+    public static void shutdown() {
+        List<ScheduledExecutorService> executors = new ArrayList<>();
+        executors.add(executor);
+        synchronized (dedicatedExecutors) {
+            executors.addAll(dedicatedExecutors);
+        }
+        for (ScheduledExecutorService e : executors) {
+            e.shutdown();
+        }
+        try {
+            for (ScheduledExecutorService e : executors) {
+                e.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Runnable> hooks;
+        synchronized (shutdownHooks) {
+            hooks = new ArrayList<>(shutdownHooks);
+        }
+        for (Runnable hook : hooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "执行关闭动作失败", e);
+            }
+        }
+    }
+
+    /**
+     * 包装任务：记录异常而不向外抛出（提交到其他线程池的任务也可使用）
+     * @param name 任务名称（用于日志）
+     */
+    public static Runnable wrap(String name, Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "后台任务执行失败：" + name, e);
+            }
+        };
+    }
+}
@@ -0,0 +1,207 @@
+package com.petblog.util;
+
+import java.util.Arrays;
+
+/**
+ * 压缩整数集合（Roaring 风格）
+ * 按整数高16位分块，每块根据元素数量选择容器：
+ * 元素少于 4096 个时使用有序 char[] 数组（每个元素2字节），否则使用 1024 个 long 的位图（固定8KB）。
+ * 用于按用户缓存点赞、收藏的博客ID集合，非线程安全，由调用方加锁。
+ */
+public class CompactIntSet {
+
+    /**
+     * 数组容器转为位图容器的阈值（超过后位图更省空间）
+     */
+    private static final int ARRAY_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[0];
+    private Object[] containers = new Object[0];
+    private int[] cardinalities = new int[0];
+    private int keyCount = 0;
+    private int size = 0;
+
+    /**
+     * 从整数集合构建
+     */
+    public static CompactIntSet of(Iterable<Integer> values) {
+        CompactIntSet set = new CompactIntSet();
+        for (Integer value : values) {
+            if (value != null) {
+                set.add(value);
+            }
+        }
+        return set;
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, keyCount, high(value));
+        if (index < 0) {
+            return false;
+        }
+        Object container = containers[index];
+        char low = low(value);
+        if (container instanceof long[]) {
+            long[] bitmap = (long[]) container;
+            return (bitmap[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinalities[index], low) >= 0;
+    }
+
+    /**
+     * 添加元素
+     * @return 集合是否发生变化
+     */
+    public boolean add(int value) {
+        char high = high(value);
+        char low = low(value);
+        int index = Arrays.binarySearch(keys, 0, keyCount, high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new char[4]);
+        }
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            long[] bitmap = (long[]) container;
+            long mask = 1L << low;
+            if ((bitmap[low >>> 6] & mask) != 0) {
+                return false;
+            }
+            bitmap[low >>> 6] |= mask;
+        } else {
+            char[] array = (char[]) container;
+            int cardinality = cardinalities[index];
+            int pos = Arrays.binarySearch(array, 0, cardinality, low);
+            if (pos >= 0) {
+                return false;
+            }
+            pos = -pos - 1;
+            if (cardinality >= ARRAY_MAX_SIZE) {
+                long[] bitmap = toBitmap(array, cardinality);
+                bitmap[low >>> 6] |= 1L << low;
+                containers[index] = bitmap;
+            } else {
+                if (cardinality == array.length) {
+                    array = Arrays.copyOf(array, Math.min(ARRAY_MAX_SIZE, Math.max(4, cardinality + (cardinality >> 1))));
+                    containers[index] = array;
+                }
+                System.arraycopy(array, pos, array, pos + 1, cardinality - pos);
+                array[pos] = low;
+            }
+        }
+        cardinalities[index]++;
+        size++;
+        return true;
+    }
+
+    /**
+     * 移除元素
+     * @return 集合是否发生变化
+     */
+    public boolean remove(int value) {
+        int index = Arrays.binarySearch(keys, 0, keyCount, high(value));
+        if (index < 0) {
+            return false;
+        }
+        char low = low(value);
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            long[] bitmap = (long[]) container;
+            long mask = 1L << low;
+            if ((bitmap[low >>> 6] & mask) == 0) {
+                return false;
+            }
+            bitmap[low >>> 6] &= ~mask;
+            if (cardinalities[index] - 1 <= ARRAY_MAX_SIZE) {
+                containers[index] = toArray(bitmap, cardinalities[index] - 1);
+            }
+        } else {
+            char[] array = (char[]) container;
+            int cardinality = cardinalities[index];
+            int pos = Arrays.binarySearch(array, 0, cardinality, low);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(array, pos + 1, array, pos, cardinality - pos - 1);
+        }
+        cardinalities[index]--;
+        size--;
+        if (cardinalities[index] == 0) {
+            removeContainer(index);
+        }
+        return true;
+    }
+
+    /**
+     * 元素个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 估算占用内存（字节），用于全局内存预算
+     */
+    public long sizeInBytes() {
+        long bytes = 48 + keys.length * 2L + containers.length * 8L + cardinalities.length * 4L;
+        for (int i = 0; i < keyCount; i++) {
+            Object container = containers[i];
+            bytes += 16 + (container instanceof long[] ? BITMAP_WORDS * 8L : ((char[]) container).length * 2L);
+        }
+        return bytes;
+    }
+
+    private void insertContainer(int index, char key, char[] container) {
+        if (keyCount == keys.length) {
+            int capacity = Math.max(4, keyCount * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, keyCount - index);
+        System.arraycopy(containers, index, containers, index + 1, keyCount - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, keyCount - index);
+        keys[index] = key;
+        containers[index] = container;
+        cardinalities[index] = 0;
+        keyCount++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, keyCount - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, keyCount - index - 1);
+        System.arraycopy(cardinalities, index + 1, cardinalities, index, keyCount - index - 1);
+        keyCount--;
+        containers[keyCount] = null;
+    }
+
+    private static long[] toBitmap(char[] array, int cardinality) {
+        long[] bitmap = new long[BITMAP_WORDS];
+        for (int i = 0; i < cardinality; i++) {
+            bitmap[array[i] >>> 6] |= 1L << array[i];
+        }
+        return bitmap;
+    }
+
+    private static char[] toArray(long[] bitmap, int cardinality) {
+        char[] array = new char[cardinality];
+        int pos = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long bits = bitmap[word];
+            while (bits != 0) {
+                array[pos++] = (char) ((word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return array;
+    }
+
+    private static char high(int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char low(int value) {
+        return (char) value;
+    }
+}
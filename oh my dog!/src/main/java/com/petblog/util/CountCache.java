@@ -0,0 +1,82 @@
+package com.petblog.util;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 列表总数短期缓存
+ * 管理员后台等分页列表的总数来自 COUNT(*)，翻页时条件不变、总数也基本不变，
+ * 按键（列表名加筛选条件）缓存一段时间，过期后下次访问重新统计，新增、删除的记录最多延迟一个缓存周期反映到总数。
+ * 超过容量时按最近最少使用淘汰。
+ *
+ * 可选系统属性：count.cache.ttlSeconds（缓存时间，默认30）、count.cache.maxKeys（缓存的键数，默认1000）
+ */
+public class CountCache {
+
+    private static final long TTL_MILLIS = Long.getLong("count.cache.ttlSeconds", 30L) * 1000;
+    private static final int MAX_KEYS = Integer.getInteger("count.cache.maxKeys", 1000);
+
+    /**
+     * 统计总数的回调（通常为DAO方法）
+     */
+    public interface Loader {
+        int load() throws SQLException;
+    }
+
+    private static final class Entry {
+        final int count;
+        final long expireTime;
+
+        Entry(int count, long expireTime) {
+            this.count = count;
+            this.expireTime = expireTime;
+        }
+    }
+
+    private static final Object lock = new Object();
+    private static final LinkedHashMap<String, Entry> counts = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_KEYS;
+        }
+    };
+
+    private static final MetricsRegistry.Counter hits = MetricsRegistry.counter("count.cache", "result", "hit");
+    private static final MetricsRegistry.Counter misses = MetricsRegistry.counter("count.cache", "result", "miss");
+
+    /**
+     * 读取总数，未缓存或已过期时调用 loader 统计并缓存
+     */
+    public static int get(String key, Loader loader) throws SQLException {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            Entry entry = counts.get(key);
+            if (entry != null && entry.expireTime > now) {
+                hits.increment();
+                return entry.count;
+            }
+        }
+        misses.increment();
+        int count = loader.load();
+        synchronized (lock) {
+            counts.put(key, new Entry(count, now + TTL_MILLIS));
+        }
+        return count;
+    }
+
+    /**
+     * 缓存状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        synchronized (lock) {
+            status.put("keys", counts.size());
+        }
+        status.put("maxKeys", MAX_KEYS);
+        status.put("ttlSeconds", TTL_MILLIS / 1000);
+        status.put("hits", hits.get());
+        status.put("misses", misses.get());
+        return status;
+    }
+}
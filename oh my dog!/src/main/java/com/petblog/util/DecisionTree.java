@@ -254,7 +254,7 @@ public class DecisionTree {
     
     /**
      * 内部方法：获取下一个最佳问题（带解释）
-     * 修改后的逻辑：根据主诉类别，只问同类别症状，使用信息增益选择最佳问题
+     * 按采样率开启选题追踪（调用方已开启追踪时直接复用），追踪结束后写入 DiagnosisTracer 的环形缓冲区
      */
     private static QuestionResult getNextQuestionInternal(List<Integer> selectedSymptoms,
                                                           List<Integer> askedSymptoms,
@@ -262,9 +262,31 @@ public class DecisionTree {
                                                           List<Disease> diseases,
                                                           Map<Integer, List<DiseaseSymptom>> diseaseSymMap,
                                                           Integer mainComplaintId) {
+        long traceStart = System.nanoTime();
+        int askedCount = askedSymptoms != null ? askedSymptoms.size() : (selectedSymptoms != null ? selectedSymptoms.size() : 0);
+        boolean ownsTrace = DiagnosisTracer.begin(false, "DecisionTree.getNextQuestion", mainComplaintId, askedCount);
+        try {
+            return selectBestQuestion(selectedSymptoms, askedSymptoms, allSymptoms, diseases, diseaseSymMap, mainComplaintId);
+        } finally {
+            if (ownsTrace) {
+                DiagnosisTracer.end(traceStart);
+            }
+        }
+    }
+
+    /**
+     * 选题逻辑：根据主诉类别，只问同类别症状，使用信息增益选择最佳问题
+     */
+    private static QuestionResult selectBestQuestion(List<Integer> selectedSymptoms,
+                                                     List<Integer> askedSymptoms,
+                                                     List<Symptom> allSymptoms,
+                                                     List<Disease> diseases,
+                                                     Map<Integer, List<DiseaseSymptom>> diseaseSymMap,
+                                                     Integer mainComplaintId) {
         if (allSymptoms == null || allSymptoms.isEmpty()) {
             return null;
         }
+        DiagnosisTracer.Trace trace = DiagnosisTracer.current();
 
         // 如果askedSymptoms为null，使用selectedSymptoms作为默认值（向后兼容）
         // 创建一个final变量用于lambda表达式
@@ -272,25 +294,28 @@ public class DecisionTree {
 
         // 获取主诉的类别（如果提供了主诉ID）
         String mainComplaintCategory = null;
-        System.out.println("决策树：接收到的mainComplaintId=" + mainComplaintId);
         if (mainComplaintId != null && allSymptoms != null) {
             for (Symptom s : allSymptoms) {
                 if (s.getId() != null && s.getId().equals(mainComplaintId)) {
                     mainComplaintCategory = s.getCategory();
-                    System.out.println("决策树：主诉ID=" + mainComplaintId + ", 主诉名称=" + s.getName() + ", 主诉类别=" + mainComplaintCategory);
+                    if (trace != null) {
+                        trace.note("主诉名称=" + s.getName() + ", 主诉类别=" + mainComplaintCategory);
+                    }
                     break;
                 }
             }
-            if (mainComplaintCategory == null) {
-                System.out.println("决策树：警告 - 主诉ID=" + mainComplaintId + " 在症状列表中未找到");
+            if (mainComplaintCategory == null && trace != null) {
+                trace.note("主诉ID=" + mainComplaintId + " 在症状列表中未找到");
             }
-        } else {
-            System.out.println("决策树：警告 - mainComplaintId为null或allSymptoms为null");
+        } else if (trace != null) {
+            trace.note("mainComplaintId为null");
         }
 
         // 必须要有主诉类别，否则无法进行问诊
         if (mainComplaintCategory == null || mainComplaintCategory.isEmpty()) {
-            System.out.println("决策树：没有主诉类别（mainComplaintId=" + mainComplaintId + ", mainComplaintCategory=" + mainComplaintCategory + "），无法进行问诊，结束诊断");
+            if (trace != null) {
+                trace.note("没有主诉类别，结束诊断");
+            }
             return null;
         }
 
@@ -312,10 +337,14 @@ public class DecisionTree {
         // 如果还有同类别的问题可以问，继续问同类别的问题
         if (!sameCategoryCandidates.isEmpty()) {
             candidates = sameCategoryCandidates;
-            System.out.println("决策树：主诉类别=" + finalMainComplaintCategory + "，筛选出" + candidates.size() + "个同类别候选症状");
+            if (trace != null) {
+                trace.note("主诉类别=" + finalMainComplaintCategory + "，同类别候选症状数=" + candidates.size());
+            }
         } else {
             // 同类别症状已问完，直接结束诊断
-            System.out.println("决策树：主诉类别=" + finalMainComplaintCategory + "，同类别症状已问完，结束诊断");
+            if (trace != null) {
+                trace.note("主诉类别=" + finalMainComplaintCategory + "，同类别症状已问完，结束诊断");
+            }
             return null;
         }
 
@@ -365,9 +394,10 @@ public class DecisionTree {
                 // 结合信息增益和疾病相关性
                 double maxScore = -1.0;
                 Integer bestSymptomId = null;
-                String bestSymptomName = null;
                 
-                System.out.println("决策树：开始从" + candidates.size() + "个同类别候选症状中选择最佳问题（优先考虑疾病ID=" + topDiseaseId + "）");
+                if (trace != null) {
+                    trace.note("优先选择阶段：疾病ID=" + topDiseaseId + "，概率=" + maxProb);
+                }
                 for (Symptom s : candidates) {
                     // 验证类别匹配
                     if (!finalMainComplaintCategory.equals(s.getCategory())) {
@@ -385,15 +415,14 @@ public class DecisionTree {
                     // 当疾病概率高时，更倾向于选择该疾病相关的症状
                     double score = infoGain * relevance * maxProb;
                     
-                    System.out.println("决策树：症状 " + s.getName() + " (ID=" + s.getId() + ") - 信息增益=" + String.format("%.6f", infoGain) + 
-                                      ", 疾病相关性=" + String.format("%.2f", relevance) + 
-                                      ", 疾病概率=" + String.format("%.2f", maxProb) + 
-                                      ", 综合评分=" + String.format("%.6f", score));
+                    if (trace != null) {
+                        trace.candidate(s.getId(), s.getName(), score, DiagnosisTracer.components(
+                            "infoGain", infoGain, "relevance", relevance, "diseaseProb", maxProb));
+                    }
                     
                     if (score > maxScore) {
                         maxScore = score;
                         bestSymptomId = s.getId();
-                        bestSymptomName = s.getName();
                     }
                 }
                 
@@ -406,7 +435,9 @@ public class DecisionTree {
                     } else {
                         explanation = "这个问题能够提供最大的诊断信息量，有助于缩小可能的疾病范围。";
                     }
-                    System.out.println("决策树：选择症状 " + bestSymptomName + " (ID=" + bestSymptomId + ")，综合评分=" + String.format("%.6f", maxScore));
+                    if (trace != null) {
+                        trace.chosen(bestSymptomId, maxScore);
+                    }
                     return new QuestionResult(bestSymptomId, explanation);
                 }
             }
@@ -454,9 +485,10 @@ public class DecisionTree {
                 
                 double maxScore = -1.0;
                 Integer bestSymptomId = null;
-                String bestSymptomName = null;
                 
-                System.out.println("决策树：在纯信息增益阶段重新检查，发现疾病概率=" + String.format("%.2f", maxProb) + "，再次启用优先选择方法（疾病ID=" + topDiseaseId + "）");
+                if (trace != null) {
+                    trace.note("重新检查阶段：疾病ID=" + topDiseaseId + "，概率=" + maxProb);
+                }
                 for (Symptom s : candidates) {
                     if (!finalMainComplaintCategory.equals(s.getCategory())) {
                         continue;
@@ -467,15 +499,14 @@ public class DecisionTree {
                     double relevance = (diseaseRelevance != null) ? diseaseRelevance : 0.5;
                     double score = infoGain * relevance * maxProb;
                     
-                    System.out.println("决策树：症状 " + s.getName() + " (ID=" + s.getId() + ") - 信息增益=" + String.format("%.6f", infoGain) + 
-                                      ", 疾病相关性=" + String.format("%.2f", relevance) + 
-                                      ", 疾病概率=" + String.format("%.2f", maxProb) + 
-                                      ", 综合评分=" + String.format("%.6f", score));
+                    if (trace != null) {
+                        trace.candidate(s.getId(), s.getName(), score, DiagnosisTracer.components(
+                            "infoGain", infoGain, "relevance", relevance, "diseaseProb", maxProb));
+                    }
                     
                     if (score > maxScore) {
                         maxScore = score;
                         bestSymptomId = s.getId();
-                        bestSymptomName = s.getName();
                     }
                 }
                 
@@ -487,7 +518,9 @@ public class DecisionTree {
                     } else {
                         explanation = "这个问题能够提供最大的诊断信息量，有助于缩小可能的疾病范围。";
                     }
-                    System.out.println("决策树：选择症状 " + bestSymptomName + " (ID=" + bestSymptomId + ")，综合评分=" + String.format("%.6f", maxScore));
+                    if (trace != null) {
+                        trace.chosen(bestSymptomId, maxScore);
+                    }
                     return new QuestionResult(bestSymptomId, explanation);
                 }
             }
@@ -496,9 +529,10 @@ public class DecisionTree {
         // 如果仍然不满足条件，使用纯信息增益方法
         double maxGain = -1.0;
         Integer bestSymptomId = null;
-        String bestSymptomName = null;
 
-        System.out.println("决策树：回退到纯信息增益方法，从" + candidates.size() + "个同类别候选症状中选择");
+        if (trace != null) {
+            trace.note("回退到纯信息增益方法，候选症状数=" + candidates.size());
+        }
         for (Symptom s : candidates) {
             // 验证类别匹配
             if (!finalMainComplaintCategory.equals(s.getCategory())) {
@@ -506,21 +540,24 @@ public class DecisionTree {
             }
             
             double gain = calculateInformationGain(s.getId(), selectedSymptoms, diseases, diseaseSymMap);
-            System.out.println("决策树：症状 " + s.getName() + " (ID=" + s.getId() + ", 类别=" + s.getCategory() + ") 的信息增益=" + String.format("%.6f", gain));
+            if (trace != null) {
+                trace.candidate(s.getId(), s.getName(), gain, null);
+            }
             
             if (gain > maxGain) {
                 maxGain = gain;
                 bestSymptomId = s.getId();
-                bestSymptomName = s.getName();
             }
         }
 
         if (bestSymptomId != null) {
-            System.out.println("决策树：选择症状 " + bestSymptomName + " (ID=" + bestSymptomId + ")，信息增益=" + String.format("%.6f", maxGain));
+            if (trace != null) {
+                trace.chosen(bestSymptomId, maxGain);
+            }
             String explanation = "这个问题能够提供最大的诊断信息量，有助于缩小可能的疾病范围。";
             return new QuestionResult(bestSymptomId, explanation);
-        } else {
-            System.out.println("决策树：没有找到合适的同类别症状");
+        } else if (trace != null) {
+            trace.note("没有找到合适的同类别症状");
         }
         
         return null;
@@ -0,0 +1,281 @@
+package com.petblog.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 诊断选题追踪工具类
+ * 默认关闭；可按请求强制开启，或按采样率随机开启。
+ * 开启后记录每个候选症状的评分，完成的追踪写入固定容量的环形缓冲区，供管理员接口查看。
+ * 未开启时热点循环中只有一次 null 判断，不做任何字符串格式化和控制台输出。
+ */
+public class DiagnosisTracer {
+
+    /**
+     * 环形缓冲区容量（保留最近的追踪条数）
+     */
+    private static final int BUFFER_CAPACITY = 200;
+
+    /**
+     * 单条追踪最多记录的候选症状数和备注数，防止单次追踪无限增长
+     */
+    private static final int MAX_CANDIDATES_PER_TRACE = 300;
+    private static final int MAX_NOTES_PER_TRACE = 50;
+
+    private static final Trace[] buffer = new Trace[BUFFER_CAPACITY];
+    private static final AtomicLong sequence = new AtomicLong();
+    private static long writeCount = 0;
+
+    private static final ThreadLocal<Trace> currentTrace = new ThreadLocal<>();
+
+    /**
+     * 采样率（0~1），可通过系统属性 diagnosis.trace.sampleRate 设置初始值
+     */
+    private static volatile double sampleRate = parseSampleRate(System.getProperty("diagnosis.trace.sampleRate"));
+
+    /**
+     * 候选症状评分记录
+     */
+    public static class CandidateScore {
+        private final Integer symptomId;
+        private final String symptomName;
+        private final double score;
+        private final Map<String, Double> components;
+
+        public CandidateScore(Integer symptomId, String symptomName, double score, Map<String, Double> components) {
+            this.symptomId = symptomId;
+            this.symptomName = symptomName;
+            this.score = score;
+            this.components = components;
+        }
+
+        public Integer getSymptomId() {
+            return symptomId;
+        }
+
+        public String getSymptomName() {
+            return symptomName;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public Map<String, Double> getComponents() {
+            return components;
+        }
+    }
+
+    /**
+     * 一次选题过程的追踪记录
+     */
+    public static class Trace {
+        private final long id;
+        private final long timestamp;
+        private final String source;
+        private final Integer mainComplaintId;
+        private final int questionCount;
+        private final List<CandidateScore> candidates = new ArrayList<>();
+        private final List<String> notes = new ArrayList<>();
+        private int droppedCandidates = 0;
+        private Integer chosenSymptomId;
+        private Double chosenScore;
+        private long elapsedMicros;
+
+        Trace(long id, String source, Integer mainComplaintId, int questionCount) {
+            this.id = id;
+            this.timestamp = System.currentTimeMillis();
+            this.source = source;
+            this.mainComplaintId = mainComplaintId;
+            this.questionCount = questionCount;
+        }
+
+        /**
+         * 记录一个候选症状的评分
+         * @param components 评分组成（如信息增益、相关性），可为null
+         */
+        public void candidate(Integer symptomId, String symptomName, double score, Map<String, Double> components) {
+            if (candidates.size() >= MAX_CANDIDATES_PER_TRACE) {
+                droppedCandidates++;
+                return;
+            }
+            candidates.add(new CandidateScore(symptomId, symptomName, score, components));
+        }
+
+        /**
+         * 记录一条备注（例如阶段切换、回退原因）
+         */
+        public void note(String note) {
+            if (notes.size() < MAX_NOTES_PER_TRACE) {
+                notes.add(note);
+            }
+        }
+
+        /**
+         * 记录最终选择的症状
+         */
+        public void chosen(Integer symptomId, Double score) {
+            this.chosenSymptomId = symptomId;
+            this.chosenScore = score;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public Integer getMainComplaintId() {
+            return mainComplaintId;
+        }
+
+        public int getQuestionCount() {
+            return questionCount;
+        }
+
+        public List<CandidateScore> getCandidates() {
+            return candidates;
+        }
+
+        public List<String> getNotes() {
+            return notes;
+        }
+
+        public int getDroppedCandidates() {
+            return droppedCandidates;
+        }
+
+        public Integer getChosenSymptomId() {
+            return chosenSymptomId;
+        }
+
+        public Double getChosenScore() {
+            return chosenScore;
+        }
+
+        public long getElapsedMicros() {
+            return elapsedMicros;
+        }
+    }
+
+    /**
+     * 开始一次追踪（如果当前线程已有追踪，则复用，便于嵌套调用）
+     * @param force 是否强制开启（按请求开启）
+     * @param source 追踪来源，如 "DiagnosisService.selectNextQuestion"
+     * @param mainComplaintId 主诉ID
+     * @param questionCount 已问问题数
+     * @return 是否由本次调用新建了追踪（新建者负责调用 end）
+     */
+    public static boolean begin(boolean force, String source, Integer mainComplaintId, int questionCount) {
+        if (currentTrace.get() != null) {
+            return false;
+        }
+        double rate = sampleRate;
+        if (!force && (rate <= 0.0 || ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return false;
+        }
+        currentTrace.set(new Trace(sequence.incrementAndGet(), source, mainComplaintId, questionCount));
+        return true;
+    }
+
+    /**
+     * 获取当前线程的追踪记录
+     * @return 追踪记录，未开启时返回null
+     */
+    public static Trace current() {
+        return currentTrace.get();
+    }
+
+    /**
+     * 结束当前线程的追踪，并写入环形缓冲区
+     * @param startNanos 开始时间（System.nanoTime），用于计算耗时
+     */
+    public static void end(long startNanos) {
+        Trace trace = currentTrace.get();
+        if (trace == null) {
+            return;
+        }
+        currentTrace.remove();
+        trace.elapsedMicros = (System.nanoTime() - startNanos) / 1000;
+        synchronized (buffer) {
+            buffer[(int) (writeCount % BUFFER_CAPACITY)] = trace;
+            writeCount++;
+        }
+    }
+
+    /**
+     * 构建评分组成映射（仅在追踪开启时调用）
+     */
+    public static Map<String, Double> components(Object... keyValues) {
+        Map<String, Double> map = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            map.put(String.valueOf(keyValues[i]), ((Number) keyValues[i + 1]).doubleValue());
+        }
+        return map;
+    }
+
+    /**
+     * 获取最近的追踪记录（最新的在前）
+     * @param limit 最多返回条数
+     * @return 追踪记录列表
+     */
+    public static List<Trace> getRecentTraces(int limit) {
+        List<Trace> result = new ArrayList<>();
+        synchronized (buffer) {
+            long available = Math.min(writeCount, BUFFER_CAPACITY);
+            int count = (int) Math.min(available, Math.max(limit, 0));
+            for (int i = 1; i <= count; i++) {
+                result.add(buffer[(int) ((writeCount - i) % BUFFER_CAPACITY)]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 清空追踪缓冲区
+     */
+    public static void clear() {
+        synchronized (buffer) {
+            for (int i = 0; i < BUFFER_CAPACITY; i++) {
+                buffer[i] = null;
+            }
+            writeCount = 0;
+        }
+    }
+
+    public static double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 设置采样率（超出范围时截断到0~1）
+     */
+    public static void setSampleRate(double rate) {
+        sampleRate = Math.max(0.0, Math.min(1.0, rate));
+    }
+
+    public static int getBufferCapacity() {
+        return BUFFER_CAPACITY;
+    }
+
+    private static double parseSampleRate(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0.0;
+        }
+        try {
+            return Math.max(0.0, Math.min(1.0, Double.parseDouble(value)));
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+}
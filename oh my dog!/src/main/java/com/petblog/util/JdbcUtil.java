@@ -53,6 +53,13 @@ public class JdbcUtil {
                 config.setLeakDetectionThreshold(60000);
             }
 
+            // 系统属性优先于配置文件（负载测试等临时指向其他数据库时使用）
+            if (System.getProperty("jdbc.url") != null) {
+                config.setJdbcUrl(System.getProperty("jdbc.url"));
+                config.setUsername(System.getProperty("jdbc.username", config.getUsername()));
+                config.setPassword(System.getProperty("jdbc.password", config.getPassword()));
+            }
+
             // 设置连接测试SQL
             config.setConnectionTestQuery("SELECT 1");
 
@@ -0,0 +1,54 @@
+package com.petblog.util;
+
+import java.util.Date;
+
+/**
+ * 键集分页游标
+ * 由排序时间和记录ID组成，编码为 "毫秒时间戳_ID" 字符串在接口中传递，
+ * 下一页查询条件为 (time &lt; 游标时间) 或 (time = 游标时间 且 id &lt; 游标ID)。
+ */
+public class KeysetCursor {
+    private final Date time;
+    private final int id;
+
+    public KeysetCursor(Date time, int id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * 编码为字符串
+     */
+    public String encode() {
+        return time.getTime() + "_" + id;
+    }
+
+    /**
+     * 解析游标字符串
+     * @return 游标，参数为空时返回null
+     * @throws IllegalArgumentException 格式错误时抛出
+     */
+    public static KeysetCursor decode(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        int sep = value.indexOf('_');
+        if (sep <= 0) {
+            throw new IllegalArgumentException("游标格式错误: " + value);
+        }
+        try {
+            return new KeysetCursor(new Date(Long.parseLong(value.substring(0, sep))),
+                    Integer.parseInt(value.substring(sep + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("游标格式错误: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package com.petblog.util;
+
+import com.petblog.model.Disease;
+import com.petblog.model.DiseaseSymptom;
+import com.petblog.model.Symptom;
+import com.petblog.model.SymptomWithWeight;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 知识库二进制快照
+ * 将疾病、症状、疾病-症状关系以及预计算的索引写成扁平的定长记录文件，
+ * 启动时通过 FileChannel.map 映射，按偏移量直接读取，无需反序列化。
+ *
+ * 文件布局（大端序）：
+ * <pre>
+ * [头部 64 字节]
+ *   int magic, int formatVersion, long kbVersion, long createdAt,
+ *   int diseaseCount, int symptomCount, int relationCount,
+ *   int diseaseTableOffset, int symptomTableOffset, int relationTableOffset,
+ *   int symptomRelationIndexOffset, int stringPoolOffset
+ * [疾病表] 按ID升序，每条 24 字节：id, nameRef, organSystemRef, descriptionRef, firstRelation, relationCount
+ * [症状表] 按ID升序，每条 20 字节：id, nameRef, categoryRef, firstIndex, relationCount
+ * [关系表] 按疾病ID分组、组内按权重降序，每条 20 字节：id, diseaseId, symptomId, weight(float), flags
+ * [症状->关系索引] int 数组，按症状分组的关系下标
+ * [字符串池] 每个字符串为 int 长度 + UTF-8 字节，引用值 -1 表示 null
+ * </pre>
+ */
+public class KnowledgeBaseSnapshot {
+
+    private static final int MAGIC = 0x504B4253; // "PKBS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int DISEASE_RECORD_SIZE = 24;
+    private static final int SYMPTOM_RECORD_SIZE = 20;
+    private static final int RELATION_RECORD_SIZE = 20;
+
+    private static final int FLAG_REQUIRED = 1;
+    private static final int FLAG_EXCLUSIVE = 2;
+    private static final int FLAG_WEIGHT_NULL = 4;
+    private static final int FLAG_REQUIRED_NULL = 8;
+    private static final int FLAG_EXCLUSIVE_NULL = 16;
+
+    private final ByteBuffer buffer;
+    private final long kbVersion;
+    private final long createdAt;
+    private final int diseaseCount;
+    private final int symptomCount;
+    private final int relationCount;
+    private final int diseaseTableOffset;
+    private final int symptomTableOffset;
+    private final int relationTableOffset;
+    private final int symptomRelationIndexOffset;
+    private final int stringPoolOffset;
+
+    // 诊断引擎使用的对象视图，首次访问时从映射区构建一次
+    private volatile List<Disease> diseaseView;
+    private volatile Map<Integer, List<DiseaseSymptom>> relationView;
+
+    private KnowledgeBaseSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("不是有效的知识库快照文件");
+        }
+        int format = buffer.getInt(4);
+        if (format != FORMAT_VERSION) {
+            throw new IOException("不支持的知识库快照格式版本：" + format);
+        }
+        this.kbVersion = buffer.getLong(8);
+        this.createdAt = buffer.getLong(16);
+        this.diseaseCount = buffer.getInt(24);
+        this.symptomCount = buffer.getInt(28);
+        this.relationCount = buffer.getInt(32);
+        this.diseaseTableOffset = buffer.getInt(36);
+        this.symptomTableOffset = buffer.getInt(40);
+        this.relationTableOffset = buffer.getInt(44);
+        this.symptomRelationIndexOffset = buffer.getInt(48);
+        this.stringPoolOffset = buffer.getInt(52);
+    }
+
+    /**
+     * 以只读方式映射快照文件
+     * @param path 快照文件路径
+     * @return 快照对象
+     */
+    public static KnowledgeBaseSnapshot map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new KnowledgeBaseSnapshot(mapped);
+        }
+    }
+
+    /**
+     * 将知识库写成快照文件（先写临时文件再原子替换，已映射的旧文件不受影响）
+     * @param path 目标路径
+     * @param kbVersion 知识库版本（用于和数据库比对新鲜度）
+     */
+    public static void write(Path path, long kbVersion, List<Disease> diseases, List<Symptom> symptoms,
+                             List<DiseaseSymptom> relations) throws IOException {
+        List<Disease> sortedDiseases = new ArrayList<>(diseases);
+        sortedDiseases.sort(Comparator.comparing(Disease::getId));
+        List<Symptom> sortedSymptoms = new ArrayList<>(symptoms);
+        sortedSymptoms.sort(Comparator.comparing(Symptom::getId));
+
+        // 关系按疾病分组，组内按权重降序（与候选症状查询的排序一致）
+        Map<Integer, List<DiseaseSymptom>> byDisease = new HashMap<>();
+        Map<Integer, List<Integer>> bySymptom = new HashMap<>();
+        for (DiseaseSymptom ds : relations) {
+            if (ds.getDiseaseId() != null && ds.getSymptomId() != null) {
+                byDisease.computeIfAbsent(ds.getDiseaseId(), k -> new ArrayList<>()).add(ds);
+            }
+        }
+        List<DiseaseSymptom> orderedRelations = new ArrayList<>();
+        int[] firstRelation = new int[sortedDiseases.size()];
+        int[] relationCounts = new int[sortedDiseases.size()];
+        for (int i = 0; i < sortedDiseases.size(); i++) {
+            List<DiseaseSymptom> list = byDisease.getOrDefault(sortedDiseases.get(i).getId(), new ArrayList<>());
+            list.sort(RELATION_ORDER);
+            firstRelation[i] = orderedRelations.size();
+            relationCounts[i] = list.size();
+            for (DiseaseSymptom ds : list) {
+                bySymptom.computeIfAbsent(ds.getSymptomId(), k -> new ArrayList<>()).add(orderedRelations.size());
+                orderedRelations.add(ds);
+            }
+        }
+
+        StringPool pool = new StringPool();
+        int diseaseTableOffset = HEADER_SIZE;
+        int symptomTableOffset = diseaseTableOffset + sortedDiseases.size() * DISEASE_RECORD_SIZE;
+        int relationTableOffset = symptomTableOffset + sortedSymptoms.size() * SYMPTOM_RECORD_SIZE;
+        int symptomRelationIndexOffset = relationTableOffset + orderedRelations.size() * RELATION_RECORD_SIZE;
+        int stringPoolOffset = symptomRelationIndexOffset + orderedRelations.size() * 4;
+
+        ByteBuffer body = ByteBuffer.allocate(stringPoolOffset - HEADER_SIZE);
+        for (int i = 0; i < sortedDiseases.size(); i++) {
+            Disease d = sortedDiseases.get(i);
+            body.putInt(d.getId());
+            body.putInt(pool.add(d.getName()));
+            body.putInt(pool.add(d.getOrganSystem()));
+            body.putInt(pool.add(d.getDescription()));
+            body.putInt(firstRelation[i]);
+            body.putInt(relationCounts[i]);
+        }
+        List<Integer> symptomRelationIndex = new ArrayList<>();
+        for (Symptom s : sortedSymptoms) {
+            List<Integer> indexes = bySymptom.getOrDefault(s.getId(), new ArrayList<>());
+            body.putInt(s.getId());
+            body.putInt(pool.add(s.getName()));
+            body.putInt(pool.add(s.getCategory()));
+            body.putInt(symptomRelationIndex.size());
+            body.putInt(indexes.size());
+            symptomRelationIndex.addAll(indexes);
+        }
+        for (DiseaseSymptom ds : orderedRelations) {
+            int flags = 0;
+            if (ds.getWeight() == null) flags |= FLAG_WEIGHT_NULL;
+            if (ds.getIsRequired() == null) flags |= FLAG_REQUIRED_NULL;
+            else if (ds.getIsRequired()) flags |= FLAG_REQUIRED;
+            if (ds.getIsExclusive() == null) flags |= FLAG_EXCLUSIVE_NULL;
+            else if (ds.getIsExclusive()) flags |= FLAG_EXCLUSIVE;
+            body.putInt(ds.getId() != null ? ds.getId() : 0);
+            body.putInt(ds.getDiseaseId());
+            body.putInt(ds.getSymptomId());
+            body.putFloat(ds.getWeight() != null ? ds.getWeight() : 0f);
+            body.putInt(flags);
+        }
+        // 症状表中不存在的症状没有索引项，剩余位置以-1填充
+        for (int index : symptomRelationIndex) {
+            body.putInt(index);
+        }
+        while (body.position() < body.capacity()) {
+            body.putInt(-1);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.putLong(kbVersion);
+        header.putLong(System.currentTimeMillis());
+        header.putInt(sortedDiseases.size());
+        header.putInt(sortedSymptoms.size());
+        header.putInt(orderedRelations.size());
+        header.putInt(diseaseTableOffset);
+        header.putInt(symptomTableOffset);
+        header.putInt(relationTableOffset);
+        header.putInt(symptomRelationIndexOffset);
+        header.putInt(stringPoolOffset);
+        header.position(HEADER_SIZE); // 头部剩余字节保留
+        header.flip();
+        body.flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+            channel.write(body);
+            channel.write(pool.toBuffer());
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static final Comparator<DiseaseSymptom> RELATION_ORDER = (a, b) -> {
+        float wa = a.getWeight() != null ? a.getWeight() : 0f;
+        float wb = b.getWeight() != null ? b.getWeight() : 0f;
+        int cmp = Float.compare(wb, wa);
+        if (cmp != 0) {
+            return cmp;
+        }
+        boolean ra = Boolean.TRUE.equals(a.getIsRequired());
+        boolean rb = Boolean.TRUE.equals(b.getIsRequired());
+        return Boolean.compare(rb, ra);
+    };
+
+    // ==================== 扁平读取 ====================
+
+    public long getKbVersion() {
+        return kbVersion;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getDiseaseCount() {
+        return diseaseCount;
+    }
+
+    public int getSymptomCount() {
+        return symptomCount;
+    }
+
+    public int getRelationCount() {
+        return relationCount;
+    }
+
+    /**
+     * 二分查找症状在症状表中的下标
+     * @return 下标，不存在时返回-1
+     */
+    private int symptomIndex(int symptomId) {
+        int low = 0;
+        int high = symptomCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = buffer.getInt(symptomTableOffset + mid * SYMPTOM_RECORD_SIZE);
+            if (id < symptomId) {
+                low = mid + 1;
+            } else if (id > symptomId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 二分查找疾病在疾病表中的下标
+     * @return 下标，不存在时返回-1
+     */
+    private int diseaseIndex(int diseaseId) {
+        int low = 0;
+        int high = diseaseCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = buffer.getInt(diseaseTableOffset + mid * DISEASE_RECORD_SIZE);
+            if (id < diseaseId) {
+                low = mid + 1;
+            } else if (id > diseaseId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private String readString(int ref) {
+        if (ref < 0) {
+            return null;
+        }
+        int position = stringPoolOffset + ref;
+        int length = buffer.getInt(position);
+        byte[] bytes = new byte[length];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Symptom readSymptom(int index) {
+        int base = symptomTableOffset + index * SYMPTOM_RECORD_SIZE;
+        return new Symptom(buffer.getInt(base), readString(buffer.getInt(base + 4)), readString(buffer.getInt(base + 8)));
+    }
+
+    private Disease readDisease(int index) {
+        int base = diseaseTableOffset + index * DISEASE_RECORD_SIZE;
+        return new Disease(buffer.getInt(base), readString(buffer.getInt(base + 4)),
+                readString(buffer.getInt(base + 8)), readString(buffer.getInt(base + 12)));
+    }
+
+    private DiseaseSymptom readRelation(int index) {
+        int base = relationTableOffset + index * RELATION_RECORD_SIZE;
+        int flags = buffer.getInt(base + 16);
+        DiseaseSymptom ds = new DiseaseSymptom();
+        ds.setId(buffer.getInt(base));
+        ds.setDiseaseId(buffer.getInt(base + 4));
+        ds.setSymptomId(buffer.getInt(base + 8));
+        ds.setWeight((flags & FLAG_WEIGHT_NULL) != 0 ? null : buffer.getFloat(base + 12));
+        ds.setIsRequired((flags & FLAG_REQUIRED_NULL) != 0 ? null : (flags & FLAG_REQUIRED) != 0);
+        ds.setIsExclusive((flags & FLAG_EXCLUSIVE_NULL) != 0 ? null : (flags & FLAG_EXCLUSIVE) != 0);
+        return ds;
+    }
+
+    /**
+     * 根据ID读取症状
+     * @return 症状，不存在时返回null
+     */
+    public Symptom findSymptomById(Integer symptomId) {
+        if (symptomId == null) {
+            return null;
+        }
+        int index = symptomIndex(symptomId);
+        return index < 0 ? null : readSymptom(index);
+    }
+
+    /**
+     * 根据ID读取疾病
+     * @return 疾病，不存在时返回null
+     */
+    public Disease findDiseaseById(Integer diseaseId) {
+        if (diseaseId == null) {
+            return null;
+        }
+        int index = diseaseIndex(diseaseId);
+        return index < 0 ? null : readDisease(index);
+    }
+
+    /**
+     * 按类别查找未问过的症状（按ID升序，与 SymptomDAO.findByCategory 语义一致）
+     */
+    public List<Symptom> findSymptomsByCategory(String category, Collection<Integer> askedSymptomIds, int limit) {
+        List<Symptom> result = new ArrayList<>();
+        if (category == null || category.isEmpty()) {
+            return result;
+        }
+        for (int i = 0; i < symptomCount && result.size() < limit; i++) {
+            int base = symptomTableOffset + i * SYMPTOM_RECORD_SIZE;
+            if (askedSymptomIds != null && askedSymptomIds.contains(buffer.getInt(base))) {
+                continue;
+            }
+            if (category.equals(readString(buffer.getInt(base + 8)))) {
+                result.add(readSymptom(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查找指定疾病的未问症状（与 SymptomDAO.findCandidateSymptoms 语义一致）
+     * 直接利用快照中按疾病分组、组内按权重降序的关系表
+     */
+    public List<SymptomWithWeight> findCandidateSymptoms(List<Integer> topDiseaseIds, Collection<Integer> askedSymptomIds) {
+        List<SymptomWithWeight> result = new ArrayList<>();
+        if (topDiseaseIds == null || topDiseaseIds.isEmpty()) {
+            return result;
+        }
+        for (Integer diseaseId : topDiseaseIds) {
+            int index = diseaseId != null ? diseaseIndex(diseaseId) : -1;
+            if (index < 0) {
+                continue;
+            }
+            int base = diseaseTableOffset + index * DISEASE_RECORD_SIZE;
+            int first = buffer.getInt(base + 16);
+            int count = buffer.getInt(base + 20);
+            for (int r = first; r < first + count; r++) {
+                DiseaseSymptom ds = readRelation(r);
+                if (askedSymptomIds != null && askedSymptomIds.contains(ds.getSymptomId())) {
+                    continue;
+                }
+                Symptom symptom = findSymptomById(ds.getSymptomId());
+                if (symptom == null) {
+                    continue;
+                }
+                result.add(new SymptomWithWeight(symptom,
+                        ds.getWeight() != null ? Double.parseDouble(ds.getWeight().toString()) : 0.0,
+                        ds.getDiseaseId(),
+                        Boolean.TRUE.equals(ds.getIsRequired()),
+                        Boolean.TRUE.equals(ds.getIsExclusive())));
+            }
+        }
+        // 多个疾病的结果合并后再按权重整体排序
+        result.sort((a, b) -> {
+            int cmp = Double.compare(b.getWeight(), a.getWeight());
+            return cmp != 0 ? cmp : Boolean.compare(b.getIsRequired(), a.getIsRequired());
+        });
+        return result;
+    }
+
+    /**
+     * 查找包含指定症状的所有关系（使用症状->关系索引）
+     */
+    public List<DiseaseSymptom> findRelationsBySymptomId(Integer symptomId) {
+        List<DiseaseSymptom> result = new ArrayList<>();
+        int index = symptomId != null ? symptomIndex(symptomId) : -1;
+        if (index < 0) {
+            return result;
+        }
+        int base = symptomTableOffset + index * SYMPTOM_RECORD_SIZE;
+        int first = buffer.getInt(base + 12);
+        int count = buffer.getInt(base + 16);
+        for (int i = first; i < first + count; i++) {
+            result.add(readRelation(buffer.getInt(symptomRelationIndexOffset + i * 4)));
+        }
+        return result;
+    }
+
+    /**
+     * 所有疾病（按ID升序），供诊断引擎使用，只构建一次
+     */
+    public List<Disease> getDiseases() {
+        List<Disease> view = diseaseView;
+        if (view == null) {
+            view = new ArrayList<>(diseaseCount);
+            for (int i = 0; i < diseaseCount; i++) {
+                view.add(readDisease(i));
+            }
+            view = Collections.unmodifiableList(view);
+            diseaseView = view;
+        }
+        return view;
+    }
+
+    /**
+     * 疾病ID -> 关系列表，供诊断引擎使用，只构建一次
+     */
+    public Map<Integer, List<DiseaseSymptom>> getDiseaseSymptomMap() {
+        Map<Integer, List<DiseaseSymptom>> view = relationView;
+        if (view == null) {
+            view = new LinkedHashMap<>();
+            for (int i = 0; i < diseaseCount; i++) {
+                int base = diseaseTableOffset + i * DISEASE_RECORD_SIZE;
+                int first = buffer.getInt(base + 16);
+                int count = buffer.getInt(base + 20);
+                if (count == 0) {
+                    continue;
+                }
+                List<DiseaseSymptom> list = new ArrayList<>(count);
+                for (int r = first; r < first + count; r++) {
+                    list.add(readRelation(r));
+                }
+                view.put(buffer.getInt(base), Collections.unmodifiableList(list));
+            }
+            view = Collections.unmodifiableMap(view);
+            relationView = view;
+        }
+        return view;
+    }
+
+    /**
+     * 字符串池：去重后顺序写入
+     */
+    private static class StringPool {
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+        private int size = 0;
+
+        int add(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer existing = offsets.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            int offset = size;
+            offsets.put(value, offset);
+            entries.add(bytes);
+            size += 4 + bytes.length;
+            return offset;
+        }
+
+        ByteBuffer toBuffer() {
+            ByteBuffer out = ByteBuffer.allocate(size);
+            for (byte[] bytes : entries) {
+                out.putInt(bytes.length);
+                out.put(bytes);
+            }
+            out.flip();
+            return out;
+        }
+    }
+}
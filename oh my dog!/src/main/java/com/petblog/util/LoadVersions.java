@@ -0,0 +1,67 @@
+package com.petblog.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 缓存加载的版本戳
+ * 按键的哈希分槽计数：写路径修改数据后先递增键所在槽的版本，再更新或移除缓存；
+ * 加载前记下版本，加载完成后在缓存锁内确认版本未变才放入缓存，否则结果只用于本次回答。
+ * 多个加载同时进行时互不影响；不同的键落在同一槽只会让少量加载结果不被缓存，不影响正确性。
+ * 槽的版本取自一个全局递增的时钟，加载前不知道会读到哪些键时，可以先取 {@link #stamp()}，加载完成后逐个键检查 {@link #unchangedSince}。
+ */
+public class LoadVersions {
+
+    private final AtomicLongArray versions;
+    private final int mask;
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * @param slots 槽数（向上取整为2的幂）
+     */
+    public LoadVersions(int slots) {
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.versions = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 加载前读取键的当前版本
+     */
+    public long current(long key) {
+        return versions.get(slot(key));
+    }
+
+    /**
+     * 写路径修改数据后调用，使进行中的加载不被缓存
+     */
+    public void bump(long key) {
+        versions.accumulateAndGet(slot(key), clock.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * 加载前读取全局时钟（用于加载前不知道键的情况）
+     */
+    public long stamp() {
+        return clock.get();
+    }
+
+    /**
+     * 键在取得时钟之后是否有写入（应在缓存锁内调用）
+     */
+    public boolean unchangedSince(long key, long stamp) {
+        return versions.get(slot(key)) <= stamp;
+    }
+
+    /**
+     * 加载完成后判断期间是否有写入（应在缓存锁内调用）
+     */
+    public boolean unchanged(long key, long version) {
+        return versions.get(slot(key)) == version;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
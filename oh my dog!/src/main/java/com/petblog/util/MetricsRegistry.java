@@ -0,0 +1,223 @@
+package com.petblog.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内指标注册表
+ * 提供计数器和直方图两类指标，按名称+标签区分，写入路径只有 LongAdder 累加，无锁。
+ * 通过 /api/metrics 以 JSON 或 Prometheus 文本格式导出。
+ */
+public class MetricsRegistry {
+
+    /**
+     * 默认耗时分桶（毫秒）
+     */
+    public static final double[] LATENCY_BUCKETS_MS = {0.5, 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500};
+
+    /**
+     * 默认数量分桶（候选数、问题数等）
+     */
+    public static final double[] COUNT_BUCKETS = {0, 1, 2, 3, 5, 8, 10, 15, 20, 30, 50, 100};
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * 计数器
+     */
+    public static class Counter {
+        private final String name;
+        private final Map<String, String> labels;
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name, Map<String, String> labels) {
+            this.name = name;
+            this.labels = labels;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * 直方图（固定分桶，累计计数）
+     */
+    public static class Histogram {
+        private final String name;
+        private final Map<String, String> labels;
+        private final double[] buckets;
+        private final LongAdder[] bucketCounts;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Histogram(String name, Map<String, String> labels, double[] buckets) {
+            this.name = name;
+            this.labels = labels;
+            this.buckets = buckets;
+            this.bucketCounts = new LongAdder[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                bucketCounts[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            for (int i = 0; i < buckets.length; i++) {
+                if (value <= buckets[i]) {
+                    bucketCounts[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sum.add(value);
+        }
+
+        /**
+         * 记录从 startNanos 到现在的耗时（毫秒）
+         */
+        public void observeSince(long startNanos) {
+            observe((System.nanoTime() - startNanos) / 1_000_000.0);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getSum() {
+            return sum.sum();
+        }
+    }
+
+    /**
+     * 获取或创建计数器
+     * @param labels 标签键值对，如 "reason", "threshold"
+     */
+    public static Counter counter(String name, String... labels) {
+        Map<String, String> labelMap = toLabelMap(labels);
+        return counters.computeIfAbsent(key(name, labelMap), k -> new Counter(name, labelMap));
+    }
+
+    /**
+     * 获取或创建直方图（同名同标签的直方图沿用首次创建时的分桶）
+     * @param labels 标签键值对
+     */
+    public static Histogram histogram(String name, double[] buckets, String... labels) {
+        Map<String, String> labelMap = toLabelMap(labels);
+        return histograms.computeIfAbsent(key(name, labelMap), k -> new Histogram(name, labelMap, buckets));
+    }
+
+    /**
+     * 导出所有指标（JSON结构）
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<Map<String, Object>> counterList = new ArrayList<>();
+        for (Counter c : new TreeMap<>(counters).values()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", c.name);
+            item.put("labels", c.labels);
+            item.put("value", c.get());
+            counterList.add(item);
+        }
+        List<Map<String, Object>> histogramList = new ArrayList<>();
+        for (Histogram h : new TreeMap<>(histograms).values()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", h.name);
+            item.put("labels", h.labels);
+            long total = h.getCount();
+            item.put("count", total);
+            item.put("sum", h.getSum());
+            item.put("avg", total > 0 ? h.getSum() / total : 0.0);
+            Map<String, Long> bucketMap = new LinkedHashMap<>();
+            long cumulative = 0;
+            for (int i = 0; i < h.buckets.length; i++) {
+                cumulative += h.bucketCounts[i].sum();
+                bucketMap.put("le_" + formatNumber(h.buckets[i]), cumulative);
+            }
+            bucketMap.put("le_inf", total);
+            item.put("buckets", bucketMap);
+            histogramList.add(item);
+        }
+        result.put("counters", counterList);
+        result.put("histograms", histogramList);
+        return result;
+    }
+
+    /**
+     * 导出所有指标（Prometheus 文本格式）
+     */
+    public static String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        for (Counter c : new TreeMap<>(counters).values()) {
+            sb.append(metricName(c.name)).append(formatLabels(c.labels, null)).append(' ').append(c.get()).append('\n');
+        }
+        for (Histogram h : new TreeMap<>(histograms).values()) {
+            String name = metricName(h.name);
+            long cumulative = 0;
+            for (int i = 0; i < h.buckets.length; i++) {
+                cumulative += h.bucketCounts[i].sum();
+                sb.append(name).append("_bucket").append(formatLabels(h.labels, formatNumber(h.buckets[i])))
+                        .append(' ').append(cumulative).append('\n');
+            }
+            sb.append(name).append("_bucket").append(formatLabels(h.labels, "+Inf")).append(' ').append(h.getCount()).append('\n');
+            sb.append(name).append("_sum").append(formatLabels(h.labels, null)).append(' ').append(h.getSum()).append('\n');
+            sb.append(name).append("_count").append(formatLabels(h.labels, null)).append(' ').append(h.getCount()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, String> toLabelMap(String... labels) {
+        Map<String, String> map = new TreeMap<>();
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            map.put(labels[i], labels[i + 1]);
+        }
+        return map;
+    }
+
+    private static String key(String name, Map<String, String> labels) {
+        return labels.isEmpty() ? name : name + labels;
+    }
+
+    private static String metricName(String name) {
+        return name.replace('.', '_').replace('-', '_');
+    }
+
+    private static String formatLabels(Map<String, String> labels, String le) {
+        if (labels.isEmpty() && le == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(entry.getKey()).append("=\"").append(String.valueOf(entry.getValue()).replace("\"", "\\\"")).append('"');
+        }
+        if (le != null) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append("le=\"").append(le).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String formatNumber(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,326 @@
+package com.petblog.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 进程内推送中心（Server-Sent Events）
+ * 每个推送连接是一个异步请求（AsyncContext），不占用线程；连接持有一个有界的待发送队列，
+ * 发布时把事件放入接收用户所有连接的队列，再以非阻塞方式（WriteListener + isReady）写出，
+ * 客户端读得慢、队列写满时直接关闭连接，由浏览器 EventSource 自动重连后重新拉取。
+ * 后台任务定期向所有连接发送心跳注释行，及时发现已断开的连接。
+ * 连接按频道登记：用户频道接收发给该用户的私信、通知，主题频道（如某个挑战的排行榜）接收公开的广播事件。
+ *
+ * 可选系统属性：push.queueCapacity（每个连接的队列长度，默认64）、push.heartbeatSeconds（心跳间隔，默认25）、
+ * push.maxPerSession（每个会话的连接数上限，超出时关闭最早的连接，默认4）
+ */
+public class PushHub {
+    private static final Logger logger = Logger.getLogger(PushHub.class.getName());
+
+    private static final int QUEUE_CAPACITY = Integer.getInteger("push.queueCapacity", 64);
+    private static final int HEARTBEAT_SECONDS = Integer.getInteger("push.heartbeatSeconds", 25);
+    private static final int MAX_PER_SESSION = Integer.getInteger("push.maxPerSession", 4);
+
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final ConcurrentHashMap<String, CopyOnWriteArrayList<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private static final MetricsRegistry.Counter published = MetricsRegistry.counter("push.published");
+    private static final MetricsRegistry.Counter connected = MetricsRegistry.counter("push.connections", "event", "open");
+    private static final MetricsRegistry.Counter disconnected = MetricsRegistry.counter("push.connections", "event", "close");
+    private static final MetricsRegistry.Counter overflows = MetricsRegistry.counter("push.queue_overflows");
+
+    /**
+     * 注册心跳任务和关闭动作
+     */
+    public static void start() {
+        BackgroundScheduler.scheduleAtFixedRate("推送连接心跳", PushHub::heartbeat,
+                HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        BackgroundScheduler.addShutdownHook(PushHub::closeAll);
+    }
+
+    /**
+     * 注册推送连接（需在容器线程中、startAsync 之后调用）
+     * @param userId 接收推送的用户ID
+     * @param sessionId 会话ID（同一会话的连接数有上限）
+     * @param context 异步上下文
+     */
+    public static void subscribe(int userId, String sessionId, AsyncContext context) throws IOException {
+        register(userChannel(userId), sessionId, context);
+    }
+
+    /**
+     * 注册主题频道的推送连接（需在容器线程中、startAsync 之后调用）
+     * @param topic 主题名（如 challenge:12）
+     * @param sessionId 会话ID（同一会话的连接数有上限）
+     * @param context 异步上下文
+     */
+    public static void subscribeTopic(String topic, String sessionId, AsyncContext context) throws IOException {
+        register(topicChannel(topic), sessionId, context);
+    }
+
+    /**
+     * 向用户的所有推送连接发布事件（用户不在线时直接丢弃）
+     * @param userId 接收用户ID
+     * @param event 事件名（如 message、inform）
+     * @param data 事件数据（序列化为JSON）
+     */
+    public static void publish(int userId, String event, Object data) {
+        publishTo(userChannel(userId), event, data);
+    }
+
+    /**
+     * 向主题频道的所有连接广播事件（没有订阅者时直接丢弃）
+     * @param topic 主题名
+     * @param event 事件名
+     * @param data 事件数据（序列化为JSON）
+     */
+    public static void publishTopic(String topic, String event, Object data) {
+        publishTo(topicChannel(topic), event, data);
+    }
+
+    /**
+     * 主题频道是否有订阅者（没有时调用方可以省去组装事件数据）
+     */
+    public static boolean hasTopicSubscribers(String topic) {
+        CopyOnWriteArrayList<Subscriber> list = subscribers.get(topicChannel(topic));
+        return list != null && !list.isEmpty();
+    }
+
+    private static void register(String channel, String sessionId, AsyncContext context) throws IOException {
+        Subscriber subscriber = new Subscriber(channel, sessionId, context);
+        // 与 remove 的 computeIfPresent 在同一把桶锁内执行，避免加入一个刚被移除的空列表
+        CopyOnWriteArrayList<Subscriber> list = subscribers.compute(channel, (k, existing) -> {
+            CopyOnWriteArrayList<Subscriber> current = existing != null ? existing : new CopyOnWriteArrayList<>();
+            current.add(subscriber);
+            return current;
+        });
+        connected.increment();
+
+        List<Subscriber> sameSession = new ArrayList<>();
+        for (Subscriber existing : list) {
+            if (existing.sessionId.equals(sessionId)) {
+                sameSession.add(existing);
+            }
+        }
+        for (int i = 0; i < sameSession.size() - MAX_PER_SESSION; i++) {
+            sameSession.get(i).close();
+        }
+
+        context.addListener(subscriber);
+        // 告诉浏览器断线后的重连间隔，并确认连接已建立
+        subscriber.offer(frame("ready", "{}", 5000));
+        subscriber.out.setWriteListener(subscriber);
+    }
+
+    private static void publishTo(String channel, String event, Object data) {
+        CopyOnWriteArrayList<Subscriber> list = subscribers.get(channel);
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        byte[] frame;
+        try {
+            frame = frame(event, JsonUtil.getObjectMapper().writeValueAsString(data), 0);
+        } catch (JsonProcessingException e) {
+            logger.log(Level.WARNING, "推送事件序列化失败: " + event, e);
+            return;
+        }
+        published.increment();
+        for (Subscriber subscriber : list) {
+            subscriber.offer(frame);
+        }
+    }
+
+    /**
+     * 推送状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        int connections = 0;
+        int queued = 0;
+        for (CopyOnWriteArrayList<Subscriber> list : subscribers.values()) {
+            for (Subscriber subscriber : list) {
+                connections++;
+                queued += subscriber.queue.size();
+            }
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("channels", subscribers.size());
+        status.put("connections", connections);
+        status.put("queuedFrames", queued);
+        status.put("queueCapacity", QUEUE_CAPACITY);
+        status.put("heartbeatSeconds", HEARTBEAT_SECONDS);
+        return status;
+    }
+
+    private static void heartbeat() {
+        for (CopyOnWriteArrayList<Subscriber> list : subscribers.values()) {
+            for (Subscriber subscriber : list) {
+                if (subscriber.queue.isEmpty()) {
+                    subscriber.offer(HEARTBEAT);
+                }
+            }
+        }
+    }
+
+    private static void closeAll() {
+        for (CopyOnWriteArrayList<Subscriber> list : subscribers.values()) {
+            for (Subscriber subscriber : list) {
+                subscriber.close();
+            }
+        }
+    }
+
+    private static void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.channel, (k, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private static String userChannel(int userId) {
+        return "user:" + userId;
+    }
+
+    private static String topicChannel(String topic) {
+        return "topic:" + topic;
+    }
+
+    /**
+     * 编码一个SSE事件帧
+     * @param retryMillis 大于0时附带重连间隔
+     */
+    private static byte[] frame(String event, String json, int retryMillis) {
+        StringBuilder sb = new StringBuilder(json.length() + 32);
+        if (retryMillis > 0) {
+            sb.append("retry: ").append(retryMillis).append('\n');
+        }
+        sb.append("event: ").append(event).append('\n');
+        // JSON 序列化后不含裸换行，整段作为一行 data
+        sb.append("data: ").append(json).append("\n\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 一个推送连接
+     * 写出由 drain 串行完成：只在 isReady() 为true时写，不可写时等容器回调 onWritePossible 再继续。
+     */
+    private static final class Subscriber implements WriteListener, AsyncListener {
+        private final String channel;
+        private final String sessionId;
+        private final AsyncContext context;
+        private final ServletOutputStream out;
+        private final ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private boolean listening = false;
+        private boolean needsFlush = false;
+        private volatile boolean closed = false;
+
+        Subscriber(String channel, String sessionId, AsyncContext context) throws IOException {
+            this.channel = channel;
+            this.sessionId = sessionId;
+            this.context = context;
+            this.out = context.getResponse().getOutputStream();
+        }
+
+        void offer(byte[] frame) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                overflows.increment();
+                close();
+                return;
+            }
+            drain();
+        }
+
+        private synchronized void drain() {
+            // setWriteListener 之前不能调用 isReady，首次写出由 onWritePossible 触发
+            if (closed || !listening) {
+                return;
+            }
+            try {
+                while (out.isReady()) {
+                    if (needsFlush) {
+                        needsFlush = false;
+                        out.flush();
+                        continue;
+                    }
+                    byte[] frame = queue.poll();
+                    if (frame == null) {
+                        return;
+                    }
+                    out.write(frame);
+                    needsFlush = true;
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            remove(this);
+            queue.clear();
+            disconnected.increment();
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                // 连接已由容器结束
+            }
+        }
+
+        @Override
+        public void onWritePossible() {
+            synchronized (this) {
+                listening = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.petblog.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 带排名的跳表（按分数降序、ID升序排列）
+ * 每层指针记录跨越的节点数（span），插入、删除、查询某个ID的排名都是 O(log n)，
+ * 取前N名沿最底层顺序读取，耗时与N成正比。另用哈希表保存ID到分数的映射，便于按ID更新。
+ * 非线程安全，由调用方加锁。
+ */
+public class RankedSkipList {
+
+    private static final int MAX_LEVEL = 32;
+    private static final double P = 0.25;
+
+    private static final class Node {
+        final int id;
+        final long score;
+        final Node[] next;
+        final int[] span;
+
+        Node(int id, long score, int level) {
+            this.id = id;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+
+    private final Node head = new Node(0, 0, MAX_LEVEL);
+    private final Map<Integer, Long> scores = new HashMap<>();
+    private int level = 1;
+    private int length = 0;
+
+    /**
+     * 设置ID的分数（不存在时插入）
+     * @return 是否发生变化
+     */
+    public boolean put(int id, long score) {
+        Long old = scores.get(id);
+        if (old != null) {
+            if (old == score) {
+                return false;
+            }
+            delete(id, old);
+        }
+        insert(id, score);
+        scores.put(id, score);
+        return true;
+    }
+
+    /**
+     * 移除ID
+     * @return 是否存在
+     */
+    public boolean remove(int id) {
+        Long old = scores.remove(id);
+        if (old == null) {
+            return false;
+        }
+        delete(id, old);
+        return true;
+    }
+
+    /**
+     * 获取ID的分数
+     * @return 分数，不存在时返回null
+     */
+    public Long score(int id) {
+        return scores.get(id);
+    }
+
+    public boolean contains(int id) {
+        return scores.containsKey(id);
+    }
+
+    /**
+     * 获取ID的排名（从1开始）
+     * @return 排名，不存在时返回0
+     */
+    public int rank(int id) {
+        Long score = scores.get(id);
+        if (score == null) {
+            return 0;
+        }
+        int rank = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && !before(id, score, x.next[i])) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x != head && x.id == id) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 读取前N名
+     * @param outIds 输出ID
+     * @param outScores 输出分数
+     * @return 实际读取条数
+     */
+    public int top(int limit, int[] outIds, long[] outScores) {
+        int count = 0;
+        for (Node x = head.next[0]; x != null && count < limit; x = x.next[0]) {
+            outIds[count] = x.id;
+            outScores[count] = x.score;
+            count++;
+        }
+        return count;
+    }
+
+    public int size() {
+        return length;
+    }
+
+    /**
+     * (id, score) 是否排在节点之前
+     */
+    private static boolean before(int id, long score, Node node) {
+        return score > node.score || (score == node.score && id < node.id);
+    }
+
+    /**
+     * 节点是否排在 (id, score) 之前
+     */
+    private static boolean before(Node node, int id, long score) {
+        return node.score > score || (node.score == score && node.id < id);
+    }
+
+    private void insert(int id, long score) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && before(x.next[i], id, score)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            for (int i = level; i < newLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                update[i].span[i] = length;
+            }
+            level = newLevel;
+        }
+        x = new Node(id, score, newLevel);
+        for (int i = 0; i < newLevel; i++) {
+            x.next[i] = update[i].next[i];
+            update[i].next[i] = x;
+            x.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        for (int i = newLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        length++;
+    }
+
+    private void delete(int id, long score) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && before(x.next[i], id, score)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        x = x.next[0];
+        if (x == null || x.id != id) {
+            return;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].next[i] = x.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+
+    private static int randomLevel() {
+        int level = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (level < MAX_LEVEL && random.nextDouble() < P) {
+            level++;
+        }
+        return level;
+    }
+}
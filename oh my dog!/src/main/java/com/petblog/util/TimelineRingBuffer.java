@@ -0,0 +1,139 @@
+package com.petblog.util;
+
+/**
+ * 定长时间线环形缓冲
+ * 按 (时间, 博客ID) 升序保存最近 capacity 条记录，满后新记录覆盖最旧的记录。
+ * 数组按需扩容到 capacity，条目少的用户只占少量内存。
+ * 分页读取时二分定位游标位置，再从新到旧复制一页，耗时与页大小成正比。
+ * 非线程安全，由调用方加锁。
+ */
+public class TimelineRingBuffer {
+
+    private final int capacity;
+    private int[] ids = new int[8];
+    private long[] times = new long[8];
+    private int head = 0;
+    private int size = 0;
+
+    public TimelineRingBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * 添加一条记录（通常是最新的，从尾部向前找到插入位置）
+     * @return 是否添加（重复记录或缓冲已满且比最旧记录还旧时返回false）
+     */
+    public boolean add(int id, long time) {
+        int pos = size;
+        while (pos > 0) {
+            int prev = physical(pos - 1);
+            if (times[prev] < time || (times[prev] == time && ids[prev] < id)) {
+                break;
+            }
+            if (times[prev] == time && ids[prev] == id) {
+                return false;
+            }
+            pos--;
+        }
+        if (size == capacity) {
+            if (pos == 0) {
+                return false;
+            }
+            // 丢弃最旧的一条
+            head = (head + 1) % ids.length;
+            size--;
+            pos--;
+        } else if (size == ids.length) {
+            grow();
+        }
+        for (int i = size; i > pos; i--) {
+            int to = physical(i);
+            int from = physical(i - 1);
+            ids[to] = ids[from];
+            times[to] = times[from];
+        }
+        int slot = physical(pos);
+        ids[slot] = id;
+        times[slot] = time;
+        size++;
+        return true;
+    }
+
+    /**
+     * 读取早于游标的一页记录（从新到旧）
+     * @param beforeTime 游标时间，小于等于0表示从最新开始
+     * @param beforeId 游标ID
+     * @param outIds 输出ID
+     * @param outTimes 输出时间
+     * @return 实际读取条数
+     */
+    public int page(long beforeTime, int beforeId, int limit, int[] outIds, long[] outTimes) {
+        int end = size;
+        if (beforeTime > 0) {
+            int low = 0;
+            int high = size;
+            // 找到第一个 >= 游标的位置
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int slot = physical(mid);
+                if (times[slot] < beforeTime || (times[slot] == beforeTime && ids[slot] < beforeId)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            end = low;
+        }
+        int count = 0;
+        for (int i = end - 1; i >= 0 && count < limit; i--) {
+            int slot = physical(i);
+            outIds[count] = ids[slot];
+            outTimes[count] = times[slot];
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 最旧一条记录的时间（为空时返回 Long.MAX_VALUE）
+     */
+    public long oldestTime() {
+        return size == 0 ? Long.MAX_VALUE : times[head];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 缓冲是否已满（已丢弃过更旧的记录，再往前翻页需要查库）
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * 估算占用内存（字节）
+     */
+    public long sizeInBytes() {
+        return 48 + ids.length * 12L;
+    }
+
+    private int physical(int logical) {
+        return (head + logical) % ids.length;
+    }
+
+    private void grow() {
+        int newLength = Math.min(capacity, ids.length * 2);
+        int[] newIds = new int[newLength];
+        long[] newTimes = new long[newLength];
+        for (int i = 0; i < size; i++) {
+            int slot = physical(i);
+            newIds[i] = ids[slot];
+            newTimes[i] = times[slot];
+        }
+        ids = newIds;
+        times = newTimes;
+        head = 0;
+    }
+}
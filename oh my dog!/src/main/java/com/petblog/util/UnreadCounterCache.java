@@ -0,0 +1,103 @@
+package com.petblog.util;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 未读计数热缓存
+ * 按用户缓存未读私信数和未读通知数，首次查询时从 unread_counters 表加载，
+ * 写路径在事务提交后移除该用户的缓存，没有新变化时角标查询不再访问数据库。
+ * 不在缓存上叠加增量：加载可能已读到刚提交的值，再叠加会重复计数。
+ * 超过容量时按最近最少使用淘汰。
+ *
+ * 容量可通过系统属性 unread.counter.hotUsers 设置，默认100000。
+ */
+public class UnreadCounterCache {
+
+    /**
+     * 计数类型：未读私信
+     */
+    public static final int MESSAGES = 0;
+
+    /**
+     * 计数类型：未读通知
+     */
+    public static final int INFORMS = 1;
+
+    private static final int HOT_USERS = Integer.getInteger("unread.counter.hotUsers", 100000);
+
+    /**
+     * 加载用户计数的回调（通常为DAO方法）
+     */
+    public interface Loader {
+        /**
+         * @return 按类型下标排列的计数，加载失败返回null（不缓存）
+         */
+        int[] load(Integer userId) throws SQLException;
+    }
+
+    private static final Object lock = new Object();
+    private static final LinkedHashMap<Integer, int[]> counters = new LinkedHashMap<Integer, int[]>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+            return size() > HOT_USERS;
+        }
+    };
+
+    /**
+     * 加载版本戳：写路径使缓存失效时递增，加载期间版本变化的结果不放入缓存
+     */
+    private static final LoadVersions versions = new LoadVersions(4096);
+
+    private static final MetricsRegistry.Counter hits = MetricsRegistry.counter("unread.counter", "result", "hit");
+    private static final MetricsRegistry.Counter misses = MetricsRegistry.counter("unread.counter", "result", "miss");
+
+    /**
+     * 读取用户的未读计数（未缓存时先加载）
+     * @return 计数副本，加载失败时返回null
+     */
+    public static int[] get(int userId, Loader loader) throws SQLException {
+        synchronized (lock) {
+            int[] cached = counters.get(userId);
+            if (cached != null) {
+                hits.increment();
+                return cached.clone();
+            }
+        }
+        misses.increment();
+        long version = versions.current(userId);
+        int[] loaded = loader.load(userId);
+        if (loaded == null) {
+            return null;
+        }
+        synchronized (lock) {
+            if (versions.unchanged(userId, version)) {
+                counters.putIfAbsent(userId, loaded.clone());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 移除某个用户的缓存（写路径在事务提交后调用，下次查询重新加载）
+     */
+    public static void invalidate(int userId) {
+        versions.bump(userId);
+        synchronized (lock) {
+            counters.remove(userId);
+        }
+    }
+
+    /**
+     * 缓存状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        synchronized (lock) {
+            status.put("users", counters.size());
+        }
+        status.put("hotUsers", HOT_USERS);
+        return status;
+    }
+}
@@ -0,0 +1,230 @@
+package com.petblog.util;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用户互动位图缓存
+ * 按用户缓存其点赞、收藏过的博客ID集合（CompactIntSet），首次查询时从数据库整体加载，
+ * 之后由切换/新增/删除路径增量更新，回答"是否点赞/收藏"不再访问数据库。
+ * 所有用户的位图共享一个全局内存预算，超出时按最近最少使用淘汰。
+ *
+ * 内存预算可通过系统属性 interaction.bitmap.budgetBytes 设置，默认32MB。
+ */
+public class UserBitmapCache {
+
+    /**
+     * 位图类型：点赞
+     */
+    public static final int LIKES = 0;
+
+    /**
+     * 位图类型：收藏
+     */
+    public static final int FAVORITES = 1;
+
+    private static final String[] KIND_NAMES = {"likes", "favorites"};
+
+    private static final long BUDGET_BYTES = Long.getLong("interaction.bitmap.budgetBytes", 32L * 1024 * 1024);
+
+    /**
+     * 加载用户完整集合的回调（通常为DAO方法）
+     */
+    public interface Loader {
+        /**
+         * @return 用户的全部博客ID，加载失败返回null（不缓存）
+         */
+        Collection<Integer> load(Integer userId) throws SQLException;
+    }
+
+    private static final Object lock = new Object();
+    private static final LinkedHashMap<Long, CompactIntSet> bitmaps = new LinkedHashMap<>(256, 0.75f, true);
+    private static long totalBytes = 0;
+
+    /**
+     * 加载期间发生过更新的位图不缓存
+     */
+    private static final LoadVersions versions = new LoadVersions(4096);
+
+    /**
+     * 按类型记录的全局版本，invalidateAll 时递增
+     */
+    private static final long[] kindVersions = new long[KIND_NAMES.length];
+
+    private static final MetricsRegistry.Counter[] hits = new MetricsRegistry.Counter[KIND_NAMES.length];
+    private static final MetricsRegistry.Counter[] misses = new MetricsRegistry.Counter[KIND_NAMES.length];
+    private static final MetricsRegistry.Counter evictions = MetricsRegistry.counter("interaction.bitmap.evictions");
+
+    static {
+        for (int i = 0; i < KIND_NAMES.length; i++) {
+            hits[i] = MetricsRegistry.counter("interaction.bitmap.hits", "kind", KIND_NAMES[i]);
+            misses[i] = MetricsRegistry.counter("interaction.bitmap.misses", "kind", KIND_NAMES[i]);
+        }
+    }
+
+    /**
+     * 判断用户集合是否包含指定博客（未缓存时先加载）
+     * @return 是否包含，加载失败时返回null（调用方应回退到数据库查询）
+     */
+    public static Boolean contains(int kind, int userId, int blogId, Loader loader) throws SQLException {
+        long key = key(kind, userId);
+        synchronized (lock) {
+            CompactIntSet set = bitmaps.get(key);
+            if (set != null) {
+                hits[kind].increment();
+                return set.contains(blogId);
+            }
+        }
+        CompactIntSet loaded = load(kind, userId, loader);
+        return loaded != null ? loaded.contains(blogId) : null;
+    }
+
+    /**
+     * 从候选博客中筛选出用户集合包含的博客（未缓存时先加载）
+     * @return 包含的博客ID集合，加载失败时返回null（调用方应回退到数据库查询）
+     */
+    public static Set<Integer> filter(int kind, int userId, Collection<Integer> blogIds, Loader loader) throws SQLException {
+        long key = key(kind, userId);
+        CompactIntSet set;
+        synchronized (lock) {
+            set = bitmaps.get(key);
+            if (set != null) {
+                hits[kind].increment();
+                return filter(set, blogIds);
+            }
+        }
+        set = load(kind, userId, loader);
+        if (set == null) {
+            return null;
+        }
+        synchronized (lock) {
+            return filter(set, blogIds);
+        }
+    }
+
+    /**
+     * 增量更新（仅当该用户的位图已缓存时生效）
+     * @param present 更新后是否包含该博客
+     */
+    public static void update(int kind, int userId, int blogId, boolean present) {
+        long key = key(kind, userId);
+        versions.bump(key);
+        synchronized (lock) {
+            CompactIntSet set = bitmaps.get(key);
+            if (set == null) {
+                return;
+            }
+            long before = set.sizeInBytes();
+            if (present) {
+                set.add(blogId);
+            } else {
+                set.remove(blogId);
+            }
+            totalBytes += set.sizeInBytes() - before;
+            evictOverBudget();
+        }
+    }
+
+    /**
+     * 移除某个用户的位图（批量删除等无法增量更新时调用）
+     */
+    public static void invalidate(int kind, int userId) {
+        long key = key(kind, userId);
+        versions.bump(key);
+        synchronized (lock) {
+            CompactIntSet removed = bitmaps.remove(key);
+            if (removed != null) {
+                totalBytes -= removed.sizeInBytes();
+            }
+        }
+    }
+
+    /**
+     * 移除某类型的全部位图（如删除博客时清除所有用户的记录）
+     */
+    public static void invalidateAll(int kind) {
+        synchronized (lock) {
+            kindVersions[kind]++;
+            Iterator<Map.Entry<Long, CompactIntSet>> it = bitmaps.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, CompactIntSet> entry = it.next();
+                if ((int) (entry.getKey() >>> 32) == kind) {
+                    totalBytes -= entry.getValue().sizeInBytes();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 缓存状态（供管理员接口查看）
+     */
+    public static Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        synchronized (lock) {
+            status.put("users", bitmaps.size());
+            status.put("totalBytes", totalBytes);
+            status.put("avgBytesPerUser", bitmaps.isEmpty() ? 0 : totalBytes / bitmaps.size());
+        }
+        status.put("budgetBytes", BUDGET_BYTES);
+        return status;
+    }
+
+    private static CompactIntSet load(int kind, int userId, Loader loader) throws SQLException {
+        long key = key(kind, userId);
+        misses[kind].increment();
+        long version = versions.current(key);
+        long kindVersion;
+        synchronized (lock) {
+            kindVersion = kindVersions[kind];
+        }
+        Collection<Integer> ids = loader.load(userId);
+        if (ids == null) {
+            return null;
+        }
+        CompactIntSet set = CompactIntSet.of(ids);
+        synchronized (lock) {
+            if (!versions.unchanged(key, version) || kindVersions[kind] != kindVersion) {
+                // 加载期间有并发更新，结果可能已过期，只用于本次回答，不缓存
+                return set;
+            }
+            CompactIntSet existing = bitmaps.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            bitmaps.put(key, set);
+            totalBytes += set.sizeInBytes();
+            evictOverBudget();
+        }
+        return set;
+    }
+
+    private static Set<Integer> filter(CompactIntSet set, Collection<Integer> blogIds) {
+        Set<Integer> result = new HashSet<>();
+        for (Integer blogId : blogIds) {
+            if (blogId != null && set.contains(blogId)) {
+                result.add(blogId);
+            }
+        }
+        return result;
+    }
+
+    private static void evictOverBudget() {
+        Iterator<Map.Entry<Long, CompactIntSet>> it = bitmaps.entrySet().iterator();
+        while (totalBytes > BUDGET_BYTES && it.hasNext()) {
+            Map.Entry<Long, CompactIntSet> eldest = it.next();
+            totalBytes -= eldest.getValue().sizeInBytes();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long key(int kind, int userId) {
+        return ((long) kind << 32) | (userId & 0xFFFFFFFFL);
+    }
+}
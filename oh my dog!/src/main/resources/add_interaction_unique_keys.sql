@@ -0,0 +1,44 @@
+-- 互动关系表唯一键脚本
+-- 点赞、收藏、投票、关注的切换操作依赖 (用户, 目标) 唯一键：
+-- 先按唯一键条件 DELETE，删除 0 行时再 INSERT IGNORE，并发重复点击不会产生重复记录。
+-- ⚠️ 执行前请备份数据库，并先清理已有的重复记录！
+-- 如果表已使用 (user_id, blog_id) 联合主键，对应语句会因索引重复报错，可直接跳过。
+
+ALTER TABLE likes ADD UNIQUE KEY uk_likes_user_blog (user_id, blog_id);
+ALTER TABLE favorites ADD UNIQUE KEY uk_favorites_user_blog (user_id, blog_id);
+ALTER TABLE votes ADD UNIQUE KEY uk_votes_user_blog (user_id, blog_id);
+ALTER TABLE follows ADD UNIQUE KEY uk_follows_follower_followee (follower_id, followee_id);
+
+-- 计数查询按目标统计，补充目标列索引
+ALTER TABLE likes ADD INDEX idx_likes_blog (blog_id);
+ALTER TABLE favorites ADD INDEX idx_favorites_blog (blog_id);
+ALTER TABLE votes ADD INDEX idx_votes_blog (blog_id);
+ALTER TABLE follows ADD INDEX idx_follows_followee (followee_id);
+
+-- 点赞列表、收藏列表按 (user_id, 时间, blog_id) 做键集分页
+ALTER TABLE likes ADD INDEX idx_likes_user_time (user_id, like_time, blog_id);
+ALTER TABLE favorites ADD INDEX idx_favorites_user_time (user_id, favorite_time, blog_id);
+
+-- 动态广场各事件源按 (时间, ID) 倒序做键集分页
+ALTER TABLE blogs ADD INDEX idx_blogs_create_time (blog_create_time, blog_id);
+ALTER TABLE reposts ADD INDEX idx_reposts_time (reposts_time, repost_id);
+ALTER TABLE reposts ADD INDEX idx_reposts_repost_id (repost_id);
+ALTER TABLE blogchallenge ADD INDEX idx_blogchallenge_blog (blog_id);
+ALTER TABLE topics ADD INDEX idx_topics_create_time (topic_create_time, topic_id);
+
+-- 转发列表按 (转发者 / 原博客, 转发时间, 转发ID) 做键集分页
+ALTER TABLE reposts ADD INDEX idx_reposts_user_time (user_id, reposts_time, repost_id);
+ALTER TABLE reposts ADD INDEX idx_reposts_blog_time (blog_Id, reposts_time, repost_id);
+
+-- 挑战热度聚合：按挑战取参赛博客，按博客统计一级评论
+ALTER TABLE blogchallenge ADD INDEX idx_blogchallenge_challenge (challenge_id, blog_id);
+ALTER TABLE replies ADD INDEX idx_replies_blog_parent (blog_id, parentReply);
+
+-- 挑战宠物排名：由参赛博客关联宠物
+ALTER TABLE blogpet ADD INDEX idx_blogpet_blog_pet (blog_id, pet_id);
+
+-- 管理员评论列表按 (发布时间, 评论ID) 倒序分页
+ALTER TABLE replies ADD INDEX idx_replies_create_time (reply_createdtime, reply_id);
+
+-- 粉丝列表切片按粉丝ID升序分页（与关注图顺序一致）
+ALTER TABLE follows ADD INDEX idx_follows_followee_follower (followee_id, follower_id);
@@ -0,0 +1,39 @@
+-- 挑战最终结果表
+-- 挑战到达结束时间时由后台调度一次性写入，之后已结束挑战的热度、博客排名、宠物排名和获胜者只读这些表。
+-- challenge_results 的主键保证每个挑战只保存一次。
+CREATE TABLE IF NOT EXISTS challenge_results (
+    challenge_id INT NOT NULL COMMENT '挑战ID',
+    heat INT NOT NULL DEFAULT 0 COMMENT '挑战热度',
+    blog_count INT NOT NULL DEFAULT 0 COMMENT '参赛博客数',
+    pet_count INT NOT NULL DEFAULT 0 COMMENT '参赛宠物数',
+    finalized_time DATETIME NOT NULL COMMENT '结果保存时间',
+    PRIMARY KEY (challenge_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='挑战最终结果';
+
+CREATE TABLE IF NOT EXISTS challenge_blog_results (
+    challenge_id INT NOT NULL COMMENT '挑战ID',
+    blog_id INT NOT NULL COMMENT '博客ID',
+    ranking INT NOT NULL COMMENT '名次（投票数降序、博客ID升序）',
+    vote_count INT NOT NULL DEFAULT 0 COMMENT '投票数',
+    like_count INT NOT NULL DEFAULT 0 COMMENT '点赞数',
+    favorite_count INT NOT NULL DEFAULT 0 COMMENT '收藏数',
+    comment_count INT NOT NULL DEFAULT 0 COMMENT '一级评论数',
+    repost_count INT NOT NULL DEFAULT 0 COMMENT '转发数',
+    heat INT NOT NULL DEFAULT 0 COMMENT '博客热度',
+    PRIMARY KEY (challenge_id, blog_id),
+    KEY idx_challenge_blog_results_ranking (challenge_id, ranking)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='挑战最终博客排名';
+
+CREATE TABLE IF NOT EXISTS challenge_pet_results (
+    challenge_id INT NOT NULL COMMENT '挑战ID',
+    pet_id INT NOT NULL COMMENT '宠物ID',
+    ranking INT NOT NULL COMMENT '名次（投票数降序、宠物ID升序）',
+    vote_count INT NOT NULL DEFAULT 0 COMMENT '投票总数',
+    blog_count INT NOT NULL DEFAULT 0 COMMENT '参赛博客数',
+    PRIMARY KEY (challenge_id, pet_id),
+    KEY idx_challenge_pet_results_ranking (challenge_id, ranking)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='挑战最终宠物排名';
+
+-- 调度按状态和开始时间找待开始的挑战、按结束时间找待结束的挑战
+ALTER TABLE challenges ADD INDEX idx_challenges_status_start (chellenge_status, challenge_start_time);
+ALTER TABLE challenges ADD INDEX idx_challenges_end_time (challenge_end_time);
@@ -0,0 +1,33 @@
+-- 私信会话表
+-- 每对用户一行，按 (较小用户ID, 较大用户ID) 唯一；记录最后一条消息和双方各自的未读数。
+-- 发送、标记已读、删除消息时与 message 表在同一事务中维护，会话列表走索引做键集分页。
+CREATE TABLE IF NOT EXISTS conversations (
+    user_low INT NOT NULL COMMENT '较小的用户ID',
+    user_high INT NOT NULL COMMENT '较大的用户ID',
+    last_message_id INT NOT NULL COMMENT '最后一条消息ID',
+    last_time DATETIME NOT NULL COMMENT '最后一条消息时间',
+    unread_low INT NOT NULL DEFAULT 0 COMMENT 'user_low 的未读消息数',
+    unread_high INT NOT NULL DEFAULT 0 COMMENT 'user_high 的未读消息数',
+    PRIMARY KEY (user_low, user_high),
+    INDEX idx_conversations_low_time (user_low, last_time, user_high),
+    INDEX idx_conversations_high_time (user_high, last_time, user_low)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='私信会话';
+
+-- 由已有消息回填（只需在建表后执行一次）
+-- 每对用户按 (creation_time DESC, message_id DESC) 取出最后一条消息，ID 和时间都取自这一行
+INSERT INTO conversations (user_low, user_high, last_message_id, last_time, unread_low, unread_high)
+SELECT p.user_low, p.user_high, last.message_id, last.creation_time, p.unread_low, p.unread_high
+FROM (
+    SELECT LEAST(m.sender_id, m.receiver_id) AS user_low, GREATEST(m.sender_id, m.receiver_id) AS user_high,
+           SUM(m.is_read = 0 AND m.sender_id <> m.receiver_id AND m.receiver_id < m.sender_id) AS unread_low,
+           SUM(m.is_read = 0 AND m.sender_id <> m.receiver_id AND m.receiver_id > m.sender_id) AS unread_high
+    FROM message m
+    GROUP BY LEAST(m.sender_id, m.receiver_id), GREATEST(m.sender_id, m.receiver_id)
+) p
+JOIN message last ON last.message_id = (
+    SELECT l.message_id FROM message l
+    WHERE LEAST(l.sender_id, l.receiver_id) = p.user_low AND GREATEST(l.sender_id, l.receiver_id) = p.user_high
+    ORDER BY l.creation_time DESC, l.message_id DESC LIMIT 1
+)
+ON DUPLICATE KEY UPDATE last_message_id = VALUES(last_message_id), last_time = VALUES(last_time),
+                        unread_low = VALUES(unread_low), unread_high = VALUES(unread_high);
@@ -0,0 +1,25 @@
+-- 私信会话键与归档表
+-- message 表增加按 (较小用户ID, 较大用户ID) 归一化的会话键（存储型生成列），
+-- 聊天记录按 (会话键, 发送时间, 消息ID) 索引做键集分页，不再使用 (A→B 或 B→A) 的 OR 条件。
+ALTER TABLE message
+    ADD COLUMN user_low INT AS (LEAST(sender_id, receiver_id)) STORED,
+    ADD COLUMN user_high INT AS (GREATEST(sender_id, receiver_id)) STORED,
+    ADD INDEX idx_message_conversation_time (user_low, user_high, creation_time, message_id),
+    ADD INDEX idx_message_creation_time (creation_time);
+
+-- 归档表：后台任务把超过保留期（系统属性 message.archive.months，默认6个月）的已读私信移到这里，
+-- 只在用户翻过热数据后查询；使用压缩行格式减少历史数据占用。
+CREATE TABLE IF NOT EXISTS message_archive (
+    message_id INT NOT NULL COMMENT '私信ID（与原表一致）',
+    user_low INT NOT NULL COMMENT '较小的用户ID',
+    user_high INT NOT NULL COMMENT '较大的用户ID',
+    sender_id INT NOT NULL COMMENT '发送方用户ID',
+    receiver_id INT NOT NULL COMMENT '接收方用户ID',
+    message_content TEXT COMMENT '私信内容',
+    creation_time DATETIME NOT NULL COMMENT '发送时间',
+    update_time DATETIME COMMENT '更新时间',
+    is_withdraw INT DEFAULT 0 COMMENT '是否撤回',
+    is_read INT DEFAULT 1 COMMENT '是否已读',
+    PRIMARY KEY (message_id),
+    INDEX idx_message_archive_conversation_time (user_low, user_high, creation_time, message_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8 COMMENT='私信归档';
@@ -0,0 +1,14 @@
+-- 关注时间线收件箱（写扩散）
+-- 作者发布博客时为每个粉丝写入一行；粉丝数超过阈值的作者不写扩散，由读取时拉取
+CREATE TABLE IF NOT EXISTS timeline (
+    user_id INT NOT NULL COMMENT '收件人（粉丝）ID',
+    blog_id INT NOT NULL COMMENT '博客ID',
+    blog_create_time DATETIME NOT NULL COMMENT '博客发布时间',
+    PRIMARY KEY (user_id, blog_id),
+    INDEX idx_timeline_user_time (user_id, blog_create_time, blog_id),
+    INDEX idx_timeline_blog (blog_id),
+    INDEX idx_timeline_time (blog_create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='关注时间线收件箱';
+
+-- 读取时拉取大V博客、冷启动回填按 (user_id, blog_create_time, blog_id) 做键集分页
+ALTER TABLE blogs ADD INDEX idx_blogs_user_time (user_id, blog_create_time, blog_id);
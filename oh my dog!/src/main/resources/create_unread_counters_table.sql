@@ -0,0 +1,24 @@
+-- 用户未读计数表
+-- 每个用户一行，记录未读私信数和未读通知数；发送/已读/删除私信和通知时与原表在同一事务中增减，
+-- 角标接口只读这一行（或进程内热缓存），不再统计 message / informs 表。
+CREATE TABLE IF NOT EXISTS unread_counters (
+    user_id INT NOT NULL COMMENT '用户ID',
+    unread_messages INT NOT NULL DEFAULT 0 COMMENT '未读私信数',
+    unread_informs INT NOT NULL DEFAULT 0 COMMENT '未读通知数',
+    PRIMARY KEY (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户未读计数';
+
+-- 由已有数据回填（只需在建表后执行一次）
+INSERT INTO unread_counters (user_id, unread_messages)
+SELECT m.receiver_id, COUNT(*)
+FROM message m
+WHERE m.is_read = 0 AND m.sender_id <> m.receiver_id
+GROUP BY m.receiver_id
+ON DUPLICATE KEY UPDATE unread_messages = VALUES(unread_messages);
+
+INSERT INTO unread_counters (user_id, unread_informs)
+SELECT i.user_id, COUNT(*)
+FROM informs i
+WHERE i.is_readed = 0
+GROUP BY i.user_id
+ON DUPLICATE KEY UPDATE unread_informs = VALUES(unread_informs);
@@ -0,0 +1,18 @@
+-- 分片投票计数表
+-- 每篇博客的投票数拆成最多N行（N由系统属性 vote.counter.shards 设置，默认16），投票/取消投票时在同一事务中
+-- 随机增减一个分片，热门博客的并发投票不再争抢同一行锁；单个分片可以为负，博客投票数为各分片之和。
+-- 后台定期把空闲博客的分片合并为 shard_id = 0 的一行，并按 votes 表校准。
+CREATE TABLE IF NOT EXISTS vote_counter_shards (
+    blog_id INT NOT NULL COMMENT '博客ID',
+    shard_id SMALLINT NOT NULL COMMENT '分片号',
+    vote_count INT NOT NULL DEFAULT 0 COMMENT '分片计数（可为负）',
+    update_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后更新时间',
+    PRIMARY KEY (blog_id, shard_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分片投票计数';
+
+-- 由已有数据回填（只需在建表后执行一次）
+INSERT INTO vote_counter_shards (blog_id, shard_id, vote_count)
+SELECT v.blog_id, 0, COUNT(*)
+FROM votes v
+GROUP BY v.blog_id
+ON DUPLICATE KEY UPDATE vote_count = VALUES(vote_count);
@@ -0,0 +1,202 @@
+package com.petblog.dao;
+
+import com.petblog.dao.impl.VoteDAOImpl;
+import com.petblog.util.JdbcUtil;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 分片投票计数并发负载测试
+ * 多个线程对同一篇博客反复切换投票，同时有线程读取计数、合并分片，结束后检查镜像、分片之和都等于 votes 表的行数；
+ * 另外分别以不同分片数测量每秒切换次数并输出，用来比较分片数对热门博客写入吞吐的影响。
+ * 需要已建好表并有数据的 MySQL，只在指定 jdbc.url 时运行，例如：
+ * mvn test -Dtest=ShardedVoteCounterLoadTest -Djdbc.url=jdbc:mysql://localhost:3306/db -Djdbc.username=root -Djdbc.password=...
+ *
+ * 可选系统属性：loadtest.threads（切换线程数，默认16）、loadtest.users（参与的用户数，默认20）、
+ * loadtest.togglesPerThread（每个线程的切换次数，默认200）、loadtest.shardCounts（测量吞吐的分片数，默认1,4,16）
+ */
+public class ShardedVoteCounterLoadTest {
+
+    private static final int THREADS = Integer.getInteger("loadtest.threads", 16);
+    private static final int USERS = Integer.getInteger("loadtest.users", 20);
+    private static final int TOGGLES_PER_THREAD = Integer.getInteger("loadtest.togglesPerThread", 200);
+    private static final String SHARD_COUNTS = System.getProperty("loadtest.shardCounts", "1,4,16");
+
+    private final VoteDAO voteDAO = new VoteDAOImpl();
+    private int blogId;
+    private List<Integer> userIds;
+    private Set<Integer> votedBefore;
+    private int shardsBefore;
+
+    @Before
+    public void setUp() throws SQLException {
+        Assume.assumeTrue("未指定 jdbc.url，跳过负载测试", System.getProperty("jdbc.url") != null);
+        List<Integer> blogs = queryIds("SELECT blog_id FROM blogs ORDER BY blog_id LIMIT ?", 1);
+        Assume.assumeTrue("数据库中没有博客", !blogs.isEmpty());
+        blogId = blogs.get(0);
+        userIds = queryIds("SELECT user_id FROM users ORDER BY user_id LIMIT ?", USERS);
+        Assume.assumeTrue("数据库中没有用户", !userIds.isEmpty());
+        shardsBefore = ShardedVoteCounter.getShards();
+        // 记下原有投票，结束后恢复
+        votedBefore = new HashSet<>();
+        for (Integer userId : userIds) {
+            if (voteDAO.findVotedBlogIds(userId, List.of(blogId)).contains(blogId)) {
+                votedBefore.add(userId);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        if (userIds == null) {
+            return;
+        }
+        ShardedVoteCounter.setShards(shardsBefore);
+        for (Integer userId : userIds) {
+            boolean voted = voteDAO.findVotedBlogIds(userId, List.of(blogId)).contains(blogId);
+            if (voted != votedBefore.contains(userId)) {
+                voteDAO.toggle(userId, blogId);
+            }
+        }
+    }
+
+    @Test
+    public void countsStayExactUnderConcurrentToggles() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 2);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<?>> togglers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            togglers.add(pool.submit(() -> {
+                startGate.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TOGGLES_PER_THREAD; i++) {
+                    Integer userId = userIds.get(random.nextInt(userIds.size()));
+                    assertTrue("切换投票失败", voteDAO.toggle(userId, blogId) != null);
+                }
+                return null;
+            }));
+        }
+        // 读取线程不断加载镜像，合并线程不断重写分片，与写路径竞争
+        Future<?> reader = pool.submit(() -> {
+            startGate.await();
+            while (!Thread.currentThread().isInterrupted()) {
+                ShardedVoteCounter.get(blogId);
+            }
+            return null;
+        });
+        Future<?> compactor = pool.submit(() -> {
+            startGate.await();
+            while (!Thread.currentThread().isInterrupted()) {
+                ShardedVoteCounter.reconcile(blogId);
+                Thread.sleep(20);
+            }
+            return null;
+        });
+
+        startGate.countDown();
+        for (Future<?> toggler : togglers) {
+            toggler.get(5, TimeUnit.MINUTES);
+        }
+        reader.cancel(true);
+        compactor.cancel(true);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertCountsExact();
+    }
+
+    @Test
+    public void reportsThroughputPerShardCount() throws Exception {
+        StringBuilder report = new StringBuilder("分片投票计数吞吐（").append(THREADS).append("个线程，每个线程")
+                .append(TOGGLES_PER_THREAD).append("次切换）：");
+        for (String value : SHARD_COUNTS.split(",")) {
+            int shards = Integer.parseInt(value.trim());
+            // 先把分片合并为一行，每轮从相同的状态开始
+            ShardedVoteCounter.reconcile(blogId);
+            ShardedVoteCounter.setShards(shards);
+            double perSecond = measureToggles();
+            assertCountsExact();
+            report.append(String.format(" shards=%d %.0f次/秒;", shards, perSecond));
+        }
+        System.out.println(report);
+    }
+
+    /**
+     * 各线程固定切换不同用户的投票（用户数不少于线程数时），只在计数分片上竞争
+     * @return 每秒切换次数
+     */
+    private double measureToggles() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<?>> togglers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Integer userId = userIds.get(t % userIds.size());
+            togglers.add(pool.submit(() -> {
+                startGate.await();
+                for (int i = 0; i < TOGGLES_PER_THREAD; i++) {
+                    assertTrue("切换投票失败", voteDAO.toggle(userId, blogId) != null);
+                }
+                return null;
+            }));
+        }
+        long start = System.nanoTime();
+        startGate.countDown();
+        for (Future<?> toggler : togglers) {
+            toggler.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        return THREADS * (double) TOGGLES_PER_THREAD * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsed);
+    }
+
+    private void assertCountsExact() throws SQLException {
+        int actual = count("SELECT COUNT(*) FROM votes WHERE blog_id = ?");
+        assertEquals("分片之和与 votes 表不一致", actual, count("SELECT COALESCE(SUM(vote_count), 0) FROM vote_counter_shards WHERE blog_id = ?"));
+        assertEquals("镜像计数与 votes 表不一致", actual, ShardedVoteCounter.get(blogId));
+    }
+
+    private List<Integer> queryIds(String sql, int limit) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = JdbcUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection conn = JdbcUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, blogId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}